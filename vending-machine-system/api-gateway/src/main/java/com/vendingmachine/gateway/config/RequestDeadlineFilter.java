@@ -0,0 +1,66 @@
+package com.vendingmachine.gateway.config;
+
+import com.vendingmachine.common.util.RequestDeadlineUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Gateway filter that stamps every routed request with an absolute deadline.
+ * Downstream services stop retrying and skip remote calls once the deadline has passed,
+ * so a kiosk that has given up does not keep inventory and payment busy.
+ * A client may send a tighter deadline of its own; a looser one is capped to the gateway budget.
+ */
+@Component
+@Slf4j
+public class RequestDeadlineFilter implements GlobalFilter, Ordered {
+
+    private final Counter expiredAtGatewayCounter;
+    private final long deadlineBudgetMillis;
+
+    public RequestDeadlineFilter(MeterRegistry meterRegistry,
+                                 @Value("${application.request.deadline.millis:15000}") long deadlineBudgetMillis) {
+        this.deadlineBudgetMillis = deadlineBudgetMillis;
+        this.expiredAtGatewayCounter = Counter.builder("vending_machine.deadline.expired_at_gateway")
+                .description("Requests rejected at the gateway because the client deadline had already passed")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        long gatewayDeadline = System.currentTimeMillis() + deadlineBudgetMillis;
+        Long clientDeadline = RequestDeadlineUtil.parseDeadline(
+                exchange.getRequest().getHeaders().getFirst(RequestDeadlineUtil.DEADLINE_HEADER));
+
+        long deadline = clientDeadline != null ? Math.min(clientDeadline, gatewayDeadline) : gatewayDeadline;
+
+        if (RequestDeadlineUtil.isExpired(deadline)) {
+            log.warn("Rejecting {} {}: request deadline already passed",
+                    exchange.getRequest().getMethod(), exchange.getRequest().getURI());
+            expiredAtGatewayCounter.increment();
+            exchange.getResponse().setStatusCode(HttpStatus.GATEWAY_TIMEOUT);
+            return exchange.getResponse().setComplete();
+        }
+
+        ServerWebExchange modifiedExchange = exchange.mutate()
+                .request(exchange.getRequest().mutate()
+                        .headers(headers -> headers.set(RequestDeadlineUtil.DEADLINE_HEADER, Long.toString(deadline)))
+                        .build())
+                .build();
+
+        return chain.filter(modifiedExchange);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 1; // Right after logging, before routing
+    }
+}
@@ -1,5 +1,6 @@
 package com.vendingmachine.gateway.exception;
 
+import com.vendingmachine.common.util.TimeOrderedIds;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -12,7 +13,6 @@ import org.springframework.web.bind.support.WebExchangeBindException;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
 
 /**
  * Global Exception Handler for API Gateway
@@ -28,7 +28,7 @@ public class GlobalExceptionHandler {
     public ResponseEntity<Map<String, Object>> handleValidationException(
             MethodArgumentNotValidException ex) {
 
-        String correlationId = UUID.randomUUID().toString();
+        String correlationId = TimeOrderedIds.nextString();
         log.error("Validation error [{}]: {}", correlationId, ex.getMessage());
 
         Map<String, String> errors = new HashMap<>();
@@ -55,7 +55,7 @@ public class GlobalExceptionHandler {
     public ResponseEntity<Map<String, Object>> handleWebExchangeBindException(
             WebExchangeBindException ex) {
 
-        String correlationId = UUID.randomUUID().toString();
+        String correlationId = TimeOrderedIds.nextString();
         log.error("WebFlux validation error [{}]: {}", correlationId, ex.getMessage());
 
         Map<String, String> errors = new HashMap<>();
@@ -77,7 +77,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(AuthenticationException.class)
     public ResponseEntity<Map<String, Object>> handleAuthenticationException(AuthenticationException ex) {
-        String correlationId = UUID.randomUUID().toString();
+        String correlationId = TimeOrderedIds.nextString();
         log.error("Authentication error [{}]: {}", correlationId, ex.getMessage());
 
         Map<String, Object> response = new HashMap<>();
@@ -94,7 +94,7 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<Map<String, Object>> handleRuntimeException(RuntimeException ex) {
-        String correlationId = UUID.randomUUID().toString();
+        String correlationId = TimeOrderedIds.nextString();
         log.error("Runtime error [{}]: {}", correlationId, ex.getMessage(), ex);
 
         Map<String, Object> response = new HashMap<>();
@@ -111,7 +111,7 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGenericException(Exception ex) {
-        String correlationId = UUID.randomUUID().toString();
+        String correlationId = TimeOrderedIds.nextString();
         log.error("Unexpected error [{}]: {}", correlationId, ex.getMessage(), ex);
 
         Map<String, Object> response = new HashMap<>();
@@ -0,0 +1,80 @@
+package com.vendingmachine.gateway.config;
+
+import com.vendingmachine.common.util.RequestDeadlineUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the gateway request deadline filter
+ */
+class RequestDeadlineFilterTest {
+
+    private static final long BUDGET_MILLIS = 15_000;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RequestDeadlineFilter filter = new RequestDeadlineFilter(meterRegistry, BUDGET_MILLIS);
+    private final AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+    private final GatewayFilterChain chain = exchange -> {
+        forwarded.set(exchange);
+        return Mono.empty();
+    };
+
+    @Test
+    void testExpiredClientDeadlineIsRejectedWith504() {
+        MockServerWebExchange exchange = exchange(System.currentTimeMillis() - 1_000);
+
+        filter.filter(exchange, chain).block();
+
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, exchange.getResponse().getStatusCode());
+        assertNull(forwarded.get());
+        assertEquals(1, meterRegistry.get("vending_machine.deadline.expired_at_gateway").counter().count());
+    }
+
+    @Test
+    void testLooserClientDeadlineIsCappedToTheGatewayBudget() {
+        long before = System.currentTimeMillis();
+
+        filter.filter(exchange(before + 10 * BUDGET_MILLIS), chain).block();
+
+        long deadline = forwardedDeadline();
+        assertTrue(deadline >= before + BUDGET_MILLIS && deadline <= System.currentTimeMillis() + BUDGET_MILLIS);
+    }
+
+    @Test
+    void testTighterClientDeadlineIsKept() {
+        long clientDeadline = System.currentTimeMillis() + 2_000;
+
+        filter.filter(exchange(clientDeadline), chain).block();
+
+        assertEquals(clientDeadline, forwardedDeadline());
+    }
+
+    @Test
+    void testRequestsWithoutDeadlineGetTheGatewayBudget() {
+        long before = System.currentTimeMillis();
+
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.post("/api/transaction/purchase")), chain).block();
+
+        assertTrue(forwardedDeadline() >= before + BUDGET_MILLIS);
+    }
+
+    private long forwardedDeadline() {
+        assertNotNull(forwarded.get(), "Request was not forwarded");
+        return Long.parseLong(forwarded.get().getRequest().getHeaders().getFirst(RequestDeadlineUtil.DEADLINE_HEADER));
+    }
+
+    private static MockServerWebExchange exchange(long clientDeadline) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/api/transaction/purchase")
+                .header(RequestDeadlineUtil.DEADLINE_HEADER, Long.toString(clientDeadline)));
+    }
+}
@@ -0,0 +1,108 @@
+package com.vendingmachine.benchmark;
+
+import com.vendingmachine.common.kafka.KafkaProducerSettings;
+import com.vendingmachine.common.kafka.UnifiedTopicConfig;
+import com.vendingmachine.common.replay.DlqReplayEngine;
+import com.vendingmachine.common.replay.DlqReplayFilter;
+import com.vendingmachine.common.replay.DlqReplayProgress;
+import com.vendingmachine.common.replay.FailedEventStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Time to replay a 100k-event DLQ backlog to an embedded broker with {@link DlqReplayEngine}, from an
+ * in-memory failed_events store, at the default page size and a few replay rates.
+ * <p>
+ * {@code main} takes the backlog size, 100k events by default.
+ */
+public class DlqReplayBenchmark {
+
+    private static final String TOPIC = UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC;
+    private static final int DEFAULT_RECORDS = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RECORDS;
+        EmbeddedKafkaKraftBroker broker = new EmbeddedKafkaKraftBroker(1, 3, TOPIC);
+        broker.afterPropertiesSet();
+        try {
+            System.out.printf("%-14s %10s %12s %10s%n", "rate limit/s", "records", "records/sec", "seconds");
+            for (int rate : new int[] {2_000, 10_000, 50_000}) {
+                int count = Math.min(records, rate * 10);
+                Store store = new Store(count);
+                DlqReplayEngine engine = new DlqReplayEngine(
+                        new StaticListableBeanFactory(Map.of("failedEventStore", store))
+                                .getBeanProvider(FailedEventStore.class),
+                        new KafkaProducerSettings(broker.getBrokersAsString(), "high-throughput"),
+                        new NoOpTransactionManager(), new SimpleMeterRegistry(), "benchmark", 500, rate);
+                try {
+                    DlqReplayProgress progress = engine.start(
+                            new DlqReplayFilter(null, null, null, null, null, null), "benchmark");
+                    while (progress.status() == DlqReplayProgress.Status.RUNNING) {
+                        Thread.sleep(100);
+                        progress = engine.progress(progress.jobId()).orElseThrow();
+                    }
+                    System.out.printf("%-14d %10d %12.0f %10.1f%n", rate, progress.replayed(),
+                            progress.recordsPerSecond(), progress.replayed() / progress.recordsPerSecond());
+                } finally {
+                    engine.shutdown();
+                }
+            }
+        } finally {
+            broker.destroy();
+        }
+    }
+
+    private static final class Store implements FailedEventStore {
+
+        private final List<FailedEventRecord> rows = new ArrayList<>();
+
+        Store(int count) {
+            for (long id = 1; id <= count; id++) {
+                rows.add(new FailedEventRecord(id, TOPIC, "{\"eventId\":\"evt-" + id
+                        + "\",\"eventType\":\"TRANSACTION_PROCESSING\",\"source\":\"transaction-service\","
+                        + "\"aggregateId\":\"" + (id % 1000) + "\",\"payload\":{\"transactionId\":" + (id % 1000)
+                        + ",\"status\":\"PROCESSING\",\"totalAmount\":5.50}}"));
+            }
+        }
+
+        @Override
+        public List<FailedEventRecord> findPage(DlqReplayFilter filter, long afterId, int limit) {
+            int from = (int) afterId;
+            return rows.subList(Math.min(from, rows.size()), Math.min(from + limit, rows.size()));
+        }
+
+        @Override
+        public int markReplayed(List<Long> ids, LocalDateTime replayedAt, String replayedBy) {
+            return ids.size();
+        }
+    }
+
+    private static final class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.vendingmachine.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.event.payload.TransactionPayload;
+import com.vendingmachine.common.kafka.DomainEventBinarySerializer;
+import com.vendingmachine.common.kafka.DomainEventDeserializer;
+import com.vendingmachine.common.kafka.DomainEventSerializer;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.kafka.support.JacksonUtils;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publish and consume CPU cost per domain event: the legacy envelope (payload as an
+ * escaped JSON string, a new ObjectMapper per publish, Spring's JsonSerializer mapper for
+ * the envelope) against the typed envelope with the shared mapper, and against the compact
+ * binary format. {@code main} prints the record size of each format before the run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DomainEventSerdeBenchmark {
+
+    private static final String TOPIC = "vending-machine-domain-events";
+
+    private final ObjectMapper envelopeMapper = JacksonUtils.enhancedObjectMapper();
+    private final ObjectMapper consumerMapper = new ObjectMapper();
+    private final DomainEventSerializer serializer = new DomainEventSerializer();
+    private final DomainEventBinarySerializer binarySerializer = new DomainEventBinarySerializer();
+    private final DomainEventDeserializer deserializer = new DomainEventDeserializer();
+
+    private TransactionPayload payload;
+    private byte[] legacyBytes;
+    private byte[] typedBytes;
+    private byte[] binaryBytes;
+
+    @Setup
+    public void setUp() throws Exception {
+        payload = TransactionPayload.forCreated(12345L, 7L, 101L, 2, new BigDecimal("5.50"), "CARD");
+        legacyBytes = publishLegacy();
+        typedBytes = publishTyped();
+        binaryBytes = publishBinary();
+    }
+
+    @Benchmark
+    public byte[] publishLegacy() throws Exception {
+        LegacyDomainEvent event = new LegacyDomainEvent("txn-created-12345", "TRANSACTION_CREATED", "12345",
+                "TRANSACTION", "transaction-service", "corr-1", 1700000000000L,
+                new ObjectMapper().writeValueAsString(payload), new HashMap<>(), "1.0");
+        return envelopeMapper.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public byte[] publishTyped() {
+        return serializer.serialize(TOPIC, typedEvent());
+    }
+
+    @Benchmark
+    public byte[] publishBinary() {
+        return binarySerializer.serialize(TOPIC, typedEvent());
+    }
+
+    private DomainEvent typedEvent() {
+        return DomainEvent.builder()
+                .eventId("txn-created-12345")
+                .eventType("TRANSACTION_CREATED")
+                .aggregateId("12345")
+                .aggregateType("TRANSACTION")
+                .source("transaction-service")
+                .correlationId("corr-1")
+                .timestamp(1700000000000L)
+                .payload(DomainEvent.toPayload(payload))
+                .build();
+    }
+
+    @Benchmark
+    public TransactionPayload consumeLegacy() throws Exception {
+        LegacyDomainEvent event = envelopeMapper.readValue(legacyBytes, LegacyDomainEvent.class);
+        return consumerMapper.readValue(event.getPayload(), TransactionPayload.class);
+    }
+
+    @Benchmark
+    public TransactionPayload consumeTyped() {
+        return deserializer.deserialize(TOPIC, typedBytes).getPayloadAs(TransactionPayload.class);
+    }
+
+    @Benchmark
+    public TransactionPayload consumeBinary() {
+        return deserializer.deserialize(TOPIC, binaryBytes).getPayloadAs(TransactionPayload.class);
+    }
+
+    /**
+     * Envelope shape before the payload was embedded as a JSON object
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LegacyDomainEvent {
+        private String eventId;
+        private String eventType;
+        private String aggregateId;
+        private String aggregateType;
+        private String source;
+        private String correlationId;
+        private Long timestamp;
+        private String payload;
+        private Map<String, String> metadata;
+        private String version;
+    }
+
+    public static void main(String[] args) throws Exception {
+        DomainEventSerdeBenchmark sizes = new DomainEventSerdeBenchmark();
+        sizes.setUp();
+        System.out.printf("record size: legacy=%d typed=%d binary=%d bytes%n",
+                sizes.legacyBytes.length, sizes.typedBytes.length, sizes.binaryBytes.length);
+        Options options = new OptionsBuilder()
+                .include(DomainEventSerdeBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,135 @@
+package com.vendingmachine.benchmark;
+
+import com.vendingmachine.common.util.TimeOrderedIds;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongFunction;
+
+/**
+ * Behaviour of the unique event_id index of processed_events under each id scheme, on a model
+ * of the index's leaf level: sorted pages of {@value #PAGE_CAPACITY} entries, about a 16 KB
+ * InnoDB page of (event_id, event_type, primary key) entries. A full page splits in half, except
+ * that an insert past the last entry of the rightmost page opens a new page, as InnoDB does for
+ * sequential inserts.
+ * <p>
+ * For random UUIDs every insert lands on a random page, so pages split everywhere and settle
+ * around 70% full, and the set of pages written to is the whole index. Time-ordered ids append
+ * to the right edge: pages are written once, full, and only the last one is hot. The legacy
+ * {@code <prefix>-<type>-<id>-<millis>} ids are included for reference.
+ */
+public class EventIdIndexInsertBenchmark {
+
+    private static final int PAGE_CAPACITY = 128;
+    private static final int INSERTS = 1_000_000;
+    private static final String[] LEGACY_TYPES = {"created", "processing", "completed", "failed"};
+
+    public static void main(String[] args) {
+        System.out.printf("%-14s %10s %10s %10s %18s %12s%n",
+                "ids", "pages", "splits", "fill", "pages touched/1k", "ns/insert");
+        for (int round = 0; round < 2; round++) {
+            // First round warms up the JIT
+            boolean print = round == 1;
+            run("random UUID", sequence -> UUID.randomUUID().toString(), print);
+            run("time-ordered", sequence -> TimeOrderedIds.nextString(), print);
+            run("legacy", sequence -> "txn-" + LEGACY_TYPES[(int) (sequence % LEGACY_TYPES.length)] + "-"
+                    + (sequence / LEGACY_TYPES.length) + "-" + System.currentTimeMillis(), print);
+        }
+    }
+
+    private static void run(String name, LongFunction<String> ids, boolean print) {
+        LeafLevel index = new LeafLevel();
+        List<String> keys = new ArrayList<>(INSERTS);
+        for (long i = 0; i < INSERTS; i++) {
+            keys.add(ids.apply(i));
+        }
+
+        long start = System.nanoTime();
+        int touchedPerThousand = 0;
+        for (int i = 0; i < INSERTS; i++) {
+            index.insert(keys.get(i));
+            if ((i + 1) % 1_000 == 0 && i >= INSERTS - 100_000) {
+                touchedPerThousand = Math.max(touchedPerThousand, index.pagesTouched());
+            }
+            if ((i + 1) % 1_000 == 0) {
+                index.resetTouched();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        if (print) {
+            System.out.printf("%-14s %10d %10d %9.0f%% %18d %12.0f%n", name, index.pages.size(), index.splits,
+                    100.0 * INSERTS / ((long) index.pages.size() * PAGE_CAPACITY), touchedPerThousand,
+                    (double) elapsed / INSERTS);
+        }
+    }
+
+    /**
+     * Leaf pages of a B+-tree, found by binary search over their first keys
+     */
+    private static final class LeafLevel {
+
+        private final List<List<String>> pages = new ArrayList<>();
+        private final List<String> firstKeys = new ArrayList<>();
+        private final boolean[] touched = new boolean[INSERTS / 8];
+        private final List<Integer> touchedPages = new ArrayList<>();
+        private int splits;
+
+        LeafLevel() {
+            pages.add(new ArrayList<>(PAGE_CAPACITY));
+            firstKeys.add("");
+        }
+
+        void insert(String key) {
+            int pageIndex = Collections.binarySearch(firstKeys, key);
+            if (pageIndex < 0) {
+                pageIndex = -pageIndex - 2;
+            }
+            List<String> page = pages.get(pageIndex);
+            int position = -Collections.binarySearch(page, key) - 1;
+            touch(pageIndex);
+
+            if (page.size() < PAGE_CAPACITY) {
+                page.add(position, key);
+                return;
+            }
+            splits++;
+            List<String> right = new ArrayList<>(PAGE_CAPACITY);
+            if (pageIndex == pages.size() - 1 && position == page.size()) {
+                right.add(key);
+            } else {
+                List<String> upperHalf = page.subList(PAGE_CAPACITY / 2, PAGE_CAPACITY);
+                right.addAll(upperHalf);
+                upperHalf.clear();
+                if (position <= page.size()) {
+                    page.add(position, key);
+                } else {
+                    right.add(position - page.size(), key);
+                }
+            }
+            pages.add(pageIndex + 1, right);
+            firstKeys.add(pageIndex + 1, right.get(0));
+            touch(pageIndex + 1);
+        }
+
+        int pagesTouched() {
+            return touchedPages.size();
+        }
+
+        void resetTouched() {
+            touchedPages.forEach(page -> touched[page] = false);
+            touchedPages.clear();
+        }
+
+        private void touch(int pageIndex) {
+            // Page numbers shift on a split; close enough for a per-1k count
+            if (!touched[pageIndex]) {
+                touched[pageIndex] = true;
+                touchedPages.add(pageIndex);
+            }
+        }
+    }
+}
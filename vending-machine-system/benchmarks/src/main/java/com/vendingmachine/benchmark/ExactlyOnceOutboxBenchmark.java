@@ -0,0 +1,188 @@
+package com.vendingmachine.benchmark;
+
+import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.event.EventJson;
+import com.vendingmachine.common.event.payload.TransactionPayload;
+import com.vendingmachine.common.kafka.DomainEventSerializer;
+import com.vendingmachine.common.kafka.KafkaProducerSettings;
+import com.vendingmachine.common.kafka.UnifiedTopicConfig;
+import com.vendingmachine.common.outbox.OutboxStore;
+import com.vendingmachine.common.outbox.TransactionalOutbox;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput cost of exactly-once publishing: plain asynchronous sends with the idempotent
+ * low-latency producer (at-least-once, as {@code UnifiedEventPublisher} does) against the
+ * {@link TransactionalOutbox} relay draining the same events from an in-memory outbox, one Kafka
+ * transaction per page, at a few page sizes. The database side of the outbox is not measured.
+ * <p>
+ * {@code main} takes the number of events per mode, 100k by default.
+ */
+public class ExactlyOnceOutboxBenchmark {
+
+    private static final String TOPIC = UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC;
+    private static final int DEFAULT_RECORDS = 100_000;
+    private static final int WARMUP_RECORDS = 20_000;
+    private static final int[] PAGE_SIZES = {100, 500, 2000};
+
+    public static void main(String[] args) throws Exception {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RECORDS;
+        List<String> topics = new ArrayList<>(List.of(TOPIC, "benchmark-warmup" + TransactionalOutbox.POSITION_TOPIC_SUFFIX));
+        for (int pageSize : PAGE_SIZES) {
+            topics.add(service(pageSize) + TransactionalOutbox.POSITION_TOPIC_SUFFIX);
+        }
+        EmbeddedKafkaBroker broker = new EmbeddedKafkaKraftBroker(1, 3, topics.toArray(String[]::new))
+                .brokerProperties(Map.of("transaction.state.log.replication.factor", "1",
+                        "transaction.state.log.min.isr", "1"));
+        broker.afterPropertiesSet();
+        try {
+            KafkaProducerSettings settings = new KafkaProducerSettings(broker.getBrokersAsString(), "low-latency");
+            // Warm up the producer path and create the transaction and offsets topics
+            atLeastOnce(settings, WARMUP_RECORDS);
+            exactlyOnce(settings, WARMUP_RECORDS, "benchmark-warmup", 500);
+
+            System.out.printf("%-28s %12s%n", "mode", "records/sec");
+            System.out.printf("%-28s %12.0f%n", "at-least-once", atLeastOnce(settings, records));
+            for (int pageSize : PAGE_SIZES) {
+                System.out.printf("%-28s %12.0f%n", "exactly-once, page " + pageSize,
+                        exactlyOnce(settings, records, service(pageSize), pageSize));
+            }
+        } finally {
+            broker.destroy();
+        }
+    }
+
+    private static double atLeastOnce(KafkaProducerSettings settings, int records) throws InterruptedException {
+        try (KafkaProducer<String, DomainEvent> producer =
+                     new KafkaProducer<>(settings.producerConfigs(DomainEventSerializer.class))) {
+            CountDownLatch acknowledged = new CountDownLatch(records);
+            AtomicInteger failures = new AtomicInteger();
+            long start = System.nanoTime();
+            for (int i = 0; i < records; i++) {
+                DomainEvent event = event(i);
+                producer.send(new ProducerRecord<>(TOPIC, event.getAggregateId(), event), (metadata, exception) -> {
+                    if (exception != null) {
+                        failures.incrementAndGet();
+                    }
+                    acknowledged.countDown();
+                });
+            }
+            if (!acknowledged.await(5, TimeUnit.MINUTES) || failures.get() > 0) {
+                throw new IllegalStateException(failures.get() + " sends failed or timed out");
+            }
+            return records / ((System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    private static double exactlyOnce(KafkaProducerSettings settings, int records, String service, int pageSize)
+            throws Exception {
+        Store store = new Store(records);
+        TransactionalOutbox outbox = new TransactionalOutbox(null,
+                new StaticListableBeanFactory(Map.of("outboxStore", store)).getBeanProvider(OutboxStore.class),
+                settings, new NoOpTransactionManager(), new SimpleMeterRegistry(), service,
+                true, pageSize, 100, "json", "");
+        try {
+            long start = System.nanoTime();
+            outbox.start();
+            long deadline = start + TimeUnit.MINUTES.toNanos(5);
+            while (!store.rows.isEmpty()) {
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException(store.rows.size() + " outbox rows not relayed within 5 minutes");
+                }
+                Thread.sleep(5);
+            }
+            return records / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            outbox.close();
+        }
+    }
+
+    private static String service(int pageSize) {
+        return "benchmark-" + pageSize;
+    }
+
+    private static DomainEvent event(int i) {
+        long transactionId = i % 1000;
+        TransactionPayload payload = TransactionPayload.forCreated(transactionId, 7L, 101L, 2,
+                new BigDecimal("5.50"), "CARD");
+        return DomainEvent.transactionCreated(transactionId, payload)
+                .withSource(UnifiedTopicConfig.TRANSACTION_SERVICE)
+                .withCorrelationId("bench-" + i);
+    }
+
+    private static final class Store implements OutboxStore {
+
+        private final ConcurrentSkipListMap<Long, OutboxRecord> rows = new ConcurrentSkipListMap<>();
+        private final AtomicLong nextId = new AtomicLong();
+
+        Store(int count) throws Exception {
+            for (int i = 0; i < count; i++) {
+                DomainEvent event = event(i);
+                append(TOPIC, event.getAggregateId(), EventJson.mapper().writeValueAsString(event));
+            }
+        }
+
+        @Override
+        public void append(String topic, String eventKey, String eventData) {
+            long id = nextId.incrementAndGet();
+            rows.put(id, new OutboxRecord(id, topic, eventKey, eventData));
+        }
+
+        @Override
+        public List<OutboxRecord> findPage(int limit) {
+            List<OutboxRecord> page = new ArrayList<>(limit);
+            for (OutboxRecord row : rows.values()) {
+                if (page.size() == limit) {
+                    break;
+                }
+                page.add(row);
+            }
+            return page;
+        }
+
+        @Override
+        public int delete(Collection<Long> ids) {
+            ids.forEach(rows::remove);
+            return ids.size();
+        }
+    }
+
+    private static final class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.vendingmachine.benchmark;
+
+import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.event.payload.TransactionPayload;
+import com.vendingmachine.common.kafka.DomainEventSerializer;
+import com.vendingmachine.common.kafka.KafkaProducerProfile;
+import com.vendingmachine.common.kafka.KafkaProducerSettings;
+import com.vendingmachine.common.kafka.UnifiedTopicConfig;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Send throughput and latency of each {@link KafkaProducerProfile} against an embedded broker.
+ * Every profile publishes the same DomainEvents, keyed by aggregate over 3 partitions, with
+ * asynchronous sends; latency is measured from {@code send} to the acknowledgement callback.
+ * Prints records/sec and p50/p99 send latency per profile.
+ */
+public class KafkaProducerProfileBenchmark {
+
+    private static final String TOPIC = UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC;
+    private static final int DEFAULT_RECORDS = 200_000;
+    private static final int WARMUP_RECORDS = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RECORDS;
+        EmbeddedKafkaKraftBroker broker = new EmbeddedKafkaKraftBroker(1, 3, TOPIC);
+        broker.afterPropertiesSet();
+        try {
+            System.out.printf("%-16s %12s %10s %10s%n", "profile", "records/sec", "p50 ms", "p99 ms");
+            for (KafkaProducerProfile profile : KafkaProducerProfile.values()) {
+                KafkaProducerSettings settings =
+                        new KafkaProducerSettings(broker.getBrokersAsString(), profile.name());
+                try (KafkaProducer<String, DomainEvent> producer =
+                             new KafkaProducer<>(settings.producerConfigs(DomainEventSerializer.class))) {
+                    send(producer, WARMUP_RECORDS);
+                    Result result = send(producer, records);
+                    System.out.printf("%-16s %12.0f %10.2f %10.2f%n", profile, result.recordsPerSecond,
+                            result.percentileMillis(0.50), result.percentileMillis(0.99));
+                }
+            }
+        } finally {
+            broker.destroy();
+        }
+    }
+
+    private static Result send(KafkaProducer<String, DomainEvent> producer, int records) throws InterruptedException {
+        long[] latencies = new long[records];
+        CountDownLatch acknowledged = new CountDownLatch(records);
+        AtomicInteger failures = new AtomicInteger();
+        long start = System.nanoTime();
+        for (int i = 0; i < records; i++) {
+            DomainEvent event = event(i);
+            int index = i;
+            long sentAt = System.nanoTime();
+            producer.send(new ProducerRecord<>(TOPIC, event.getAggregateId(), event), (metadata, exception) -> {
+                latencies[index] = System.nanoTime() - sentAt;
+                if (exception != null) {
+                    failures.incrementAndGet();
+                }
+                acknowledged.countDown();
+            });
+        }
+        if (!acknowledged.await(5, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Sends not acknowledged within 5 minutes");
+        }
+        if (failures.get() > 0) {
+            throw new IllegalStateException(failures.get() + " sends failed");
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return new Result(records / seconds, latencies);
+    }
+
+    private static DomainEvent event(int i) {
+        long transactionId = i % 1000;
+        TransactionPayload payload = TransactionPayload.forCreated(transactionId, 7L, 101L, 2,
+                new BigDecimal("5.50"), "CARD");
+        return DomainEvent.transactionCreated(transactionId, payload)
+                .withSource(UnifiedTopicConfig.TRANSACTION_SERVICE)
+                .withCorrelationId("bench-" + i);
+    }
+
+    private static final class Result {
+
+        private final double recordsPerSecond;
+        private final long[] sortedLatencies;
+
+        Result(double recordsPerSecond, long[] latencies) {
+            this.recordsPerSecond = recordsPerSecond;
+            this.sortedLatencies = latencies.clone();
+            Arrays.sort(sortedLatencies);
+        }
+
+        double percentileMillis(double percentile) {
+            int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(index, 0)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.vendingmachine.benchmark;
+
+import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.kafka.ConsumerMetrics;
+import com.vendingmachine.common.kafka.DomainEventBatchProcessor;
+import com.vendingmachine.common.kafka.KeyOrderedRecordProcessor;
+import com.vendingmachine.common.kafka.ProcessedEventDedupCache;
+import com.vendingmachine.common.kafka.UnifiedTopicConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Records/sec of the single-threaded batch listener path ({@link DomainEventBatchProcessor}) against
+ * {@link KeyOrderedRecordProcessor}, with a handler that simulates the dispensing consumer: a 2 ms
+ * downstream call per record, and a 50 ms one for every 20th record. Batches of 100 records over
+ * 40 transaction keys, as one poll of a busy partition.
+ */
+public class KeyOrderedProcessingBenchmark {
+
+    private static final int BATCHES = 20;
+    private static final int BATCH_SIZE = 100;
+    private static final int KEYS = 40;
+
+    public static void main(String[] args) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        NoOpTransactionManager transactionManager = new NoOpTransactionManager();
+        ProcessedEventDedupCache dedupCache = new ProcessedEventDedupCache(meterRegistry, "benchmark",
+                false, 6, 600_000L, 1000, 0.01, 100);
+        ConsumerMetrics consumerMetrics = new ConsumerMetrics(meterRegistry, "benchmark");
+        DomainEventBatchProcessor batchProcessor =
+                new DomainEventBatchProcessor(transactionManager, dedupCache, consumerMetrics, meterRegistry, "benchmark");
+        KeyOrderedRecordProcessor keyedProcessor =
+                new KeyOrderedRecordProcessor(transactionManager, dedupCache, consumerMetrics, meterRegistry, "benchmark", 8);
+        SimulatedHandler handler = new SimulatedHandler();
+
+        try {
+            System.out.printf("%-28s %12s%n", "mode", "records/sec");
+            run("single-threaded batch", records -> batchProcessor.process(records, handler));
+            for (int threads : new int[] {4, 8}) {
+                KeyOrderedRecordProcessor processor = threads == 8 ? keyedProcessor
+                        : new KeyOrderedRecordProcessor(transactionManager, dedupCache, consumerMetrics, meterRegistry, "benchmark", threads);
+                run("key-ordered, " + threads + " threads", records -> processor.process(records, handler));
+                if (processor != keyedProcessor) {
+                    processor.shutdown();
+                }
+            }
+        } finally {
+            keyedProcessor.shutdown();
+        }
+    }
+
+    private static void run(String mode, Consumer<List<ConsumerRecord<String, DomainEvent>>> listener) {
+        // One warm-up batch
+        listener.accept(batch(-1));
+        long start = System.nanoTime();
+        for (int b = 0; b < BATCHES; b++) {
+            listener.accept(batch(b));
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-28s %12.0f%n", mode, BATCHES * BATCH_SIZE / seconds);
+    }
+
+    private static List<ConsumerRecord<String, DomainEvent>> batch(int number) {
+        List<ConsumerRecord<String, DomainEvent>> records = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            String key = String.valueOf(i % KEYS);
+            DomainEvent event = DomainEvent.builder()
+                    .eventId("bench-" + number + "-" + i)
+                    .eventType("TRANSACTION_PROCESSING")
+                    .aggregateId(key)
+                    .build();
+            records.add(new ConsumerRecord<>(UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC, 0, i, key, event));
+        }
+        return records;
+    }
+
+    private static final class SimulatedHandler implements DomainEventBatchProcessor.Handler<String> {
+
+        @Override
+        public String handle(ConsumerRecord<String, DomainEvent> record) {
+            long millis = record.offset() % 20 == 0 ? 50 : 2;
+            LockSupport.parkNanos(millis * 1_000_000L);
+            return record.value().getEventId();
+        }
+    }
+
+    private static final class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.vendingmachine.benchmark;
+
+import com.vendingmachine.common.util.TimeOrderedIds;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one event or correlation id: {@link UUID#randomUUID()} (a shared {@code SecureRandom})
+ * against {@link TimeOrderedIds} (a thread-local sequence and {@code ThreadLocalRandom}), as the
+ * UUID and as the string stored in the event. {@code main} runs each with 1 and 8 threads, since
+ * the difference is contention between listener and request threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeOrderedIdsBenchmark {
+
+    @Benchmark
+    public UUID randomUuid() {
+        return UUID.randomUUID();
+    }
+
+    @Benchmark
+    public UUID timeOrdered() {
+        return TimeOrderedIds.next();
+    }
+
+    @Benchmark
+    public String randomUuidString() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public String timeOrderedString() {
+        return TimeOrderedIds.nextString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int threads : new int[] {1, 8}) {
+            Options options = new OptionsBuilder()
+                    .include(TimeOrderedIdsBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.vendingmachine.common.catalog;
+
+import com.vendingmachine.common.event.EventJson;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Local, read-only copy of the product catalog built from the compacted
+ * {@value #SNAPSHOT_TOPIC} topic, so a service can look up prices and stock without an HTTP
+ * call to inventory-service.
+ * <p>
+ * A reader thread assigns itself every partition of the topic (no consumer group, nothing is
+ * committed), reads it from the beginning into an in-memory table and keeps following it.
+ * Startup waits up to the bootstrap timeout for the end offsets seen at start to be reached;
+ * {@link #isReady()} tells callers whether the table is warm or they should fall back to
+ * inventory-service. Stock in the table trails inventory-service by the replication delay, so
+ * it suits pricing and display rather than the authoritative stock check.
+ */
+@Component
+@Slf4j
+public class InventoryCatalog {
+
+    public static final String SNAPSHOT_TOPIC = "inventory-snapshot";
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    private static final long ERROR_BACKOFF_MILLIS = 5_000;
+
+    private final Supplier<Consumer<String, byte[]>> consumers;
+    private final String service;
+    private final boolean enabled;
+    private final long bootstrapTimeoutMillis;
+    private final Map<Long, ProductSnapshot> products = new ConcurrentHashMap<>();
+    private final CountDownLatch ready = new CountDownLatch(1);
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final Counter updates;
+    private final Timer bootstrap;
+    private volatile boolean running;
+    private volatile Consumer<String, byte[]> consumer;
+    private Thread readerThread;
+
+    @Autowired
+    public InventoryCatalog(MeterRegistry meterRegistry,
+                            @Value("${spring.kafka.bootstrap-servers:localhost:9092}") String bootstrapServers,
+                            @Value("${spring.application.name:unknown}") String service,
+                            @Value("${inventory.catalog.enabled:false}") boolean enabled,
+                            @Value("${inventory.catalog.bootstrap-timeout-ms:10000}") long bootstrapTimeoutMillis) {
+        this(snapshotConsumers(bootstrapServers, service), meterRegistry, service, enabled, bootstrapTimeoutMillis);
+    }
+
+    InventoryCatalog(Supplier<Consumer<String, byte[]>> consumers, MeterRegistry meterRegistry, String service,
+                     boolean enabled, long bootstrapTimeoutMillis) {
+        this.consumers = consumers;
+        this.service = service;
+        this.enabled = enabled;
+        this.bootstrapTimeoutMillis = bootstrapTimeoutMillis;
+        Gauge.builder("vending_machine.catalog.products", products, Map::size)
+                .description("Products in the local inventory catalog")
+                .tag("service", service)
+                .register(meterRegistry);
+        this.updates = Counter.builder("vending_machine.catalog.updates")
+                .description("Product snapshots and tombstones applied to the local catalog")
+                .tag("service", service)
+                .register(meterRegistry);
+        this.bootstrap = Timer.builder("vending_machine.catalog.bootstrap")
+                .description("Time to read the inventory snapshot topic up to its end at startup")
+                .tag("service", service)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        synchronized (this) {
+            if (!enabled || running) {
+                return;
+            }
+            running = true;
+            readerThread = new Thread(this::read, service + "-inventory-catalog");
+            readerThread.setDaemon(true);
+            readerThread.start();
+        }
+        try {
+            if (!ready.await(bootstrapTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                log.warn("Inventory catalog not loaded within {} ms, lookups fall back to inventory-service until it is",
+                        bootstrapTimeoutMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = readerThread;
+        }
+        stopped.countDown();
+        Consumer<String, byte[]> current = consumer;
+        if (current != null) {
+            current.wakeup();
+        }
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Whether the table has caught up with the topic since startup
+     */
+    public boolean isReady() {
+        return ready.getCount() == 0;
+    }
+
+    public Optional<ProductSnapshot> find(Long productId) {
+        return Optional.ofNullable(products.get(productId));
+    }
+
+    public Collection<ProductSnapshot> all() {
+        return List.copyOf(products.values());
+    }
+
+    private void read() {
+        while (running) {
+            try (Consumer<String, byte[]> current = consumers.get()) {
+                consumer = current;
+                follow(current);
+            } catch (WakeupException e) {
+                // close() stops the reader
+            } catch (RuntimeException e) {
+                log.error("Inventory catalog reader failed, restarting it", e);
+                backOff();
+            } finally {
+                consumer = null;
+            }
+        }
+    }
+
+    private void follow(Consumer<String, byte[]> current) {
+        List<PartitionInfo> partitionInfos = current.partitionsFor(SNAPSHOT_TOPIC);
+        if (partitionInfos == null || partitionInfos.isEmpty()) {
+            log.warn("Topic {} not found, retrying", SNAPSHOT_TOPIC);
+            backOff();
+            return;
+        }
+        List<TopicPartition> partitions = partitionInfos.stream()
+                .map(info -> new TopicPartition(info.topic(), info.partition()))
+                .toList();
+        current.assign(partitions);
+        current.seekToBeginning(partitions);
+        Map<TopicPartition, Long> endOffsets = current.endOffsets(partitions);
+
+        long start = System.nanoTime();
+        while (running) {
+            for (ConsumerRecord<String, byte[]> record : current.poll(POLL_TIMEOUT)) {
+                apply(record);
+            }
+            if (!isReady() && caughtUp(current, endOffsets)) {
+                bootstrap.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                ready.countDown();
+                log.info("Inventory catalog loaded: {} products in {} ms", products.size(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        }
+    }
+
+    private void apply(ConsumerRecord<String, byte[]> record) {
+        Long productId;
+        try {
+            productId = Long.valueOf(record.key());
+        } catch (NumberFormatException e) {
+            log.warn("Skipping inventory snapshot with key {}: not a product id", record.key());
+            return;
+        }
+        if (record.value() == null) {
+            products.remove(productId);
+        } else {
+            try {
+                products.put(productId, EventJson.mapper().readValue(record.value(), ProductSnapshot.class));
+            } catch (IOException e) {
+                log.warn("Skipping unreadable inventory snapshot of product {}", productId, e);
+                return;
+            }
+        }
+        updates.increment();
+    }
+
+    private static boolean caughtUp(Consumer<String, byte[]> current, Map<TopicPartition, Long> endOffsets) {
+        for (Map.Entry<TopicPartition, Long> end : endOffsets.entrySet()) {
+            if (current.position(end.getKey()) < end.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void backOff() {
+        try {
+            stopped.await(ERROR_BACKOFF_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private static Supplier<Consumer<String, byte[]>> snapshotConsumers(String bootstrapServers, String service) {
+        Map<String, Object> configs = Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                ConsumerConfig.CLIENT_ID_CONFIG, service + "-inventory-catalog",
+                ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false,
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest",
+                ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
+                ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        return () -> new KafkaConsumer<>(configs);
+    }
+}
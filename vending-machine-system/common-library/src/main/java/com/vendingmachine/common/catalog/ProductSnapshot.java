@@ -0,0 +1,16 @@
+package com.vendingmachine.common.catalog;
+
+import java.time.Instant;
+
+/**
+ * Latest state of one product on the compacted {@code inventory-snapshot} topic, keyed by
+ * productId. Inventory-service writes a new snapshot on every product or stock change and a
+ * tombstone when the product is deleted; {@link InventoryCatalog} reads them back.
+ */
+public record ProductSnapshot(Long productId, String name, Double price, Integer quantity,
+                              Integer minThreshold, Instant updatedAt) {
+
+    public boolean isAvailable(int requested) {
+        return quantity != null && quantity >= requested;
+    }
+}
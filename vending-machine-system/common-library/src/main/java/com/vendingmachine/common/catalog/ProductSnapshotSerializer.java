@@ -0,0 +1,30 @@
+package com.vendingmachine.common.catalog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.vendingmachine.common.event.EventJson;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka serializer for {@link ProductSnapshot} using the shared {@link EventJson} mapper.
+ * A null snapshot is written as a null value, the tombstone that removes the product.
+ * <p>
+ * Configure with {@code ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG}.
+ */
+public class ProductSnapshotSerializer implements Serializer<ProductSnapshot> {
+
+    private static final ObjectWriter WRITER = EventJson.mapper().writerFor(ProductSnapshot.class);
+
+    @Override
+    public byte[] serialize(String topic, ProductSnapshot snapshot) {
+        if (snapshot == null) {
+            return null;
+        }
+        try {
+            return WRITER.writeValueAsBytes(snapshot);
+        } catch (JsonProcessingException e) {
+            throw new SerializationException("Failed to serialize snapshot of product " + snapshot.productId(), e);
+        }
+    }
+}
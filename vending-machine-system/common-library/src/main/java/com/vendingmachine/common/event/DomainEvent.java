@@ -6,12 +6,12 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.vendingmachine.common.util.TimeOrderedIds;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
 
 /**
  * Unified domain event for all business events in the vending machine system.
@@ -26,12 +26,17 @@ import java.util.UUID;
  * @since Phase 2: Kafka Optimization
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @ToString
 public class DomainEvent {
 
+    /**
+     * Payload schema version of event types that never changed shape
+     */
+    public static final String INITIAL_VERSION = "1.0";
+
     /**
      * Unique identifier for this specific event instance
      */
@@ -68,9 +73,10 @@ public class DomainEvent {
     private Long timestamp;
 
     /**
-     * JSON payload containing specific event data
+     * Event-specific data, embedded in the envelope as a JSON object so it is encoded
+     * and decoded together with the envelope. Bind it with {@link #getPayloadAs(Class)}.
      */
-    private String payload;
+    private JsonNode payload;
 
     /**
      * Additional metadata (correlation IDs, tracing info, etc.)
@@ -79,13 +85,11 @@ public class DomainEvent {
     private Map<String, String> metadata = new HashMap<>();
 
     /**
-     * Version for event schema evolution
+     * Schema version of the payload, stamped by the publisher with the current version of the
+     * event type; older versions are migrated by {@link PayloadUpcasters} before decoding
      */
     @Builder.Default
-    private String version = "1.0";
-
-    // Static ObjectMapper for JSON operations
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private String version = INITIAL_VERSION;
 
     // =========================
     // FACTORY METHODS
@@ -219,36 +223,38 @@ public class DomainEvent {
     private static DomainEvent createDomainEvent(String eventType, String aggregateId,
             String aggregateType, Object payloadData) {
         return DomainEvent.builder()
-                .eventId(UUID.randomUUID().toString())
+                .eventId(TimeOrderedIds.nextString())
                 .eventType(eventType)
                 .aggregateId(aggregateId)
                 .aggregateType(aggregateType)
                 .source("vending-machine-system") // Default source
-                .correlationId(UUID.randomUUID().toString()) // Default correlation ID
+                .correlationId(TimeOrderedIds.nextString()) // Default correlation ID
                 .timestamp(System.currentTimeMillis())
-                .payload(serializePayload(payloadData))
+                .payload(toPayload(payloadData))
                 .metadata(new HashMap<>())
-                .version("1.0")
                 .build();
     }
 
     /**
-     * Serialize payload object to JSON string
+     * Convert a payload object to the embedded JSON form used by {@link #payload}
      */
-    private static String serializePayload(Object payloadData) {
-        try {
-            return objectMapper.writeValueAsString(payloadData);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to serialize payload to JSON", e);
-        }
+    public static JsonNode toPayload(Object payloadData) {
+        return EventJson.toNode(payloadData);
     }
 
     /**
-     * Deserialize payload from JSON string to specified class
+     * Bind the payload to the specified class. Payloads from older producers, which
+     * carried the payload as an escaped JSON string, are parsed from that string.
      */
     public <T> T getPayloadAs(Class<T> clazz) {
+        if (this.payload == null) {
+            return null;
+        }
         try {
-            return objectMapper.readValue(this.payload, clazz);
+            if (this.payload.isTextual()) {
+                return EventJson.mapper().readValue(this.payload.textValue(), clazz);
+            }
+            return EventJson.mapper().treeToValue(this.payload, clazz);
         } catch (JsonProcessingException e) {
             throw new RuntimeException("Failed to deserialize payload from JSON", e);
         }
@@ -0,0 +1,59 @@
+package com.vendingmachine.common.event;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Shared, pre-configured {@link ObjectMapper} for domain events and their payloads.
+ * <p>
+ * ObjectMapper is thread-safe once configured but expensive to build, so every publisher,
+ * consumer and Kafka serializer uses this single instance. It is not exposed as a bean, so the
+ * services' HTTP mappers stay independent of it. Do not reconfigure the returned mapper; build a
+ * copy with {@link ObjectMapper#copy()} if different settings are needed.
+ * <ul>
+ *   <li>Java time types written as ISO-8601 strings</li>
+ *   <li>Null fields omitted</li>
+ *   <li>Unknown properties ignored, so older consumers tolerate newer envelopes</li>
+ * </ul>
+ */
+public final class EventJson {
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .serializationInclusion(JsonInclude.Include.NON_NULL)
+            .build();
+
+    private EventJson() {
+        // Utility class
+    }
+
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+    /**
+     * Convert a payload object to a JSON tree without going through a String
+     */
+    public static JsonNode toNode(Object value) {
+        return MAPPER.valueToTree(value);
+    }
+
+    /**
+     * Bind a JSON tree to the given type
+     */
+    public static <T> T fromNode(JsonNode node, Class<T> type) {
+        try {
+            return MAPPER.treeToValue(node, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Failed to bind JSON to " + type.getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.vendingmachine.common.event;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * One step of a payload schema migration: rewrites the payload tree of an event type from one
+ * {@link DomainEvent#getVersion() version} to the next. Upcasters are registered as beans and
+ * chained by {@link PayloadUpcasters}, so a payload written several versions ago goes through each
+ * step in turn before it is bound to the current payload class:
+ * <pre>
+ * &#64;Bean
+ * PayloadUpcaster dispensingQuantityRenamed() {
+ *     return PayloadUpcaster.of("DISPENSING_*", "1.0", "2.0", payload -&gt; {
+ *         ((ObjectNode) payload).set("dispensedQuantity", ((ObjectNode) payload).remove("quantity"));
+ *         return payload;
+ *     });
+ * }
+ * </pre>
+ * Registering an upcaster also makes its target version the one publishers stamp on new events
+ * of the type, so it ships together with the payload class change it describes.
+ */
+public interface PayloadUpcaster {
+
+    /**
+     * Event types migrated, as exact types or prefixes ending in {@code *}
+     */
+    Set<String> eventTypes();
+
+    String fromVersion();
+
+    String toVersion();
+
+    /**
+     * Rewrite the payload to {@link #toVersion()}. The tree is a private copy that may be
+     * modified in place; the returned tree is passed to the next step.
+     */
+    JsonNode upcast(JsonNode payload);
+
+    /**
+     * Upcaster for a comma separated list of event types or {@code PREFIX*} patterns
+     */
+    static PayloadUpcaster of(String eventTypes, String fromVersion, String toVersion, UnaryOperator<JsonNode> migration) {
+        Set<String> types = Arrays.stream(eventTypes.split(","))
+                .map(String::trim)
+                .filter(type -> !type.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        return new PayloadUpcaster() {
+            @Override
+            public Set<String> eventTypes() {
+                return types;
+            }
+
+            @Override
+            public String fromVersion() {
+                return fromVersion;
+            }
+
+            @Override
+            public String toVersion() {
+                return toVersion;
+            }
+
+            @Override
+            public JsonNode upcast(JsonNode payload) {
+                return migration.apply(payload);
+            }
+
+            @Override
+            public String toString() {
+                return types + " " + fromVersion + " -> " + toVersion;
+            }
+        };
+    }
+}
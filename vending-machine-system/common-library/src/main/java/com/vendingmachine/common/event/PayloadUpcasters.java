@@ -0,0 +1,220 @@
+package com.vendingmachine.common.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registered {@link PayloadUpcaster} chains, migrating event payloads written under an older
+ * schema version to the current shape of their type before they are bound.
+ * <p>
+ * The chain for an (event type, version) pair is resolved on first use by following the
+ * upcasters from that version until none applies, and cached, so an event costs one map lookup
+ * and, when its payload is old, one tree copy and the migration steps; events already in the
+ * current version are passed through untouched. Rolling upgrades and DLQ replays of old events
+ * take the same path as live traffic. A version no upcaster knows, such as one written by a newer
+ * producer during a rolling upgrade, is bound as it is and logged once.
+ * <p>
+ * Publishers stamp new events with {@link #currentVersion(String)}, the end of the type's chain
+ * from {@link DomainEvent#INITIAL_VERSION}. Two upcasters for the same type and version, or a
+ * chain that loops, fail at startup or on first use.
+ */
+@Component
+@Slf4j
+public class PayloadUpcasters {
+
+    /**
+     * Versions cached per event type; further versions are resolved on every event
+     */
+    static final int MAX_CACHED_VERSIONS = 32;
+
+    private static final Chain CURRENT = new Chain(new PayloadUpcaster[0], null, null);
+
+    private final List<PayloadUpcaster> upcasters;
+    private final MeterRegistry meterRegistry;
+    private final String service;
+    private final Map<String, Map<String, Chain>> chains = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PayloadUpcasters(ObjectProvider<PayloadUpcaster> upcasters, MeterRegistry meterRegistry,
+                            @Value("${spring.application.name:unknown}") String service) {
+        this(upcasters.orderedStream().toList(), meterRegistry, service);
+    }
+
+    public PayloadUpcasters(List<PayloadUpcaster> upcasters, MeterRegistry meterRegistry, String service) {
+        for (int i = 0; i < upcasters.size(); i++) {
+            PayloadUpcaster upcaster = upcasters.get(i);
+            if (upcaster.fromVersion().equals(upcaster.toVersion())) {
+                throw new IllegalStateException("Payload upcaster " + upcaster + " does not change the version");
+            }
+            for (PayloadUpcaster other : upcasters.subList(i + 1, upcasters.size())) {
+                if (upcaster.fromVersion().equals(other.fromVersion()) && overlap(upcaster, other)) {
+                    throw new IllegalStateException("Payload upcasters " + upcaster + " and " + other
+                            + " both migrate the same event types from version " + upcaster.fromVersion());
+                }
+            }
+        }
+        this.upcasters = List.copyOf(upcasters);
+        this.meterRegistry = meterRegistry;
+        this.service = service;
+        if (!upcasters.isEmpty()) {
+            log.info("Registered {} payload upcasters: {}", upcasters.size(), upcasters);
+        }
+    }
+
+    /**
+     * Schema version of the current payload shape of the event type, stamped on new events
+     */
+    public String currentVersion(String eventType) {
+        Chain chain = chain(eventType, DomainEvent.INITIAL_VERSION);
+        return chain.targetVersion == null ? DomainEvent.INITIAL_VERSION : chain.targetVersion;
+    }
+
+    /**
+     * The event's payload in the current shape of its type: the payload itself when it is
+     * current, otherwise a migrated copy. Payloads from older producers that carried it as an
+     * escaped JSON string are parsed first when they need migrating.
+     */
+    public JsonNode upcast(DomainEvent event) {
+        JsonNode payload = event.getPayload();
+        if (payload == null || payload.isNull()) {
+            return payload;
+        }
+        return chain(event.getEventType(), event.getVersion()).apply(payload, event);
+    }
+
+    private Chain chain(String eventType, String version) {
+        if (upcasters.isEmpty() || eventType == null) {
+            return CURRENT;
+        }
+        String from = version == null ? DomainEvent.INITIAL_VERSION : version;
+        Map<String, Chain> byVersion = chains.computeIfAbsent(eventType, type -> new ConcurrentHashMap<>());
+        Chain chain = byVersion.get(from);
+        if (chain == null) {
+            chain = resolve(eventType, from);
+            if (byVersion.size() < MAX_CACHED_VERSIONS) {
+                Chain cached = byVersion.putIfAbsent(from, chain);
+                chain = cached != null ? cached : chain;
+            }
+        }
+        return chain;
+    }
+
+    private Chain resolve(String eventType, String version) {
+        List<PayloadUpcaster> steps = new ArrayList<>();
+        String current = version;
+        for (PayloadUpcaster next = find(eventType, current); next != null; next = find(eventType, current)) {
+            steps.add(next);
+            if (steps.size() > upcasters.size()) {
+                throw new IllegalStateException("Payload upcasters of " + eventType + " loop from version " + version);
+            }
+            current = next.toVersion();
+        }
+        if (steps.isEmpty()) {
+            if (!knows(eventType, version)) {
+                log.warn("Version {} of {} payloads is unknown to {}, binding them as they are", version, eventType, service);
+            }
+            return new Chain(new PayloadUpcaster[0], version, null);
+        }
+        log.info("Payloads of {} version {} are migrated to {} through {}", eventType, version, current, steps);
+        Counter upcasts = Counter.builder("vending_machine.kafka.payload.upcasts")
+                .description("Event payloads migrated from an older schema version")
+                .tag("service", service)
+                .tag("event_type", eventType)
+                .tag("from_version", version)
+                .register(meterRegistry);
+        return new Chain(steps.toArray(PayloadUpcaster[]::new), current, upcasts);
+    }
+
+    private PayloadUpcaster find(String eventType, String version) {
+        for (PayloadUpcaster upcaster : upcasters) {
+            if (upcaster.fromVersion().equals(version) && handles(upcaster, eventType)) {
+                return upcaster;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether the version is the initial one or a target of the type's upcasters, that is one this service can read
+     */
+    private boolean knows(String eventType, String version) {
+        if (DomainEvent.INITIAL_VERSION.equals(version)) {
+            return true;
+        }
+        for (PayloadUpcaster upcaster : upcasters) {
+            if (upcaster.toVersion().equals(version) && handles(upcaster, eventType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean handles(PayloadUpcaster upcaster, String eventType) {
+        for (String pattern : upcaster.eventTypes()) {
+            if (pattern.endsWith("*") ? eventType.startsWith(pattern.substring(0, pattern.length() - 1))
+                    : pattern.equals(eventType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean overlap(PayloadUpcaster first, PayloadUpcaster second) {
+        for (String a : first.eventTypes()) {
+            for (String b : second.eventTypes()) {
+                String prefixA = a.endsWith("*") ? a.substring(0, a.length() - 1) : null;
+                String prefixB = b.endsWith("*") ? b.substring(0, b.length() - 1) : null;
+                boolean overlapping = prefixA == null && prefixB == null ? a.equals(b)
+                        : prefixA == null ? a.startsWith(prefixB)
+                        : prefixB == null ? b.startsWith(prefixA)
+                        : prefixA.startsWith(prefixB) || prefixB.startsWith(prefixA);
+                if (overlapping) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static final class Chain {
+
+        private final PayloadUpcaster[] steps;
+        private final String targetVersion;
+        private final Counter upcasts;
+
+        private Chain(PayloadUpcaster[] steps, String targetVersion, Counter upcasts) {
+            this.steps = steps;
+            this.targetVersion = targetVersion;
+            this.upcasts = upcasts;
+        }
+
+        JsonNode apply(JsonNode payload, DomainEvent event) {
+            if (steps.length == 0) {
+                return payload;
+            }
+            JsonNode tree;
+            try {
+                tree = payload.isTextual() ? EventJson.mapper().readTree(payload.textValue()) : payload.deepCopy();
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Payload of event " + event.getEventId() + " is not JSON", e);
+            }
+            for (PayloadUpcaster step : steps) {
+                tree = step.upcast(tree);
+            }
+            upcasts.increment();
+            return tree;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.vendingmachine.common.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ListOffsetsOptions;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.IsolationLevel;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Consumer lag of a service's consumer groups, read from the broker at a fixed interval, and
+ * backpressure for services whose listeners are not on the purchase path.
+ * <p>
+ * Lag is the distance from a group's committed offset to the last stable offset of each
+ * partition, so it also shows a consumer that is stuck or down. The groups are those of the
+ * service's listener containers plus, with backpressure on, the purchase-critical groups.
+ * <p>
+ * In a service marked pausable (notification), all listener containers are paused when any
+ * critical group is more than pause-lag records behind, leaving broker and database capacity to
+ * the purchase flow, and resumed once every critical group is back under resume-lag.
+ */
+@Component
+@Slf4j
+public class ConsumerLagMonitor {
+
+    private static final long ADMIN_TIMEOUT_SECONDS = 5;
+
+    /**
+     * Committed and end offsets, read through an {@link Admin} client outside the tests
+     */
+    interface OffsetSource {
+        Map<TopicPartition, Long> committedOffsets(String groupId) throws Exception;
+
+        Map<TopicPartition, Long> endOffsets(Collection<TopicPartition> partitions) throws Exception;
+    }
+
+    private final OffsetSource offsets;
+    private final Supplier<Collection<? extends MessageListenerContainer>> containers;
+    private final MeterRegistry meterRegistry;
+    private final String service;
+    private final boolean enabled;
+    private final long intervalMillis;
+    private final boolean pausable;
+    private final Set<String> criticalGroups;
+    private final long pauseLag;
+    private final long resumeLag;
+    private final Map<String, AtomicLong> lagGauges = new ConcurrentHashMap<>();
+    private final AtomicInteger paused = new AtomicInteger();
+    private final Counter pauses;
+    private final Counter resumes;
+    private Admin admin;
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public ConsumerLagMonitor(ObjectProvider<KafkaListenerEndpointRegistry> registry, MeterRegistry meterRegistry,
+                              @Value("${spring.kafka.bootstrap-servers:localhost:9092}") String bootstrapServers,
+                              @Value("${spring.application.name:unknown}") String service,
+                              @Value("${kafka.consumer-lag.enabled:true}") boolean enabled,
+                              @Value("${kafka.consumer-lag.interval-ms:10000}") long intervalMillis,
+                              @Value("${kafka.backpressure.pausable:false}") boolean pausable,
+                              @Value("${kafka.backpressure.critical-groups:}") String criticalGroups,
+                              @Value("${kafka.backpressure.pause-lag:1000}") long pauseLag,
+                              @Value("${kafka.backpressure.resume-lag:100}") long resumeLag) {
+        this(null, () -> {
+            KafkaListenerEndpointRegistry endpoints = registry.getIfAvailable();
+            return endpoints != null ? endpoints.getListenerContainers() : List.of();
+        }, meterRegistry, service, enabled, intervalMillis, pausable, parseGroups(criticalGroups), pauseLag, resumeLag);
+        if (enabled) {
+            this.admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers));
+        }
+    }
+
+    ConsumerLagMonitor(OffsetSource offsets, Supplier<Collection<? extends MessageListenerContainer>> containers,
+                       MeterRegistry meterRegistry, String service, boolean enabled, long intervalMillis,
+                       boolean pausable, Set<String> criticalGroups, long pauseLag, long resumeLag) {
+        if (intervalMillis < 1 || resumeLag > pauseLag) {
+            throw new IllegalArgumentException(
+                    "kafka.consumer-lag.interval-ms must be at least 1 and resume-lag no more than pause-lag");
+        }
+        this.offsets = offsets != null ? offsets : new AdminOffsetSource();
+        this.containers = containers;
+        this.meterRegistry = meterRegistry;
+        this.service = service;
+        this.enabled = enabled;
+        this.intervalMillis = intervalMillis;
+        this.pausable = pausable;
+        this.criticalGroups = criticalGroups;
+        this.pauseLag = pauseLag;
+        this.resumeLag = resumeLag;
+        Gauge.builder("vending_machine.kafka.consumer.paused", paused, AtomicInteger::get)
+                .description("1 while backpressure holds this service's listeners paused")
+                .tag("service", service)
+                .register(meterRegistry);
+        this.pauses = Counter.builder("vending_machine.kafka.consumer.backpressure")
+                .description("Listener pauses and resumes for purchase-critical consumer lag")
+                .tag("service", service)
+                .tag("action", "pause")
+                .register(meterRegistry);
+        this.resumes = Counter.builder("vending_machine.kafka.consumer.backpressure")
+                .description("Listener pauses and resumes for purchase-critical consumer lag")
+                .tag("service", service)
+                .tag("action", "resume")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, service + "-consumer-lag");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::poll, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (admin != null) {
+            admin.close();
+        }
+    }
+
+    /**
+     * Read the lag of every monitored group and apply backpressure
+     */
+    void poll() {
+        Set<String> groups = new LinkedHashSet<>();
+        containers.get().forEach(container -> {
+            if (container.getGroupId() != null) {
+                groups.add(container.getGroupId());
+            }
+        });
+        if (pausable) {
+            groups.addAll(criticalGroups);
+        }
+
+        long criticalLag = 0;
+        boolean criticalKnown = true;
+        for (String group : groups) {
+            try {
+                long groupLag = recordLag(group);
+                if (criticalGroups.contains(group)) {
+                    criticalLag = Math.max(criticalLag, groupLag);
+                }
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                log.warn("Could not read the consumer lag of {}: {}", group, e.getMessage());
+                criticalKnown &= !criticalGroups.contains(group);
+            }
+        }
+        // Keep the current state while a critical group cannot be read
+        if (pausable && criticalKnown) {
+            applyBackpressure(criticalLag);
+        }
+    }
+
+    private long recordLag(String group) throws Exception {
+        Map<TopicPartition, Long> committed = offsets.committedOffsets(group);
+        if (committed.isEmpty()) {
+            return 0;
+        }
+        Map<TopicPartition, Long> endOffsets = offsets.endOffsets(committed.keySet());
+        long total = 0;
+        for (Map.Entry<TopicPartition, Long> entry : committed.entrySet()) {
+            Long end = endOffsets.get(entry.getKey());
+            if (end == null) {
+                continue;
+            }
+            long lag = Math.max(0, end - entry.getValue());
+            lagGauge(group, entry.getKey()).set(lag);
+            total += lag;
+        }
+        return total;
+    }
+
+    private void applyBackpressure(long criticalLag) {
+        if (paused.get() == 0 && criticalLag > pauseLag) {
+            log.warn("Purchase-critical consumers are {} records behind, pausing the listeners of {}",
+                    criticalLag, service);
+            containers.get().forEach(MessageListenerContainer::pause);
+            paused.set(1);
+            pauses.increment();
+        } else if (paused.get() == 1 && criticalLag <= resumeLag) {
+            log.info("Purchase-critical consumers caught up ({} records behind), resuming the listeners of {}",
+                    criticalLag, service);
+            containers.get().forEach(MessageListenerContainer::resume);
+            paused.set(0);
+            resumes.increment();
+        }
+    }
+
+    private AtomicLong lagGauge(String group, TopicPartition partition) {
+        return lagGauges.computeIfAbsent(group + '/' + partition, key -> {
+            AtomicLong lag = new AtomicLong();
+            Gauge.builder("vending_machine.kafka.consumer.lag", lag, AtomicLong::get)
+                    .description("Records between the committed offset of a consumer group and the end of the partition")
+                    .tag("service", service)
+                    .tag("group", group)
+                    .tag("topic", partition.topic())
+                    .tag("partition", String.valueOf(partition.partition()))
+                    .register(meterRegistry);
+            return lag;
+        });
+    }
+
+    private static Set<String> parseGroups(String groups) {
+        return Arrays.stream(groups.split(","))
+                .map(String::trim)
+                .filter(group -> !group.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private final class AdminOffsetSource implements OffsetSource {
+
+        @Override
+        public Map<TopicPartition, Long> committedOffsets(String groupId)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            Map<TopicPartition, OffsetAndMetadata> committed = admin.listConsumerGroupOffsets(groupId)
+                    .partitionsToOffsetAndMetadata().get(ADMIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            Map<TopicPartition, Long> result = new HashMap<>();
+            committed.forEach((partition, offset) -> {
+                if (offset != null) {
+                    result.put(partition, offset.offset());
+                }
+            });
+            return result;
+        }
+
+        @Override
+        public Map<TopicPartition, Long> endOffsets(Collection<TopicPartition> partitions)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            Map<TopicPartition, OffsetSpec> latest = new HashMap<>();
+            partitions.forEach(partition -> latest.put(partition, OffsetSpec.latest()));
+            // Consumers read committed: an open transaction is not lag yet
+            Map<TopicPartition, Long> result = new HashMap<>();
+            admin.listOffsets(latest, new ListOffsetsOptions(IsolationLevel.READ_COMMITTED)).all()
+                    .get(ADMIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .forEach((partition, info) -> result.put(partition, info.offset()));
+            return result;
+        }
+    }
+}
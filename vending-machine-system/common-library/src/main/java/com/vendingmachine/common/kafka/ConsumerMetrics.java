@@ -0,0 +1,212 @@
+package com.vendingmachine.common.kafka;
+
+import com.vendingmachine.common.event.DomainEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.record.TimestampType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processing time, end-to-end latency and in-flight records of a service's Kafka listeners. Set
+ * {@link #recordInterceptor()} and {@link #batchInterceptor()} on a container factory; batch
+ * processors report each record they finish through {@link #recordHandled}.
+ * <p>
+ * Latency is split at the points an event is stamped: the {@code publishedAt} header set by
+ * the publisher, the broker append time (the record timestamp on topics with
+ * {@code message.timestamp.type=LogAppendTime}), the moment the listener container receives the
+ * record and the moment the handler finishes it. Stages across services compare wall clocks,
+ * so they are only as accurate as the hosts' clock sync; negative values count as zero.
+ * Records dropped by the header filter are not measured, and records from a retry tier skip the
+ * stages from {@code publishedAt}, which would include their backoff.
+ * <p>
+ * Consumer lag and backpressure are handled by {@link ConsumerLagMonitor}.
+ */
+@Component
+public class ConsumerMetrics {
+
+    static final String PUBLISH_TO_APPEND = "publish_to_append";
+    static final String APPEND_TO_RECEIVE = "append_to_receive";
+    static final String PUBLISH_TO_RECEIVE = "publish_to_receive";
+    static final String RECEIVE_TO_HANDLED = "receive_to_handled";
+
+    private final MeterRegistry meterRegistry;
+    private final String service;
+    private final Map<String, Timer> processingTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> latencyTimers = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ThreadLocal<Long> recordStart = new ThreadLocal<>();
+    private final ThreadLocal<Integer> batchRecords = new ThreadLocal<>();
+    // Wall-clock millis at which each record was received; keyed by identity and off the headers
+    // so the stamp is never forwarded to a retry tier
+    private final Map<ConsumerRecord<?, ?>, Long> receivedAt = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public ConsumerMetrics(MeterRegistry meterRegistry, @Value("${spring.application.name:unknown}") String service) {
+        this.meterRegistry = meterRegistry;
+        this.service = service;
+        Gauge.builder("vending_machine.kafka.consumer.in_flight", inFlight, AtomicInteger::get)
+                .description("Records handed to Kafka listeners and not yet finished")
+                .tag("service", service)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Record one finished record: its time in the handler and its time since it was received
+     */
+    public void recordHandled(ConsumerRecord<?, ?> record, long processingNanos) {
+        String eventType = eventType(record);
+        processingTimer(eventType).record(processingNanos, TimeUnit.NANOSECONDS);
+        Long received = receivedAt.remove(record);
+        if (received != null) {
+            recordLatency(eventType, RECEIVE_TO_HANDLED, System.currentTimeMillis() - received);
+        }
+    }
+
+    /**
+     * Record interceptor timing each record from delivery to the end of its listener call
+     */
+    public <K, V> RecordInterceptor<K, V> recordInterceptor() {
+        return new RecordInterceptor<>() {
+            @Override
+            public ConsumerRecord<K, V> intercept(ConsumerRecord<K, V> record, Consumer<K, V> consumer) {
+                if (record.value() != null) {
+                    inFlight.incrementAndGet();
+                    recordStart.set(System.nanoTime());
+                    received(record);
+                }
+                return record;
+            }
+
+            @Override
+            public void afterRecord(ConsumerRecord<K, V> record, Consumer<K, V> consumer) {
+                Long start = recordStart.get();
+                if (start != null) {
+                    recordStart.remove();
+                    inFlight.decrementAndGet();
+                    recordHandled(record, System.nanoTime() - start);
+                }
+            }
+        };
+    }
+
+    /**
+     * Batch interceptor counting the records of a batch as in flight until the listener returns
+     */
+    public <K, V> BatchInterceptor<K, V> batchInterceptor() {
+        return new BatchInterceptor<>() {
+            @Override
+            public ConsumerRecords<K, V> intercept(ConsumerRecords<K, V> records, Consumer<K, V> consumer) {
+                inFlight.addAndGet(records.count());
+                batchRecords.set(records.count());
+                for (ConsumerRecord<K, V> record : records) {
+                    if (record.value() != null) {
+                        received(record);
+                    }
+                }
+                return records;
+            }
+
+            @Override
+            public void success(ConsumerRecords<K, V> records, Consumer<K, V> consumer) {
+                finishBatch();
+            }
+
+            @Override
+            public void failure(ConsumerRecords<K, V> records, Exception exception, Consumer<K, V> consumer) {
+                finishBatch();
+            }
+        };
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Remember the receive time of the record and record the stages up to it
+     */
+    private void received(ConsumerRecord<?, ?> record) {
+        long now = System.currentTimeMillis();
+        receivedAt.put(record, now);
+
+        String eventType = eventType(record);
+        boolean retried = DomainEventBatchProcessor.headerValue(record, RetryTopicTiers.TIER_HEADER) != null;
+        Long publishedAt = retried ? null : headerMillis(record, UnifiedTopicConfig.PUBLISHED_AT_HEADER);
+        if (publishedAt != null) {
+            recordLatency(eventType, PUBLISH_TO_RECEIVE, now - publishedAt);
+        }
+        if (record.timestampType() == TimestampType.LOG_APPEND_TIME) {
+            if (publishedAt != null) {
+                recordLatency(eventType, PUBLISH_TO_APPEND, record.timestamp() - publishedAt);
+            }
+            recordLatency(eventType, APPEND_TO_RECEIVE, now - record.timestamp());
+        }
+    }
+
+    private void recordLatency(String eventType, String stage, long millis) {
+        latencyTimers.computeIfAbsent(eventType + '/' + stage, key -> Timer.builder("vending_machine.kafka.event.latency")
+                        .description("Time between two stamps of an event on its way from publisher to handler")
+                        .tag("service", service)
+                        .tag("event_type", eventType)
+                        .tag("stage", stage)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(Math.max(0, millis), TimeUnit.MILLISECONDS);
+    }
+
+    private void finishBatch() {
+        Integer count = batchRecords.get();
+        if (count != null) {
+            batchRecords.remove();
+            inFlight.addAndGet(-count);
+        }
+    }
+
+    private Timer processingTimer(String eventType) {
+        return processingTimers.computeIfAbsent(eventType, type -> Timer.builder("vending_machine.kafka.consumer.processing")
+                .description("Time to process one consumed record")
+                .tag("service", service)
+                .tag("event_type", type)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private static Long headerMillis(ConsumerRecord<?, ?> record, String name) {
+        byte[] value = DomainEventBatchProcessor.headerValue(record, name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(new String(value, StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String eventType(ConsumerRecord<?, ?> record) {
+        byte[] header = DomainEventBatchProcessor.headerValue(record, UnifiedTopicConfig.EVENT_TYPE_HEADER);
+        if (header != null) {
+            return new String(header, StandardCharsets.UTF_8);
+        }
+        Object value = record.value();
+        if (value instanceof DomainEvent event && event.getEventType() != null) {
+            return event.getEventType();
+        }
+        // Legacy per-topic events carry no type header
+        return value != null ? value.getClass().getSimpleName() : "unknown";
+    }
+}
@@ -0,0 +1,247 @@
+package com.vendingmachine.common.kafka;
+
+import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.util.CorrelationIdUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Processes a batch of unified-topic records in one database transaction: one {@code IN} query for
+ * event ids that were already processed, the domain handler for each new record, then one bulk
+ * write of the processed-event rows. Handlers that name a processed-event type go through the
+ * {@link ProcessedEventDedupCache} first, and the query only covers ids the cache cannot decide.
+ * <p>
+ * When record {@code k} fails the transaction is rolled back, records {@code 0..k-1} are run again
+ * and committed together, and record {@code k} is reported with a {@link BatchListenerFailedException}.
+ * The container's {@code DefaultErrorHandler} then commits the offsets before it, retries or
+ * dead-letters that record on its own and redelivers the rest, so one bad record does not block the batch.
+ * Handlers with side effects outside the transaction (publishing straight to Kafka, HTTP calls) would
+ * repeat them for the records that are run again, with events under new ids that downstream dedup
+ * cannot recognise, so batch mode ({@code kafka.domain-events.batch.enabled}, off by default) is only
+ * enabled for services whose handlers write nothing but their own database rows or publish through
+ * the {@link com.vendingmachine.common.outbox.TransactionalOutbox}.
+ */
+@Component
+@Slf4j
+public class DomainEventBatchProcessor {
+
+    private final TransactionTemplate transactionTemplate;
+    private final ProcessedEventDedupCache dedupCache;
+    private final ConsumerMetrics consumerMetrics;
+    private final DistributionSummary batchSize;
+    private final Timer batchDuration;
+    private final Counter duplicates;
+    private final Counter splits;
+
+    public DomainEventBatchProcessor(PlatformTransactionManager transactionManager, ProcessedEventDedupCache dedupCache,
+                                     ConsumerMetrics consumerMetrics, MeterRegistry meterRegistry,
+                                     @Value("${spring.application.name:unknown}") String service) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dedupCache = dedupCache;
+        this.consumerMetrics = consumerMetrics;
+        this.batchSize = DistributionSummary.builder("vending_machine.kafka.batch.size")
+                .description("Unified topic records per batch listener call")
+                .tag("service", service)
+                .register(meterRegistry);
+        this.batchDuration = Timer.builder("vending_machine.kafka.batch.duration")
+                .description("Time to process a batch of unified topic records")
+                .tag("service", service)
+                .register(meterRegistry);
+        this.duplicates = Counter.builder("vending_machine.kafka.batch.duplicates")
+                .description("Batched records skipped because they were already processed")
+                .tag("service", service)
+                .register(meterRegistry);
+        this.splits = Counter.builder("vending_machine.kafka.batch.split")
+                .description("Batches cut short at a failing record")
+                .tag("service", service)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Domain callbacks for one consumer
+     *
+     * @param <T> processed-event row type
+     */
+    public interface Handler<T> {
+
+        /**
+         * Event ids among the given ones that were already processed, in one query
+         */
+        default Set<String> findProcessed(Collection<String> eventIds) {
+            return Set.of();
+        }
+
+        /**
+         * Processed-event type the event is recorded under, used as the dedup cache key;
+         * null keeps the event out of the cache
+         */
+        default String processedEventType(DomainEvent event) {
+            return null;
+        }
+
+        /**
+         * Apply one event
+         *
+         * @return the processed-event row to record, or null when nothing is recorded
+         */
+        T handle(ConsumerRecord<String, DomainEvent> record);
+
+        /**
+         * Persist the processed-event rows of the batch in one bulk write
+         */
+        default void saveProcessed(List<T> rows) {
+        }
+    }
+
+    public <T> void process(List<ConsumerRecord<String, DomainEvent>> records, Handler<T> handler) {
+        if (records.isEmpty()) {
+            return;
+        }
+        batchSize.record(records.size());
+        batchDuration.record(() -> {
+            RecordFailure failure = null;
+            int end = records.size();
+            while (end > 0) {
+                RecordFailure attempt = runInTransaction(records.subList(0, end), handler);
+                if (attempt == null) {
+                    break;
+                }
+                // Keep the earliest failure and commit only the records before it
+                failure = attempt;
+                end = attempt.index();
+                splits.increment();
+                log.warn("Batch record {} of {} failed ({}), committing the {} records before it",
+                        attempt.index() + 1, records.size(), attempt.cause().getMessage(), end);
+            }
+            if (failure != null) {
+                throw new BatchListenerFailedException("Failed to process unified event batch",
+                        failure.cause(), records.get(failure.index()));
+            }
+        });
+    }
+
+    private <T> RecordFailure runInTransaction(List<ConsumerRecord<String, DomainEvent>> records, Handler<T> handler) {
+        List<HandledRecord> handled = new ArrayList<>(records.size());
+        RecordFailure failure;
+        try {
+            failure = transactionTemplate.execute(status -> runRecords(records, handler, status, handled));
+        } catch (RuntimeException e) {
+            // Flush or commit failure, not attributable to one record
+            return new RecordFailure(0, e);
+        }
+        if (failure == null) {
+            // Only the pass that commits is measured: records rolled back run again after the split
+            handled.forEach(record -> consumerMetrics.recordHandled(record.record(), record.processingNanos()));
+        }
+        return failure;
+    }
+
+    private <T> RecordFailure runRecords(List<ConsumerRecord<String, DomainEvent>> records, Handler<T> handler,
+                                         TransactionStatus status, List<HandledRecord> handled) {
+        Set<String> seen = new HashSet<>();
+        Set<String> eventIds = new LinkedHashSet<>();
+        for (ConsumerRecord<String, DomainEvent> record : records) {
+            DomainEvent event = record.value();
+            if (event == null || event.getEventId() == null) {
+                continue;
+            }
+            switch (dedupCache.lookup(event.getEventId(), handler.processedEventType(event), event.getTimestamp())) {
+                case DUPLICATE -> seen.add(event.getEventId());
+                case UNKNOWN -> eventIds.add(event.getEventId());
+                default -> {
+                    // New: no query needed
+                }
+            }
+        }
+        if (!eventIds.isEmpty()) {
+            Set<String> processed = handler.findProcessed(eventIds);
+            seen.addAll(processed);
+            for (ConsumerRecord<String, DomainEvent> record : records) {
+                DomainEvent event = record.value();
+                if (event != null && eventIds.contains(event.getEventId())) {
+                    dedupCache.databaseResult(event.getEventId(), handler.processedEventType(event),
+                            processed.contains(event.getEventId()));
+                }
+            }
+        }
+
+        List<T> rows = new ArrayList<>(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, DomainEvent> record = records.get(i);
+            try {
+                DomainEvent event = record.value();
+                if (event == null) {
+                    throw new IllegalStateException("Record at offset " + record.offset() + " has no DomainEvent value");
+                }
+                if (event.getEventId() != null && !seen.add(event.getEventId())) {
+                    log.debug("Event {} already processed, skipping", event.getEventId());
+                    duplicates.increment();
+                    continue;
+                }
+                CorrelationIdUtil.setCorrelationId(correlationId(record));
+                long start = System.nanoTime();
+                T row = handler.handle(record);
+                handled.add(new HandledRecord(record, System.nanoTime() - start));
+                if (row != null) {
+                    rows.add(row);
+                    // Only counted as a certain duplicate once the transaction commits
+                    dedupCache.markProcessed(event.getEventId(), handler.processedEventType(event));
+                }
+            } catch (RuntimeException e) {
+                status.setRollbackOnly();
+                return new RecordFailure(i, e);
+            } finally {
+                CorrelationIdUtil.clearCorrelationId();
+            }
+        }
+
+        try {
+            if (!rows.isEmpty()) {
+                handler.saveProcessed(rows);
+            }
+        } catch (RuntimeException e) {
+            // Not attributable to one record: redeliver the batch from its first record
+            status.setRollbackOnly();
+            return new RecordFailure(0, e);
+        }
+        return null;
+    }
+
+    /**
+     * Raw value of the last header with the given name, or null
+     */
+    public static byte[] headerValue(ConsumerRecord<?, ?> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header != null ? header.value() : null;
+    }
+
+    private static String correlationId(ConsumerRecord<String, DomainEvent> record) {
+        byte[] value = headerValue(record, CorrelationIdUtil.CORRELATION_ID_HEADER);
+        return value != null ? new String(value, StandardCharsets.UTF_8) : record.value().getCorrelationId();
+    }
+
+    private record RecordFailure(int index, RuntimeException cause) {
+    }
+
+    private record HandledRecord(ConsumerRecord<String, DomainEvent> record, long processingNanos) {
+    }
+}
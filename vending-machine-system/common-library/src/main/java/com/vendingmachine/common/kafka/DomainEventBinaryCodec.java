@@ -0,0 +1,408 @@
+package com.vendingmachine.common.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BinaryNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.event.EventJson;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact, schema-driven binary encoding of {@link DomainEvent}, in the style of Avro.
+ * <p>
+ * Layout: {@code 0x00} magic byte, schema id as a varint, then the fields of that schema in
+ * order with no field names. Strings and collections are length-prefixed with varints (0 meaning
+ * null), longs are zig-zag varints. The JSON payload is written as a tagged tree, so numbers and
+ * booleans take a byte or two instead of their text form. JSON records never start with
+ * {@code 0x00}, which lets a reader tell the two formats apart from the first byte.
+ * <p>
+ * Decoding resolves fields by name against {@link DomainEvent}; fields a reader does not know
+ * are skipped and fields missing from the writer's schema keep their defaults.
+ */
+public class DomainEventBinaryCodec {
+
+    public static final byte MAGIC_BYTE = 0x00;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_FALSE = 1;
+    private static final byte TAG_TRUE = 2;
+    private static final byte TAG_INTEGER = 3;
+    private static final byte TAG_DOUBLE = 4;
+    private static final byte TAG_DECIMAL = 5;
+    private static final byte TAG_STRING = 6;
+    private static final byte TAG_ARRAY = 7;
+    private static final byte TAG_OBJECT = 8;
+    private static final byte TAG_BIG_INTEGER = 9;
+    private static final byte TAG_BINARY = 10;
+
+    // Decimal nodes keep their scale: the factory no longer strips trailing zeroes
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private final DomainEventSchemaRegistry registry;
+
+    public DomainEventBinaryCodec(DomainEventSchemaRegistry registry) {
+        this.registry = registry;
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length > 0 && data[0] == MAGIC_BYTE;
+    }
+
+    public byte[] encode(DomainEvent event) {
+        DomainEventSchema schema = registry.latest();
+        Writer out = new Writer(256);
+        out.writeByte(MAGIC_BYTE);
+        out.writeVarLong(schema.id());
+        for (DomainEventSchema.Field field : schema.fields()) {
+            writeField(out, field, event);
+        }
+        return out.toByteArray();
+    }
+
+    public DomainEvent decode(byte[] data) {
+        if (!isBinary(data)) {
+            throw new SerializationException("Not a binary DomainEvent record");
+        }
+        try {
+            Reader in = new Reader(data, 1);
+            DomainEventSchema schema = registry.get((int) in.readVarLong());
+            DomainEvent event = new DomainEvent();
+            for (DomainEventSchema.Field field : schema.fields()) {
+                readField(in, field, event);
+            }
+            return event;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new SerializationException("Truncated binary DomainEvent record", e);
+        }
+    }
+
+    // =========================
+    // FIELD MAPPING
+    // =========================
+
+    private void writeField(Writer out, DomainEventSchema.Field field, DomainEvent event) {
+        Object value = switch (field.name()) {
+            case "eventId" -> event.getEventId();
+            case "eventType" -> event.getEventType();
+            case "aggregateId" -> event.getAggregateId();
+            case "aggregateType" -> event.getAggregateType();
+            case "source" -> event.getSource();
+            case "correlationId" -> event.getCorrelationId();
+            case "timestamp" -> event.getTimestamp();
+            case "payload" -> event.getPayload();
+            case "metadata" -> event.getMetadata();
+            case "version" -> event.getVersion();
+            default -> null;
+        };
+        writeValue(out, field.type(), value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeValue(Writer out, DomainEventSchema.FieldType type, Object value) {
+        switch (type) {
+            case STRING -> out.writeString((String) value);
+            case LONG -> {
+                if (value == null) {
+                    out.writeByte((byte) 0);
+                } else {
+                    out.writeByte((byte) 1);
+                    out.writeZigZag((Long) value);
+                }
+            }
+            case STRING_MAP -> {
+                Map<String, String> map = (Map<String, String>) value;
+                if (map == null) {
+                    out.writeVarLong(0);
+                } else {
+                    out.writeVarLong(map.size() + 1L);
+                    for (Map.Entry<String, String> entry : map.entrySet()) {
+                        out.writeString(entry.getKey());
+                        out.writeString(entry.getValue());
+                    }
+                }
+            }
+            case JSON -> writeNode(out, (JsonNode) value);
+        }
+    }
+
+    private void readField(Reader in, DomainEventSchema.Field field, DomainEvent event) {
+        Object value = switch (field.type()) {
+            case STRING -> in.readString();
+            case LONG -> in.readByte() == 0 ? null : in.readZigZag();
+            case STRING_MAP -> readMap(in);
+            case JSON -> readNode(in);
+        };
+        switch (field.name()) {
+            case "eventId" -> event.setEventId((String) value);
+            case "eventType" -> event.setEventType((String) value);
+            case "aggregateId" -> event.setAggregateId((String) value);
+            case "aggregateType" -> event.setAggregateType((String) value);
+            case "source" -> event.setSource((String) value);
+            case "correlationId" -> event.setCorrelationId((String) value);
+            case "timestamp" -> event.setTimestamp((Long) value);
+            case "payload" -> event.setPayload((JsonNode) value);
+            case "metadata" -> {
+                if (value != null) {
+                    event.setMetadata(castMap(value));
+                }
+            }
+            case "version" -> {
+                if (value != null) {
+                    event.setVersion((String) value);
+                }
+            }
+            default -> {
+                // Field from a newer schema this reader does not know; already consumed
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> castMap(Object value) {
+        return (Map<String, String>) value;
+    }
+
+    private static Map<String, String> readMap(Reader in) {
+        long size = in.readVarLong() - 1;
+        if (size < 0) {
+            return null;
+        }
+        Map<String, String> map = new HashMap<>((int) (size / 0.75f) + 1);
+        for (long i = 0; i < size; i++) {
+            map.put(in.readString(), in.readString());
+        }
+        return map;
+    }
+
+    // =========================
+    // JSON TREE
+    // =========================
+
+    private static void writeNode(Writer out, JsonNode node) {
+        if (node == null || node.isNull() || node.isMissingNode()) {
+            out.writeByte(TAG_NULL);
+        } else if (node.isBoolean()) {
+            out.writeByte(node.booleanValue() ? TAG_TRUE : TAG_FALSE);
+        } else if (node.isInt() || node.isLong() || node.isShort()) {
+            out.writeByte(TAG_INTEGER);
+            out.writeZigZag(node.longValue());
+        } else if (node.isBigInteger()) {
+            out.writeByte(TAG_BIG_INTEGER);
+            out.writeString(node.bigIntegerValue().toString());
+        } else if (node.isBigDecimal()) {
+            out.writeByte(TAG_DECIMAL);
+            out.writeString(node.decimalValue().toString());
+        } else if (node.isNumber()) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeLong(Double.doubleToRawLongBits(node.doubleValue()));
+        } else if (node.isTextual()) {
+            out.writeByte(TAG_STRING);
+            out.writeString(node.textValue());
+        } else if (node.isBinary()) {
+            out.writeByte(TAG_BINARY);
+            byte[] bytes = ((BinaryNode) node).binaryValue();
+            out.writeVarLong(bytes.length);
+            out.writeBytes(bytes);
+        } else if (node.isArray()) {
+            out.writeByte(TAG_ARRAY);
+            out.writeVarLong(node.size());
+            for (JsonNode element : node) {
+                writeNode(out, element);
+            }
+        } else if (node.isObject()) {
+            out.writeByte(TAG_OBJECT);
+            out.writeVarLong(node.size());
+            for (Map.Entry<String, JsonNode> field : node.properties()) {
+                out.writeString(field.getKey());
+                writeNode(out, field.getValue());
+            }
+        } else {
+            // POJO nodes and other custom values: go through their JSON tree form
+            writeNode(out, EventJson.mapper().valueToTree(node));
+        }
+    }
+
+    private static JsonNode readNode(Reader in) {
+        byte tag = in.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_FALSE:
+                return NODES.booleanNode(false);
+            case TAG_TRUE:
+                return NODES.booleanNode(true);
+            case TAG_INTEGER: {
+                long value = in.readZigZag();
+                return value == (int) value ? NODES.numberNode((int) value) : NODES.numberNode(value);
+            }
+            case TAG_DOUBLE:
+                return NODES.numberNode(Double.longBitsToDouble(in.readLong()));
+            case TAG_DECIMAL:
+                return NODES.numberNode(new BigDecimal(in.readString()));
+            case TAG_BIG_INTEGER:
+                return NODES.numberNode(new BigInteger(in.readString()));
+            case TAG_STRING:
+                return NODES.textNode(in.readString());
+            case TAG_BINARY:
+                return NODES.binaryNode(in.readBytes((int) in.readVarLong()));
+            case TAG_ARRAY: {
+                long size = in.readVarLong();
+                ArrayNode array = NODES.arrayNode();
+                for (long i = 0; i < size; i++) {
+                    JsonNode element = readNode(in);
+                    array.add(element == null ? NODES.nullNode() : element);
+                }
+                return array;
+            }
+            case TAG_OBJECT: {
+                long size = in.readVarLong();
+                ObjectNode object = NODES.objectNode();
+                for (long i = 0; i < size; i++) {
+                    String name = in.readString();
+                    JsonNode value = readNode(in);
+                    object.set(name, value == null ? NODES.nullNode() : value);
+                }
+                return object;
+            }
+            default:
+                throw new SerializationException("Unknown JSON tag " + tag + " in binary DomainEvent");
+        }
+    }
+
+    // =========================
+    // PRIMITIVES
+    // =========================
+
+    private static final class Writer {
+        private byte[] buffer;
+        private int position;
+
+        private Writer(int initialCapacity) {
+            this.buffer = new byte[initialCapacity];
+        }
+
+        private void ensure(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+
+        private void writeByte(byte value) {
+            ensure(1);
+            buffer[position++] = value;
+        }
+
+        private void writeBytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeZigZag(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        private void writeLong(long value) {
+            ensure(8);
+            for (int i = 7; i >= 0; i--) {
+                buffer[position++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        private void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            writeBytes(bytes);
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private int position;
+
+        private Reader(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        private byte readByte() {
+            return data[position++];
+        }
+
+        private byte[] readBytes(int length) {
+            if (length < 0 || position + length > data.length) {
+                throw new SerializationException("Truncated binary value in binary DomainEvent");
+            }
+            byte[] bytes = Arrays.copyOfRange(data, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        private long readVarLong() {
+            long result = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (shift > 63) {
+                    throw new SerializationException("Malformed varint in binary DomainEvent");
+                }
+                b = data[position++];
+                result |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return result;
+        }
+
+        private long readZigZag() {
+            long raw = readVarLong();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        private long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (data[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        private String readString() {
+            int length = (int) readVarLong() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (position + length > data.length) {
+                throw new SerializationException("Truncated string in binary DomainEvent");
+            }
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
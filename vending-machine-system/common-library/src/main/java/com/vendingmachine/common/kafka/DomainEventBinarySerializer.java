@@ -0,0 +1,29 @@
+package com.vendingmachine.common.kafka;
+
+import com.vendingmachine.common.event.DomainEvent;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Map;
+
+/**
+ * Kafka serializer writing {@link DomainEvent} in the compact binary format of
+ * {@link DomainEventBinaryCodec}, using the latest schema version of the registry.
+ * <p>
+ * Pair with {@link DomainEventDeserializer}, which reads both binary and JSON records, so
+ * producers can switch format one service at a time. The registry is the embedded one unless
+ * {@link DomainEventSchemaRegistry#PATH_CONFIG} is set in the producer configuration.
+ */
+public class DomainEventBinarySerializer implements Serializer<DomainEvent> {
+
+    private DomainEventBinaryCodec codec = new DomainEventBinaryCodec(DomainEventSchemaRegistry.embedded());
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        codec = new DomainEventBinaryCodec(DomainEventSchemaRegistry.fromConfigs(configs));
+    }
+
+    @Override
+    public byte[] serialize(String topic, DomainEvent event) {
+        return event == null ? null : codec.encode(event);
+    }
+}
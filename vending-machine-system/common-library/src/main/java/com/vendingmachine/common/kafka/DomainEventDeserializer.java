@@ -0,0 +1,66 @@
+package com.vendingmachine.common.kafka;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.event.EventJson;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Kafka deserializer for {@link DomainEvent} that reads both wire formats, so consumers keep
+ * working while producers move between {@link DomainEventSerializer} (JSON) and
+ * {@link DomainEventBinarySerializer} (binary). Binary records are recognised by their leading
+ * magic byte; anything else is parsed as JSON.
+ * <p>
+ * JSON records use the shared {@link EventJson} mapper. The payload is read once into a JSON tree
+ * and bound to its type on demand by {@link DomainEvent#getPayloadAs(Class)}. Envelopes from older
+ * producers that carry the payload as an escaped JSON string are still accepted.
+ * <p>
+ * Configure with {@code ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG}, optionally wrapped
+ * in an {@code ErrorHandlingDeserializer}. Binary schemas come from the embedded registry unless
+ * {@link DomainEventSchemaRegistry#PATH_CONFIG} is set.
+ * <p>
+ * When the consumer configuration carries a {@link DomainEventHeaderFilter}, records whose
+ * headers it rejects are returned as {@code null} without being parsed; drop them before the
+ * listener with {@link DomainEventRecordFilterStrategy}.
+ */
+public class DomainEventDeserializer implements Deserializer<DomainEvent> {
+
+    private static final ObjectReader READER = EventJson.mapper().readerFor(DomainEvent.class);
+
+    private DomainEventBinaryCodec binaryCodec = new DomainEventBinaryCodec(DomainEventSchemaRegistry.embedded());
+    private DomainEventHeaderFilter headerFilter = DomainEventHeaderFilter.ACCEPT_ALL;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        binaryCodec = new DomainEventBinaryCodec(DomainEventSchemaRegistry.fromConfigs(configs));
+        headerFilter = DomainEventHeaderFilter.fromConfigs(configs);
+    }
+
+    @Override
+    public DomainEvent deserialize(String topic, Headers headers, byte[] data) {
+        if (!headerFilter.accepts(headers)) {
+            return null;
+        }
+        return deserialize(topic, data);
+    }
+
+    @Override
+    public DomainEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (DomainEventBinaryCodec.isBinary(data)) {
+            return binaryCodec.decode(data);
+        }
+        try {
+            return READER.readValue(data);
+        } catch (IOException e) {
+            throw new SerializationException("Failed to deserialize domain event from " + topic, e);
+        }
+    }
+}
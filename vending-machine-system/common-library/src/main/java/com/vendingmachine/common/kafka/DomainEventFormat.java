@@ -0,0 +1,34 @@
+package com.vendingmachine.common.kafka;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Wire format for DomainEvent producers, selected per service with
+ * {@code kafka.domain-events.format} (config-server). Consumers use
+ * {@link DomainEventDeserializer}, which reads either format.
+ */
+public enum DomainEventFormat {
+
+    JSON(DomainEventSerializer.class),
+    BINARY(DomainEventBinarySerializer.class);
+
+    private final Class<? extends Serializer<?>> serializerClass;
+
+    DomainEventFormat(Class<? extends Serializer<?>> serializerClass) {
+        this.serializerClass = serializerClass;
+    }
+
+    public Class<? extends Serializer<?>> getSerializerClass() {
+        return serializerClass;
+    }
+
+    /**
+     * Resolve a configured format name, case-insensitively; blank means JSON
+     */
+    public static DomainEventFormat from(String name) {
+        if (name == null || name.isBlank()) {
+            return JSON;
+        }
+        return valueOf(name.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,43 @@
+package com.vendingmachine.common.kafka;
+
+import com.vendingmachine.common.event.DomainEvent;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a bean method as the handler of one or more unified event types. Methods are found at
+ * startup by {@link DomainEventHandlerRegistry} and called through
+ * {@link DomainEventHandlerRegistry#dispatch(DomainEvent)}.
+ * <p>
+ * The method takes the event, and the decoded payload when {@link #payload()} is set:
+ * <pre>
+ * &#64;DomainEventHandler(type = {"PAYMENT_COMPLETED", "PAYMENT_FAILED"}, payload = PaymentPayload.class)
+ * public ProcessedEvent applyPaymentEvent(DomainEvent event, PaymentPayload payload) { ... }
+ * </pre>
+ * Its return value is handed back to the caller of dispatch. The method must not be private,
+ * so it can be called through the bean's proxy.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface DomainEventHandler {
+
+    /**
+     * Event types handled; one handler per type in a service
+     */
+    String[] type();
+
+    /**
+     * Payload class passed as the second argument, or {@code Void.class} for a handler that only takes the event
+     */
+    Class<?> payload() default Void.class;
+
+    /**
+     * Sources accepted, empty for any; events of the type from other sources are not handled
+     */
+    String[] source() default {};
+}
@@ -0,0 +1,226 @@
+package com.vendingmachine.common.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.event.EventJson;
+import com.vendingmachine.common.event.PayloadUpcasters;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aop.scope.ScopedProxyUtils;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatch table from unified event type to the {@link DomainEventHandler} method that handles it.
+ * <p>
+ * Handler methods are collected from all beans once the singletons are created and frozen into
+ * an immutable map, so dispatching an event is one lookup by type and one method call. Each
+ * handler's payload class gets an {@link ObjectReader} of the shared {@link EventJson} mapper at
+ * startup; the payload is decoded with it only when the event has a handler, and events of other
+ * types are never bound. Payloads written under an older schema version are first migrated to the
+ * current shape by the registered {@link PayloadUpcasters}. Two handlers for the same type, or a method whose parameters do not
+ * match its annotation, fail the startup.
+ */
+@Component
+@Slf4j
+public class DomainEventHandlerRegistry implements SmartInitializingSingleton {
+
+    private final ApplicationContext applicationContext;
+    private final MeterRegistry meterRegistry;
+    private final PayloadUpcasters upcasters;
+    private final String service;
+    private volatile Map<String, Handler> handlers = Map.of();
+
+    @Autowired
+    public DomainEventHandlerRegistry(ApplicationContext applicationContext, MeterRegistry meterRegistry,
+                                      PayloadUpcasters upcasters,
+                                      @Value("${spring.application.name:unknown}") String service) {
+        this.applicationContext = applicationContext;
+        this.meterRegistry = meterRegistry;
+        this.upcasters = upcasters;
+        this.service = service;
+    }
+
+    DomainEventHandlerRegistry(Collection<?> beans, MeterRegistry meterRegistry, String service) {
+        this(beans, meterRegistry, new PayloadUpcasters(List.of(), meterRegistry, service), service);
+    }
+
+    DomainEventHandlerRegistry(Collection<?> beans, MeterRegistry meterRegistry, PayloadUpcasters upcasters,
+                               String service) {
+        this((ApplicationContext) null, meterRegistry, upcasters, service);
+        this.handlers = build(beans);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<Object> beans = new ArrayList<>();
+        for (String name : applicationContext.getBeanNamesForType(Object.class, false, false)) {
+            if (ScopedProxyUtils.isScopedTarget(name)) {
+                continue;
+            }
+            Class<?> type = applicationContext.getType(name, false);
+            if (type != null && !handlerMethods(type).isEmpty()) {
+                beans.add(applicationContext.getBean(name));
+            }
+        }
+        handlers = build(beans);
+        log.info("Registered domain event handlers for {} event types: {}", handlers.size(), handlers.keySet());
+    }
+
+    /**
+     * Whether the event has a handler that accepts its source
+     */
+    public boolean handles(DomainEvent event) {
+        Handler handler = handlers.get(event.getEventType());
+        return handler != null && handler.accepts(event);
+    }
+
+    /**
+     * Event types with a handler
+     */
+    public Set<String> eventTypes() {
+        return handlers.keySet();
+    }
+
+    /**
+     * Upcast and decode the payload and call the event's handler, returning what the handler returns, or
+     * null when the event has no handler. Exceptions thrown by the handler are rethrown, and a
+     * payload that cannot be decoded throws {@link IllegalArgumentException}.
+     */
+    public Object dispatch(DomainEvent event) {
+        Handler handler = handlers.get(event.getEventType());
+        if (handler == null || !handler.accepts(event)) {
+            return null;
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Object result = handler.invoke(event, upcasters);
+            success = true;
+            return result;
+        } finally {
+            (success ? handler.success : handler.failure).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Map<String, Handler> build(Collection<?> beans) {
+        Map<String, Handler> table = new HashMap<>();
+        for (Object bean : beans) {
+            Class<?> type = AopProxyUtils.ultimateTargetClass(bean);
+            handlerMethods(type).forEach((method, annotation) -> {
+                Method invocable = AopUtils.selectInvocableMethod(method, bean.getClass());
+                ReflectionUtils.makeAccessible(invocable);
+                checkParameters(method, annotation);
+                String name = type.getSimpleName() + "." + method.getName();
+                ObjectReader reader = annotation.payload() == Void.class
+                        ? null : EventJson.mapper().readerFor(annotation.payload());
+                for (String eventType : annotation.type()) {
+                    Handler existing = table.get(eventType);
+                    if (existing != null) {
+                        throw new IllegalStateException("Event type " + eventType + " has two handlers: "
+                                + existing.name + " and " + name);
+                    }
+                    table.put(eventType, new Handler(bean, invocable, name, Set.of(annotation.source()), reader,
+                            timer(eventType, name, "success"), timer(eventType, name, "failure")));
+                }
+            });
+        }
+        return Map.copyOf(table);
+    }
+
+    private Timer timer(String eventType, String handler, String outcome) {
+        return Timer.builder("vending_machine.kafka.handler")
+                .description("Time in a domain event handler, payload decoding included")
+                .tag("service", service)
+                .tag("event_type", eventType)
+                .tag("handler", handler)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static Map<Method, DomainEventHandler> handlerMethods(Class<?> type) {
+        if (!AnnotationUtils.isCandidateClass(type, DomainEventHandler.class)) {
+            return Map.of();
+        }
+        return MethodIntrospector.selectMethods(type, (MethodIntrospector.MetadataLookup<DomainEventHandler>)
+                method -> AnnotatedElementUtils.findMergedAnnotation(method, DomainEventHandler.class));
+    }
+
+    private static void checkParameters(Method method, DomainEventHandler annotation) {
+        Class<?>[] parameters = method.getParameterTypes();
+        boolean eventOnly = annotation.payload() == Void.class;
+        boolean valid = parameters.length == (eventOnly ? 1 : 2)
+                && parameters[0] == DomainEvent.class
+                && (eventOnly || parameters[1].isAssignableFrom(annotation.payload()));
+        if (!valid) {
+            throw new IllegalStateException("@DomainEventHandler method " + method + " must take (DomainEvent"
+                    + (eventOnly ? ")" : ", " + annotation.payload().getSimpleName() + ")"));
+        }
+    }
+
+    private static final class Handler {
+
+        private final Object bean;
+        private final Method method;
+        private final String name;
+        private final Set<String> sources;
+        private final ObjectReader payloadReader;
+        private final Timer success;
+        private final Timer failure;
+
+        private Handler(Object bean, Method method, String name, Set<String> sources, ObjectReader payloadReader,
+                        Timer success, Timer failure) {
+            this.bean = bean;
+            this.method = method;
+            this.name = name;
+            this.sources = sources;
+            this.payloadReader = payloadReader;
+            this.success = success;
+            this.failure = failure;
+        }
+
+        boolean accepts(DomainEvent event) {
+            return sources.isEmpty() || sources.contains(event.getSource());
+        }
+
+        Object invoke(DomainEvent event, PayloadUpcasters upcasters) {
+            Object[] args = payloadReader == null ? new Object[] {event} : new Object[] {event, decode(event, upcasters)};
+            return ReflectionUtils.invokeMethod(method, bean, args);
+        }
+
+        private Object decode(DomainEvent event, PayloadUpcasters upcasters) {
+            JsonNode payload = upcasters.upcast(event);
+            if (payload == null || payload.isNull()) {
+                return null;
+            }
+            try {
+                // Older producers sent the payload as an escaped JSON string
+                return payload.isTextual() ? payloadReader.readValue(payload.textValue()) : payloadReader.readValue(payload);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Failed to decode the payload of event " + event.getEventId()
+                        + " for " + name, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.vendingmachine.common.kafka;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Decides from the raw record headers, before any payload parsing, whether a consumer
+ * cares about a DomainEvent on the unified topic.
+ * <p>
+ * Matches the {@link UnifiedTopicConfig#EVENT_TYPE_HEADER} and
+ * {@link UnifiedTopicConfig#EVENT_SOURCE_HEADER} headers stamped by {@link UnifiedEventPublisher}
+ * against the accepted event types and sources. An empty set accepts everything, and records
+ * without the header (older producers) are always accepted so the listener can decide.
+ */
+public class DomainEventHeaderFilter {
+
+    /**
+     * Consumer property listing the accepted event types, comma separated
+     */
+    public static final String EVENT_TYPES_CONFIG = "domain.event.filter.event-types";
+
+    /**
+     * Consumer property listing the accepted event sources, comma separated
+     */
+    public static final String SOURCES_CONFIG = "domain.event.filter.sources";
+
+    public static final DomainEventHeaderFilter ACCEPT_ALL = new DomainEventHeaderFilter(Set.of(), Set.of());
+
+    private final Set<String> eventTypes;
+    private final Set<String> sources;
+
+    private DomainEventHeaderFilter(Set<String> eventTypes, Set<String> sources) {
+        this.eventTypes = eventTypes;
+        this.sources = sources;
+    }
+
+    public static DomainEventHeaderFilter of(Collection<String> eventTypes, Collection<String> sources) {
+        Set<String> types = clean(eventTypes);
+        Set<String> sourceSet = clean(sources);
+        return types.isEmpty() && sourceSet.isEmpty() ? ACCEPT_ALL : new DomainEventHeaderFilter(types, sourceSet);
+    }
+
+    /**
+     * Filter from comma separated lists, as bound from configuration properties
+     */
+    public static DomainEventHeaderFilter of(String eventTypes, String sources) {
+        return of(split(eventTypes), split(sources));
+    }
+
+    /**
+     * Filter described by {@link #EVENT_TYPES_CONFIG} and {@link #SOURCES_CONFIG} in the Kafka consumer configuration
+     */
+    public static DomainEventHeaderFilter fromConfigs(Map<String, ?> configs) {
+        return of(asString(configs.get(EVENT_TYPES_CONFIG)), asString(configs.get(SOURCES_CONFIG)));
+    }
+
+    /**
+     * Consumer properties that reproduce this filter in {@link DomainEventDeserializer}
+     */
+    public Map<String, Object> toConfigs() {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(EVENT_TYPES_CONFIG, String.join(",", eventTypes));
+        configs.put(SOURCES_CONFIG, String.join(",", sources));
+        return configs;
+    }
+
+    public boolean acceptsAll() {
+        return this == ACCEPT_ALL;
+    }
+
+    public boolean accepts(Headers headers) {
+        if (acceptsAll() || headers == null) {
+            return true;
+        }
+        return matches(eventTypes, headers.lastHeader(UnifiedTopicConfig.EVENT_TYPE_HEADER))
+                && matches(sources, headers.lastHeader(UnifiedTopicConfig.EVENT_SOURCE_HEADER));
+    }
+
+    /**
+     * Event type carried in the headers, or null when the producer did not stamp one
+     */
+    public static String eventType(Headers headers) {
+        Header header = headers == null ? null : headers.lastHeader(UnifiedTopicConfig.EVENT_TYPE_HEADER);
+        return header == null || header.value() == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    private static boolean matches(Set<String> accepted, Header header) {
+        if (accepted.isEmpty() || header == null || header.value() == null) {
+            return true;
+        }
+        return accepted.contains(new String(header.value(), StandardCharsets.UTF_8));
+    }
+
+    private static Set<String> clean(Collection<String> values) {
+        if (values == null) {
+            return Set.of();
+        }
+        return values.stream()
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private static Collection<String> split(String values) {
+        return values == null ? Set.of() : Arrays.asList(values.split(","));
+    }
+
+    private static String asString(Object value) {
+        if (value instanceof Collection<?> collection) {
+            return collection.stream().map(String::valueOf).collect(Collectors.joining(","));
+        }
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "DomainEventHeaderFilter{eventTypes=" + eventTypes + ", sources=" + sources + "}";
+    }
+}
@@ -0,0 +1,47 @@
+package com.vendingmachine.common.kafka;
+
+import com.vendingmachine.common.event.DomainEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.adapter.RecordFilterStrategy;
+
+/**
+ * Drops unified-topic records a consumer does not handle, using the event headers only.
+ * <p>
+ * Pair with {@link DomainEventDeserializer} configured with the same {@link DomainEventHeaderFilter}
+ * (see {@link DomainEventHeaderFilter#toConfigs()}): the deserializer skips parsing the records,
+ * and this strategy keeps them away from the listener. Enable
+ * {@code factory.setAckDiscarded(true)} so skipped offsets are still committed.
+ * <p>
+ * Metrics: {@code vending_machine.kafka.events.skipped} tagged by service and event type.
+ */
+public class DomainEventRecordFilterStrategy implements RecordFilterStrategy<String, DomainEvent> {
+
+    private static final String UNKNOWN_TYPE = "unknown";
+
+    private final DomainEventHeaderFilter filter;
+    private final MeterRegistry meterRegistry;
+    private final String service;
+
+    public DomainEventRecordFilterStrategy(DomainEventHeaderFilter filter, MeterRegistry meterRegistry, String service) {
+        this.filter = filter;
+        this.meterRegistry = meterRegistry;
+        this.service = service;
+    }
+
+    @Override
+    public boolean filter(ConsumerRecord<String, DomainEvent> record) {
+        if (filter.accepts(record.headers())) {
+            return false;
+        }
+        String eventType = DomainEventHeaderFilter.eventType(record.headers());
+        Counter.builder("vending_machine.kafka.events.skipped")
+                .description("Unified topic records dropped by header filtering before deserialization")
+                .tag("service", service)
+                .tag("event_type", eventType != null ? eventType : UNKNOWN_TYPE)
+                .register(meterRegistry)
+                .increment();
+        return true;
+    }
+}
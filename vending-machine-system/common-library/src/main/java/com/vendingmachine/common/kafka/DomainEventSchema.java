@@ -0,0 +1,38 @@
+package com.vendingmachine.common.kafka;
+
+import java.util.List;
+
+/**
+ * One registered version of the binary {@link com.vendingmachine.common.event.DomainEvent} layout:
+ * the ordered list of fields the writer encoded. Readers resolve fields by name, so fields can be
+ * added, removed or reordered in a new version without breaking consumers of older ones.
+ *
+ * @param id     schema id written after the magic byte of every binary record
+ * @param fields fields in encoding order
+ */
+public record DomainEventSchema(int id, List<Field> fields) {
+
+    public DomainEventSchema {
+        fields = List.copyOf(fields);
+    }
+
+    /**
+     * Wire types supported by {@link DomainEventBinaryCodec}
+     */
+    public enum FieldType {
+        STRING,
+        LONG,
+        STRING_MAP,
+        JSON
+    }
+
+    public record Field(String name, FieldType type) {
+    }
+
+    /**
+     * True when both schemas encode the same fields in the same order
+     */
+    public boolean sameLayout(List<Field> otherFields) {
+        return fields.equals(otherFields);
+    }
+}
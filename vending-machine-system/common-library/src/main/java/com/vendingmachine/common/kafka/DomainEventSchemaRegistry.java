@@ -0,0 +1,167 @@
+package com.vendingmachine.common.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.vendingmachine.common.event.EventJson;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local stand-in for a schema registry, holding the versions of the binary DomainEvent layout.
+ * <p>
+ * The embedded versions ship in {@code schemas/domain-event-schemas.json} on the classpath and
+ * are the same in every service. A file-backed registry also loads versions from a shared file
+ * and appends newly registered versions to it, so services that point at the same file agree
+ * on ids without a registry server.
+ */
+@Slf4j
+public class DomainEventSchemaRegistry {
+
+    public static final String EMBEDDED_RESOURCE = "schemas/domain-event-schemas.json";
+
+    /**
+     * Kafka client property naming the shared schema file; the embedded registry is used when unset
+     */
+    public static final String PATH_CONFIG = "domain.event.schema.registry.path";
+
+    private static final String SUBJECT = "DomainEvent";
+
+    private final Map<Integer, DomainEventSchema> schemas = new ConcurrentHashMap<>();
+    private final Path file;
+    private volatile DomainEventSchema latest;
+
+    private DomainEventSchemaRegistry(Path file) {
+        this.file = file;
+        try (InputStream in = DomainEventSchemaRegistry.class.getClassLoader().getResourceAsStream(EMBEDDED_RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing embedded schema resource " + EMBEDDED_RESOURCE);
+            }
+            load(EventJson.mapper().readTree(in));
+            if (file != null && Files.exists(file)) {
+                load(EventJson.mapper().readTree(file.toFile()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load DomainEvent schemas", e);
+        }
+    }
+
+    /**
+     * Registry with the embedded schema versions only
+     */
+    public static DomainEventSchemaRegistry embedded() {
+        return EmbeddedHolder.INSTANCE;
+    }
+
+    /**
+     * Registry backed by a shared file, merged over the embedded versions
+     */
+    public static DomainEventSchemaRegistry fileBacked(Path file) {
+        return new DomainEventSchemaRegistry(file);
+    }
+
+    /**
+     * Registry selected by {@link #PATH_CONFIG} in the Kafka client configuration
+     */
+    public static DomainEventSchemaRegistry fromConfigs(Map<String, ?> configs) {
+        Object path = configs.get(PATH_CONFIG);
+        if (path == null || path.toString().isBlank()) {
+            return embedded();
+        }
+        return fileBacked(Path.of(path.toString()));
+    }
+
+    public DomainEventSchema get(int id) {
+        DomainEventSchema schema = schemas.get(id);
+        if (schema == null) {
+            throw new SerializationException("Unknown DomainEvent schema id " + id);
+        }
+        return schema;
+    }
+
+    /**
+     * Schema version used by writers
+     */
+    public DomainEventSchema latest() {
+        return latest;
+    }
+
+    /**
+     * Register a layout, returning the existing version if one already matches it
+     */
+    public synchronized DomainEventSchema register(List<DomainEventSchema.Field> fields) {
+        for (DomainEventSchema schema : schemas.values()) {
+            if (schema.sameLayout(fields)) {
+                return schema;
+            }
+        }
+        DomainEventSchema schema = new DomainEventSchema(latest.id() + 1, fields);
+        add(schema);
+        persist();
+        log.info("Registered DomainEvent schema version {} with {} fields", schema.id(), fields.size());
+        return schema;
+    }
+
+    private void load(JsonNode document) {
+        for (JsonNode version : document.path("versions")) {
+            List<DomainEventSchema.Field> fields = new ArrayList<>();
+            for (JsonNode field : version.path("fields")) {
+                fields.add(new DomainEventSchema.Field(field.path("name").asText(),
+                        DomainEventSchema.FieldType.valueOf(field.path("type").asText())));
+            }
+            add(new DomainEventSchema(version.path("id").asInt(), fields));
+        }
+    }
+
+    private void add(DomainEventSchema schema) {
+        DomainEventSchema existing = schemas.putIfAbsent(schema.id(), schema);
+        if (existing != null && !existing.sameLayout(schema.fields())) {
+            throw new IllegalStateException("Conflicting definitions for DomainEvent schema id " + schema.id());
+        }
+        if (latest == null || schema.id() > latest.id()) {
+            latest = schema;
+        }
+    }
+
+    private void persist() {
+        if (file == null) {
+            return;
+        }
+        ObjectNode document = EventJson.mapper().createObjectNode();
+        document.put("subject", SUBJECT);
+        ArrayNode versions = document.putArray("versions");
+        schemas.values().stream()
+                .sorted(Comparator.comparingInt(DomainEventSchema::id))
+                .forEach(schema -> {
+                    ObjectNode version = versions.addObject();
+                    version.put("id", schema.id());
+                    ArrayNode fields = version.putArray("fields");
+                    schema.fields().forEach(field -> fields.addObject()
+                            .put("name", field.name())
+                            .put("type", field.type().name()));
+                });
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            EventJson.mapper().writerWithDefaultPrettyPrinter().writeValue(file.toFile(), document);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write DomainEvent schemas to " + file, e);
+        }
+    }
+
+    private static final class EmbeddedHolder {
+        private static final DomainEventSchemaRegistry INSTANCE = new DomainEventSchemaRegistry(null);
+    }
+}
@@ -0,0 +1,31 @@
+package com.vendingmachine.common.kafka;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.event.EventJson;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka serializer for {@link DomainEvent} using the shared {@link EventJson} mapper.
+ * The payload is written inline as a JSON object, so each event is encoded in one pass.
+ * <p>
+ * Configure with {@code ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG}.
+ */
+public class DomainEventSerializer implements Serializer<DomainEvent> {
+
+    private static final ObjectWriter WRITER = EventJson.mapper().writerFor(DomainEvent.class);
+
+    @Override
+    public byte[] serialize(String topic, DomainEvent event) {
+        if (event == null) {
+            return null;
+        }
+        try {
+            return WRITER.writeValueAsBytes(event);
+        } catch (JsonProcessingException e) {
+            throw new SerializationException("Failed to serialize domain event " + event.getEventId(), e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.vendingmachine.common.kafka;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Routing policy from event type to the domain event topic of its priority tier.
+ * <p>
+ * Events of the purchase flow go to the critical tier,
+ * {@link UnifiedTopicConfig#UNIFIED_DOMAIN_EVENTS_TOPIC}, and everything else (inventory updates,
+ * notification-only lifecycle events) to the bulk tier, {@link UnifiedTopicConfig#UNIFIED_BULK_EVENTS_TOPIC},
+ * so the consumers of the purchase flow never read past analytics traffic. Critical types are
+ * listed as exact types or as prefixes ending in {@code *}. Events without a type stay on the
+ * critical topic, as do all events when tiering is disabled.
+ * <p>
+ * A consumer must subscribe to the tier of every type it handles.
+ */
+public final class DomainEventTopicRouter {
+
+    /**
+     * Critical types when none are configured: the legacy TRANSACTION start event and the
+     * payment, processing and dispensing steps of a purchase
+     */
+    public static final String DEFAULT_CRITICAL_TYPES = "TRANSACTION,TRANSACTION_PROCESSING,PAYMENT_*,DISPENSING_*";
+
+    /**
+     * Sends every event to the critical topic, as before the bulk tier existed
+     */
+    public static final DomainEventTopicRouter SINGLE_TOPIC = new DomainEventTopicRouter(Set.of(), List.of(), false);
+
+    private final Set<String> criticalTypes;
+    private final List<String> criticalPrefixes;
+    private final boolean tiered;
+
+    private DomainEventTopicRouter(Set<String> criticalTypes, List<String> criticalPrefixes, boolean tiered) {
+        this.criticalTypes = criticalTypes;
+        this.criticalPrefixes = criticalPrefixes;
+        this.tiered = tiered;
+    }
+
+    /**
+     * Router from a comma separated list of critical types and {@code PREFIX*} patterns, as bound
+     * from configuration properties
+     */
+    public static DomainEventTopicRouter of(String criticalTypes) {
+        List<String> patterns = criticalTypes == null ? List.of() : Arrays.stream(criticalTypes.split(","))
+                .map(String::trim)
+                .filter(pattern -> !pattern.isEmpty())
+                .toList();
+        return new DomainEventTopicRouter(
+                patterns.stream().filter(pattern -> !pattern.endsWith("*")).collect(Collectors.toUnmodifiableSet()),
+                patterns.stream().filter(pattern -> pattern.endsWith("*"))
+                        .map(pattern -> pattern.substring(0, pattern.length() - 1))
+                        .toList(),
+                true);
+    }
+
+    public boolean isTiered() {
+        return tiered;
+    }
+
+    public boolean isCritical(String eventType) {
+        if (!tiered || eventType == null || criticalTypes.contains(eventType)) {
+            return true;
+        }
+        for (String prefix : criticalPrefixes) {
+            if (eventType.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Topic of the event type's tier
+     */
+    public String topicFor(String eventType) {
+        return isCritical(eventType)
+                ? UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC
+                : UnifiedTopicConfig.UNIFIED_BULK_EVENTS_TOPIC;
+    }
+}
@@ -0,0 +1,200 @@
+package com.vendingmachine.common.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared base for every consumer a service builds: bootstrap servers, String keys, the group
+ * and how the group rebalances. Consumer configs add their value deserializer properties and
+ * offset settings on top, and container factories set {@link #rebalanceListener()}.
+ * <p>
+ * Groups use the cooperative sticky assignor, so a rebalance only moves the partitions that change
+ * owner while the others keep being processed, and static membership: each consumer joins with a
+ * {@code group.instance.id} of {@code <service>-<instance id>}, suffixed by the listener
+ * container with the consumer's thread index. A static member that restarts within the session
+ * timeout gets its partitions back without any rebalance, so a rolling restart no longer pauses
+ * the group. The instance id must be stable across restarts and unique per running instance; it
+ * defaults to the host name. Only one container of a group may run per factory, or the members
+ * fence each other.
+ */
+@Component
+@Slf4j
+public class KafkaConsumerSettings {
+
+    private final String bootstrapServers;
+    private final List<String> assignmentStrategy;
+    private final String groupInstanceId;
+    private final int sessionTimeoutMs;
+    private final MeterRegistry meterRegistry;
+    private final String service;
+    private final ThreadLocal<Long> revokedAt = new ThreadLocal<>();
+
+    @Autowired
+    public KafkaConsumerSettings(@Value("${spring.kafka.bootstrap-servers:localhost:9092}") String bootstrapServers,
+                                 @Value("${kafka.consumer.assignment-strategy:org.apache.kafka.clients.consumer.CooperativeStickyAssignor}")
+                                 String assignmentStrategy,
+                                 @Value("${kafka.consumer.static-membership.enabled:true}") boolean staticMembership,
+                                 @Value("${kafka.consumer.instance-id:}") String instanceId,
+                                 @Value("${kafka.consumer.session-timeout-ms:60000}") int sessionTimeoutMs,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${spring.application.name:unknown}") String service) {
+        this.bootstrapServers = bootstrapServers;
+        this.assignmentStrategy = Arrays.stream(assignmentStrategy.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .toList();
+        this.groupInstanceId = staticMembership
+                ? service + "-" + (instanceId == null || instanceId.isBlank() ? hostName() : instanceId.trim())
+                : null;
+        this.sessionTimeoutMs = sessionTimeoutMs;
+        this.meterRegistry = meterRegistry;
+        this.service = service;
+        log.info("Kafka consumers use {} with {}", this.assignmentStrategy,
+                groupInstanceId == null ? "dynamic membership" : "static membership as " + groupInstanceId);
+    }
+
+    KafkaConsumerSettings(String assignmentStrategy, String instanceId, MeterRegistry meterRegistry) {
+        this("localhost:9092", assignmentStrategy, instanceId != null, instanceId, 60_000, meterRegistry, "test-service");
+    }
+
+    /**
+     * Prefix of the {@code group.instance.id} of this instance's consumers, or null with dynamic membership
+     */
+    public String getGroupInstanceId() {
+        return groupInstanceId;
+    }
+
+    /**
+     * Mutable consumer properties for the given group and value deserializer
+     */
+    public Map<String, Object> consumerConfigs(String groupId, Class<?> valueDeserializer) {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configs.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        configs.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        configs.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, valueDeserializer);
+        configs.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, assignmentStrategy);
+        configs.put(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, sessionTimeoutMs);
+        if (groupInstanceId != null) {
+            configs.put(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG, groupInstanceId);
+        }
+        return configs;
+    }
+
+    /**
+     * Rebalance listener recording the rebalance metrics
+     */
+    public ConsumerAwareRebalanceListener rebalanceListener() {
+        return rebalanceListener(new ConsumerAwareRebalanceListener() {
+        });
+    }
+
+    /**
+     * Rebalance listener recording the rebalance metrics around another listener, such as the
+     * dedup cache's
+     */
+    public ConsumerAwareRebalanceListener rebalanceListener(ConsumerAwareRebalanceListener delegate) {
+        return new ConsumerAwareRebalanceListener() {
+
+            @Override
+            public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                delegate.onPartitionsRevokedBeforeCommit(consumer, partitions);
+            }
+
+            @Override
+            public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                delegate.onPartitionsRevokedAfterCommit(consumer, partitions);
+                // Every partition at the start of an eager rebalance, only the moved ones with a cooperative one
+                given(consumer, partitions, "revoked");
+            }
+
+            @Override
+            public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                delegate.onPartitionsLost(consumer, partitions);
+                given(consumer, partitions, "lost");
+            }
+
+            @Override
+            public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                delegate.onPartitionsAssigned(consumer, partitions);
+                String group = group(consumer);
+                Long start = revokedAt.get();
+                if (start != null) {
+                    revokedAt.remove();
+                    Timer.builder("vending_machine.kafka.rebalance.duration")
+                            .description("Time from a consumer giving up partitions to the end of the rebalance")
+                            .tag("service", service)
+                            .tag("group", group)
+                            .register(meterRegistry)
+                            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+                Counter.builder("vending_machine.kafka.rebalances")
+                        .description("Rebalances completed by a consumer")
+                        .tag("service", service)
+                        .tag("group", group)
+                        .register(meterRegistry)
+                        .increment();
+                partitionsMoved(group, "assigned", partitions.size());
+            }
+        };
+    }
+
+    private void given(Consumer<?, ?> consumer, Collection<TopicPartition> partitions, String change) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        if (revokedAt.get() == null) {
+            revokedAt.set(System.nanoTime());
+        }
+        partitionsMoved(group(consumer), change, partitions.size());
+    }
+
+    private void partitionsMoved(String group, String change, int partitions) {
+        Counter.builder("vending_machine.kafka.rebalance.partitions")
+                .description("Partitions moved by rebalances")
+                .tag("service", service)
+                .tag("group", group)
+                .tag("change", change)
+                .register(meterRegistry)
+                .increment(partitions);
+    }
+
+    private static String group(Consumer<?, ?> consumer) {
+        try {
+            return consumer.groupMetadata().groupId();
+        } catch (RuntimeException e) {
+            return "unknown";
+        }
+    }
+
+    private static String hostName() {
+        String host = System.getenv("HOSTNAME");
+        if (host != null && !host.isBlank()) {
+            return host;
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("Static consumer membership needs kafka.consumer.instance-id", e);
+        }
+    }
+}
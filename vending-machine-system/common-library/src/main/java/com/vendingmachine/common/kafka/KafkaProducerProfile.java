@@ -0,0 +1,64 @@
+package com.vendingmachine.common.kafka;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Producer tuning profiles, selected per service with {@code kafka.producer.profile} (config-server).
+ * Both profiles are idempotent with {@code acks=all} and at most 5 in-flight requests per connection,
+ * so retries neither duplicate nor reorder records within a partition.
+ * <ul>
+ *   <li>{@link #LOW_LATENCY} - sends as soon as a record is ready, cheap lz4 compression</li>
+ *   <li>{@link #HIGH_THROUGHPUT} - waits up to 20 ms to fill 128 KB batches, zstd compression</li>
+ * </ul>
+ */
+public enum KafkaProducerProfile {
+
+    LOW_LATENCY("lz4", 0, 16_384, 33_554_432L),
+    HIGH_THROUGHPUT("zstd", 20, 131_072, 67_108_864L);
+
+    static final int MAX_IN_FLIGHT_REQUESTS = 5;
+    static final int DELIVERY_TIMEOUT_MS = 120_000;
+
+    private final String compressionType;
+    private final int lingerMs;
+    private final int batchSize;
+    private final long bufferMemory;
+
+    KafkaProducerProfile(String compressionType, int lingerMs, int batchSize, long bufferMemory) {
+        this.compressionType = compressionType;
+        this.lingerMs = lingerMs;
+        this.batchSize = batchSize;
+        this.bufferMemory = bufferMemory;
+    }
+
+    /**
+     * Producer properties of this profile, without bootstrap servers or serializers
+     */
+    public Map<String, Object> configs() {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(ProducerConfig.ACKS_CONFIG, "all");
+        configs.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        configs.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, MAX_IN_FLIGHT_REQUESTS);
+        // Retries are bounded by the delivery timeout rather than a retry count
+        configs.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, DELIVERY_TIMEOUT_MS);
+        configs.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        configs.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        configs.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        configs.put(ProducerConfig.BUFFER_MEMORY_CONFIG, bufferMemory);
+        return configs;
+    }
+
+    /**
+     * Resolve a configured profile name such as {@code high-throughput}, case-insensitively;
+     * blank means HIGH_THROUGHPUT
+     */
+    public static KafkaProducerProfile from(String name) {
+        if (name == null || name.isBlank()) {
+            return HIGH_THROUGHPUT;
+        }
+        return valueOf(name.trim().replace('-', '_').toUpperCase());
+    }
+}
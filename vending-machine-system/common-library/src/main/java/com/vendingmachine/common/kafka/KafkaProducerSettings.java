@@ -0,0 +1,44 @@
+package com.vendingmachine.common.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Shared base for every producer a service builds: bootstrap servers, String keys and the
+ * settings of the service's {@link KafkaProducerProfile}. Producer configs add their value
+ * serializer and any serializer properties on top.
+ */
+@Component
+@Slf4j
+public class KafkaProducerSettings {
+
+    private final String bootstrapServers;
+    private final KafkaProducerProfile profile;
+
+    public KafkaProducerSettings(@Value("${spring.kafka.bootstrap-servers:localhost:9092}") String bootstrapServers,
+                                 @Value("${kafka.producer.profile:high-throughput}") String profile) {
+        this.bootstrapServers = bootstrapServers;
+        this.profile = KafkaProducerProfile.from(profile);
+        log.info("Kafka producers use the {} profile", this.profile);
+    }
+
+    public KafkaProducerProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Mutable producer properties for the given value serializer
+     */
+    public Map<String, Object> producerConfigs(Class<?> valueSerializer) {
+        Map<String, Object> configs = profile.configs();
+        configs.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configs.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configs.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, valueSerializer);
+        return configs;
+    }
+}
@@ -0,0 +1,183 @@
+package com.vendingmachine.common.kafka;
+
+import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.util.CorrelationIdUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Processes a batch of unified-topic records in parallel across keys while keeping them in order
+ * within a key. Records are grouped into lanes by record key (the aggregate ID the publisher keys by),
+ * lanes run on a shared worker pool, and each lane handles its records one after the other, each in
+ * its own transaction with the usual processed-event check. A slow record, such as one that makes a
+ * REST call, then only holds back the later records of its own transaction or product.
+ * <p>
+ * The listener returns once every lane is done, so the container commits the batch as usual. When a
+ * record fails its lane stops, since the later records of that key must not overtake it, and the
+ * earliest failed record of the batch is reported with a {@link BatchListenerFailedException}: the
+ * container's {@code DefaultErrorHandler} commits the offsets up to it, retries or dead-letters it,
+ * and redelivers the rest, where records that other lanes already completed are skipped as processed.
+ * <p>
+ * Uses the same {@link DomainEventBatchProcessor.Handler} callbacks as the batch mode; lookups and
+ * saves are called with one record at a time.
+ */
+@Component
+@Slf4j
+public class KeyOrderedRecordProcessor {
+
+    private final TransactionTemplate transactionTemplate;
+    private final ProcessedEventDedupCache dedupCache;
+    private final ConsumerMetrics consumerMetrics;
+    private final ExecutorService workers;
+    private final DistributionSummary lanes;
+    private final Timer duration;
+    private final Counter duplicates;
+    private final Counter stalled;
+
+    public KeyOrderedRecordProcessor(PlatformTransactionManager transactionManager, ProcessedEventDedupCache dedupCache,
+                                     ConsumerMetrics consumerMetrics, MeterRegistry meterRegistry,
+                                     @Value("${spring.application.name:unknown}") String service,
+                                     @Value("${kafka.domain-events.ordered-parallel.threads:8}") int threads) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dedupCache = dedupCache;
+        this.consumerMetrics = consumerMetrics;
+        AtomicInteger workerNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, service + "-keyed-worker-" + workerNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lanes = DistributionSummary.builder("vending_machine.kafka.keyed.lanes")
+                .description("Distinct record keys per unified topic batch")
+                .tag("service", service)
+                .register(meterRegistry);
+        this.duration = Timer.builder("vending_machine.kafka.keyed.duration")
+                .description("Time to process a batch of unified topic records by key")
+                .tag("service", service)
+                .register(meterRegistry);
+        this.duplicates = Counter.builder("vending_machine.kafka.keyed.duplicates")
+                .description("Keyed records skipped because they were already processed")
+                .tag("service", service)
+                .register(meterRegistry);
+        this.stalled = Counter.builder("vending_machine.kafka.keyed.stalled")
+                .description("Records held back behind a failed record with the same key")
+                .tag("service", service)
+                .register(meterRegistry);
+    }
+
+    public <T> void process(List<ConsumerRecord<String, DomainEvent>> records,
+                            DomainEventBatchProcessor.Handler<T> handler) {
+        if (records.isEmpty()) {
+            return;
+        }
+        duration.record(() -> {
+            Map<String, List<Integer>> byKey = new LinkedHashMap<>();
+            for (int i = 0; i < records.size(); i++) {
+                byKey.computeIfAbsent(laneKey(records.get(i)), key -> new ArrayList<>()).add(i);
+            }
+            lanes.record(byKey.size());
+
+            AtomicReferenceArray<RuntimeException> failures = new AtomicReferenceArray<>(records.size());
+            CompletableFuture<?>[] running = byKey.values().stream()
+                    .map(lane -> CompletableFuture.runAsync(() -> runLane(records, lane, handler, failures), workers))
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(running).join();
+
+            for (int i = 0; i < records.size(); i++) {
+                RuntimeException failure = failures.get(i);
+                if (failure != null) {
+                    log.warn("Keyed record {} of {} failed ({}), committing the records before it",
+                            i + 1, records.size(), failure.getMessage());
+                    throw new BatchListenerFailedException("Failed to process unified event batch",
+                            failure, records.get(i));
+                }
+            }
+        });
+    }
+
+    private <T> void runLane(List<ConsumerRecord<String, DomainEvent>> records, List<Integer> lane,
+                             DomainEventBatchProcessor.Handler<T> handler,
+                             AtomicReferenceArray<RuntimeException> failures) {
+        for (int position = 0; position < lane.size(); position++) {
+            int index = lane.get(position);
+            try {
+                transactionTemplate.executeWithoutResult(status -> runRecord(records.get(index), handler));
+            } catch (RuntimeException e) {
+                failures.set(index, e);
+                stalled.increment(lane.size() - position - 1);
+                return;
+            }
+        }
+    }
+
+    private <T> void runRecord(ConsumerRecord<String, DomainEvent> record, DomainEventBatchProcessor.Handler<T> handler) {
+        DomainEvent event = record.value();
+        if (event == null) {
+            throw new IllegalStateException("Record at offset " + record.offset() + " has no DomainEvent value");
+        }
+        String processedEventType = handler.processedEventType(event);
+        if (event.getEventId() != null && dedupCache.isProcessed(event.getEventId(), processedEventType,
+                event.getTimestamp(), () -> !handler.findProcessed(Set.of(event.getEventId())).isEmpty())) {
+            log.debug("Event {} already processed, skipping", event.getEventId());
+            duplicates.increment();
+            return;
+        }
+        try {
+            CorrelationIdUtil.setCorrelationId(correlationId(record));
+            long start = System.nanoTime();
+            T row = handler.handle(record);
+            consumerMetrics.recordHandled(record, System.nanoTime() - start);
+            if (row != null) {
+                handler.saveProcessed(List.of(row));
+                dedupCache.markProcessed(event.getEventId(), processedEventType);
+            }
+        } finally {
+            CorrelationIdUtil.clearCorrelationId();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    /**
+     * Records without a key keep their partition order
+     */
+    private static String laneKey(ConsumerRecord<String, DomainEvent> record) {
+        if (record.key() != null) {
+            return record.key();
+        }
+        if (record.value() != null && record.value().getAggregateId() != null) {
+            return record.value().getAggregateId();
+        }
+        return record.topic() + '-' + record.partition();
+    }
+
+    private static String correlationId(ConsumerRecord<String, DomainEvent> record) {
+        byte[] value = DomainEventBatchProcessor.headerValue(record, CorrelationIdUtil.CORRELATION_ID_HEADER);
+        return value != null ? new String(value, StandardCharsets.UTF_8) : record.value().getCorrelationId();
+    }
+}
@@ -0,0 +1,275 @@
+package com.vendingmachine.common.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * In-memory front cache for processed-event idempotency checks, consulted before the
+ * {@code processed_events} table.
+ * <ul>
+ *   <li>A time-bucketed Bloom filter holds every event key processed during the last
+ *   {@code buckets x bucket-millis}. A negative answer means the event is new and the query is skipped.</li>
+ *   <li>A bounded LRU of keys known to be committed answers repeated duplicates without a query.</li>
+ *   <li>Anything else (probable duplicates, events older than the window, cache not seeded yet)
+ *   falls through to the database.</li>
+ * </ul>
+ * Negatives are only trusted for events whose timestamp falls inside the window the filter covers.
+ * The filter is seeded from the database when the service registers its {@link #setSeedSource seed source},
+ * and re-seeded on every partition assignment (see {@link #rebalanceListener()}), so events committed by
+ * another instance before a rebalance are known too.
+ */
+@Component
+@Slf4j
+public class ProcessedEventDedupCache {
+
+    /**
+     * Result of a cache lookup
+     */
+    public enum Lookup {
+        /** Not processed: skip the database check */
+        NEW,
+        /** Processed and committed: skip the event */
+        DUPLICATE,
+        /** Ask the database */
+        UNKNOWN
+    }
+
+    /**
+     * Tolerated clock difference between producers and this consumer
+     */
+    static final long CLOCK_SKEW_MILLIS = 60_000L;
+
+    private final boolean enabled;
+    private final Clock clock;
+    private final TimeBucketedBloomFilter bloomFilter;
+    private final Map<String, Boolean> committed;
+    private final Counter bloomNegatives;
+    private final Counter lruHits;
+    private final Counter databaseChecks;
+    private final Counter bloomPositives;
+    private final Counter falsePositives;
+    private volatile long coveredSince = Long.MAX_VALUE;
+    private volatile Function<LocalDateTime, ? extends Collection<? extends ProcessedEventKey>> seedSource;
+
+    @Autowired
+    public ProcessedEventDedupCache(MeterRegistry meterRegistry,
+                                    @Value("${spring.application.name:unknown}") String service,
+                                    @Value("${kafka.dedup.enabled:true}") boolean enabled,
+                                    @Value("${kafka.dedup.buckets:6}") int buckets,
+                                    @Value("${kafka.dedup.bucket-millis:600000}") long bucketMillis,
+                                    @Value("${kafka.dedup.expected-insertions:50000}") int expectedInsertions,
+                                    @Value("${kafka.dedup.false-positive-rate:0.01}") double falsePositiveRate,
+                                    @Value("${kafka.dedup.lru-size:10000}") int lruSize) {
+        this(meterRegistry, service, enabled, buckets, bucketMillis, expectedInsertions, falsePositiveRate,
+                lruSize, Clock.systemDefaultZone());
+    }
+
+    ProcessedEventDedupCache(MeterRegistry meterRegistry, String service, boolean enabled, int buckets,
+                             long bucketMillis, int expectedInsertions, double falsePositiveRate, int lruSize,
+                             Clock clock) {
+        this.enabled = enabled;
+        this.clock = clock;
+        this.bloomFilter = new TimeBucketedBloomFilter(buckets, bucketMillis, expectedInsertions,
+                falsePositiveRate, clock.millis());
+        this.committed = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > lruSize;
+            }
+        });
+
+        this.bloomNegatives = savedQueries(meterRegistry, service, "bloom_negative");
+        this.lruHits = savedQueries(meterRegistry, service, "lru_hit");
+        this.databaseChecks = Counter.builder("vending_machine.kafka.dedup.database.checks")
+                .description("Processed-event checks that went to the database")
+                .tag("service", service)
+                .register(meterRegistry);
+        this.bloomPositives = Counter.builder("vending_machine.kafka.dedup.bloom.positives")
+                .description("Processed-event checks the Bloom filter could not rule out")
+                .tag("service", service)
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("vending_machine.kafka.dedup.false_positives")
+                .description("Bloom filter hits the database found to be new events")
+                .tag("service", service)
+                .register(meterRegistry);
+        Gauge.builder("vending_machine.kafka.dedup.false_positive_rate", this, ProcessedEventDedupCache::falsePositiveRate)
+                .description("False positives over Bloom filter hits")
+                .tag("service", service)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Check whether an event was processed, asking the database only when the cache cannot tell
+     *
+     * @param eventTimestamp event creation time in epoch millis, or null when unknown
+     * @param databaseCheck  the existing repository check
+     */
+    public boolean isProcessed(String eventId, String eventType, Long eventTimestamp, BooleanSupplier databaseCheck) {
+        switch (lookup(eventId, eventType, eventTimestamp)) {
+            case NEW:
+                return false;
+            case DUPLICATE:
+                return true;
+            default:
+                boolean processed = databaseCheck.getAsBoolean();
+                databaseResult(eventId, eventType, processed);
+                return processed;
+        }
+    }
+
+    /**
+     * Answer from memory when possible; on {@link Lookup#UNKNOWN} report the database answer
+     * with {@link #databaseResult}. Events without an id or type are always {@link Lookup#UNKNOWN}.
+     */
+    public Lookup lookup(String eventId, String eventType, Long eventTimestamp) {
+        if (!enabled || eventId == null || eventType == null) {
+            return Lookup.UNKNOWN;
+        }
+        String key = key(eventId, eventType);
+        if (committed.get(key) != null) {
+            lruHits.increment();
+            return Lookup.DUPLICATE;
+        }
+        long now = clock.millis();
+        if (covers(eventTimestamp, now) && !bloomFilter.mightContain(key, now)) {
+            bloomNegatives.increment();
+            return Lookup.NEW;
+        }
+        return Lookup.UNKNOWN;
+    }
+
+    /**
+     * Record the database answer for a key the cache could not decide
+     */
+    public void databaseResult(String eventId, String eventType, boolean processed) {
+        if (!enabled || eventId == null || eventType == null) {
+            return;
+        }
+        databaseChecks.increment();
+        String key = key(eventId, eventType);
+        boolean bloomHit = bloomFilter.mightContain(key, clock.millis());
+        if (bloomHit) {
+            bloomPositives.increment();
+        }
+        if (processed) {
+            committed.put(key, Boolean.TRUE);
+        } else if (bloomHit) {
+            falsePositives.increment();
+        }
+    }
+
+    /**
+     * Remember a processed event. Call next to the processed-event save: inside a transaction
+     * the key is only treated as a certain duplicate once the transaction commits.
+     */
+    public void markProcessed(String eventId, String eventType) {
+        if (!enabled || eventId == null || eventType == null) {
+            return;
+        }
+        String key = key(eventId, eventType);
+        bloomFilter.put(key, clock.millis());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    committed.put(key, Boolean.TRUE);
+                }
+            });
+        } else {
+            committed.put(key, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Register the query returning keys processed since a point in time, and seed from it
+     */
+    public void setSeedSource(Function<LocalDateTime, ? extends Collection<? extends ProcessedEventKey>> seedSource) {
+        this.seedSource = seedSource;
+        reseed();
+    }
+
+    /**
+     * Load keys processed within the window. Until a seed succeeds every check goes to the database.
+     */
+    public void reseed() {
+        Function<LocalDateTime, ? extends Collection<? extends ProcessedEventKey>> source = seedSource;
+        if (!enabled || source == null) {
+            return;
+        }
+        long now = clock.millis();
+        long since = bloomFilter.windowStart(now);
+        try {
+            Collection<? extends ProcessedEventKey> keys =
+                    source.apply(LocalDateTime.ofInstant(Instant.ofEpochMilli(since), ZoneId.systemDefault()));
+            for (ProcessedEventKey key : keys) {
+                bloomFilter.put(key(key.getEventId(), key.getEventType()), now);
+            }
+            if (coveredSince == Long.MAX_VALUE) {
+                coveredSince = since;
+            }
+            log.info("Seeded processed-event dedup cache with {} keys since {}", keys.size(), Instant.ofEpochMilli(since));
+        } catch (RuntimeException e) {
+            log.warn("Failed to seed processed-event dedup cache, checks go to the database: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rebalance listener that re-seeds the filter when partitions are assigned
+     */
+    public ConsumerAwareRebalanceListener rebalanceListener() {
+        return new ConsumerAwareRebalanceListener() {
+            @Override
+            public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                if (!partitions.isEmpty()) {
+                    reseed();
+                }
+            }
+        };
+    }
+
+    double falsePositiveRate() {
+        double hits = bloomPositives.count();
+        return hits == 0 ? 0.0 : falsePositives.count() / hits;
+    }
+
+    private boolean covers(Long eventTimestamp, long now) {
+        if (eventTimestamp == null) {
+            return false;
+        }
+        long windowStart = Math.max(coveredSince, bloomFilter.windowStart(now));
+        return eventTimestamp - CLOCK_SKEW_MILLIS >= windowStart;
+    }
+
+    private static String key(String eventId, String eventType) {
+        return eventType + ':' + eventId;
+    }
+
+    private static Counter savedQueries(MeterRegistry meterRegistry, String service, String reason) {
+        return Counter.builder("vending_machine.kafka.dedup.queries.saved")
+                .description("Processed-event checks answered without the database")
+                .tag("service", service)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
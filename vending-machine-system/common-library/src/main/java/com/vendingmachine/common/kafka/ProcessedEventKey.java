@@ -0,0 +1,11 @@
+package com.vendingmachine.common.kafka;
+
+/**
+ * Idempotency key of a processed-events row, usable as a Spring Data projection
+ */
+public interface ProcessedEventKey {
+
+    String getEventId();
+
+    String getEventType();
+}
@@ -0,0 +1,363 @@
+package com.vendingmachine.common.kafka;
+
+import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.resilience.RetryBudgetRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking retry tiers for Kafka consumers. Instead of retrying a failed record in place, which
+ * holds back its whole partition, the error handler from {@link #errorHandler} forwards it at once to
+ * the first tier topic ({@code <topic>-<service>-retry-5s}), then to the next tier
+ * ({@code -retry-1m}) if it fails again, and finally to the service's dead-letter recoverer with its
+ * original topic, partition and offset. The main partition keeps flowing meanwhile.
+ * <p>
+ * Tier topics are consumed by a second listener on the same method, through a container factory set
+ * up with {@link #configureTierContainers}: each polled record waits until its tier delay has passed
+ * since it failed, then runs through the listener as usual. Tier topics are per service because the
+ * unified topic is consumed by several groups. A retried record can overtake later records of its
+ * aggregate; consumers already tolerate that through their processed-event checks and status guards.
+ * <p>
+ * Every hop to the next tier takes a token from the consumer's retry budget; once it is spent,
+ * failed records go straight to the dead-letter recoverer. Records that could not be deserialized
+ * skip the tiers too.
+ */
+@Component
+@Slf4j
+public class RetryTopicTiers {
+
+    public static final String TIER_HEADER = "x-retry-tier";
+    public static final String FAILED_AT_HEADER = "x-retry-failed-at";
+    public static final String FIRST_FAILED_AT_HEADER = "x-retry-first-failed-at";
+    public static final String ORIGINAL_TOPIC_HEADER = "x-retry-original-topic";
+    public static final String ORIGINAL_PARTITION_HEADER = "x-retry-original-partition";
+    public static final String ORIGINAL_OFFSET_HEADER = "x-retry-original-offset";
+
+    private static final long WAIT_STEP_MILLIS = 500;
+    private static final long SEND_TIMEOUT_SECONDS = 10;
+
+    private final KafkaOperations<String, Object> kafkaOperations;
+    private final RetryBudgetRegistry retryBudgetRegistry;
+    private final String service;
+    private final List<Tier> tiers;
+    private final Clock clock;
+    private final Counter exhausted;
+    private volatile boolean stopping;
+
+    @Autowired
+    public RetryTopicTiers(KafkaProducerSettings producerSettings, RetryBudgetRegistry retryBudgetRegistry,
+                           MeterRegistry meterRegistry,
+                           @Value("${spring.application.name:unknown}") String service,
+                           @Value("${kafka.retry.tiers:5s,1m}") String tiers) {
+        this(new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(producerSettings.producerConfigs(JsonSerializer.class),
+                        new StringSerializer(), tierValueSerializer())),
+                retryBudgetRegistry, meterRegistry, service, tiers, Clock.systemUTC());
+    }
+
+    RetryTopicTiers(KafkaOperations<String, Object> kafkaOperations, RetryBudgetRegistry retryBudgetRegistry,
+                    MeterRegistry meterRegistry, String service, String tiers, Clock clock) {
+        this.kafkaOperations = kafkaOperations;
+        this.retryBudgetRegistry = retryBudgetRegistry;
+        this.service = service;
+        this.clock = clock;
+        this.tiers = parseTiers(tiers, meterRegistry, service);
+        this.exhausted = Counter.builder("vending_machine.kafka.retry.exhausted")
+                .description("Failed records handed to the dead-letter recoverer")
+                .tag("service", service)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Tier topic names for a source topic, in tier order
+     */
+    public String[] topics(String sourceTopic) {
+        return tiers.stream().map(tier -> topic(sourceTopic, tier)).toArray(String[]::new);
+    }
+
+    /**
+     * Tier topics of the given source topics, for the service's KafkaAdmin
+     */
+    public KafkaAdmin.NewTopics newTopics(String... sourceTopics) {
+        List<NewTopic> topics = new ArrayList<>();
+        for (String sourceTopic : sourceTopics) {
+            for (String topic : topics(sourceTopic)) {
+                topics.add(TopicBuilder.name(topic).partitions(1).replicas(1).build());
+            }
+        }
+        return new KafkaAdmin.NewTopics(topics.toArray(NewTopic[]::new));
+    }
+
+    /**
+     * Error handler that forwards failed records to the next tier without retrying them in place
+     */
+    public DefaultErrorHandler errorHandler(ConsumerRecordRecoverer deadLetterRecoverer, String budgetDestination) {
+        return new DefaultErrorHandler(recoverer(deadLetterRecoverer, budgetDestination), new FixedBackOff(0L, 0L));
+    }
+
+    /**
+     * Set up a container factory for the tier listeners: records wait out their tier delay before
+     * the listener sees them, and failures move on to the next tier
+     */
+    public <K, V> void configureTierContainers(ConcurrentKafkaListenerContainerFactory<K, V> factory,
+                                               ConsumerRecordRecoverer deadLetterRecoverer, String budgetDestination) {
+        factory.setCommonErrorHandler(errorHandler(deadLetterRecoverer, budgetDestination));
+        factory.setRecordInterceptor(new RecordInterceptor<>() {
+            @Override
+            public ConsumerRecord<K, V> intercept(ConsumerRecord<K, V> record, Consumer<K, V> consumer) {
+                awaitDue(List.of(record), consumer);
+                return record;
+            }
+        });
+        factory.setBatchInterceptor(new BatchInterceptor<>() {
+            @Override
+            public ConsumerRecords<K, V> intercept(ConsumerRecords<K, V> records, Consumer<K, V> consumer) {
+                List<ConsumerRecord<K, V>> polled = new ArrayList<>(records.count());
+                records.forEach(polled::add);
+                awaitDue(polled, consumer);
+                return records;
+            }
+        });
+
+        // A poll may wait out a full tier delay before its records are processed
+        long longestDelay = tiers.get(tiers.size() - 1).delay().toMillis();
+        Properties consumerProperties = new Properties();
+        consumerProperties.setProperty(ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG,
+                String.valueOf(longestDelay + TimeUnit.MINUTES.toMillis(5)));
+        factory.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public void onContextClosed() {
+        // Let tier listeners finish their poll instead of holding up container shutdown
+        stopping = true;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (kafkaOperations instanceof KafkaTemplate<String, Object> template) {
+            template.getProducerFactory().reset();
+        }
+    }
+
+    ConsumerRecordRecoverer recoverer(ConsumerRecordRecoverer deadLetterRecoverer, String budgetDestination) {
+        return (record, exception) -> {
+            int next = headerInt(record.headers(), TIER_HEADER, -1) + 1;
+            if (next >= tiers.size() || record.value() == null || isDeserializationFailure(exception)
+                    || !retryBudgetRegistry.get(budgetDestination).tryAcquireRetry()) {
+                exhausted.increment();
+                deadLetterRecoverer.accept(originalRecord(record), exception);
+                return;
+            }
+            forward(record, tiers.get(next), exception);
+        };
+    }
+
+    private void forward(ConsumerRecord<?, ?> record, Tier tier, Exception exception) {
+        String sourceTopic = headerString(record.headers(), ORIGINAL_TOPIC_HEADER, record.topic());
+        String tierTopic = topic(sourceTopic, tier);
+        long now = clock.millis();
+
+        Headers headers = new RecordHeaders();
+        for (Header header : record.headers()) {
+            if (!header.key().startsWith("x-retry-")) {
+                headers.add(header);
+            }
+        }
+        headers.add(TIER_HEADER, bytes(tier.index()));
+        headers.add(FAILED_AT_HEADER, bytes(now));
+        headers.add(FIRST_FAILED_AT_HEADER, bytes(headerLong(record.headers(), FIRST_FAILED_AT_HEADER, now)));
+        headers.add(ORIGINAL_TOPIC_HEADER, bytes(sourceTopic));
+        headers.add(ORIGINAL_PARTITION_HEADER,
+                bytes(headerInt(record.headers(), ORIGINAL_PARTITION_HEADER, record.partition())));
+        headers.add(ORIGINAL_OFFSET_HEADER,
+                bytes(headerLong(record.headers(), ORIGINAL_OFFSET_HEADER, record.offset())));
+
+        String key = record.key() != null ? record.key().toString() : null;
+        try {
+            kafkaOperations.send(new ProducerRecord<>(tierTopic, null, key, record.value(), headers))
+                    .get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KafkaException("Interrupted forwarding record to " + tierTopic, e);
+        } catch (Exception e) {
+            // The error handler redelivers the record when the recoverer fails
+            throw new KafkaException("Failed to forward record to " + tierTopic, e);
+        }
+        tier.forwarded().increment();
+        log.warn("Record {}-{}@{} failed ({}), retrying from {} in {}", sourceTopic, record.partition(),
+                record.offset(), exception.getMessage(), tierTopic, tier.delay());
+    }
+
+    <K, V> void awaitDue(List<ConsumerRecord<K, V>> records, Consumer<K, V> consumer) {
+        long dueAt = 0;
+        for (ConsumerRecord<K, V> record : records) {
+            Tier tier = tier(record);
+            if (tier != null) {
+                dueAt = Math.max(dueAt, headerLong(record.headers(), FAILED_AT_HEADER, 0) + tier.delay().toMillis());
+                TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+                consumer.currentLag(partition).ifPresent(lag -> tier.depth().put(partition, lag));
+            }
+        }
+        long wait;
+        while (!stopping && (wait = dueAt - clock.millis()) > 0) {
+            try {
+                Thread.sleep(Math.min(wait, WAIT_STEP_MILLIS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        long now = clock.millis();
+        for (ConsumerRecord<K, V> record : records) {
+            Tier tier = tier(record);
+            if (tier != null) {
+                long firstFailedAt = headerLong(record.headers(), FIRST_FAILED_AT_HEADER, now);
+                tier.age().record(Math.max(now - firstFailedAt, 0), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private Tier tier(ConsumerRecord<?, ?> record) {
+        int index = headerInt(record.headers(), TIER_HEADER, -1);
+        return index >= 0 && index < tiers.size() ? tiers.get(index) : null;
+    }
+
+    private String topic(String sourceTopic, Tier tier) {
+        return sourceTopic + "-" + service + tier.suffix();
+    }
+
+    /**
+     * The dead-letter recoverer sees a tier record as the record that first failed
+     */
+    private static <K, V> ConsumerRecord<K, V> originalRecord(ConsumerRecord<K, V> record) {
+        String topic = headerString(record.headers(), ORIGINAL_TOPIC_HEADER, null);
+        if (topic == null) {
+            return record;
+        }
+        return new ConsumerRecord<>(topic, headerInt(record.headers(), ORIGINAL_PARTITION_HEADER, record.partition()),
+                headerLong(record.headers(), ORIGINAL_OFFSET_HEADER, record.offset()), record.timestamp(),
+                record.timestampType(), record.serializedKeySize(), record.serializedValueSize(), record.key(),
+                record.value(), record.headers(), record.leaderEpoch());
+    }
+
+    private static boolean isDeserializationFailure(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DeserializationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Tier> parseTiers(String tiers, MeterRegistry meterRegistry, String service) {
+        List<Tier> parsed = new ArrayList<>();
+        for (String text : Arrays.stream(tiers.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList()) {
+            Duration delay = DurationStyle.detectAndParse(text);
+            if (delay.isNegative() || delay.isZero()) {
+                throw new IllegalArgumentException("Retry tier delay must be positive: " + text);
+            }
+            Map<TopicPartition, Long> depth = new ConcurrentHashMap<>();
+            Gauge.builder("vending_machine.kafka.retry.depth", depth,
+                            lags -> lags.values().stream().mapToLong(Long::longValue).sum())
+                    .description("Records waiting in a retry tier topic")
+                    .tag("service", service)
+                    .tag("tier", text)
+                    .register(meterRegistry);
+            parsed.add(new Tier(parsed.size(), "-retry-" + text, delay, depth,
+                    Counter.builder("vending_machine.kafka.retry.forwarded")
+                            .description("Failed records forwarded to a retry tier")
+                            .tag("service", service)
+                            .tag("tier", text)
+                            .register(meterRegistry),
+                    Timer.builder("vending_machine.kafka.retry.age")
+                            .description("Time from a record's first failure to its re-consumption from a retry tier")
+                            .tag("service", service)
+                            .tag("tier", text)
+                            .register(meterRegistry)));
+        }
+        if (parsed.isEmpty()) {
+            throw new IllegalArgumentException("kafka.retry.tiers must name at least one tier");
+        }
+        return List.copyOf(parsed);
+    }
+
+    private static Serializer<Object> tierValueSerializer() {
+        // Unified topic records keep the DomainEvent encoding, legacy events are plain JSON
+        Map<Class<?>, Serializer<?>> delegates = new LinkedHashMap<>();
+        delegates.put(DomainEvent.class, new DomainEventSerializer());
+        delegates.put(Object.class, new JsonSerializer<>().noTypeInfo());
+        return new DelegatingByTypeSerializer(delegates, true);
+    }
+
+    private static byte[] bytes(Object value) {
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String headerString(Headers headers, String name, String defaultValue) {
+        Header header = headers.lastHeader(name);
+        return header != null && header.value() != null ? new String(header.value(), StandardCharsets.UTF_8) : defaultValue;
+    }
+
+    private static int headerInt(Headers headers, String name, int defaultValue) {
+        String value = headerString(headers, name, null);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    private static long headerLong(Headers headers, String name, long defaultValue) {
+        String value = headerString(headers, name, null);
+        return value != null ? Long.parseLong(value) : defaultValue;
+    }
+
+    private record Tier(int index, String suffix, Duration delay, Map<TopicPartition, Long> depth,
+                        Counter forwarded, Timer age) {
+    }
+}
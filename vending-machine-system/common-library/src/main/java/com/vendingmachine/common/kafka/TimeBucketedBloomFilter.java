@@ -0,0 +1,159 @@
+package com.vendingmachine.common.kafka;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter split into time buckets so old keys age out: keys go into the bucket of the
+ * current time slot, lookups check every live bucket, and the oldest bucket is dropped when
+ * a new slot starts. A key added at time {@code t} is guaranteed to be found while
+ * {@code t >= windowStart(now)}.
+ * <p>
+ * Lock free for reads and writes; rotation is synchronized.
+ */
+final class TimeBucketedBloomFilter {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long bucketMillis;
+    private final int numBits;
+    private final int numHashes;
+    private volatile Bucket[] buckets;
+
+    TimeBucketedBloomFilter(int bucketCount, long bucketMillis, int expectedInsertionsPerBucket,
+                            double falsePositiveRate, long now) {
+        if (bucketCount < 1 || bucketMillis < 1 || expectedInsertionsPerBucket < 1) {
+            throw new IllegalArgumentException("Bucket count, bucket duration and expected insertions must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+        }
+        this.bucketMillis = bucketMillis;
+        this.numBits = optimalNumBits(expectedInsertionsPerBucket, falsePositiveRate);
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / expectedInsertionsPerBucket * Math.log(2)));
+        long slot = slotStart(now);
+        Bucket[] initial = new Bucket[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            initial[i] = new Bucket(slot - (long) i * bucketMillis, numBits);
+        }
+        this.buckets = initial;
+    }
+
+    void put(String key, long now) {
+        Bucket current = rotate(now)[0];
+        long hash1 = hash(key);
+        long hash2 = mix(hash1 ^ 0x9e3779b97f4a7c15L) | 1;
+        for (int i = 0; i < numHashes; i++) {
+            current.set(Math.floorMod(hash1 + i * hash2, numBits));
+        }
+    }
+
+    boolean mightContain(String key, long now) {
+        long hash1 = hash(key);
+        long hash2 = mix(hash1 ^ 0x9e3779b97f4a7c15L) | 1;
+        for (Bucket bucket : rotate(now)) {
+            if (bucket.containsAll(hash1, hash2, numHashes, numBits)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Start of the period whose keys are all still held
+     */
+    long windowStart(long now) {
+        Bucket[] live = rotate(now);
+        return live[live.length - 1].start;
+    }
+
+    int numBits() {
+        return numBits;
+    }
+
+    int numHashes() {
+        return numHashes;
+    }
+
+    private Bucket[] rotate(long now) {
+        Bucket[] current = buckets;
+        long slot = slotStart(now);
+        if (current[0].start >= slot) {
+            return current;
+        }
+        synchronized (this) {
+            current = buckets;
+            if (current[0].start >= slot) {
+                return current;
+            }
+            long elapsed = (slot - current[0].start) / bucketMillis;
+            int shift = (int) Math.min(elapsed, current.length);
+            Bucket[] rotated = new Bucket[current.length];
+            for (int i = 0; i < rotated.length; i++) {
+                rotated[i] = i < shift ? new Bucket(slot - (long) i * bucketMillis, numBits) : current[i - shift];
+            }
+            buckets = rotated;
+            return rotated;
+        }
+    }
+
+    private long slotStart(long now) {
+        return Math.floorDiv(now, bucketMillis) * bucketMillis;
+    }
+
+    private static int optimalNumBits(int expectedInsertions, double falsePositiveRate) {
+        double bits = -expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        return (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, Math.ceil(bits)));
+    }
+
+    private static long hash(String key) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * SplitMix64 finalizer: spreads FNV output across all 64 bits
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    private static final class Bucket {
+
+        private final long start;
+        private final AtomicLongArray words;
+
+        Bucket(long start, int numBits) {
+            this.start = start;
+            this.words = new AtomicLongArray((numBits + 63) >>> 6);
+        }
+
+        void set(int bit) {
+            int index = bit >>> 6;
+            long mask = 1L << bit;
+            long word;
+            do {
+                word = words.get(index);
+                if ((word & mask) != 0) {
+                    return;
+                }
+            } while (!words.compareAndSet(index, word, word | mask));
+        }
+
+        boolean containsAll(long hash1, long hash2, int numHashes, int numBits) {
+            for (int i = 0; i < numHashes; i++) {
+                int bit = Math.floorMod(hash1 + i * hash2, numBits);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -22,7 +22,11 @@ import org.springframework.stereotype.Component;
  * - Events are routed based on eventType field
  * - Services override only the handlers they need
  * - Unhandled events are logged and potentially sent to DLQ
+ *
+ * @deprecated services declare {@link DomainEventHandler} methods and dispatch through
+ * {@link DomainEventHandlerRegistry}, which replaces the switch over event types below
  */
+@Deprecated
 @Component
 @Slf4j
 public abstract class UnifiedEventConsumer {
@@ -1,33 +1,79 @@
 package com.vendingmachine.common.kafka;
 
 import com.vendingmachine.common.event.DomainEvent;
-import lombok.RequiredArgsConstructor;
+import com.vendingmachine.common.event.PayloadUpcasters;
+import com.vendingmachine.common.util.RequestDeadlineUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaOperations;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Unified Event Publisher for Phase 2 Kafka Optimization
  * 
  * Replaces individual service event publishers with a single, optimized publisher
- * that routes all events through the unified domain events topic.
+ * that routes all events through the unified domain events topics.
  * 
  * Features:
  * - Automatic event type classification and routing
+ * - Priority tiers: {@link DomainEventTopicRouter} sends purchase-flow events to the critical
+ *   topic and the rest to the bulk topic
  * - Correlation ID propagation for event tracing
- * - Partition key strategy for load balancing
- * - Comprehensive logging and metrics
+ * - Payload schema version stamping, see {@link PayloadUpcasters}
+ * - Request deadline propagation via Kafka headers
+ * - Event type, source and correlation ID headers for header-based consumer filtering
+ * - Aggregate ID partition key: per-aggregate ordering with an even spread of load
  * - Asynchronous publishing with callback handling
+ * - Multi-event publishing as one pipelined batch with a single combined future
+ * - Comprehensive logging and metrics
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class UnifiedEventPublisher {
 
     private final KafkaTemplate<String, DomainEvent> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+    private final DomainEventTopicRouter topicRouter;
+    private final PayloadUpcasters upcasters;
+    private final String service;
+    private final AtomicLongArray partitionRecords;
+
+    @Autowired
+    public UnifiedEventPublisher(KafkaTemplate<String, DomainEvent> kafkaTemplate, MeterRegistry meterRegistry,
+                                 DomainEventTopicRouter topicRouter, PayloadUpcasters upcasters,
+                                 @Value("${spring.application.name:unknown}") String service,
+                                 @Value("${kafka.domain-events.partitions:3}") int partitions) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.meterRegistry = meterRegistry;
+        this.topicRouter = topicRouter;
+        this.upcasters = upcasters;
+        this.service = service;
+        this.partitionRecords = new AtomicLongArray(partitions);
+        Gauge.builder("vending_machine.kafka.partition.skew", this, UnifiedEventPublisher::partitionSkew)
+                .description("Records on the busiest critical topic partition over the mean per partition")
+                .tag("service", service)
+                .register(meterRegistry);
+    }
+
+    UnifiedEventPublisher(KafkaTemplate<String, DomainEvent> kafkaTemplate, MeterRegistry meterRegistry,
+                          String service, int partitions) {
+        this(kafkaTemplate, meterRegistry, DomainEventTopicRouter.of(DomainEventTopicRouter.DEFAULT_CRITICAL_TYPES),
+                new PayloadUpcasters(List.of(), meterRegistry, service), service, partitions);
+    }
 
     /**
      * Publishes a domain event to the unified topic with automatic routing
@@ -44,9 +90,7 @@ public class UnifiedEventPublisher {
 
             // Send message asynchronously
             CompletableFuture<SendResult<String, DomainEvent>> future = kafkaTemplate.send(
-                UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC,
-                partitionKey,
-                event
+                createRecord(partitionKey, event)
             );
             
             // Add success callback
@@ -55,6 +99,7 @@ public class UnifiedEventPublisher {
                     log.error("Failed to publish event: type={}, eventId={}, error={}", 
                             event.getEventType(), event.getEventId(), throwable.getMessage());
                 } else {
+                    recordPartition(result.getRecordMetadata());
                     log.debug("Successfully published event: type={}, eventId={}, partition={}, offset={}", 
                             event.getEventType(), event.getEventId(), 
                             result.getRecordMetadata().partition(), 
@@ -74,6 +119,72 @@ public class UnifiedEventPublisher {
         }
     }
 
+    /**
+     * Publishes several events as one pipelined batch: every record is handed to the producer
+     * before any acknowledgement is awaited, so the events share producer batches and round trips.
+     *
+     * @param events The domain events to publish, in order
+     * @return CompletableFuture of the send results in event order, failing with the first send
+     *         failure once every send has finished
+     */
+    public CompletableFuture<List<SendResult<String, DomainEvent>>> publishAll(List<DomainEvent> events) {
+        return publishAll(events, false);
+    }
+
+    /**
+     * Publishes several events as one pipelined batch, optionally in one producer transaction so
+     * that read_committed consumers see all of them or none. The transactional form needs a
+     * template on a transactional producer factory and blocks until the commit.
+     *
+     * @param events The domain events to publish, in order
+     * @param transactional Whether to send the events in one producer transaction
+     * @return CompletableFuture of the send results in event order
+     */
+    public CompletableFuture<List<SendResult<String, DomainEvent>>> publishAll(List<DomainEvent> events,
+                                                                               boolean transactional) {
+        if (events.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        log.info("Publishing batch of {} unified events: types={}, correlationId={}", events.size(),
+                events.stream().map(DomainEvent::getEventType).toList(), events.get(0).getCorrelationId());
+
+        List<CompletableFuture<SendResult<String, DomainEvent>>> sends;
+        try {
+            if (transactional) {
+                if (!kafkaTemplate.isTransactional()) {
+                    throw new IllegalStateException("A transactional publishAll needs a transactional producer factory");
+                }
+                sends = kafkaTemplate.executeInTransaction(operations -> sendAll(operations, events));
+            } else {
+                sends = sendAll(kafkaTemplate, events);
+            }
+        } catch (Exception e) {
+            log.error("Error publishing batch of {} events: {}", events.size(), e.getMessage(), e);
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> sends.stream().map(CompletableFuture::join).toList())
+                .whenComplete((results, throwable) -> {
+                    if (throwable != null) {
+                        log.error("Failed to publish batch of {} events: eventIds={}, error={}", events.size(),
+                                events.stream().map(DomainEvent::getEventId).toList(), throwable.getMessage());
+                    } else {
+                        results.forEach(result -> recordPartition(result.getRecordMetadata()));
+                        log.debug("Successfully published batch of {} events", results.size());
+                    }
+                });
+    }
+
+    private List<CompletableFuture<SendResult<String, DomainEvent>>> sendAll(
+            KafkaOperations<String, DomainEvent> operations, List<DomainEvent> events) {
+        List<CompletableFuture<SendResult<String, DomainEvent>>> sends = new ArrayList<>(events.size());
+        for (DomainEvent event : events) {
+            sends.add(operations.send(createRecord(generatePartitionKey(event), event)));
+        }
+        return sends;
+    }
+
     /**
      * Synchronous event publishing for critical operations
      * Use sparingly - prefer async publishing for better performance
@@ -90,18 +201,67 @@ public class UnifiedEventPublisher {
 
     /**
      * Generates partition key for load balancing
-     * Strategy: Use correlation ID for related events to maintain order
+     * Strategy: Use aggregate ID so the events of one transaction or product stay in order,
+     * while distinct aggregates spread evenly over the partitions. Payment and dispensing
+     * events carry their transaction id as aggregate ID, so they share the transaction's key
      */
-    private String generatePartitionKey(DomainEvent event) {
-        // Use correlation ID to keep related events in same partition for ordering
+    public String generatePartitionKey(DomainEvent event) {
+        if (event.getAggregateId() != null) {
+            return event.getAggregateId();
+        }
+
+        // Fallback to correlation ID, then event type, for events without an aggregate
         if (event.getCorrelationId() != null) {
             return event.getCorrelationId();
         }
-        
-        // Fallback to event type for general load balancing
         return event.getEventType();
     }
 
+    /**
+     * Topic of the event's priority tier
+     */
+    public String topicFor(DomainEvent event) {
+        return topicRouter.topicFor(event.getEventType());
+    }
+
+    /**
+     * The event as published: stamped with the current payload schema version of its type, the
+     * shape its payload class is written in. A copy is stamped, so the caller's event is unchanged.
+     */
+    public DomainEvent withPayloadVersion(DomainEvent event) {
+        String version = upcasters.currentVersion(event.getEventType());
+        return version.equals(event.getVersion()) ? event : event.toBuilder().version(version).build();
+    }
+
+    /**
+     * Busiest partition over the mean per partition, 0 before the first publish
+     */
+    double partitionSkew() {
+        long total = 0;
+        long max = 0;
+        for (int i = 0; i < partitionRecords.length(); i++) {
+            long records = partitionRecords.get(i);
+            total += records;
+            max = Math.max(max, records);
+        }
+        return total == 0 ? 0.0 : max * (double) partitionRecords.length() / total;
+    }
+
+    private void recordPartition(RecordMetadata metadata) {
+        int partition = metadata.partition();
+        boolean critical = UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC.equals(metadata.topic());
+        if (critical && partition >= 0 && partition < partitionRecords.length()) {
+            partitionRecords.incrementAndGet(partition);
+        }
+        Counter.builder("vending_machine.kafka.partition.records")
+                .description("Records published to the unified topics, by topic and partition")
+                .tag("service", service)
+                .tag("topic", metadata.topic())
+                .tag("partition", String.valueOf(partition))
+                .register(meterRegistry)
+                .increment();
+    }
+
     /**
      * Publishes event with custom partition key
      * Useful for specific ordering requirements
@@ -112,10 +272,39 @@ public class UnifiedEventPublisher {
         log.info("Publishing event with custom key: type={}, key={}, eventId={}", 
                 event.getEventType(), customPartitionKey, event.getEventId());
 
-        return kafkaTemplate.send(
-            UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC,
-            customPartitionKey,
-            event
-        );
+        CompletableFuture<SendResult<String, DomainEvent>> future =
+                kafkaTemplate.send(createRecord(customPartitionKey, event));
+        future.thenAccept(result -> recordPartition(result.getRecordMetadata()));
+        return future;
+    }
+
+    /**
+     * Builds the producer record on the topic of the event's tier, stamping the payload schema
+     * version, the routing headers consumers filter on before
+     * deserializing and the publish time consumers measure latency from, and forwarding the
+     * caller's request deadline when one is set so consumers can tell work done for an
+     * abandoned request.
+     */
+    private ProducerRecord<String, DomainEvent> createRecord(String key, DomainEvent event) {
+        ProducerRecord<String, DomainEvent> record =
+                new ProducerRecord<>(topicFor(event), key, withPayloadVersion(event));
+
+        addHeader(record, UnifiedTopicConfig.EVENT_TYPE_HEADER, event.getEventType());
+        addHeader(record, UnifiedTopicConfig.EVENT_SOURCE_HEADER, event.getSource());
+        addHeader(record, UnifiedTopicConfig.CORRELATION_ID_HEADER, event.getCorrelationId());
+        addHeader(record, UnifiedTopicConfig.PUBLISHED_AT_HEADER, Long.toString(System.currentTimeMillis()));
+
+        Long deadline = RequestDeadlineUtil.getDeadline();
+        if (deadline != null) {
+            record.headers().add(RequestDeadlineUtil.DEADLINE_HEADER,
+                    Long.toString(deadline).getBytes(StandardCharsets.UTF_8));
+        }
+        return record;
+    }
+
+    private void addHeader(ProducerRecord<String, DomainEvent> record, String name, String value) {
+        if (value != null) {
+            record.headers().add(name, value.getBytes(StandardCharsets.UTF_8));
+        }
     }
-}
\ No newline at end of file
+}
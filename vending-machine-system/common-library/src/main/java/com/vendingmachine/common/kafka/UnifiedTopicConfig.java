@@ -1,6 +1,8 @@
 package com.vendingmachine.common.kafka;
 
 import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.TopicBuilder;
@@ -15,21 +17,45 @@ import org.springframework.kafka.config.TopicBuilder;
  * - Improved performance through reduced broker overhead
  * 
  * Topic Strategy:
- * - Single topic: vending-machine-domain-events
- * - 3 partitions for load distribution
+ * - Main topic: vending-machine-domain-events, the critical tier
+ * - kafka.domain-events.partitions partitions (default 3), keyed by aggregate ID
  * - Event routing by event type headers
  * - Unified DLQ for failed events
+ *
+ * Priority tiers:
+ * - Critical: vending-machine-domain-events, the purchase flow (payment, processing, dispensing)
+ * - Bulk: vending-machine-domain-events-bulk, inventory updates and notification-only events
+ * - DomainEventTopicRouter picks the tier by event type (kafka.domain-events.tiers.*), and each
+ *   consumer subscribes only to the tiers it handles
+ * - The bulk tier has its own partitions, retention and listener concurrency
+ *   (kafka.domain-events.bulk.*); the critical tier keeps the 7 day retention that
+ *   processed-event deduplication relies on
+ *
+ * Listener concurrency follows the partition count: each of the
+ * kafka.domain-events.listener.instances instances of a service runs
+ * partitions / instances consumer threads, so no thread sits idle.
+ * Raising the partition count on an existing topic adds partitions (it never removes them),
+ * which moves some aggregates to a new partition: drain the topic first when strict
+ * per-aggregate ordering across the change matters.
  */
 @Configuration
 public class UnifiedTopicConfig {
 
     public static final String UNIFIED_DOMAIN_EVENTS_TOPIC = "vending-machine-domain-events";
+    public static final String UNIFIED_BULK_EVENTS_TOPIC = "vending-machine-domain-events-bulk";
     public static final String UNIFIED_DLQ_TOPIC = "vending-machine-domain-events-dlq";
+
+    // Retention: bounds how far back a redelivery or DLQ replay can reach
+    public static final long UNIFIED_TOPIC_RETENTION_MS = 604_800_000L; // 7 days
+    public static final long UNIFIED_DLQ_RETENTION_MS = 2_592_000_000L; // 30 days
+    public static final long UNIFIED_BULK_RETENTION_MS = 259_200_000L; // 3 days
     
     // Event Type Headers for routing
     public static final String EVENT_TYPE_HEADER = "eventType";
     public static final String EVENT_SOURCE_HEADER = "eventSource";
     public static final String CORRELATION_ID_HEADER = "correlationId";
+    // Wall-clock millis at which the publisher sent the event, for end-to-end latency
+    public static final String PUBLISHED_AT_HEADER = "publishedAt";
     
     // Event Types
     public static final String TRANSACTION_EVENT_TYPE = "TRANSACTION";
@@ -45,18 +71,101 @@ public class UnifiedTopicConfig {
     public static final String INVENTORY_SERVICE = "inventory-service";
     public static final String NOTIFICATION_SERVICE = "notification-service";
 
+    private final int partitions;
+    private final int listenerInstances;
+    private final int bulkPartitions;
+    private final long bulkRetentionMs;
+    private final int bulkConcurrency;
+
+    @Autowired
+    public UnifiedTopicConfig(@Value("${kafka.domain-events.partitions:3}") int partitions,
+                              @Value("${kafka.domain-events.listener.instances:1}") int listenerInstances,
+                              @Value("${kafka.domain-events.bulk.partitions:3}") int bulkPartitions,
+                              @Value("${kafka.domain-events.bulk.retention-ms:259200000}") long bulkRetentionMs,
+                              @Value("${kafka.domain-events.bulk.concurrency:0}") int bulkConcurrency) {
+        if (partitions < 1 || listenerInstances < 1 || bulkPartitions < 1) {
+            throw new IllegalArgumentException("Partitions and listener instances must be at least 1");
+        }
+        if (bulkRetentionMs < 1 || bulkConcurrency < 0) {
+            throw new IllegalArgumentException("Bulk retention must be positive and bulk concurrency not negative");
+        }
+        this.partitions = partitions;
+        this.listenerInstances = listenerInstances;
+        this.bulkPartitions = bulkPartitions;
+        this.bulkRetentionMs = bulkRetentionMs;
+        this.bulkConcurrency = bulkConcurrency;
+    }
+
+    UnifiedTopicConfig(int partitions, int listenerInstances) {
+        this(partitions, listenerInstances, 3, UNIFIED_BULK_RETENTION_MS, 0);
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public int getBulkPartitions() {
+        return bulkPartitions;
+    }
+
+    /**
+     * Consumer threads per service instance for the unified topic: the partitions
+     * shared out over the instances of the service, rounded up
+     */
+    public int listenerConcurrency() {
+        return (partitions + listenerInstances - 1) / listenerInstances;
+    }
+
+    /**
+     * Consumer threads per service instance for the bulk topic: its partitions shared out over
+     * the instances, capped at kafka.domain-events.bulk.concurrency when that is set, so a
+     * service can give background traffic fewer threads than it has partitions
+     */
+    public int bulkListenerConcurrency() {
+        int perInstance = (bulkPartitions + listenerInstances - 1) / listenerInstances;
+        return bulkConcurrency == 0 ? perInstance : Math.min(bulkConcurrency, perInstance);
+    }
+
+    /**
+     * Routing of event types to the critical or bulk topic
+     */
+    @Bean
+    public DomainEventTopicRouter domainEventTopicRouter(
+            @Value("${kafka.domain-events.tiers.enabled:true}") boolean tiered,
+            @Value("${kafka.domain-events.tiers.critical-types:" + DomainEventTopicRouter.DEFAULT_CRITICAL_TYPES + "}")
+            String criticalTypes) {
+        return tiered ? DomainEventTopicRouter.of(criticalTypes) : DomainEventTopicRouter.SINGLE_TOPIC;
+    }
+
     /**
      * Main unified topic for all domain events
-     * 3 partitions for load balancing while maintaining event ordering within partition
+     * Partitioned for load balancing while maintaining event ordering per aggregate
      */
     @Bean
     public NewTopic unifiedDomainEventsTopic() {
         return TopicBuilder.name(UNIFIED_DOMAIN_EVENTS_TOPIC)
-                .partitions(3)  // Increased for better load distribution
+                .partitions(partitions)
+                .replicas(1)    // Single replica for local development
+                .config("cleanup.policy", "delete")
+                .config("retention.ms", String.valueOf(UNIFIED_TOPIC_RETENTION_MS)) // 7 days retention
+                .config("segment.ms", "86400000")    // 24 hours per segment
+                .config("message.timestamp.type", "LogAppendTime") // Record timestamp = broker append time
+                .build();
+    }
+
+    /**
+     * Bulk tier topic for high-volume events outside the purchase flow
+     * Shorter retention: its consumers only notify or report
+     */
+    @Bean
+    public NewTopic unifiedBulkEventsTopic() {
+        return TopicBuilder.name(UNIFIED_BULK_EVENTS_TOPIC)
+                .partitions(bulkPartitions)
                 .replicas(1)    // Single replica for local development
                 .config("cleanup.policy", "delete")
-                .config("retention.ms", "604800000") // 7 days retention
+                .config("retention.ms", String.valueOf(bulkRetentionMs))
                 .config("segment.ms", "86400000")    // 24 hours per segment
+                .config("message.timestamp.type", "LogAppendTime") // Record timestamp = broker append time
                 .build();
     }
 
@@ -70,7 +179,7 @@ public class UnifiedTopicConfig {
                 .partitions(1)  // Single partition for DLQ to maintain error ordering
                 .replicas(1)
                 .config("cleanup.policy", "delete")
-                .config("retention.ms", "2592000000") // 30 days retention for debugging
+                .config("retention.ms", String.valueOf(UNIFIED_DLQ_RETENTION_MS)) // 30 days retention for debugging
                 .build();
     }
 }
\ No newline at end of file
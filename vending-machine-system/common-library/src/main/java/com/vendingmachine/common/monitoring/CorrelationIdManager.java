@@ -1,9 +1,9 @@
 package com.vendingmachine.common.monitoring;
 
+import com.vendingmachine.common.util.TimeOrderedIds;
 import org.slf4j.MDC;
 import org.springframework.stereotype.Component;
 
-import java.util.UUID;
 
 @Component
 public class CorrelationIdManager {
@@ -15,7 +15,7 @@ public class CorrelationIdManager {
      * Generate a new correlation ID and set it in MDC and ThreadLocal
      */
     public String generateCorrelationId() {
-        String correlationId = UUID.randomUUID().toString();
+        String correlationId = TimeOrderedIds.nextString();
         setCorrelationId(correlationId);
         return correlationId;
     }
@@ -0,0 +1,64 @@
+package com.vendingmachine.common.monitoring;
+
+import com.vendingmachine.common.util.RequestDeadlineUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Metrics for request deadline propagation: calls skipped and work wasted after the caller gave up.
+ */
+@Component
+public class DeadlineMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeadlineMetrics.class);
+
+    public static final String STAGE_HTTP = "http";
+    public static final String STAGE_KAFKA = "kafka";
+
+    private final MeterRegistry meterRegistry;
+
+    public DeadlineMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Record a downstream call that was skipped to fail fast
+     */
+    public void recordSkipped(String destination) {
+        Counter.builder("vending_machine.deadline.skipped")
+                .description("Downstream calls skipped because the request deadline had passed")
+                .tag("destination", destination)
+                .register(meterRegistry)
+                .increment();
+        logger.debug("Skipped call to {} after request deadline", destination);
+    }
+
+    /**
+     * Record work done on behalf of a caller whose deadline had already passed
+     */
+    public void recordWastedWork(String stage, String target) {
+        Counter.builder("vending_machine.deadline.wasted_work")
+                .description("Work performed after the caller's request deadline had passed")
+                .tag("stage", stage)
+                .tag("target", target)
+                .register(meterRegistry)
+                .increment();
+        logger.debug("Wasted {} work on {} after request deadline", stage, target);
+    }
+
+    /**
+     * Record wasted work if the given deadline has already passed
+     *
+     * @return true if the deadline had passed
+     */
+    public boolean recordIfExpired(Long deadlineEpochMillis, String stage, String target) {
+        if (RequestDeadlineUtil.isExpired(deadlineEpochMillis)) {
+            recordWastedWork(stage, target);
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,73 @@
+package com.vendingmachine.common.outbox;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A service's event_outbox table, written by {@link TransactionalOutbox#publish} inside the
+ * caller's database transaction and drained by its relay. Services publishing through the
+ * outbox declare one bean.
+ */
+public interface OutboxStore {
+
+    /**
+     * Insert one row, joining the current transaction
+     */
+    void append(String topic, String eventKey, String eventData);
+
+    /**
+     * Up to {@code limit} rows still waiting to be relayed, by id
+     */
+    List<OutboxRecord> findPage(int limit);
+
+    /**
+     * Delete relayed rows in one statement, returning the number deleted
+     */
+    int delete(Collection<Long> ids);
+
+    /**
+     * An outbox row: the destination topic, the record key and the DomainEvent as JSON
+     */
+    record OutboxRecord(long id, String topic, String eventKey, String eventData) {
+    }
+
+    /**
+     * Inserts a row through a repository save
+     */
+    interface Appender {
+        void append(String topic, String eventKey, String eventData);
+    }
+
+    /**
+     * Reads the oldest rows through a repository query
+     */
+    interface PageQuery {
+        List<OutboxRecord> findPage(int limit);
+    }
+
+    /**
+     * Deletes rows through a bulk delete query
+     */
+    interface Deleter {
+        int delete(Collection<Long> ids);
+    }
+
+    static OutboxStore of(Appender appender, PageQuery pageQuery, Deleter deleter) {
+        return new OutboxStore() {
+            @Override
+            public void append(String topic, String eventKey, String eventData) {
+                appender.append(topic, eventKey, eventData);
+            }
+
+            @Override
+            public List<OutboxRecord> findPage(int limit) {
+                return pageQuery.findPage(limit);
+            }
+
+            @Override
+            public int delete(Collection<Long> ids) {
+                return deleter.delete(ids);
+            }
+        };
+    }
+}
@@ -0,0 +1,423 @@
+package com.vendingmachine.common.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.event.EventJson;
+import com.vendingmachine.common.kafka.DomainEventFormat;
+import com.vendingmachine.common.kafka.DomainEventSchemaRegistry;
+import com.vendingmachine.common.kafka.KafkaProducerSettings;
+import com.vendingmachine.common.kafka.UnifiedEventPublisher;
+import com.vendingmachine.common.kafka.UnifiedTopicConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.ProducerFencedException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Exactly-once mode for events a service publishes while consuming: consume, update the
+ * database and produce as one unit.
+ * <p>
+ * With the mode on, {@link #publish} writes the event to the service's event_outbox table
+ * ({@link OutboxStore}) instead of sending it, so the follow-up events, the state change and the
+ * processed_events row that stands for the consumed offset commit or roll back together in one
+ * database transaction. A redelivered record finds its processed_events row and is skipped, so
+ * it produces nothing twice.
+ * <p>
+ * A relay thread drains the outbox with a transactional producer. Each page of rows is sent in
+ * one Kafka transaction together with the relay's position: an offset commit, under the
+ * {@code <service>-outbox-relay} group, whose metadata lists the row ids of the page. Rows are
+ * deleted once the transaction commits. After a crash between the two, the relay reads its
+ * committed position back and deletes those rows rather than sending them again. The fixed
+ * transactional.id fences a relay in another instance of the service, so one relay runs at a time.
+ * Consumers read with {@code isolation.level=read_committed} and never see an aborted page.
+ * <p>
+ * Relayed events lose the request deadline header: they are sent after the request has been answered.
+ * With the mode off, events go straight to {@link UnifiedEventPublisher}.
+ */
+@Component
+@Slf4j
+public class TransactionalOutbox {
+
+    public static final String RELAY_SUFFIX = "-outbox-relay";
+    public static final String POSITION_TOPIC_SUFFIX = "-outbox-position";
+
+    /** Room left in the 4096-byte default of offset.metadata.max.bytes */
+    static final int MAX_POSITION_METADATA = 3_000;
+
+    private static final Duration POSITION_TIMEOUT = Duration.ofSeconds(30);
+    private static final long FENCED_BACKOFF_MILLIS = 60_000;
+    private static final long ERROR_BACKOFF_MILLIS = 5_000;
+
+    private final UnifiedEventPublisher publisher;
+    private final ObjectProvider<OutboxStore> stores;
+    private final Supplier<Producer<String, DomainEvent>> producers;
+    private final Supplier<OffsetAndMetadata> committedPosition;
+    private final TransactionTemplate transactionTemplate;
+    private final String service;
+    private final boolean enabled;
+    private final int pageSize;
+    private final long pollIntervalMillis;
+    private final TopicPartition positionPartition;
+    private final ConsumerGroupMetadata relayGroup;
+    private final Semaphore wakeUps = new Semaphore(0);
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final Counter appended;
+    private final Counter relayed;
+    private final Counter fenced;
+    private final Timer commit;
+    private volatile boolean running;
+    private Thread relayThread;
+
+    @Autowired
+    public TransactionalOutbox(UnifiedEventPublisher publisher, ObjectProvider<OutboxStore> stores,
+                               KafkaProducerSettings producerSettings, PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${spring.application.name:unknown}") String service,
+                               @Value("${kafka.exactly-once.enabled:false}") boolean enabled,
+                               @Value("${kafka.exactly-once.page-size:500}") int pageSize,
+                               @Value("${kafka.exactly-once.poll-interval-ms:100}") long pollIntervalMillis,
+                               @Value("${kafka.domain-events.format:json}") String domainEventFormat,
+                               @Value("${kafka.domain-events.schema-registry-path:}") String schemaRegistryPath) {
+        this(publisher, stores, relayProducers(producerSettings, service, domainEventFormat, schemaRegistryPath),
+                positionReader(producerSettings, service), transactionManager, meterRegistry, service,
+                enabled, pageSize, pollIntervalMillis);
+    }
+
+    TransactionalOutbox(UnifiedEventPublisher publisher, ObjectProvider<OutboxStore> stores,
+                        Supplier<Producer<String, DomainEvent>> producers, Supplier<OffsetAndMetadata> committedPosition,
+                        PlatformTransactionManager transactionManager, MeterRegistry meterRegistry, String service,
+                        boolean enabled, int pageSize, long pollIntervalMillis) {
+        if (pageSize < 1 || pollIntervalMillis < 1) {
+            throw new IllegalArgumentException("kafka.exactly-once.page-size and poll-interval-ms must be at least 1");
+        }
+        this.publisher = publisher;
+        this.stores = stores;
+        this.producers = producers;
+        this.committedPosition = committedPosition;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.service = service;
+        this.enabled = enabled;
+        this.pageSize = pageSize;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.positionPartition = new TopicPartition(service + POSITION_TOPIC_SUFFIX, 0);
+        this.relayGroup = new ConsumerGroupMetadata(service + RELAY_SUFFIX);
+        this.appended = Counter.builder("vending_machine.outbox.appended")
+                .description("Events written to the transactional outbox")
+                .tag("service", service)
+                .register(meterRegistry);
+        this.relayed = Counter.builder("vending_machine.outbox.relayed")
+                .description("Outbox events sent and committed in a Kafka transaction")
+                .tag("service", service)
+                .register(meterRegistry);
+        this.fenced = Counter.builder("vending_machine.outbox.fenced")
+                .description("Times the outbox relay was fenced by another instance")
+                .tag("service", service)
+                .register(meterRegistry);
+        this.commit = Timer.builder("vending_machine.outbox.commit")
+                .description("Time to send and commit one page of outbox events")
+                .tag("service", service)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether events go through the outbox: the mode is on and the service has an outbox table
+     */
+    public boolean isEnabled() {
+        return enabled && stores.getIfAvailable() != null;
+    }
+
+    /**
+     * Publish a domain event to the unified topic of its tier. In exactly-once mode the event is written to
+     * the outbox in the caller's transaction and sent once that transaction commits.
+     */
+    public void publish(DomainEvent event) {
+        if (!isEnabled()) {
+            publisher.publishEvent(event);
+            return;
+        }
+        String eventData;
+        try {
+            eventData = EventJson.mapper().writeValueAsString(publisher.withPayloadVersion(event));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Event " + event.getEventId() + " cannot be written to the outbox", e);
+        }
+        stores.getObject().append(publisher.topicFor(event), publisher.generatePartitionKey(event), eventData);
+        appended.increment();
+
+        // Wake the relay when the row becomes visible instead of at its next poll
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUps.release();
+                }
+            });
+        } else {
+            wakeUps.release();
+        }
+    }
+
+    /**
+     * Single-partition topic the relay commits its position against; no records are written to it
+     */
+    public NewTopic positionTopic() {
+        return TopicBuilder.name(positionPartition.topic()).partitions(1).replicas(1).build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!isEnabled() || running) {
+            return;
+        }
+        running = true;
+        relayThread = new Thread(this::relay, service + RELAY_SUFFIX);
+        relayThread.setDaemon(true);
+        relayThread.start();
+        log.info("Exactly-once mode on: events are relayed from the outbox by {}", relayGroup.groupId());
+    }
+
+    @PreDestroy
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = relayThread;
+        }
+        stopped.countDown();
+        wakeUps.release();
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void relay() {
+        OutboxStore store = stores.getObject();
+        while (running) {
+            Producer<String, DomainEvent> producer = null;
+            long backOffMillis = 0;
+            try {
+                producer = producers.get();
+                // Fences the relay of any other instance and aborts its open transaction
+                producer.initTransactions();
+                recover(store);
+                while (running) {
+                    List<OutboxStore.OutboxRecord> page = store.findPage(pageSize);
+                    if (page.isEmpty()) {
+                        wakeUps.tryAcquire(pollIntervalMillis, TimeUnit.MILLISECONDS);
+                        wakeUps.drainPermits();
+                        continue;
+                    }
+                    relayPage(producer, store, page);
+                }
+            } catch (ProducerFencedException e) {
+                fenced.increment();
+                log.warn("Outbox relay fenced by another instance of {}, standing by", service);
+                backOffMillis = FENCED_BACKOFF_MILLIS;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (RuntimeException e) {
+                log.error("Outbox relay failed, restarting it", e);
+                backOffMillis = ERROR_BACKOFF_MILLIS;
+            } finally {
+                closeQuietly(producer);
+            }
+            if (backOffMillis > 0) {
+                try {
+                    stopped.await(backOffMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete the rows of the last page committed to Kafka whose delete did not happen
+     */
+    private void recover(OutboxStore store) {
+        OffsetAndMetadata position = committedPosition.get();
+        if (position == null || position.metadata() == null || position.metadata().isEmpty()) {
+            return;
+        }
+        List<Long> ids = decodeIds(position.metadata());
+        Integer deleted = transactionTemplate.execute(status -> store.delete(ids));
+        if (deleted != null && deleted > 0) {
+            log.info("Outbox relay dropped {} events already sent before the last restart", deleted);
+        }
+    }
+
+    private void relayPage(Producer<String, DomainEvent> producer, OutboxStore store,
+                           List<OutboxStore.OutboxRecord> page) {
+        List<Long> pageIds = new ArrayList<>(page.size());
+        page.forEach(row -> pageIds.add(row.id()));
+        int count = pageIds.size();
+        String encoded = encodeIds(pageIds);
+        while (encoded.length() > MAX_POSITION_METADATA) {
+            // Scattered ids: send fewer rows so the position still fits
+            count /= 2;
+            encoded = encodeIds(pageIds.subList(0, count));
+        }
+        List<Long> ids = pageIds.subList(0, count);
+        List<OutboxStore.OutboxRecord> rows = page.subList(0, count);
+
+        long start = System.nanoTime();
+        producer.beginTransaction();
+        for (OutboxStore.OutboxRecord row : rows) {
+            ProducerRecord<String, DomainEvent> record = record(row);
+            if (record != null) {
+                producer.send(record);
+            }
+        }
+        producer.sendOffsetsToTransaction(
+                Map.of(positionPartition, new OffsetAndMetadata(ids.get(ids.size() - 1), encoded)), relayGroup);
+        producer.commitTransaction();
+        commit.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        relayed.increment(rows.size());
+
+        transactionTemplate.executeWithoutResult(status -> store.delete(ids));
+    }
+
+    private ProducerRecord<String, DomainEvent> record(OutboxStore.OutboxRecord row) {
+        DomainEvent event;
+        try {
+            event = EventJson.mapper().readValue(row.eventData(), DomainEvent.class);
+        } catch (JsonProcessingException e) {
+            log.error("Dropping outbox row {}: not a DomainEvent", row.id(), e);
+            return null;
+        }
+        ProducerRecord<String, DomainEvent> record = new ProducerRecord<>(row.topic(), row.eventKey(), event);
+        addHeader(record, UnifiedTopicConfig.EVENT_TYPE_HEADER, event.getEventType());
+        addHeader(record, UnifiedTopicConfig.EVENT_SOURCE_HEADER, event.getSource());
+        addHeader(record, UnifiedTopicConfig.CORRELATION_ID_HEADER, event.getCorrelationId());
+        addHeader(record, UnifiedTopicConfig.PUBLISHED_AT_HEADER, Long.toString(System.currentTimeMillis()));
+        return record;
+    }
+
+    private static void closeQuietly(Producer<String, DomainEvent> producer) {
+        if (producer != null) {
+            try {
+                producer.close(Duration.ofSeconds(5));
+            } catch (RuntimeException e) {
+                log.debug("Outbox relay producer did not close cleanly: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static void addHeader(ProducerRecord<String, DomainEvent> record, String name, String value) {
+        if (value != null) {
+            record.headers().add(name, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Ascending ids as ranges, e.g. {@code 10-59,61,63-80}
+     */
+    static String encodeIds(List<Long> ids) {
+        StringBuilder encoded = new StringBuilder();
+        int i = 0;
+        while (i < ids.size()) {
+            int end = i;
+            while (end + 1 < ids.size() && ids.get(end + 1) == ids.get(end) + 1) {
+                end++;
+            }
+            if (encoded.length() > 0) {
+                encoded.append(',');
+            }
+            encoded.append(ids.get(i));
+            if (end > i) {
+                encoded.append('-').append(ids.get(end));
+            }
+            i = end + 1;
+        }
+        return encoded.toString();
+    }
+
+    static List<Long> decodeIds(String encoded) {
+        List<Long> ids = new ArrayList<>();
+        for (String range : encoded.split(",")) {
+            int dash = range.indexOf('-');
+            long first = Long.parseLong(dash < 0 ? range : range.substring(0, dash));
+            long last = dash < 0 ? first : Long.parseLong(range.substring(dash + 1));
+            for (long id = first; id <= last; id++) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private static Supplier<Producer<String, DomainEvent>> relayProducers(KafkaProducerSettings producerSettings,
+                                                                         String service, String domainEventFormat,
+                                                                         String schemaRegistryPath) {
+        Map<String, Object> configs =
+                producerSettings.producerConfigs(DomainEventFormat.from(domainEventFormat).getSerializerClass());
+        configs.put(DomainEventSchemaRegistry.PATH_CONFIG, schemaRegistryPath);
+        configs.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG, service + RELAY_SUFFIX);
+        // The first send of a transaction is refused while the markers of the previous one are written;
+        // the default 100 ms backoff before retrying would cap the relay at a few pages per second
+        configs.put(ProducerConfig.RETRY_BACKOFF_MS_CONFIG, 5);
+        return () -> new KafkaProducer<>(configs);
+    }
+
+    /**
+     * Reads the relay's committed position; read_committed waits out a transaction still in flight
+     */
+    private static Supplier<OffsetAndMetadata> positionReader(KafkaProducerSettings producerSettings, String service) {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG,
+                producerSettings.producerConfigs(ByteArrayDeserializer.class).get(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG));
+        configs.put(ConsumerConfig.GROUP_ID_CONFIG, service + RELAY_SUFFIX);
+        configs.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        configs.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        configs.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        configs.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        TopicPartition partition = new TopicPartition(service + POSITION_TOPIC_SUFFIX, 0);
+        return () -> {
+            try (Consumer<byte[], byte[]> consumer = new KafkaConsumer<>(configs)) {
+                return consumer.committed(Set.of(partition), POSITION_TIMEOUT).get(partition);
+            }
+        };
+    }
+}
@@ -0,0 +1,27 @@
+package com.vendingmachine.common.replay;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * failed_events as seen by {@link DlqReplayEngine}, for services whose failed_events repository
+ * extends {@link FailedEventReplayRepository}. The bean method returns null in services without
+ * one, and the engine then refuses to start jobs.
+ */
+@Configuration
+public class DlqReplayConfig {
+
+    @Bean
+    public FailedEventStore failedEventStore(ObjectProvider<FailedEventReplayRepository> repository) {
+        FailedEventReplayRepository failedEvents = repository.getIfUnique();
+        return failedEvents == null ? null : FailedEventStore.of(
+                (filter, afterId, limit) -> failedEvents.findReplayPage(afterId, filter.topic(), filter.errorType(),
+                                filter.eventType(), filter.from(), filter.to(), PageRequest.of(0, limit)).stream()
+                        .map(event -> new FailedEventStore.FailedEventRecord(event.getId(), event.getOriginalTopic(),
+                                event.getEventData()))
+                        .toList(),
+                failedEvents::markReplayed);
+    }
+}
@@ -0,0 +1,74 @@
+package com.vendingmachine.common.replay;
+
+import com.vendingmachine.common.aop.annotation.Auditable;
+import com.vendingmachine.common.aop.annotation.ExecutionTime;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Admin endpoints to replay dead-lettered events from failed_events back to their topics, under
+ * {@code /api/admin/<dlq.replay.path>/dlq/replay}. Services with a failed_events table set
+ * {@code dlq.replay.path}; the others do not expose the endpoints.
+ */
+@RestController
+@RequestMapping("/api/admin/${dlq.replay.path}/dlq/replay")
+@ConditionalOnProperty("dlq.replay.path")
+@RequiredArgsConstructor
+@Slf4j
+public class DlqReplayController {
+
+    private final DlqReplayEngine replayEngine;
+
+    @PostMapping
+    @Auditable(operation = "START_DLQ_REPLAY", entityType = "FailedEvent", logParameters = true, logResult = true)
+    @ExecutionTime(operation = "START_DLQ_REPLAY", warningThreshold = 1000)
+    public ResponseEntity<?> startReplay(
+            @RequestParam(required = false) String topic,
+            @RequestParam(required = false) String eventType,
+            @RequestParam(required = false) String errorType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer maxRecords,
+            @RequestHeader(value = "X-User-Username", required = false) String username) {
+        try {
+            DlqReplayProgress progress = replayEngine.start(
+                    new DlqReplayFilter(topic, eventType, errorType, from, to, maxRecords),
+                    username != null ? username : "admin");
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(progress);
+        } catch (IllegalStateException e) {
+            log.warn("DLQ replay not started: {}", e.getMessage());
+            Map<String, Object> error = new HashMap<>();
+            error.put("timestamp", LocalDateTime.now());
+            error.put("message", e.getMessage());
+            error.put("status", HttpStatus.CONFLICT.value());
+            error.put("errorType", "DLQ_REPLAY_CONFLICT");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<Collection<DlqReplayProgress>> getReplayJobs() {
+        return ResponseEntity.ok(replayEngine.jobs());
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<DlqReplayProgress> getReplayProgress(@PathVariable String jobId) {
+        return ResponseEntity.of(replayEngine.progress(jobId));
+    }
+
+    @DeleteMapping("/{jobId}")
+    @Auditable(operation = "CANCEL_DLQ_REPLAY", entityType = "FailedEvent", logParameters = true)
+    public ResponseEntity<DlqReplayProgress> cancelReplay(@PathVariable String jobId) {
+        return ResponseEntity.of(replayEngine.cancel(jobId));
+    }
+}
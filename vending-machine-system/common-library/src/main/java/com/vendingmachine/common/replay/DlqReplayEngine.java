@@ -0,0 +1,313 @@
+package com.vendingmachine.common.replay;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.vendingmachine.common.event.EventJson;
+import com.vendingmachine.common.kafka.KafkaProducerSettings;
+import com.vendingmachine.common.kafka.UnifiedTopicConfig;
+import com.vendingmachine.common.replay.DlqReplayProgress.Status;
+import com.vendingmachine.common.util.CorrelationIdUtil;
+import com.vendingmachine.common.util.TimeOrderedIds;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays dead-lettered events from the service's failed_events table ({@link FailedEventStore})
+ * back to their original topics.
+ * <p>
+ * A job streams the FAILED rows matching a {@link DlqReplayFilter} in keyset pages. Each page is
+ * sent as a pipeline of asynchronous sends, paced to the configured rate, so the producer batches
+ * them. Once the page is acknowledged, which overlaps with sending the next page, its rows are
+ * marked REPLAYED with one update. Rows whose
+ * send failed stay FAILED for a later job. A replayed event that fails again is dead-lettered as
+ * a new row, and consumers skip the ones they already processed.
+ * <p>
+ * Unified topic events are keyed by aggregate ID again and get back their routing headers, so
+ * header filters and partition ordering apply as for the original record. One job runs at a time
+ * per instance.
+ */
+@Component
+@Slf4j
+public class DlqReplayEngine {
+
+    public static final String REPLAY_JOB_HEADER = "x-dlq-replay-job";
+
+    private static final long SEND_TIMEOUT_SECONDS = 30;
+
+    private final ObjectProvider<FailedEventStore> stores;
+    private final KafkaOperations<String, byte[]> kafkaOperations;
+    private final TransactionTemplate transactionTemplate;
+    private final int pageSize;
+    private final long nanosPerRecord;
+    private final ExecutorService executor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong active = new AtomicLong();
+    private final Counter replayed;
+    private final Counter failures;
+
+    @Autowired
+    public DlqReplayEngine(ObjectProvider<FailedEventStore> stores, KafkaProducerSettings producerSettings,
+                           PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                           @Value("${spring.application.name:unknown}") String service,
+                           @Value("${dlq.replay.page-size:500}") int pageSize,
+                           @Value("${dlq.replay.records-per-second:2000}") int recordsPerSecond) {
+        this(stores, new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(
+                        producerSettings.producerConfigs(ByteArraySerializer.class),
+                        new StringSerializer(), new ByteArraySerializer())),
+                transactionManager, meterRegistry, service, pageSize, recordsPerSecond);
+    }
+
+    DlqReplayEngine(ObjectProvider<FailedEventStore> stores, KafkaOperations<String, byte[]> kafkaOperations,
+                    PlatformTransactionManager transactionManager, MeterRegistry meterRegistry, String service,
+                    int pageSize, int recordsPerSecond) {
+        if (pageSize < 1 || recordsPerSecond < 1) {
+            throw new IllegalArgumentException("dlq.replay.page-size and records-per-second must be at least 1");
+        }
+        this.stores = stores;
+        this.kafkaOperations = kafkaOperations;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.pageSize = pageSize;
+        this.nanosPerRecord = TimeUnit.SECONDS.toNanos(1) / recordsPerSecond;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, service + "-dlq-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.replayed = Counter.builder("vending_machine.dlq.replayed")
+                .description("Dead-lettered events republished to their original topic")
+                .tag("service", service)
+                .register(meterRegistry);
+        this.failures = Counter.builder("vending_machine.dlq.replay.failures")
+                .description("Dead-lettered events whose republish failed")
+                .tag("service", service)
+                .register(meterRegistry);
+        Gauge.builder("vending_machine.dlq.replay.active", active, AtomicLong::get)
+                .description("Replay jobs running")
+                .tag("service", service)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Start a replay job in the background
+     *
+     * @throws IllegalStateException when the service has no failed_events store or a job is already running
+     */
+    public synchronized DlqReplayProgress start(DlqReplayFilter filter, String requestedBy) {
+        FailedEventStore store = stores.getIfAvailable();
+        if (store == null) {
+            throw new IllegalStateException("This service has no failed events to replay");
+        }
+        if (jobs.values().stream().anyMatch(job -> job.status == Status.RUNNING)) {
+            throw new IllegalStateException("A DLQ replay job is already running");
+        }
+        Job job = new Job(TimeOrderedIds.nextString(), filter, requestedBy);
+        jobs.put(job.id, job);
+        active.incrementAndGet();
+        executor.execute(() -> run(job, store));
+        log.info("DLQ replay job {} started by {} with {}", job.id, requestedBy, filter);
+        return job.progress();
+    }
+
+    public Optional<DlqReplayProgress> progress(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(Job::progress);
+    }
+
+    public Collection<DlqReplayProgress> jobs() {
+        return jobs.values().stream().map(Job::progress).toList();
+    }
+
+    /**
+     * Stop a running job after its current page
+     */
+    public Optional<DlqReplayProgress> cancel(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            return Optional.empty();
+        }
+        job.cancelled = true;
+        return Optional.of(job.progress());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(job -> job.cancelled = true);
+        executor.shutdown();
+        if (kafkaOperations instanceof KafkaTemplate<String, byte[]> template) {
+            template.getProducerFactory().reset();
+        }
+    }
+
+    private void run(Job job, FailedEventStore store) {
+        try {
+            long limit = job.filter.maxRecords() != null ? job.filter.maxRecords() : Long.MAX_VALUE;
+            long afterId = 0;
+            long nextSendAt = System.nanoTime();
+            SentPage pending = null;
+            while (!job.cancelled && job.scanned.get() < limit) {
+                int size = (int) Math.min(pageSize, limit - job.scanned.get());
+                List<FailedEventStore.FailedEventRecord> page = store.findPage(job.filter, afterId, size);
+                if (page.isEmpty()) {
+                    break;
+                }
+
+                // Paced asynchronous sends; the previous page is acknowledged and marked while this one is in flight
+                List<CompletableFuture<?>> sends = new ArrayList<>(page.size());
+                for (FailedEventStore.FailedEventRecord row : page) {
+                    long wait = nextSendAt - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    // Oversleeping builds up to one page of credit, so the average rate holds
+                    nextSendAt = Math.max(nextSendAt, System.nanoTime() - pageSize * nanosPerRecord) + nanosPerRecord;
+                    sends.add(send(row, job.id));
+                }
+                job.scanned.addAndGet(page.size());
+                afterId = page.get(page.size() - 1).id();
+                if (pending != null) {
+                    complete(job, store, pending);
+                }
+                pending = new SentPage(page, sends);
+            }
+            if (pending != null) {
+                complete(job, store, pending);
+            }
+            job.finish(job.cancelled ? Status.CANCELLED : Status.COMPLETED, null);
+        } catch (RuntimeException e) {
+            log.error("DLQ replay job {} failed", job.id, e);
+            job.finish(Status.FAILED, e.getMessage());
+        } finally {
+            active.decrementAndGet();
+        }
+        log.info("DLQ replay job {} {}: {} replayed, {} failed", job.id, job.status, job.replayed, job.failed);
+    }
+
+    /**
+     * Wait for a page's acknowledgements and mark the rows that were sent in one update
+     */
+    private void complete(Job job, FailedEventStore store, SentPage page) {
+        List<Long> sent = new ArrayList<>(page.rows().size());
+        for (int i = 0; i < page.rows().size(); i++) {
+            try {
+                page.sends().get(i).get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                sent.add(page.rows().get(i).id());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("DLQ replay interrupted", e);
+            } catch (Exception e) {
+                log.warn("Failed to replay failed event {}: {}", page.rows().get(i).id(), e.getMessage());
+                job.failed.incrementAndGet();
+                failures.increment();
+            }
+        }
+        if (!sent.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status ->
+                    store.markReplayed(sent, LocalDateTime.now(), job.requestedBy));
+            job.replayed.addAndGet(sent.size());
+            replayed.increment(sent.size());
+        }
+    }
+
+    private CompletableFuture<?> send(FailedEventStore.FailedEventRecord row, String jobId) {
+        String key = null;
+        Headers headers = new RecordHeaders();
+        headers.add(REPLAY_JOB_HEADER, jobId.getBytes(StandardCharsets.UTF_8));
+        try {
+            // Restore the unified topic key and routing headers from the stored DomainEvent
+            JsonNode event = EventJson.mapper().readTree(row.eventData());
+            key = text(event, "aggregateId");
+            addHeader(headers, UnifiedTopicConfig.EVENT_TYPE_HEADER, text(event, "eventType"));
+            addHeader(headers, UnifiedTopicConfig.EVENT_SOURCE_HEADER, text(event, "source"));
+            addHeader(headers, CorrelationIdUtil.CORRELATION_ID_HEADER, text(event, "correlationId"));
+        } catch (Exception e) {
+            log.debug("Failed event {} is not a JSON object, replaying it as is", row.id());
+        }
+        byte[] value = row.eventData() != null ? row.eventData().getBytes(StandardCharsets.UTF_8) : null;
+        try {
+            return kafkaOperations.send(new ProducerRecord<>(row.originalTopic(), null, key, value, headers));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node == null ? null : node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static void addHeader(Headers headers, String name, String value) {
+        if (value != null) {
+            headers.add(name, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private record SentPage(List<FailedEventStore.FailedEventRecord> rows, List<CompletableFuture<?>> sends) {
+    }
+
+    private static final class Job {
+
+        private final String id;
+        private final DlqReplayFilter filter;
+        private final String requestedBy;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong scanned = new AtomicLong();
+        private final AtomicLong replayed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private volatile boolean cancelled;
+        private volatile Status status = Status.RUNNING;
+        private volatile LocalDateTime finishedAt;
+        private volatile long finishedNanos;
+        private volatile String error;
+
+        Job(String id, DlqReplayFilter filter, String requestedBy) {
+            this.id = id;
+            this.filter = filter;
+            this.requestedBy = requestedBy;
+        }
+
+        void finish(Status status, String error) {
+            this.finishedNanos = System.nanoTime();
+            this.finishedAt = LocalDateTime.now();
+            this.error = error;
+            this.status = status;
+        }
+
+        DlqReplayProgress progress() {
+            long end = status == Status.RUNNING ? System.nanoTime() : finishedNanos;
+            double seconds = Math.max(end - startNanos, 1) / 1e9;
+            return new DlqReplayProgress(id, status, filter, requestedBy, scanned.get(), replayed.get(),
+                    failed.get(), replayed.get() / seconds, startedAt, finishedAt, error);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.vendingmachine.common.replay;
+
+import java.time.LocalDateTime;
+
+/**
+ * Selects the failed events to replay. Null fields match everything.
+ *
+ * @param topic      original topic of the failed record
+ * @param eventType  event type of the failed record, as stored in failed_events.event_type
+ * @param errorType  simple class name of the exception that dead-lettered the record
+ * @param from       failed at or after (inclusive)
+ * @param to         failed before (exclusive)
+ * @param maxRecords stop after this many records
+ */
+public record DlqReplayFilter(String topic, String eventType, String errorType, LocalDateTime from,
+                              LocalDateTime to, Integer maxRecords) {
+}
@@ -0,0 +1,15 @@
+package com.vendingmachine.common.replay;
+
+import java.time.LocalDateTime;
+
+/**
+ * Snapshot of a replay job, as reported by the admin endpoints
+ */
+public record DlqReplayProgress(String jobId, Status status, DlqReplayFilter filter, String requestedBy,
+                                long scanned, long replayed, long failed, double recordsPerSecond,
+                                LocalDateTime startedAt, LocalDateTime finishedAt, String error) {
+
+    public enum Status {
+        RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+}
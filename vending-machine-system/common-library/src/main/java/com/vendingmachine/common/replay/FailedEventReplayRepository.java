@@ -0,0 +1,25 @@
+package com.vendingmachine.common.replay;
+
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Replay queries of a service's failed_events repository. Repositories that extend it are read and
+ * updated by {@link DlqReplayEngine} through the store declared in {@link DlqReplayConfig}.
+ */
+public interface FailedEventReplayRepository {
+
+    /**
+     * One keyset page of FAILED rows matching the filter fields with an id above {@code afterId},
+     * by id. Null filter fields match everything.
+     */
+    List<? extends FailedEventRow> findReplayPage(long afterId, String topic, String errorType, String eventType,
+                                                  LocalDateTime from, LocalDateTime to, Pageable pageable);
+
+    /**
+     * Mark a page of replayed rows in one statement, returning the number updated
+     */
+    int markReplayed(List<Long> ids, LocalDateTime replayedAt, String replayedBy);
+}
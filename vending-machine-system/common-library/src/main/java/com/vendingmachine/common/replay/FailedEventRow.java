@@ -0,0 +1,16 @@
+package com.vendingmachine.common.replay;
+
+/**
+ * The columns of a service's failed_events entity that {@link DlqReplayEngine} reads
+ */
+public interface FailedEventRow {
+
+    Long getId();
+
+    String getOriginalTopic();
+
+    /**
+     * The dead-lettered record value as JSON
+     */
+    String getEventData();
+}
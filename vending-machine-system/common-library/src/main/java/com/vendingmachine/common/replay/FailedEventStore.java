@@ -0,0 +1,73 @@
+package com.vendingmachine.common.replay;
+
+import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.kafka.DomainEventBatchProcessor;
+import com.vendingmachine.common.kafka.UnifiedTopicConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A service's failed_events table, read and updated by {@link DlqReplayEngine}. Services with a
+ * dead-letter recoverer declare one bean.
+ */
+public interface FailedEventStore {
+
+    /**
+     * Up to {@code limit} FAILED rows matching the filter with an id above {@code afterId}, by id
+     */
+    List<FailedEventRecord> findPage(DlqReplayFilter filter, long afterId, int limit);
+
+    /**
+     * Mark the rows as replayed in one statement, returning the number updated
+     */
+    int markReplayed(List<Long> ids, LocalDateTime replayedAt, String replayedBy);
+
+    /**
+     * A failed event as stored by the dead-letter recoverer: the original topic and the record value as JSON
+     */
+    record FailedEventRecord(long id, String originalTopic, String eventData) {
+    }
+
+    /**
+     * Reads one keyset page through a repository query
+     */
+    interface PageQuery {
+        List<FailedEventRecord> findPage(DlqReplayFilter filter, long afterId, int limit);
+    }
+
+    /**
+     * Marks rows through a bulk update query
+     */
+    interface ReplayMarker {
+        int markReplayed(List<Long> ids, LocalDateTime replayedAt, String replayedBy);
+    }
+
+    /**
+     * Event type of a record being dead-lettered, stored in failed_events.event_type so replays can
+     * filter on it: the routing header, else the type of a {@link DomainEvent} value, else null
+     */
+    static String eventTypeOf(ConsumerRecord<?, ?> record) {
+        byte[] header = DomainEventBatchProcessor.headerValue(record, UnifiedTopicConfig.EVENT_TYPE_HEADER);
+        if (header != null) {
+            return new String(header, StandardCharsets.UTF_8);
+        }
+        return record.value() instanceof DomainEvent event ? event.getEventType() : null;
+    }
+
+    static FailedEventStore of(PageQuery pageQuery, ReplayMarker marker) {
+        return new FailedEventStore() {
+            @Override
+            public List<FailedEventRecord> findPage(DlqReplayFilter filter, long afterId, int limit) {
+                return pageQuery.findPage(filter, afterId, limit);
+            }
+
+            @Override
+            public int markReplayed(List<Long> ids, LocalDateTime replayedAt, String replayedBy) {
+                return marker.markReplayed(ids, replayedAt, replayedBy);
+            }
+        };
+    }
+}
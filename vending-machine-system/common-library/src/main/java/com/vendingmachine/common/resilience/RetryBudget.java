@@ -0,0 +1,131 @@
+package com.vendingmachine.common.resilience;
+
+import io.micrometer.core.instrument.Counter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token-bucket retry budget for a single destination, shared by all threads calling it.
+ * <p>
+ * Every first attempt deposits {@code ratio} tokens and every retry spends one, so retries
+ * are capped at roughly {@code ratio} of normal traffic. A small time-based allowance of
+ * {@code minRetriesPerSecond} keeps low-traffic destinations retryable. The balance is
+ * capped at {@code maxTokens} so a long quiet period cannot bank an unbounded burst.
+ * <p>
+ * Balances are kept in milli-tokens and updated with CAS, so the budget is lock-free.
+ */
+public class RetryBudget {
+
+    private static final long TOKEN = 1000L;
+
+    private final String destination;
+    private final long depositPerRequest;
+    private final double minRetriesPerSecond;
+    private final long maxBalance;
+
+    private final AtomicLong balance;
+    private final AtomicLong lastRefillNanos = new AtomicLong(System.nanoTime());
+
+    /**
+     * Retries granted but whose attempt has not been recorded yet. The next call to
+     * {@link #recordRequest()} consumes one of these instead of depositing, so retries
+     * do not earn budget for further retries.
+     */
+    private final AtomicLong pendingRetries = new AtomicLong();
+
+    private final Counter retriesCounter;
+    private final Counter exhaustedCounter;
+
+    public RetryBudget(String destination, double ratio, double minRetriesPerSecond, double maxTokens,
+                       Counter retriesCounter, Counter exhaustedCounter) {
+        this.destination = destination;
+        this.depositPerRequest = Math.round(ratio * TOKEN);
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        this.maxBalance = Math.round(maxTokens * TOKEN);
+        this.balance = new AtomicLong(maxBalance);
+        this.retriesCounter = retriesCounter;
+        this.exhaustedCounter = exhaustedCounter;
+    }
+
+    /**
+     * Record one attempt against the destination
+     */
+    public void recordRequest() {
+        long pending;
+        while ((pending = pendingRetries.get()) > 0) {
+            if (pendingRetries.compareAndSet(pending, pending - 1)) {
+                return;
+            }
+        }
+        deposit(depositPerRequest);
+    }
+
+    /**
+     * Atomically check and spend budget for one retry
+     *
+     * @return true if the retry may go ahead
+     */
+    public boolean tryAcquireRetry() {
+        refill();
+        long current;
+        do {
+            current = balance.get();
+            if (current < TOKEN) {
+                exhaustedCounter.increment();
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - TOKEN));
+
+        pendingRetries.incrementAndGet();
+        retriesCounter.increment();
+        return true;
+    }
+
+    /**
+     * Check whether a retry is affordable without spending budget. Used where the retry
+     * decision and the retry itself are reported separately; pair with {@link #recordRetry()}.
+     */
+    public boolean hasBudget() {
+        refill();
+        if (balance.get() < TOKEN) {
+            exhaustedCounter.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Spend budget for a retry that is already happening. May briefly overdraw the
+     * balance when several threads passed {@link #hasBudget()} at once.
+     */
+    public void recordRetry() {
+        balance.addAndGet(-TOKEN);
+        pendingRetries.incrementAndGet();
+        retriesCounter.increment();
+    }
+
+    public double availableTokens() {
+        return (double) balance.get() / TOKEN;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    private void refill() {
+        if (minRetriesPerSecond <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        long last = lastRefillNanos.get();
+        long elapsed = now - last;
+        long earned = (long) (elapsed * minRetriesPerSecond * TOKEN / 1_000_000_000L);
+        if (earned > 0 && lastRefillNanos.compareAndSet(last, now)) {
+            deposit(earned);
+        }
+    }
+
+    private void deposit(long amount) {
+        balance.accumulateAndGet(amount, (current, added) -> Math.min(maxBalance, current + added));
+    }
+}
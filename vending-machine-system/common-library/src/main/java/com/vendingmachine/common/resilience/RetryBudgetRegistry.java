@@ -0,0 +1,122 @@
+package com.vendingmachine.common.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.core.env.Environment;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds one {@link RetryBudget} per destination and wires budgets into HTTP and Kafka retries.
+ * Settings under {@code retry.budget.destinations.<destination>.*} override the shared {@code retry.budget.*} ones.
+ */
+@Component
+@Slf4j
+public class RetryBudgetRegistry {
+
+    private static final String PREFIX = "retry.budget.";
+
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+    private final Map<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+
+    public RetryBudgetRegistry(MeterRegistry meterRegistry, Environment environment) {
+        this.meterRegistry = meterRegistry;
+        this.environment = environment;
+    }
+
+    /**
+     * Get or create the budget for a destination
+     */
+    public RetryBudget get(String destination) {
+        return budgets.computeIfAbsent(destination, this::createBudget);
+    }
+
+    /**
+     * Wrap a Kafka error handler back-off so redeliveries stop once the budget is spent.
+     * Pair with {@link #recordInterceptor(String)} on the same container factory.
+     */
+    public BackOff backOff(String destination, BackOff delegate) {
+        RetryBudget budget = get(destination);
+        return () -> {
+            BackOffExecution execution = delegate.start();
+            return () -> {
+                long next = execution.nextBackOff();
+                if (next == BackOffExecution.STOP || budget.tryAcquireRetry()) {
+                    return next;
+                }
+                log.warn("Retry budget exhausted for {}, sending record to recoverer", destination);
+                return BackOffExecution.STOP;
+            };
+        };
+    }
+
+    /**
+     * Record interceptor that counts every delivered record as normal traffic for the budget
+     */
+    public <K, V> RecordInterceptor<K, V> recordInterceptor(String destination) {
+        RetryBudget budget = get(destination);
+        return new RecordInterceptor<>() {
+            @Override
+            public ConsumerRecord<K, V> intercept(ConsumerRecord<K, V> record, Consumer<K, V> consumer) {
+                budget.recordRequest();
+                return record;
+            }
+        };
+    }
+
+    /**
+     * Batch counterpart of {@link #recordInterceptor(String)} for batch listeners
+     */
+    public <K, V> BatchInterceptor<K, V> batchInterceptor(String destination) {
+        RetryBudget budget = get(destination);
+        return (records, consumer) -> {
+            for (int i = 0; i < records.count(); i++) {
+                budget.recordRequest();
+            }
+            return records;
+        };
+    }
+
+    private RetryBudget createBudget(String destination) {
+        double ratio = property(destination, "ratio", 0.1);
+        double minRetriesPerSecond = property(destination, "min-retries-per-second", 1.0);
+        double maxTokens = property(destination, "max-tokens", 10.0);
+
+        Counter retries = Counter.builder("vending_machine.retry_budget.retries")
+                .description("Retries allowed by the retry budget")
+                .tag("destination", destination)
+                .register(meterRegistry);
+
+        Counter exhausted = Counter.builder("vending_machine.retry_budget.exhausted")
+                .description("Retries rejected because the retry budget was exhausted")
+                .tag("destination", destination)
+                .register(meterRegistry);
+
+        RetryBudget budget = new RetryBudget(destination, ratio, minRetriesPerSecond, maxTokens, retries, exhausted);
+
+        Gauge.builder("vending_machine.retry_budget.tokens", budget, RetryBudget::availableTokens)
+                .description("Retry tokens currently available")
+                .tag("destination", destination)
+                .register(meterRegistry);
+
+        log.info("Created retry budget for {}: ratio={}, minRetriesPerSecond={}, maxTokens={}",
+                destination, ratio, minRetriesPerSecond, maxTokens);
+        return budget;
+    }
+
+    private double property(String destination, String name, double defaultValue) {
+        Double global = environment.getProperty(PREFIX + name, Double.class, defaultValue);
+        return environment.getProperty(PREFIX + "destinations." + destination + "." + name, Double.class, global);
+    }
+}
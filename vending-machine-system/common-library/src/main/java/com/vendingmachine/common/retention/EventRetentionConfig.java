@@ -0,0 +1,35 @@
+package com.vendingmachine.common.retention;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Tables purged by {@link EventTableRetentionJob} in every service: processed_events is kept for
+ * the unified topic retention, failed_events for the DLQ retention. A service takes part by
+ * having its repositories extend {@link ProcessedEventRetentionRepository} and
+ * {@link FailedEventRetentionRepository}; a bean method returns null for a table the service
+ * does not have, and the job never sees it.
+ */
+@Configuration
+public class EventRetentionConfig {
+
+    @Bean
+    public RetentionTarget processedEventsRetention(ObjectProvider<ProcessedEventRetentionRepository> repository,
+                                                    @Value("${retention.processed-events.days:7}") long days) {
+        ProcessedEventRetentionRepository processedEvents = repository.getIfUnique();
+        return processedEvents == null ? null : RetentionTarget.processedEvents(Duration.ofDays(days),
+                processedEvents::deleteProcessedBefore, processedEvents::count);
+    }
+
+    @Bean
+    public RetentionTarget failedEventsRetention(ObjectProvider<FailedEventRetentionRepository> repository,
+                                                 @Value("${retention.failed-events.days:30}") long days) {
+        FailedEventRetentionRepository failedEvents = repository.getIfUnique();
+        return failedEvents == null ? null : RetentionTarget.failedEvents(Duration.ofDays(days),
+                failedEvents::deleteFailedBefore, failedEvents::count);
+    }
+}
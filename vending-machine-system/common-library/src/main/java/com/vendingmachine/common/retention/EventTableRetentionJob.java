@@ -0,0 +1,114 @@
+package com.vendingmachine.common.retention;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rolling purge of the event bookkeeping tables declared as {@link RetentionTarget} beans
+ * (processed_events, failed_events). Rows past their retention are deleted in small chunks,
+ * each in its own transaction, so the purge never holds long locks against the consumers
+ * writing to the same table.
+ */
+@Component
+@EnableScheduling
+@Slf4j
+public class EventTableRetentionJob {
+
+    private final ObjectProvider<RetentionTarget> targets;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final String service;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Map<String, AtomicLong> tableRows = new ConcurrentHashMap<>();
+
+    public EventTableRetentionJob(ObjectProvider<RetentionTarget> targets, PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${spring.application.name:unknown}") String service,
+                                  @Value("${retention.purge.batch-size:5000}") int batchSize,
+                                  @Value("${retention.purge.max-batches:200}") int maxBatches) {
+        this.targets = targets;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.service = service;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+    }
+
+    @Scheduled(cron = "${retention.purge.cron:0 15 * * * *}")
+    public void purgeExpiredRows() {
+        targets.orderedStream().forEach(target -> {
+            try {
+                purge(target, LocalDateTime.now().minus(target.retention()));
+            } catch (RuntimeException e) {
+                log.error("Failed to purge table {}", target.table(), e);
+            }
+        });
+    }
+
+    /**
+     * Delete the target's rows older than the cutoff
+     *
+     * @return number of rows deleted
+     */
+    public long purge(RetentionTarget target, LocalDateTime cutoff) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long deleted = 0;
+        int batches = 0;
+        int chunk;
+        do {
+            Integer result = transactionTemplate.execute(status -> target.deleteBefore(cutoff, batchSize));
+            chunk = result != null ? result : 0;
+            deleted += chunk;
+            batches++;
+        } while (chunk >= batchSize && batches < maxBatches);
+
+        sample.stop(Timer.builder("vending_machine.events.purge.duration")
+                .description("Time spent purging expired rows from one table")
+                .tag("service", service)
+                .tag("table", target.table())
+                .register(meterRegistry));
+        Counter.builder("vending_machine.events.purged")
+                .description("Expired rows deleted from event bookkeeping tables")
+                .tag("service", service)
+                .tag("table", target.table())
+                .register(meterRegistry)
+                .increment(deleted);
+        rowsGauge(target.table()).set(target.count());
+
+        if (chunk >= batchSize) {
+            log.warn("Purge of {} stopped after {} batches ({} rows); the rest is left for the next run",
+                    target.table(), batches, deleted);
+        } else {
+            log.info("Purged {} rows older than {} from {}", deleted, cutoff, target.table());
+        }
+        return deleted;
+    }
+
+    private AtomicLong rowsGauge(String table) {
+        return tableRows.computeIfAbsent(table, name -> {
+            AtomicLong rows = new AtomicLong();
+            Gauge.builder("vending_machine.events.table.rows", rows, AtomicLong::get)
+                    .description("Rows in an event bookkeeping table after the last purge")
+                    .tag("service", service)
+                    .tag("table", name)
+                    .register(meterRegistry);
+            return rows;
+        });
+    }
+}
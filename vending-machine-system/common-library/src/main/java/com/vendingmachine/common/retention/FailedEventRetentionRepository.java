@@ -0,0 +1,17 @@
+package com.vendingmachine.common.retention;
+
+import java.time.LocalDateTime;
+
+/**
+ * Retention queries of a service's failed_events repository. Repositories that extend it are
+ * purged by {@link EventRetentionConfig}.
+ */
+public interface FailedEventRetentionRepository {
+
+    /**
+     * Delete one chunk of rows that failed before the cutoff, returning the number deleted
+     */
+    int deleteFailedBefore(LocalDateTime cutoff, int limit);
+
+    long count();
+}
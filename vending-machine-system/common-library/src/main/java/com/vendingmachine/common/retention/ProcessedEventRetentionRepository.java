@@ -0,0 +1,17 @@
+package com.vendingmachine.common.retention;
+
+import java.time.LocalDateTime;
+
+/**
+ * Retention queries of a service's processed_events repository. Repositories that extend it are
+ * purged by {@link EventRetentionConfig}.
+ */
+public interface ProcessedEventRetentionRepository {
+
+    /**
+     * Delete one chunk of rows processed before the cutoff, returning the number deleted
+     */
+    int deleteProcessedBefore(LocalDateTime cutoff, int limit);
+
+    long count();
+}
@@ -0,0 +1,80 @@
+package com.vendingmachine.common.retention;
+
+import com.vendingmachine.common.kafka.UnifiedTopicConfig;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.LongSupplier;
+
+/**
+ * A table purged by {@link EventTableRetentionJob}. Services declare one bean per table.
+ */
+public interface RetentionTarget {
+
+    /**
+     * Table name, used as the metric tag
+     */
+    String table();
+
+    /**
+     * Rows older than this are deleted
+     */
+    Duration retention();
+
+    /**
+     * Delete at most {@code limit} rows older than the cutoff, returning the number deleted
+     */
+    int deleteBefore(LocalDateTime cutoff, int limit);
+
+    /**
+     * Current row count, for the table size gauge
+     */
+    long count();
+
+    /**
+     * Deletes chunk by chunk through a repository query
+     */
+    interface ChunkDeleter {
+        int deleteBefore(LocalDateTime cutoff, int limit);
+    }
+
+    /**
+     * processed_events target. Rows are kept at least as long as the unified topic keeps records,
+     * so a redelivered event is always recognised as a duplicate.
+     */
+    static RetentionTarget processedEvents(Duration retention, ChunkDeleter deleter, LongSupplier counter) {
+        Duration floor = Duration.ofMillis(UnifiedTopicConfig.UNIFIED_TOPIC_RETENTION_MS);
+        return of("processed_events", retention.compareTo(floor) < 0 ? floor : retention, deleter, counter);
+    }
+
+    /**
+     * failed_events target, by default kept as long as the DLQ topic keeps the records
+     */
+    static RetentionTarget failedEvents(Duration retention, ChunkDeleter deleter, LongSupplier counter) {
+        return of("failed_events", retention, deleter, counter);
+    }
+
+    static RetentionTarget of(String table, Duration retention, ChunkDeleter deleter, LongSupplier counter) {
+        return new RetentionTarget() {
+            @Override
+            public String table() {
+                return table;
+            }
+
+            @Override
+            public Duration retention() {
+                return retention;
+            }
+
+            @Override
+            public int deleteBefore(LocalDateTime cutoff, int limit) {
+                return deleter.deleteBefore(cutoff, limit);
+            }
+
+            @Override
+            public long count() {
+                return counter.getAsLong();
+            }
+        };
+    }
+}
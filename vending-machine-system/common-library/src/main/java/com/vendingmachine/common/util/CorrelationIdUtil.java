@@ -1,7 +1,6 @@
 package com.vendingmachine.common.util;
 
 import org.slf4j.MDC;
-import java.util.UUID;
 
 /**
  * Utility class for managing Correlation IDs across the distributed system.
@@ -18,7 +17,7 @@ public class CorrelationIdUtil {
      * Generate a new Correlation ID
      */
     public static String generateCorrelationId() {
-        return UUID.randomUUID().toString();
+        return TimeOrderedIds.nextString();
     }
     
     /**
@@ -0,0 +1,20 @@
+package com.vendingmachine.common.util;
+
+/**
+ * Thrown when work is skipped because the caller's request deadline has already passed.
+ * Resilience4j retry and circuit breaker instances should ignore this exception: it says
+ * nothing about the health of the downstream service.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    private final long exceededByMillis;
+
+    public DeadlineExceededException(String operation, long exceededByMillis) {
+        super("Request deadline exceeded by " + exceededByMillis + "ms before " + operation);
+        this.exceededByMillis = exceededByMillis;
+    }
+
+    public long getExceededByMillis() {
+        return exceededByMillis;
+    }
+}
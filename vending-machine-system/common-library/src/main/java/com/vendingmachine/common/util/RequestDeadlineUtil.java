@@ -0,0 +1,105 @@
+package com.vendingmachine.common.util;
+
+import org.slf4j.MDC;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Utility class for propagating request deadlines across the distributed system.
+ * The API gateway stamps an absolute deadline (epoch milliseconds) on every request
+ * in the {@value #DEADLINE_HEADER} header. Services keep it in the MDC next to the
+ * Correlation ID so outbound HTTP calls and published events can carry it forward,
+ * and so clients can stop retrying once the caller has already given up.
+ */
+public class RequestDeadlineUtil {
+
+    public static final String DEADLINE_KEY = "requestDeadline";
+    public static final String DEADLINE_HEADER = "X-Request-Deadline";
+
+    private RequestDeadlineUtil() {
+        // Utility class
+    }
+
+    /**
+     * Set the deadline from an incoming header value. Blank or malformed values clear it.
+     */
+    public static void setDeadline(String headerValue) {
+        Long deadline = parseDeadline(headerValue);
+        if (deadline == null) {
+            clearDeadline();
+        } else {
+            setDeadline(deadline);
+        }
+    }
+
+    /**
+     * Set the deadline as epoch milliseconds
+     */
+    public static void setDeadline(long deadlineEpochMillis) {
+        MDC.put(DEADLINE_KEY, Long.toString(deadlineEpochMillis));
+    }
+
+    /**
+     * Get the current deadline in epoch milliseconds, or null when none is set
+     */
+    public static Long getDeadline() {
+        return parseDeadline(MDC.get(DEADLINE_KEY));
+    }
+
+    /**
+     * Milliseconds left before the deadline, or {@link Long#MAX_VALUE} when none is set
+     */
+    public static long remainingMillis() {
+        Long deadline = getDeadline();
+        return deadline == null ? Long.MAX_VALUE : deadline - System.currentTimeMillis();
+    }
+
+    public static boolean isExpired() {
+        return remainingMillis() <= 0;
+    }
+
+    public static boolean isExpired(Long deadlineEpochMillis) {
+        return deadlineEpochMillis != null && deadlineEpochMillis <= System.currentTimeMillis();
+    }
+
+    /**
+     * Fail fast before starting work whose caller has already given up
+     *
+     * @param operation description of the work being skipped, used in the exception message
+     * @throws DeadlineExceededException if the current deadline has passed
+     */
+    public static void checkDeadline(String operation) {
+        long remaining = remainingMillis();
+        if (remaining <= 0) {
+            throw new DeadlineExceededException(operation, -remaining);
+        }
+    }
+
+    /**
+     * Parse a deadline header value. Accepts the raw forms produced by HTTP and Kafka header mappers.
+     */
+    public static Long parseDeadline(Object headerValue) {
+        if (headerValue == null) {
+            return null;
+        }
+        if (headerValue instanceof Number number) {
+            return number.longValue();
+        }
+        String value = headerValue instanceof byte[] bytes
+                ? new String(bytes, StandardCharsets.UTF_8)
+                : headerValue.toString();
+        try {
+            return value.isBlank() ? null : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Clear the deadline from MDC
+     * Should be called after request processing is complete
+     */
+    public static void clearDeadline() {
+        MDC.remove(DEADLINE_KEY);
+    }
+}
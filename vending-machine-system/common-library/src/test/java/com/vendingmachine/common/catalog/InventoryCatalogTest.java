@@ -0,0 +1,118 @@
+package com.vendingmachine.common.catalog;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the local inventory catalog read from the compacted snapshot topic
+ */
+class InventoryCatalogTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition(InventoryCatalog.SNAPSHOT_TOPIC, 0);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MockConsumer<String, byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    private final ProductSnapshotSerializer serializer = new ProductSnapshotSerializer();
+    private InventoryCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        Node node = new Node(0, "localhost", 9092);
+        consumer.updatePartitions(InventoryCatalog.SNAPSHOT_TOPIC, List.of(
+                new PartitionInfo(InventoryCatalog.SNAPSHOT_TOPIC, 0, node, new Node[]{node}, new Node[]{node})));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (catalog != null) {
+            catalog.close();
+        }
+    }
+
+    private InventoryCatalog catalog(boolean enabled) {
+        catalog = new InventoryCatalog(() -> consumer, meterRegistry, "transaction-service", enabled, 5_000);
+        return catalog;
+    }
+
+    @Test
+    void testStartupLoadsTheTopicUpToItsEnd() {
+        consumer.updateEndOffsets(Map.of(PARTITION, 3L));
+        consumer.schedulePollTask(() -> {
+            consumer.addRecord(record(0, "1", snapshot(1L, 1.50, 10)));
+            consumer.addRecord(record(1, "2", snapshot(2L, 2.25, 0)));
+            consumer.addRecord(record(2, "1", snapshot(1L, 1.75, 9)));
+        });
+
+        InventoryCatalog catalog = catalog(true);
+        catalog.start();
+
+        assertTrue(catalog.isReady());
+        assertEquals(2, catalog.all().size());
+        assertEquals(1.75, catalog.find(1L).orElseThrow().price());
+        assertEquals(9, catalog.find(1L).orElseThrow().quantity());
+        assertFalse(catalog.find(2L).orElseThrow().isAvailable(1));
+        assertEquals(3.0, meterRegistry.get("vending_machine.catalog.updates").counter().count());
+        assertEquals(2.0, meterRegistry.get("vending_machine.catalog.products").gauge().value());
+    }
+
+    @Test
+    void testTombstoneRemovesTheProductAfterStartup() throws Exception {
+        consumer.updateEndOffsets(Map.of(PARTITION, 1L));
+        consumer.schedulePollTask(() -> consumer.addRecord(record(0, "1", snapshot(1L, 1.50, 10))));
+        consumer.schedulePollTask(() -> consumer.addRecord(record(1, "1", null)));
+
+        InventoryCatalog catalog = catalog(true);
+        catalog.start();
+        assertTrue(catalog.isReady());
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (catalog.find(1L).isPresent() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(catalog.find(1L).isEmpty());
+    }
+
+    @Test
+    void testEmptyTopicIsReadyAtOnce() {
+        consumer.updateEndOffsets(Map.of(PARTITION, 0L));
+
+        InventoryCatalog catalog = catalog(true);
+        catalog.start();
+
+        assertTrue(catalog.isReady());
+        assertTrue(catalog.all().isEmpty());
+    }
+
+    @Test
+    void testDisabledCatalogDoesNotRead() {
+        InventoryCatalog catalog = catalog(false);
+        catalog.start();
+
+        assertFalse(catalog.isReady());
+        assertTrue(consumer.assignment().isEmpty());
+    }
+
+    private ConsumerRecord<String, byte[]> record(long offset, String key, ProductSnapshot snapshot) {
+        return new ConsumerRecord<>(InventoryCatalog.SNAPSHOT_TOPIC, 0, offset, key,
+                serializer.serialize(InventoryCatalog.SNAPSHOT_TOPIC, snapshot));
+    }
+
+    private static ProductSnapshot snapshot(Long productId, double price, int quantity) {
+        return new ProductSnapshot(productId, "Product " + productId, price, quantity, 5, Instant.now());
+    }
+}
@@ -0,0 +1,132 @@
+package com.vendingmachine.common.event;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for payload schema upcaster chains
+ */
+class PayloadUpcastersTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private static final PayloadUpcaster RENAME_QUANTITY = PayloadUpcaster.of("DISPENSING_*", "1.0", "2.0", payload -> {
+        ((ObjectNode) payload).set("dispensedQuantity", ((ObjectNode) payload).remove("quantity"));
+        return payload;
+    });
+
+    private static final PayloadUpcaster ADD_SLOT = PayloadUpcaster.of("DISPENSING_*", "2.0", "3.0", payload -> {
+        ((ObjectNode) payload).put("slot", "A1");
+        return payload;
+    });
+
+    @Test
+    void testOldPayloadIsMigratedThroughTheChain() {
+        PayloadUpcasters upcasters = new PayloadUpcasters(List.of(ADD_SLOT, RENAME_QUANTITY), meterRegistry, "test");
+        ObjectNode payload = EventJson.mapper().createObjectNode().put("quantity", 2);
+
+        JsonNode upcast = upcasters.upcast(event("DISPENSING_COMPLETED", "1.0", payload));
+
+        assertEquals(2, upcast.get("dispensedQuantity").asInt());
+        assertEquals("A1", upcast.get("slot").asText());
+        assertFalse(upcast.has("quantity"));
+        // The event's own payload is left as it was
+        assertTrue(payload.has("quantity"));
+        assertEquals("3.0", upcasters.currentVersion("DISPENSING_COMPLETED"));
+        assertEquals(1, meterRegistry.get("vending_machine.kafka.payload.upcasts")
+                .tag("event_type", "DISPENSING_COMPLETED").tag("from_version", "1.0").counter().count());
+    }
+
+    @Test
+    void testCurrentAndUnrelatedPayloadsAreNotCopied() {
+        PayloadUpcasters upcasters = new PayloadUpcasters(List.of(RENAME_QUANTITY, ADD_SLOT), meterRegistry, "test");
+        ObjectNode current = EventJson.mapper().createObjectNode().put("dispensedQuantity", 1);
+        ObjectNode unrelated = EventJson.mapper().createObjectNode().put("quantity", 1);
+
+        assertSame(current, upcasters.upcast(event("DISPENSING_COMPLETED", "3.0", current)));
+        assertSame(unrelated, upcasters.upcast(event("STOCK_UPDATED", "1.0", unrelated)));
+        assertEquals(DomainEvent.INITIAL_VERSION, upcasters.currentVersion("STOCK_UPDATED"));
+        // A version no upcaster knows, such as one from a newer producer, is bound as it is
+        assertSame(current, upcasters.upcast(event("DISPENSING_COMPLETED", "4.0", current)));
+    }
+
+    @Test
+    void testLegacyVersionlessAndStringPayloadsAreMigrated() throws Exception {
+        PayloadUpcasters upcasters = new PayloadUpcasters(List.of(RENAME_QUANTITY), meterRegistry, "test");
+        String json = EventJson.mapper().writeValueAsString(EventJson.mapper().createObjectNode().put("quantity", 5));
+
+        JsonNode upcast = upcasters.upcast(event("DISPENSING_STARTED", null, TextNode.valueOf(json)));
+
+        assertEquals(5, upcast.get("dispensedQuantity").asInt());
+        assertThrows(IllegalArgumentException.class,
+                () -> upcasters.upcast(event("DISPENSING_STARTED", "1.0", TextNode.valueOf("{not json"))));
+    }
+
+    @Test
+    void testChainsAreResolvedOncePerTypeAndVersion() {
+        AtomicInteger lookups = new AtomicInteger();
+        PayloadUpcaster counting = new PayloadUpcaster() {
+            @Override
+            public Set<String> eventTypes() {
+                lookups.incrementAndGet();
+                return RENAME_QUANTITY.eventTypes();
+            }
+
+            @Override
+            public String fromVersion() {
+                return RENAME_QUANTITY.fromVersion();
+            }
+
+            @Override
+            public String toVersion() {
+                return RENAME_QUANTITY.toVersion();
+            }
+
+            @Override
+            public JsonNode upcast(JsonNode payload) {
+                return RENAME_QUANTITY.upcast(payload);
+            }
+        };
+        PayloadUpcasters upcasters = new PayloadUpcasters(List.of(counting), meterRegistry, "test");
+
+        upcasters.upcast(event("DISPENSING_COMPLETED", "1.0", EventJson.mapper().createObjectNode().put("quantity", 1)));
+        int resolved = lookups.get();
+        for (int i = 0; i < 3; i++) {
+            upcasters.upcast(event("DISPENSING_COMPLETED", "1.0", EventJson.mapper().createObjectNode().put("quantity", 1)));
+        }
+
+        assertEquals(resolved, lookups.get());
+        assertEquals(4, meterRegistry.get("vending_machine.kafka.payload.upcasts").counter().count());
+    }
+
+    @Test
+    void testConflictingAndLoopingUpcastersFail() {
+        PayloadUpcaster otherRename = PayloadUpcaster.of("DISPENSING_COMPLETED", "1.0", "1.1", payload -> payload);
+        assertThrows(IllegalStateException.class,
+                () -> new PayloadUpcasters(List.of(RENAME_QUANTITY, otherRename), meterRegistry, "test"));
+        assertThrows(IllegalStateException.class, () -> new PayloadUpcasters(
+                List.of(PayloadUpcaster.of("PAYMENT_COMPLETED", "1.0", "1.0", payload -> payload)), meterRegistry, "test"));
+
+        PayloadUpcasters looping = new PayloadUpcasters(List.of(RENAME_QUANTITY,
+                PayloadUpcaster.of("DISPENSING_*", "2.0", "1.0", payload -> payload)), meterRegistry, "test");
+        assertThrows(IllegalStateException.class, () -> looping.currentVersion("DISPENSING_COMPLETED"));
+    }
+
+    private static DomainEvent event(String type, String version, JsonNode payload) {
+        return DomainEvent.builder()
+                .eventId("evt-1")
+                .eventType(type)
+                .version(version)
+                .payload(payload)
+                .build();
+    }
+}
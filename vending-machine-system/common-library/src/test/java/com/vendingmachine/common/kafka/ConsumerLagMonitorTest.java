@@ -0,0 +1,119 @@
+package com.vendingmachine.common.kafka;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for consumer lag gauges and lag-driven listener backpressure
+ */
+class ConsumerLagMonitorTest {
+
+    private static final String OWN_GROUP = "notification-service-unified-group";
+    private static final String CRITICAL_GROUP = "dispensing-service-unified-group";
+    private static final TopicPartition PARTITION_0 = new TopicPartition(UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC, 0);
+    private static final TopicPartition PARTITION_1 = new TopicPartition(UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC, 1);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MessageListenerContainer container = mock(MessageListenerContainer.class);
+    private final FakeOffsets offsets = new FakeOffsets();
+
+    private ConsumerLagMonitor monitor(boolean pausable) {
+        when(container.getGroupId()).thenReturn(OWN_GROUP);
+        return new ConsumerLagMonitor(offsets, () -> List.of(container), meterRegistry, "notification-service",
+                true, 1000, pausable, Set.of(CRITICAL_GROUP), 1000, 100);
+    }
+
+    @Test
+    void testLagIsRecordedPerGroupAndPartition() {
+        offsets.committed.put(OWN_GROUP, Map.of(PARTITION_0, 40L, PARTITION_1, 90L));
+        offsets.end.put(PARTITION_0, 100L);
+        offsets.end.put(PARTITION_1, 90L);
+
+        monitor(false).poll();
+
+        assertEquals(60.0, lag(OWN_GROUP, "0"));
+        assertEquals(0.0, lag(OWN_GROUP, "1"));
+        // Critical groups are only read for backpressure
+        assertTrue(offsets.groupsRead.stream().noneMatch(CRITICAL_GROUP::equals));
+    }
+
+    @Test
+    void testListenersPauseAboveThePauseLagAndResumeBelowTheResumeLag() {
+        ConsumerLagMonitor monitor = monitor(true);
+        offsets.end.put(PARTITION_0, 5_000L);
+
+        offsets.committed.put(CRITICAL_GROUP, Map.of(PARTITION_0, 3_000L));
+        monitor.poll();
+        verify(container).pause();
+        assertEquals(1.0, meterRegistry.get("vending_machine.kafka.consumer.paused").gauge().value());
+
+        // Between the two thresholds: stays paused
+        offsets.committed.put(CRITICAL_GROUP, Map.of(PARTITION_0, 4_500L));
+        monitor.poll();
+        verify(container, never()).resume();
+
+        offsets.committed.put(CRITICAL_GROUP, Map.of(PARTITION_0, 4_950L));
+        monitor.poll();
+        verify(container).resume();
+        verify(container, times(1)).pause();
+        assertEquals(0.0, meterRegistry.get("vending_machine.kafka.consumer.paused").gauge().value());
+        assertEquals(1.0, meterRegistry.get("vending_machine.kafka.consumer.backpressure")
+                .tag("action", "pause").counter().count());
+    }
+
+    @Test
+    void testUnreadableCriticalGroupKeepsTheCurrentState() {
+        ConsumerLagMonitor monitor = monitor(true);
+        offsets.end.put(PARTITION_0, 5_000L);
+        offsets.committed.put(CRITICAL_GROUP, Map.of(PARTITION_0, 3_000L));
+        monitor.poll();
+
+        offsets.failing = true;
+        monitor.poll();
+
+        verify(container, never()).resume();
+    }
+
+    private double lag(String group, String partition) {
+        return meterRegistry.get("vending_machine.kafka.consumer.lag")
+                .tag("group", group).tag("partition", partition).gauge().value();
+    }
+
+    private static class FakeOffsets implements ConsumerLagMonitor.OffsetSource {
+
+        private final Map<String, Map<TopicPartition, Long>> committed = new HashMap<>();
+        private final Map<TopicPartition, Long> end = new HashMap<>();
+        private final List<String> groupsRead = new ArrayList<>();
+        private boolean failing;
+
+        @Override
+        public Map<TopicPartition, Long> committedOffsets(String groupId) {
+            if (failing) {
+                throw new IllegalStateException("broker unreachable");
+            }
+            groupsRead.add(groupId);
+            return committed.getOrDefault(groupId, Map.of());
+        }
+
+        @Override
+        public Map<TopicPartition, Long> endOffsets(Collection<TopicPartition> partitions) {
+            return end;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.vendingmachine.common.kafka;
+
+import com.vendingmachine.common.event.DomainEvent;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.RecordInterceptor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for listener processing-time, end-to-end latency and in-flight metrics
+ */
+class ConsumerMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConsumerMetrics consumerMetrics = new ConsumerMetrics(meterRegistry, "dispensing-service");
+
+    @Test
+    void testRecordInterceptorTimesEachRecordByEventType() {
+        RecordInterceptor<String, DomainEvent> interceptor = consumerMetrics.recordInterceptor();
+        ConsumerRecord<String, DomainEvent> record = record("TRANSACTION_PROCESSING");
+
+        interceptor.intercept(record, null);
+        assertEquals(1, consumerMetrics.inFlight());
+        interceptor.afterRecord(record, null);
+
+        assertEquals(0, consumerMetrics.inFlight());
+        assertEquals(1, meterRegistry.get("vending_machine.kafka.consumer.processing")
+                .tag("event_type", "TRANSACTION_PROCESSING").timer().count());
+    }
+
+    @Test
+    void testBatchRecordsStayInFlightUntilTheListenerReturns() {
+        BatchInterceptor<String, DomainEvent> interceptor = consumerMetrics.batchInterceptor();
+        ConsumerRecords<String, DomainEvent> records = new ConsumerRecords<>(Map.of(
+                new TopicPartition(UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC, 0),
+                List.of(record("PAYMENT_COMPLETED"), record("TRANSACTION_PROCESSING"))));
+
+        interceptor.intercept(records, null);
+        assertEquals(2, consumerMetrics.inFlight());
+        interceptor.failure(records, new IllegalStateException("boom"), null);
+
+        assertEquals(0, consumerMetrics.inFlight());
+    }
+
+    @Test
+    void testLatencyIsSplitAtThePublishAppendAndReceiveStamps() {
+        RecordInterceptor<String, DomainEvent> interceptor = consumerMetrics.recordInterceptor();
+        long now = System.currentTimeMillis();
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(UnifiedTopicConfig.EVENT_TYPE_HEADER, "DISPENSING_COMPLETED".getBytes(StandardCharsets.UTF_8));
+        headers.add(UnifiedTopicConfig.PUBLISHED_AT_HEADER, Long.toString(now - 800).getBytes(StandardCharsets.UTF_8));
+        ConsumerRecord<String, DomainEvent> record = new ConsumerRecord<>(UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC,
+                0, 0L, now - 500, TimestampType.LOG_APPEND_TIME, 0, 0, "41",
+                DomainEvent.builder().eventId("e-1").eventType("DISPENSING_COMPLETED").build(), headers, Optional.empty());
+
+        interceptor.intercept(record, null);
+        interceptor.afterRecord(record, null);
+
+        assertEquals(300, latency(ConsumerMetrics.PUBLISH_TO_APPEND).totalTime(TimeUnit.MILLISECONDS));
+        assertTrue(latency(ConsumerMetrics.APPEND_TO_RECEIVE).totalTime(TimeUnit.MILLISECONDS) >= 500);
+        assertTrue(latency(ConsumerMetrics.PUBLISH_TO_RECEIVE).totalTime(TimeUnit.MILLISECONDS) >= 800);
+        assertEquals(1, latency(ConsumerMetrics.RECEIVE_TO_HANDLED).count());
+    }
+
+    @Test
+    void testBatchRecordsAreHandledFromTheirReceiveStamp() {
+        BatchInterceptor<String, DomainEvent> interceptor = consumerMetrics.batchInterceptor();
+        ConsumerRecord<String, DomainEvent> handled = record("PAYMENT_COMPLETED");
+        ConsumerRecord<String, DomainEvent> filtered = new ConsumerRecord<>(
+                UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC, 0, 1L, "42", null);
+        ConsumerRecords<String, DomainEvent> records = new ConsumerRecords<>(Map.of(
+                new TopicPartition(UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC, 0), List.of(handled, filtered)));
+
+        interceptor.intercept(records, null);
+        consumerMetrics.recordHandled(handled, 1_000_000);
+
+        assertEquals(List.of(UnifiedTopicConfig.EVENT_TYPE_HEADER),
+                Arrays.stream(handled.headers().toArray()).map(Header::key).toList());
+        assertEquals(0, filtered.headers().toArray().length);
+        assertEquals(1, meterRegistry.get("vending_machine.kafka.event.latency")
+                .tag("event_type", "PAYMENT_COMPLETED").tag("stage", ConsumerMetrics.RECEIVE_TO_HANDLED).timer().count());
+    }
+
+    @Test
+    void testRetryTierRecordsSkipTheStagesFromPublish() {
+        RecordInterceptor<String, DomainEvent> interceptor = consumerMetrics.recordInterceptor();
+        long now = System.currentTimeMillis();
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(UnifiedTopicConfig.EVENT_TYPE_HEADER, "DISPENSING_COMPLETED".getBytes(StandardCharsets.UTF_8));
+        headers.add(UnifiedTopicConfig.PUBLISHED_AT_HEADER, Long.toString(now - 30_000).getBytes(StandardCharsets.UTF_8));
+        headers.add(RetryTopicTiers.TIER_HEADER, ByteBuffer.allocate(Integer.BYTES).putInt(0).array());
+        ConsumerRecord<String, DomainEvent> record = new ConsumerRecord<>(UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC,
+                0, 0L, now - 100, TimestampType.LOG_APPEND_TIME, 0, 0, "41",
+                DomainEvent.builder().eventId("e-1").eventType("DISPENSING_COMPLETED").build(), headers, Optional.empty());
+
+        interceptor.intercept(record, null);
+        interceptor.afterRecord(record, null);
+
+        assertNull(meterRegistry.find("vending_machine.kafka.event.latency").tag("stage", ConsumerMetrics.PUBLISH_TO_RECEIVE).timer());
+        assertNull(meterRegistry.find("vending_machine.kafka.event.latency").tag("stage", ConsumerMetrics.PUBLISH_TO_APPEND).timer());
+        assertEquals(1, latency(ConsumerMetrics.APPEND_TO_RECEIVE).count());
+        assertEquals(1, latency(ConsumerMetrics.RECEIVE_TO_HANDLED).count());
+    }
+
+    private Timer latency(String stage) {
+        return meterRegistry.get("vending_machine.kafka.event.latency")
+                .tag("event_type", "DISPENSING_COMPLETED").tag("stage", stage).timer();
+    }
+
+    private static ConsumerRecord<String, DomainEvent> record(String eventType) {
+        ConsumerRecord<String, DomainEvent> record = new ConsumerRecord<>(
+                UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC, 0, 0L, "41",
+                DomainEvent.builder().eventId("e-1").eventType(eventType).build());
+        record.headers().add(UnifiedTopicConfig.EVENT_TYPE_HEADER, eventType.getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
+}
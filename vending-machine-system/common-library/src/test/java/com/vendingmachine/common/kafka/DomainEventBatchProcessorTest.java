@@ -0,0 +1,150 @@
+package com.vendingmachine.common.kafka;
+
+import com.vendingmachine.common.event.DomainEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for batch processing of unified topic records
+ */
+class DomainEventBatchProcessorTest {
+
+    private final RecordingTransactionManager transactionManager = new RecordingTransactionManager();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ProcessedEventDedupCache dedupCache = new ProcessedEventDedupCache(meterRegistry,
+            "inventory-service", false, 6, 600_000L, 1000, 0.01, 100, Clock.systemUTC());
+    private final DomainEventBatchProcessor processor = new DomainEventBatchProcessor(transactionManager, dedupCache,
+            new ConsumerMetrics(meterRegistry, "inventory-service"), meterRegistry, "inventory-service");
+
+    @Test
+    void testDeduplicatesWithOneQueryAndSavesRowsInOneWrite() {
+        RecordingHandler handler = new RecordingHandler(Set.of("e-2"), null);
+
+        processor.process(records("e-1", "e-2", "e-3", "e-1"), handler);
+
+        assertEquals(1, handler.lookups.size());
+        assertEquals(List.of("e-1", "e-3"), handler.handled);
+        assertEquals(List.of(List.of("e-1", "e-3")), handler.saved);
+        assertEquals(1, transactionManager.commits);
+        assertEquals(2.0, meterRegistry.get("vending_machine.kafka.batch.duplicates").counter().count());
+        assertEquals(4.0, meterRegistry.get("vending_machine.kafka.batch.size").summary().totalAmount());
+    }
+
+    @Test
+    void testFailingRecordCommitsPrefixAndIsReported() {
+        List<ConsumerRecord<String, DomainEvent>> records = records("e-1", "e-2", "e-3", "e-4");
+        RecordingHandler handler = new RecordingHandler(Set.of(), "e-3");
+
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class,
+                () -> processor.process(records, handler));
+
+        assertSame(records.get(2), exception.getRecord());
+        assertEquals(1, transactionManager.rollbacks);
+        assertEquals(1, transactionManager.commits);
+        assertEquals(List.of(List.of("e-1", "e-2")), handler.saved);
+        assertEquals(1.0, meterRegistry.get("vending_machine.kafka.batch.split").counter().count());
+        // e-1 and e-2 ran in the rolled-back pass too, but are measured once
+        assertEquals(List.of("e-1", "e-2", "e-1", "e-2"), handler.handled);
+        assertEquals(2, meterRegistry.get("vending_machine.kafka.consumer.processing").timer().count());
+    }
+
+    @Test
+    void testFailedBulkWriteReportsFirstRecord() {
+        List<ConsumerRecord<String, DomainEvent>> records = records("e-1", "e-2");
+        RecordingHandler handler = new RecordingHandler(Set.of(), null) {
+            @Override
+            public void saveProcessed(List<String> rows) {
+                throw new IllegalStateException("duplicate key");
+            }
+        };
+
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class,
+                () -> processor.process(records, handler));
+
+        assertSame(records.get(0), exception.getRecord());
+        assertEquals(0, transactionManager.commits);
+        assertNull(meterRegistry.find("vending_machine.kafka.consumer.processing").timer());
+    }
+
+    private List<ConsumerRecord<String, DomainEvent>> records(String... eventIds) {
+        List<ConsumerRecord<String, DomainEvent>> records = new ArrayList<>();
+        for (int i = 0; i < eventIds.length; i++) {
+            DomainEvent event = DomainEvent.builder().eventId(eventIds[i]).eventType("DISPENSING_COMPLETED").build();
+            records.add(new ConsumerRecord<>(UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC, 0, i, "key", event));
+        }
+        return records;
+    }
+
+    private static class RecordingHandler implements DomainEventBatchProcessor.Handler<String> {
+
+        private final Set<String> processed;
+        private final String failOn;
+        private final List<Collection<String>> lookups = new ArrayList<>();
+        private final List<String> handled = new ArrayList<>();
+        private final List<List<String>> saved = new ArrayList<>();
+
+        RecordingHandler(Set<String> processed, String failOn) {
+            this.processed = processed;
+            this.failOn = failOn;
+        }
+
+        @Override
+        public Set<String> findProcessed(Collection<String> eventIds) {
+            lookups.add(eventIds);
+            return processed;
+        }
+
+        @Override
+        public String handle(ConsumerRecord<String, DomainEvent> record) {
+            String eventId = record.value().getEventId();
+            if (eventId.equals(failOn)) {
+                throw new IllegalArgumentException("bad payload");
+            }
+            handled.add(eventId);
+            return eventId;
+        }
+
+        @Override
+        public void saveProcessed(List<String> rows) {
+            saved.add(List.copyOf(rows));
+        }
+    }
+
+    private static class RecordingTransactionManager extends AbstractPlatformTransactionManager {
+
+        private int commits;
+        private int rollbacks;
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            commits++;
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+            rollbacks++;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.vendingmachine.common.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.event.payload.PaymentPayload;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the binary DomainEvent serde and the local schema registry
+ */
+class DomainEventBinaryCodecTest {
+
+    private static final String TOPIC = UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC;
+
+    private final DomainEventBinarySerializer binarySerializer = new DomainEventBinarySerializer();
+    private final DomainEventSerializer jsonSerializer = new DomainEventSerializer();
+    private final DomainEventDeserializer deserializer = new DomainEventDeserializer();
+
+    private DomainEvent paymentEvent() {
+        DomainEvent event = DomainEvent.paymentCompleted(42L,
+                PaymentPayload.forCompleted(1L, 42L, new BigDecimal("3.25"), "CARD", "gw-1"));
+        event.getMetadata().put("machineId", "vm-7");
+        return event;
+    }
+
+    @Test
+    void testRoundTrip() {
+        DomainEvent event = paymentEvent();
+
+        byte[] data = binarySerializer.serialize(TOPIC, event);
+        DomainEvent read = deserializer.deserialize(TOPIC, data);
+
+        assertTrue(DomainEventBinaryCodec.isBinary(data));
+        assertEquals(event.getEventId(), read.getEventId());
+        assertEquals(event.getEventType(), read.getEventType());
+        assertEquals(event.getAggregateId(), read.getAggregateId());
+        assertEquals(event.getTimestamp(), read.getTimestamp());
+        assertEquals(event.getVersion(), read.getVersion());
+        assertEquals(Map.of("machineId", "vm-7"), read.getMetadata());
+        assertEquals(event.getCorrelationId(), read.getCorrelationId());
+        PaymentPayload payload = read.getPayloadAs(PaymentPayload.class);
+        assertEquals(new BigDecimal("3.25"), payload.getAmount());
+        assertEquals("gw-1", payload.getGatewayTransactionId());
+    }
+
+    @Test
+    void testNestedPayloadRoundTrip() {
+        Map<String, Object> items = Map.of(
+                "items", List.of(Map.of("productId", 3, "quantity", 2), Map.of("productId", -9, "quantity", 1)),
+                "total", new BigDecimal("10.50"),
+                "ratio", 0.75,
+                "paid", true);
+        DomainEvent event = DomainEvent.builder()
+                .eventId("e-1")
+                .eventType("TRANSACTION_CREATED")
+                .payload(DomainEvent.toPayload(items))
+                .build();
+
+        DomainEvent read = deserializer.deserialize(TOPIC, binarySerializer.serialize(TOPIC, event));
+
+        JsonNode payload = read.getPayload();
+        assertEquals(event.getPayload(), payload);
+        assertEquals(-9, payload.path("items").get(1).path("productId").asInt());
+        assertEquals(0, new BigDecimal("10.50").compareTo(payload.path("total").decimalValue()));
+        assertNull(read.getCorrelationId());
+        assertNull(read.getTimestamp());
+    }
+
+    @Test
+    void testDeserializerReadsJsonAndBinary() {
+        DomainEvent event = paymentEvent();
+
+        DomainEvent fromJson = deserializer.deserialize(TOPIC, jsonSerializer.serialize(TOPIC, event));
+        DomainEvent fromBinary = deserializer.deserialize(TOPIC, binarySerializer.serialize(TOPIC, event));
+
+        assertEquals(fromJson.getEventId(), fromBinary.getEventId());
+        assertEquals(fromJson.getPayload().toString(), fromBinary.getPayload().toString());
+        assertEquals(fromJson.getPayloadAs(PaymentPayload.class), fromBinary.getPayloadAs(PaymentPayload.class));
+    }
+
+    @Test
+    void testBinaryIsSmallerThanJson() {
+        DomainEvent event = paymentEvent();
+
+        int jsonSize = jsonSerializer.serialize(TOPIC, event).length;
+        int binarySize = binarySerializer.serialize(TOPIC, event).length;
+
+        assertTrue(binarySize < jsonSize, "binary " + binarySize + " bytes, json " + jsonSize + " bytes");
+    }
+
+    @Test
+    void testUnknownSchemaIdRejected() {
+        byte[] data = {DomainEventBinaryCodec.MAGIC_BYTE, 99};
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize(TOPIC, data));
+    }
+
+    @Test
+    void testTruncatedRecordRejected() throws Exception {
+        ObjectNode payload = JsonNodeFactory.instance.objectNode();
+        payload.put("receipt", new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        DomainEvent event = DomainEvent.builder().eventId("e-1").eventType("PAYMENT_COMPLETED").payload(payload).build();
+        byte[] data = binarySerializer.serialize(TOPIC, event);
+
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6, 7, 8},
+                deserializer.deserialize(TOPIC, data).getPayload().path("receipt").binaryValue());
+        for (int length = 1; length < data.length; length++) {
+            byte[] truncated = Arrays.copyOf(data, length);
+            assertThrows(SerializationException.class, () -> deserializer.deserialize(TOPIC, truncated),
+                    "accepted a record cut to " + length + " of " + data.length + " bytes");
+        }
+        // A corrupt length on the binary value must not be read as a shorter or padded value
+        byte[] receipt = {10, 8, 1, 2, 3, 4, 5, 6, 7, 8};
+        int at = indexOf(data, receipt);
+        byte[] corrupt = new byte[data.length + 4];
+        System.arraycopy(data, 0, corrupt, 0, at + 1);
+        System.arraycopy(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F}, 0, corrupt, at + 1, 5);
+        System.arraycopy(data, at + 2, corrupt, at + 6, data.length - at - 2);
+        assertThrows(SerializationException.class, () -> deserializer.deserialize(TOPIC, corrupt));
+    }
+
+    private static int indexOf(byte[] data, byte[] part) {
+        for (int i = 0; i + part.length <= data.length; i++) {
+            if (Arrays.equals(data, i, i + part.length, part, 0, part.length)) {
+                return i;
+            }
+        }
+        throw new AssertionError("Encoded record does not contain the binary value");
+    }
+
+    @Test
+    void testFileBackedRegistryPersistsNewVersion(@TempDir Path dir) {
+        Path file = dir.resolve("schemas.json");
+        DomainEventSchemaRegistry registry = DomainEventSchemaRegistry.fileBacked(file);
+        List<DomainEventSchema.Field> fields = new ArrayList<>(registry.latest().fields());
+        fields.add(new DomainEventSchema.Field("tenant", DomainEventSchema.FieldType.STRING));
+
+        DomainEventSchema registered = registry.register(fields);
+
+        assertEquals(2, registered.id());
+        assertTrue(Files.exists(file));
+        assertSame(registry.latest(), registry.register(fields));
+
+        // A reader that shares the file decodes records written with the new version
+        DomainEventSchemaRegistry reloaded = DomainEventSchemaRegistry.fileBacked(file);
+        assertEquals(2, reloaded.latest().id());
+        DomainEvent event = paymentEvent();
+        DomainEvent read = new DomainEventBinaryCodec(reloaded).decode(new DomainEventBinaryCodec(registry).encode(event));
+        assertEquals(event.getEventId(), read.getEventId());
+
+        // Readers on the embedded registry cannot resolve the new id
+        byte[] data = new DomainEventBinaryCodec(registry).encode(event);
+        assertThrows(SerializationException.class,
+                () -> new DomainEventBinaryCodec(DomainEventSchemaRegistry.embedded()).decode(data));
+    }
+}
@@ -0,0 +1,169 @@
+package com.vendingmachine.common.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.event.EventJson;
+import com.vendingmachine.common.event.PayloadUpcaster;
+import com.vendingmachine.common.event.PayloadUpcasters;
+import com.vendingmachine.common.event.payload.PaymentPayload;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for annotation-driven domain event dispatch
+ */
+class DomainEventHandlerRegistryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testEventIsDispatchedWithItsDecodedPayload() {
+        PaymentHandlers handlers = new PaymentHandlers();
+        DomainEventHandlerRegistry registry = new DomainEventHandlerRegistry(List.of(handlers), meterRegistry, "test");
+
+        DomainEvent event = event("PAYMENT_COMPLETED", "payment-service", DomainEvent.toPayload(payment(7L)));
+        assertTrue(registry.handles(event));
+        assertEquals("completed:7", registry.dispatch(event));
+        assertEquals(7L, handlers.payments.get(0).getTransactionId());
+        assertEquals(1, meterRegistry.get("vending_machine.kafka.handler")
+                .tag("event_type", "PAYMENT_COMPLETED").tag("handler", "PaymentHandlers.onPayment")
+                .tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void testLegacyStringPayloadIsDecoded() throws Exception {
+        PaymentHandlers handlers = new PaymentHandlers();
+        DomainEventHandlerRegistry registry = new DomainEventHandlerRegistry(List.of(handlers), meterRegistry, "test");
+        String json = EventJson.mapper().writeValueAsString(payment(9L));
+
+        registry.dispatch(event("PAYMENT_FAILED", "payment-service", TextNode.valueOf(json)));
+
+        assertEquals(9L, handlers.payments.get(0).getTransactionId());
+    }
+
+    @Test
+    void testUnhandledTypesAndOtherSourcesAreNotDecoded() {
+        PaymentHandlers handlers = new PaymentHandlers();
+        DomainEventHandlerRegistry registry = new DomainEventHandlerRegistry(List.of(handlers), meterRegistry, "test");
+        // Not a PaymentPayload: decoding it would fail
+        TextNode garbage = TextNode.valueOf("{not json");
+
+        assertNull(registry.dispatch(event("STOCK_UPDATED", "inventory-service", garbage)));
+        assertFalse(registry.handles(event("PAYMENT_COMPLETED", "someone-else", garbage)));
+        assertNull(registry.dispatch(event("PAYMENT_COMPLETED", "someone-else", garbage)));
+        assertTrue(handlers.payments.isEmpty());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> registry.dispatch(event("PAYMENT_COMPLETED", "payment-service", garbage)));
+        assertEquals(1, meterRegistry.get("vending_machine.kafka.handler")
+                .tag("event_type", "PAYMENT_COMPLETED").tag("outcome", "failure").timer().count());
+    }
+
+    @Test
+    void testOldPayloadVersionIsUpcastBeforeDecoding() {
+        PaymentHandlers handlers = new PaymentHandlers();
+        PayloadUpcasters upcasters = new PayloadUpcasters(List.of(PayloadUpcaster.of("PAYMENT_*", "0.9", "1.0",
+                payload -> ((ObjectNode) payload).set("transactionId", ((ObjectNode) payload).remove("txId")))),
+                meterRegistry, "test");
+        DomainEventHandlerRegistry registry = new DomainEventHandlerRegistry(List.of(handlers), meterRegistry, upcasters, "test");
+        DomainEvent event = event("PAYMENT_COMPLETED", "payment-service",
+                EventJson.mapper().createObjectNode().put("txId", 11L).put("amount", "2.50"));
+        event.setVersion("0.9");
+
+        assertEquals("completed:11", registry.dispatch(event));
+    }
+
+    @Test
+    void testHandlerExceptionsAreRethrown() {
+        DomainEventHandlerRegistry registry = new DomainEventHandlerRegistry(List.of(new FailingHandler()), meterRegistry, "test");
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                () -> registry.dispatch(event("ITEM_DISPENSED", "dispensing-service", null)));
+        assertEquals("hardware offline", thrown.getMessage());
+    }
+
+    @Test
+    void testInvalidHandlersFailTheStartup() {
+        assertThrows(IllegalStateException.class, () -> new DomainEventHandlerRegistry(
+                List.of(new PaymentHandlers(), new DuplicateHandler()), meterRegistry, "test"));
+        assertThrows(IllegalStateException.class, () -> new DomainEventHandlerRegistry(
+                List.of(new WrongSignatureHandler()), meterRegistry, "test"));
+    }
+
+    @Test
+    void testHandlersAreDiscoveredFromTheApplicationContext() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.registerBean(MeterRegistry.class, () -> meterRegistry);
+            context.registerBean(PaymentHandlers.class);
+            context.registerBean(DomainEventHandlerRegistry.class,
+                    () -> new DomainEventHandlerRegistry(context, meterRegistry,
+                            new PayloadUpcasters(List.of(), meterRegistry, "test"), "test"));
+            context.refresh();
+
+            DomainEventHandlerRegistry registry = context.getBean(DomainEventHandlerRegistry.class);
+            assertEquals(2, registry.eventTypes().size());
+            registry.dispatch(event("PAYMENT_COMPLETED", "payment-service", DomainEvent.toPayload(payment(3L))));
+            assertEquals(1, context.getBean(PaymentHandlers.class).payments.size());
+        }
+    }
+
+    private static DomainEvent event(String type, String source, JsonNode payload) {
+        return DomainEvent.builder()
+                .eventId("evt-1")
+                .eventType(type)
+                .source(source)
+                .payload(payload)
+                .build();
+    }
+
+    private static PaymentPayload payment(Long transactionId) {
+        PaymentPayload payload = new PaymentPayload();
+        payload.setTransactionId(transactionId);
+        payload.setAmount(new BigDecimal("2.50"));
+        return payload;
+    }
+
+    static class PaymentHandlers {
+
+        private final List<PaymentPayload> payments = new ArrayList<>();
+
+        @DomainEventHandler(type = {"PAYMENT_COMPLETED", "PAYMENT_FAILED"}, payload = PaymentPayload.class,
+                source = "payment-service")
+        public String onPayment(DomainEvent event, PaymentPayload payload) {
+            payments.add(payload);
+            return (event.getEventType().endsWith("COMPLETED") ? "completed:" : "failed:") + payload.getTransactionId();
+        }
+    }
+
+    static class FailingHandler {
+
+        @DomainEventHandler(type = "ITEM_DISPENSED")
+        public void onDispensed(DomainEvent event) {
+            throw new IllegalStateException("hardware offline");
+        }
+    }
+
+    static class DuplicateHandler {
+
+        @DomainEventHandler(type = "PAYMENT_FAILED")
+        public void onPaymentFailed(DomainEvent event) {
+        }
+    }
+
+    static class WrongSignatureHandler {
+
+        @DomainEventHandler(type = "STOCK_UPDATED", payload = PaymentPayload.class)
+        public void onStock(DomainEvent event) {
+        }
+    }
+}
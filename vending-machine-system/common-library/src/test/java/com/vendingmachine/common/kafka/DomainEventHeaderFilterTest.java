@@ -0,0 +1,113 @@
+package com.vendingmachine.common.kafka;
+
+import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.event.payload.PaymentPayload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for header stamping and header-based DomainEvent filtering
+ */
+class DomainEventHeaderFilterTest {
+
+    private static final String TOPIC = UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC;
+
+    private final DomainEventHeaderFilter filter =
+            DomainEventHeaderFilter.of("DISPENSING_SUCCESS, DISPENSING_COMPLETED", "dispensing-service");
+
+    private Headers headers(String eventType, String source) {
+        RecordHeaders headers = new RecordHeaders();
+        if (eventType != null) {
+            headers.add(UnifiedTopicConfig.EVENT_TYPE_HEADER, eventType.getBytes(StandardCharsets.UTF_8));
+        }
+        if (source != null) {
+            headers.add(UnifiedTopicConfig.EVENT_SOURCE_HEADER, source.getBytes(StandardCharsets.UTF_8));
+        }
+        return headers;
+    }
+
+    @Test
+    void testAcceptsOnlyConfiguredTypesAndSources() {
+        assertTrue(filter.accepts(headers("DISPENSING_COMPLETED", "dispensing-service")));
+        assertFalse(filter.accepts(headers("PAYMENT_COMPLETED", "payment-service")));
+        assertFalse(filter.accepts(headers("DISPENSING_COMPLETED", "test-harness")));
+    }
+
+    @Test
+    void testRecordsWithoutHeadersAreAccepted() {
+        assertTrue(filter.accepts(headers(null, null)));
+        assertTrue(DomainEventHeaderFilter.of("", "").acceptsAll());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPublisherStampsRoutingHeaders() {
+        KafkaTemplate<String, DomainEvent> template = mock(KafkaTemplate.class);
+        when(template.send(any(ProducerRecord.class))).thenReturn(new CompletableFuture<>());
+        DomainEvent event = DomainEvent.paymentCompleted(42L,
+                PaymentPayload.forCompleted(1L, 42L, new BigDecimal("3.25"), "CARD", "gw-1"))
+                .withSource("payment-service")
+                .withCorrelationId("corr-1");
+
+        new UnifiedEventPublisher(template, new SimpleMeterRegistry(), "payment-service", 3).publishEvent(event);
+
+        ArgumentCaptor<ProducerRecord<String, DomainEvent>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(template).send(captor.capture());
+        Headers headers = captor.getValue().headers();
+        assertEquals("PAYMENT_COMPLETED", DomainEventHeaderFilter.eventType(headers));
+        assertArrayEquals("payment-service".getBytes(StandardCharsets.UTF_8),
+                headers.lastHeader(UnifiedTopicConfig.EVENT_SOURCE_HEADER).value());
+        assertArrayEquals("corr-1".getBytes(StandardCharsets.UTF_8),
+                headers.lastHeader(UnifiedTopicConfig.CORRELATION_ID_HEADER).value());
+    }
+
+    @Test
+    void testDeserializerSkipsRejectedRecordsWithoutParsing() {
+        DomainEventDeserializer deserializer = new DomainEventDeserializer();
+        deserializer.configure(filter.toConfigs(), false);
+        byte[] notJson = "not json".getBytes(StandardCharsets.UTF_8);
+        DomainEvent event = DomainEvent.builder().eventId("e-1").eventType("DISPENSING_COMPLETED").build();
+
+        assertNull(deserializer.deserialize(TOPIC, headers("PAYMENT_COMPLETED", "payment-service"), notJson));
+        assertEquals("e-1", deserializer.deserialize(TOPIC, headers("DISPENSING_COMPLETED", "dispensing-service"),
+                new DomainEventSerializer().serialize(TOPIC, event)).getEventId());
+    }
+
+    @Test
+    void testRecordFilterStrategyCountsSkippedRecords() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DomainEventRecordFilterStrategy strategy =
+                new DomainEventRecordFilterStrategy(filter, meterRegistry, "inventory-service");
+
+        assertTrue(strategy.filter(record(headers("PAYMENT_COMPLETED", "payment-service"))));
+        assertTrue(strategy.filter(record(headers("PAYMENT_COMPLETED", "payment-service"))));
+        assertFalse(strategy.filter(record(headers("DISPENSING_SUCCESS", "dispensing-service"))));
+
+        assertEquals(2.0, meterRegistry.get("vending_machine.kafka.events.skipped")
+                .tag("service", "inventory-service")
+                .tag("event_type", "PAYMENT_COMPLETED")
+                .counter().count());
+    }
+
+    private ConsumerRecord<String, DomainEvent> record(Headers headers) {
+        ConsumerRecord<String, DomainEvent> record = new ConsumerRecord<>(TOPIC, 0, 0L, "key", null);
+        headers.forEach(header -> record.headers().add(header));
+        return record;
+    }
+}
@@ -0,0 +1,66 @@
+package com.vendingmachine.common.kafka;
+
+import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.event.payload.PaymentPayload;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the shared-mapper DomainEvent Kafka serde
+ */
+class DomainEventSerdeTest {
+
+    private static final String TOPIC = UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC;
+
+    private final DomainEventSerializer serializer = new DomainEventSerializer();
+    private final DomainEventDeserializer deserializer = new DomainEventDeserializer();
+
+    @Test
+    void testPayloadEmbeddedAsJsonObject() {
+        DomainEvent event = DomainEvent.paymentCompleted(42L,
+                PaymentPayload.forCompleted(1L, 42L, new BigDecimal("3.25"), "CARD", "gw-1"));
+
+        String json = new String(serializer.serialize(TOPIC, event), StandardCharsets.UTF_8);
+
+        assertTrue(json.contains("\"payload\":{"), json);
+        assertFalse(json.contains("\\\""), "payload must not be double-encoded: " + json);
+    }
+
+    @Test
+    void testRoundTrip() {
+        DomainEvent event = DomainEvent.paymentCompleted(42L,
+                PaymentPayload.forCompleted(1L, 42L, new BigDecimal("3.25"), "CARD", "gw-1"));
+
+        DomainEvent read = deserializer.deserialize(TOPIC, serializer.serialize(TOPIC, event));
+
+        assertEquals(event.getEventId(), read.getEventId());
+        assertEquals("PAYMENT_COMPLETED", read.getEventType());
+        PaymentPayload payload = read.getPayloadAs(PaymentPayload.class);
+        assertEquals(42L, payload.getTransactionId());
+        assertEquals(new BigDecimal("3.25"), payload.getAmount());
+        assertEquals("gw-1", payload.getGatewayTransactionId());
+    }
+
+    @Test
+    void testReadsLegacyStringPayload() {
+        String legacy = "{\"eventId\":\"e-1\",\"eventType\":\"PAYMENT_COMPLETED\",\"aggregateId\":\"42\","
+                + "\"payload\":\"{\\\"transactionId\\\":42,\\\"status\\\":\\\"COMPLETED\\\"}\","
+                + "\"someFutureField\":true}";
+
+        DomainEvent read = deserializer.deserialize(TOPIC, legacy.getBytes(StandardCharsets.UTF_8));
+
+        PaymentPayload payload = read.getPayloadAs(PaymentPayload.class);
+        assertEquals(42L, payload.getTransactionId());
+        assertEquals("COMPLETED", payload.getStatus());
+    }
+
+    @Test
+    void testNullValues() {
+        assertNull(serializer.serialize(TOPIC, null));
+        assertNull(deserializer.deserialize(TOPIC, null));
+    }
+}
@@ -0,0 +1,84 @@
+package com.vendingmachine.common.kafka;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for shared consumer group settings and rebalance metrics
+ */
+class KafkaConsumerSettingsTest {
+
+    private static final String COOPERATIVE = CooperativeStickyAssignor.class.getName();
+    private static final TopicPartition PARTITION_0 = new TopicPartition(UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC, 0);
+    private static final TopicPartition PARTITION_1 = new TopicPartition(UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC, 1);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testConsumersJoinAsStaticCooperativeMembers() {
+        KafkaConsumerSettings settings = new KafkaConsumerSettings(COOPERATIVE + ", ", "vm-2", meterRegistry);
+
+        Map<String, Object> configs = settings.consumerConfigs("payment-service-unified-group", DomainEventDeserializer.class);
+
+        assertEquals("payment-service-unified-group", configs.get(ConsumerConfig.GROUP_ID_CONFIG));
+        assertEquals(DomainEventDeserializer.class, configs.get(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG));
+        assertEquals(List.of(COOPERATIVE), configs.get(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG));
+        assertEquals("test-service-vm-2", configs.get(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG));
+        // Each call gets its own map to add to
+        configs.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        assertFalse(settings.consumerConfigs("g", DomainEventDeserializer.class).containsKey(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG));
+    }
+
+    @Test
+    void testDynamicMembershipLeavesTheInstanceIdUnset() {
+        KafkaConsumerSettings settings = new KafkaConsumerSettings(COOPERATIVE, null, meterRegistry);
+
+        assertNull(settings.getGroupInstanceId());
+        assertFalse(settings.consumerConfigs("g", DomainEventDeserializer.class)
+                .containsKey(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG));
+    }
+
+    @Test
+    void testRebalanceMetricsWrapTheDelegate() {
+        List<Collection<TopicPartition>> delegated = new ArrayList<>();
+        ConsumerAwareRebalanceListener listener = new KafkaConsumerSettings(COOPERATIVE, "vm-1", meterRegistry)
+                .rebalanceListener(new ConsumerAwareRebalanceListener() {
+                    @Override
+                    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                        delegated.add(partitions);
+                    }
+                });
+        Consumer<?, ?> consumer = mock(Consumer.class);
+        when(consumer.groupMetadata()).thenReturn(new ConsumerGroupMetadata("transaction-service-unified-group"));
+
+        // First join, then a cooperative rebalance that moves one partition away
+        listener.onPartitionsAssigned(consumer, List.of(PARTITION_0, PARTITION_1));
+        listener.onPartitionsRevokedAfterCommit(consumer, List.of(PARTITION_1));
+        listener.onPartitionsAssigned(consumer, List.of());
+
+        assertEquals(2, delegated.size());
+        assertEquals(2.0, meterRegistry.get("vending_machine.kafka.rebalances")
+                .tag("group", "transaction-service-unified-group").counter().count());
+        assertEquals(2.0, meterRegistry.get("vending_machine.kafka.rebalance.partitions")
+                .tag("change", "assigned").counter().count());
+        assertEquals(1.0, meterRegistry.get("vending_machine.kafka.rebalance.partitions")
+                .tag("change", "revoked").counter().count());
+        // Only the rebalance that took partitions away is timed
+        assertEquals(1, meterRegistry.get("vending_machine.kafka.rebalance.duration").timer().count());
+    }
+}
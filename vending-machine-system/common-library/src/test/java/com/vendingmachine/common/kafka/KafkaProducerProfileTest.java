@@ -0,0 +1,59 @@
+package com.vendingmachine.common.kafka;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the shared producer profiles
+ */
+class KafkaProducerProfileTest {
+
+    @Test
+    void testProfileNamesResolveFromProperties() {
+        assertEquals(KafkaProducerProfile.LOW_LATENCY, KafkaProducerProfile.from("low-latency"));
+        assertEquals(KafkaProducerProfile.HIGH_THROUGHPUT, KafkaProducerProfile.from(" High-Throughput "));
+        assertEquals(KafkaProducerProfile.HIGH_THROUGHPUT, KafkaProducerProfile.from(""));
+        assertThrows(IllegalArgumentException.class, () -> KafkaProducerProfile.from("fastest"));
+    }
+
+    @Test
+    void testEveryProfileIsIdempotent() {
+        for (KafkaProducerProfile profile : KafkaProducerProfile.values()) {
+            Map<String, Object> configs = profile.configs();
+
+            assertEquals(true, configs.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG));
+            assertEquals("all", configs.get(ProducerConfig.ACKS_CONFIG));
+            assertTrue((int) configs.get(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION) <= 5);
+        }
+    }
+
+    @Test
+    void testHighThroughputBatchesAndCompressesHarder() {
+        Map<String, Object> lowLatency = KafkaProducerProfile.LOW_LATENCY.configs();
+        Map<String, Object> highThroughput = KafkaProducerProfile.HIGH_THROUGHPUT.configs();
+
+        assertEquals(0, lowLatency.get(ProducerConfig.LINGER_MS_CONFIG));
+        assertEquals("lz4", lowLatency.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        assertEquals(20, highThroughput.get(ProducerConfig.LINGER_MS_CONFIG));
+        assertEquals("zstd", highThroughput.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        assertTrue((int) highThroughput.get(ProducerConfig.BATCH_SIZE_CONFIG)
+                > (int) lowLatency.get(ProducerConfig.BATCH_SIZE_CONFIG));
+    }
+
+    @Test
+    void testSettingsAddConnectionAndSerializers() {
+        KafkaProducerSettings settings = new KafkaProducerSettings("kafka:9092", "low-latency");
+
+        Map<String, Object> configs = settings.producerConfigs(DomainEventSerializer.class);
+
+        assertEquals("kafka:9092", configs.get(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG));
+        assertEquals(StringSerializer.class, configs.get(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG));
+        assertEquals(DomainEventSerializer.class, configs.get(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG));
+        assertEquals("lz4", configs.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+    }
+}
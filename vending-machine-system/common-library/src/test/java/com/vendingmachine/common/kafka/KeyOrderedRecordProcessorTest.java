@@ -0,0 +1,166 @@
+package com.vendingmachine.common.kafka;
+
+import com.vendingmachine.common.event.DomainEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for key-ordered parallel processing of unified topic records
+ */
+class KeyOrderedRecordProcessorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ProcessedEventDedupCache dedupCache = new ProcessedEventDedupCache(meterRegistry,
+            "dispensing-service", false, 6, 600_000L, 1000, 0.01, 100, Clock.systemUTC());
+    private final KeyOrderedRecordProcessor processor = new KeyOrderedRecordProcessor(new NoOpTransactionManager(),
+            dedupCache, new ConsumerMetrics(meterRegistry, "dispensing-service"), meterRegistry, "dispensing-service", 4);
+
+    @AfterEach
+    void tearDown() {
+        processor.shutdown();
+    }
+
+    @Test
+    void testKeysRunInParallelAndInOrderWithinAKey() {
+        // The first record of each key waits for the other key to start: only parallel lanes finish
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Map<String, List<String>> handled = new ConcurrentHashMap<>();
+        RecordingHandler handler = new RecordingHandler(Set.of(), null) {
+            @Override
+            public String handle(ConsumerRecord<String, DomainEvent> record) {
+                if (record.value().getEventId().endsWith("-1")) {
+                    bothStarted.countDown();
+                    await(bothStarted);
+                }
+                handled.computeIfAbsent(record.key(), key -> new CopyOnWriteArrayList<>())
+                        .add(record.value().getEventId());
+                return super.handle(record);
+            }
+        };
+
+        processor.process(records("a:a-1", "b:b-1", "a:a-2", "b:b-2", "a:a-3"), handler);
+
+        assertEquals(List.of("a-1", "a-2", "a-3"), handled.get("a"));
+        assertEquals(List.of("b-1", "b-2"), handled.get("b"));
+        assertEquals(5, handler.saved.size());
+        assertEquals(2.0, meterRegistry.get("vending_machine.kafka.keyed.lanes").summary().max());
+    }
+
+    @Test
+    void testFailureStopsItsKeyAndReportsEarliestFailedRecord() {
+        List<ConsumerRecord<String, DomainEvent>> records = records("a:a-1", "b:b-1", "a:a-2", "b:b-2", "a:a-3");
+        RecordingHandler handler = new RecordingHandler(Set.of(), "a-2");
+
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class,
+                () -> processor.process(records, handler));
+
+        assertSame(records.get(2), exception.getRecord());
+        // a-3 must not overtake a-2; key b is unaffected
+        assertFalse(handler.saved.contains("a-3"));
+        assertTrue(handler.saved.containsAll(List.of("a-1", "b-1", "b-2")));
+        assertEquals(1.0, meterRegistry.get("vending_machine.kafka.keyed.stalled").counter().count());
+    }
+
+    @Test
+    void testProcessedEventsAreSkipped() {
+        RecordingHandler handler = new RecordingHandler(Set.of("a-1"), null);
+
+        processor.process(records("a:a-1", "a:a-2"), handler);
+
+        assertEquals(List.of("a-2"), handler.saved);
+        assertEquals(1.0, meterRegistry.get("vending_machine.kafka.keyed.duplicates").counter().count());
+    }
+
+    private static List<ConsumerRecord<String, DomainEvent>> records(String... keyedIds) {
+        List<ConsumerRecord<String, DomainEvent>> records = new ArrayList<>();
+        for (int i = 0; i < keyedIds.length; i++) {
+            String[] parts = keyedIds[i].split(":");
+            DomainEvent event = DomainEvent.builder().eventId(parts[1]).eventType("TRANSACTION_PROCESSING")
+                    .aggregateId(parts[0]).build();
+            records.add(new ConsumerRecord<>(UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC, 0, i, parts[0], event));
+        }
+        return records;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Keys were not processed in parallel");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class RecordingHandler implements DomainEventBatchProcessor.Handler<String> {
+
+        private final Set<String> processed;
+        private final String failOn;
+        private final List<String> saved = new CopyOnWriteArrayList<>();
+
+        RecordingHandler(Set<String> processed, String failOn) {
+            this.processed = processed;
+            this.failOn = failOn;
+        }
+
+        @Override
+        public Set<String> findProcessed(Collection<String> eventIds) {
+            return eventIds.stream().filter(processed::contains).collect(Collectors.toSet());
+        }
+
+        @Override
+        public String handle(ConsumerRecord<String, DomainEvent> record) {
+            String eventId = record.value().getEventId();
+            if (eventId.equals(failOn)) {
+                throw new IllegalArgumentException("dispenser jammed");
+            }
+            return eventId;
+        }
+
+        @Override
+        public void saveProcessed(List<String> rows) {
+            saved.addAll(rows);
+        }
+    }
+
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.vendingmachine.common.kafka;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the Bloom filter and LRU front cache of processed-event checks
+ */
+class ProcessedEventDedupCacheTest {
+
+    private static final long BUCKET_MILLIS = 600_000L;
+    private static final String TYPE = "UNIFIED_DISPENSING_EVENT";
+
+    private final Clock clock = Clock.fixed(Instant.ofEpochMilli(1_700_000_000_000L), ZoneOffset.UTC);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ProcessedEventDedupCache cache = new ProcessedEventDedupCache(meterRegistry,
+            "inventory-service", true, 6, BUCKET_MILLIS, 10_000, 0.01, 100, clock);
+
+    @Test
+    void testEveryCheckGoesToDatabaseUntilSeeded() {
+        assertEquals(ProcessedEventDedupCache.Lookup.UNKNOWN, cache.lookup("e-1", TYPE, clock.millis()));
+
+        cache.setSeedSource(since -> List.of());
+
+        assertEquals(ProcessedEventDedupCache.Lookup.NEW, cache.lookup("e-1", TYPE, clock.millis()));
+    }
+
+    @Test
+    void testNewEventsSkipTheDatabase() {
+        cache.setSeedSource(since -> List.of());
+        AtomicInteger queries = new AtomicInteger();
+
+        for (int i = 0; i < 50; i++) {
+            assertFalse(cache.isProcessed("e-" + i, TYPE, clock.millis(), () -> queries.incrementAndGet() > 0));
+        }
+
+        assertEquals(0, queries.get());
+        assertEquals(50.0, savedQueries("bloom_negative"));
+    }
+
+    @Test
+    void testCommittedKeysAreAnsweredFromMemory() {
+        cache.setSeedSource(since -> List.of());
+        cache.markProcessed("e-1", TYPE);
+
+        assertEquals(ProcessedEventDedupCache.Lookup.DUPLICATE, cache.lookup("e-1", TYPE, clock.millis()));
+        assertEquals(ProcessedEventDedupCache.Lookup.NEW, cache.lookup("e-1", "UNIFIED_PAYMENT_EVENT", clock.millis()));
+        assertEquals(1.0, savedQueries("lru_hit"));
+    }
+
+    @Test
+    void testSeededKeysFallThroughToDatabase() {
+        cache.setSeedSource(since -> List.of(key("e-1", TYPE)));
+
+        assertTrue(cache.isProcessed("e-1", TYPE, clock.millis(), () -> true));
+        // Now known as committed: no second query
+        assertTrue(cache.isProcessed("e-1", TYPE, clock.millis(), () -> fail("database queried twice")));
+        assertEquals(1.0, meterRegistry.get("vending_machine.kafka.dedup.database.checks").counter().count());
+    }
+
+    @Test
+    void testFalsePositivesAreCounted() {
+        cache.setSeedSource(since -> List.of(key("e-1", TYPE)));
+
+        // The database says new although the filter matched, as for a Bloom false positive
+        assertFalse(cache.isProcessed("e-1", TYPE, clock.millis(), () -> false));
+
+        assertEquals(1.0, meterRegistry.get("vending_machine.kafka.dedup.false_positives").counter().count());
+        assertEquals(1.0, meterRegistry.get("vending_machine.kafka.dedup.false_positive_rate").gauge().value());
+    }
+
+    @Test
+    void testEventsOlderThanTheWindowGoToDatabase() {
+        cache.setSeedSource(since -> List.of());
+
+        assertEquals(ProcessedEventDedupCache.Lookup.UNKNOWN,
+                cache.lookup("e-1", TYPE, clock.millis() - 7 * BUCKET_MILLIS));
+        assertEquals(ProcessedEventDedupCache.Lookup.UNKNOWN, cache.lookup("e-1", TYPE, null));
+    }
+
+    @Test
+    void testPartitionAssignmentReseeds() {
+        AtomicInteger seeds = new AtomicInteger();
+        cache.setSeedSource(since -> {
+            seeds.incrementAndGet();
+            return List.of();
+        });
+
+        cache.rebalanceListener().onPartitionsAssigned(null, List.of(new TopicPartition("t", 0)));
+
+        assertEquals(2, seeds.get());
+    }
+
+    @Test
+    void testBloomFilterKeysAgeOutAfterWindow() {
+        long now = clock.millis();
+        TimeBucketedBloomFilter filter = new TimeBucketedBloomFilter(3, BUCKET_MILLIS, 1000, 0.01, now);
+        filter.put("a", now);
+
+        assertTrue(filter.mightContain("a", now + 2 * BUCKET_MILLIS));
+        assertFalse(filter.mightContain("a", now + 4 * BUCKET_MILLIS));
+    }
+
+    @Test
+    void testBloomFilterFalsePositiveRateStaysNearTarget() {
+        long now = clock.millis();
+        TimeBucketedBloomFilter filter = new TimeBucketedBloomFilter(1, BUCKET_MILLIS, 10_000, 0.01, now);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("in-" + i, now);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("in-" + i, now));
+            if (filter.mightContain("out-" + i, now)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 200, "false positives: " + falsePositives);
+    }
+
+    private double savedQueries(String reason) {
+        return meterRegistry.get("vending_machine.kafka.dedup.queries.saved")
+                .tag("reason", reason)
+                .counter().count();
+    }
+
+    private static ProcessedEventKey key(String eventId, String eventType) {
+        return new ProcessedEventKey() {
+            @Override
+            public String getEventId() {
+                return eventId;
+            }
+
+            @Override
+            public String getEventType() {
+                return eventType;
+            }
+        };
+    }
+}
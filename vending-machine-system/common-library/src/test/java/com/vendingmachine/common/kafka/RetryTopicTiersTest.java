@@ -0,0 +1,142 @@
+package com.vendingmachine.common.kafka;
+
+import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.resilience.RetryBudgetRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for non-blocking retry tier topics
+ */
+class RetryTopicTiersTest {
+
+    private static final String TOPIC = UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    @SuppressWarnings("unchecked")
+    private final KafkaOperations<String, Object> kafkaOperations = mock(KafkaOperations.class);
+    private final List<ConsumerRecord<?, ?>> deadLettered = new ArrayList<>();
+
+    private RetryTopicTiers tiers(String tiers) {
+        when(kafkaOperations.send(ArgumentMatchers.<ProducerRecord<String, Object>>any()))
+                .thenReturn(CompletableFuture.completedFuture(new SendResult<>(null, null)));
+        return new RetryTopicTiers(kafkaOperations, new RetryBudgetRegistry(meterRegistry, new MockEnvironment()),
+                meterRegistry, "dispensing-service", tiers, Clock.systemUTC());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFailedRecordIsForwardedToFirstTier() {
+        RetryTopicTiers tiers = tiers("5s,1m");
+        ConsumerRecord<String, DomainEvent> record = new ConsumerRecord<>(TOPIC, 2, 42L, "tx-1", event());
+        record.headers().add("X-Correlation-ID", bytes("corr-1"));
+
+        tiers.recoverer((failed, e) -> deadLettered.add(failed), "dispensing-service-kafka")
+                .accept(record, new IllegalStateException("transaction-service unavailable"));
+
+        ArgumentCaptor<ProducerRecord<String, Object>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaOperations).send(sent.capture());
+        assertEquals("vending-machine-domain-events-dispensing-service-retry-5s", sent.getValue().topic());
+        assertEquals("tx-1", sent.getValue().key());
+        Headers headers = sent.getValue().headers();
+        assertEquals("0", header(headers, RetryTopicTiers.TIER_HEADER));
+        assertEquals(TOPIC, header(headers, RetryTopicTiers.ORIGINAL_TOPIC_HEADER));
+        assertEquals("42", header(headers, RetryTopicTiers.ORIGINAL_OFFSET_HEADER));
+        assertEquals("corr-1", header(headers, "X-Correlation-ID"));
+        assertTrue(deadLettered.isEmpty());
+        assertArrayEquals(new String[] {"vending-machine-domain-events-dispensing-service-retry-5s",
+                "vending-machine-domain-events-dispensing-service-retry-1m"}, tiers.topics(TOPIC));
+        assertEquals(1.0, meterRegistry.get("vending_machine.kafka.retry.forwarded").tag("tier", "5s").counter().count());
+    }
+
+    @Test
+    void testLastTierFailureIsDeadLetteredAsOriginalRecord() {
+        RetryTopicTiers tiers = tiers("5s,1m");
+        ConsumerRecord<String, DomainEvent> record = new ConsumerRecord<>(
+                "vending-machine-domain-events-dispensing-service-retry-1m", 0, 7L, "tx-1", event());
+        record.headers().add(RetryTopicTiers.TIER_HEADER, bytes("1"));
+        record.headers().add(RetryTopicTiers.ORIGINAL_TOPIC_HEADER, bytes(TOPIC));
+        record.headers().add(RetryTopicTiers.ORIGINAL_PARTITION_HEADER, bytes("2"));
+        record.headers().add(RetryTopicTiers.ORIGINAL_OFFSET_HEADER, bytes("42"));
+
+        tiers.recoverer((failed, e) -> deadLettered.add(failed), "dispensing-service-kafka")
+                .accept(record, new IllegalStateException("still failing"));
+
+        verify(kafkaOperations, never()).send(ArgumentMatchers.<ProducerRecord<String, Object>>any());
+        assertEquals(1, deadLettered.size());
+        assertEquals(TOPIC, deadLettered.get(0).topic());
+        assertEquals(2, deadLettered.get(0).partition());
+        assertEquals(42L, deadLettered.get(0).offset());
+        assertEquals(1.0, meterRegistry.get("vending_machine.kafka.retry.exhausted").counter().count());
+    }
+
+    @Test
+    void testUndeserializableRecordSkipsTiers() {
+        RetryTopicTiers tiers = tiers("5s,1m");
+        ConsumerRecord<String, DomainEvent> record = new ConsumerRecord<>(TOPIC, 0, 3L, "tx-1", null);
+
+        tiers.recoverer((failed, e) -> deadLettered.add(failed), "dispensing-service-kafka")
+                .accept(record, new DeserializationException("bad payload", new byte[0], false, null));
+
+        verify(kafkaOperations, never()).send(ArgumentMatchers.<ProducerRecord<String, Object>>any());
+        assertSame(record, deadLettered.get(0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testTierRecordWaitsOutItsDelay() {
+        RetryTopicTiers tiers = tiers("200ms,1s");
+        ConsumerRecord<String, DomainEvent> record = new ConsumerRecord<>(
+                "vending-machine-domain-events-dispensing-service-retry-200ms", 0, 0L, "tx-1", event());
+        long failedAt = System.currentTimeMillis();
+        record.headers().add(RetryTopicTiers.TIER_HEADER, bytes("0"));
+        record.headers().add(RetryTopicTiers.FAILED_AT_HEADER, bytes(String.valueOf(failedAt)));
+        record.headers().add(RetryTopicTiers.FIRST_FAILED_AT_HEADER, bytes(String.valueOf(failedAt)));
+        Consumer<String, DomainEvent> consumer = mock(Consumer.class);
+        when(consumer.currentLag(any())).thenReturn(OptionalLong.of(3));
+
+        tiers.awaitDue(List.of(record), consumer);
+
+        assertTrue(System.currentTimeMillis() - failedAt >= 200);
+        assertEquals(3.0, meterRegistry.get("vending_machine.kafka.retry.depth").tag("tier", "200ms").gauge().value());
+        assertTrue(meterRegistry.get("vending_machine.kafka.retry.age").tag("tier", "200ms").timer()
+                .totalTime(TimeUnit.MILLISECONDS) >= 200);
+    }
+
+    private static DomainEvent event() {
+        return DomainEvent.builder().eventId("evt-1").eventType("TRANSACTION_PROCESSING").aggregateId("tx-1").build();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String header(Headers headers, String name) {
+        return new String(headers.lastHeader(name).value(), StandardCharsets.UTF_8);
+    }
+}
@@ -1,10 +1,30 @@
 package com.vendingmachine.common.kafka;
 
 import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.event.PayloadUpcaster;
+import com.vendingmachine.common.event.PayloadUpcasters;
 import com.vendingmachine.common.event.payload.TransactionPayload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * Test suite for unified Kafka topic configuration and event handling
@@ -64,53 +84,43 @@ class UnifiedKafkaConfigTest {
     }
 
     /**
-     * Test consumer implementation for testing event routing
+     * Test handlers for testing event routing
      */
-    static class TestUnifiedEventConsumer extends UnifiedEventConsumer {
-        
+    static class TestEventHandlers {
+
         private DomainEvent lastTransactionEvent;
         private DomainEvent lastPaymentEvent;
-        private boolean unknownEventHandled = false;
 
-        @Override
-        protected void handleTransactionCreated(DomainEvent event) {
+        @DomainEventHandler(type = "TRANSACTION_CREATED")
+        public void handleTransactionCreated(DomainEvent event) {
             this.lastTransactionEvent = event;
         }
 
-        @Override
-        protected void handlePaymentCompleted(DomainEvent event) {
+        @DomainEventHandler(type = "PAYMENT_COMPLETED")
+        public void handlePaymentCompleted(DomainEvent event) {
             this.lastPaymentEvent = event;
         }
 
-        @Override
-        protected void handleUnknownEvent(DomainEvent event) {
-            this.unknownEventHandled = true;
-        }
-
-        @Override
-        protected String getServiceName() {
-            return "test-service";
-        }
-
         // Getters for testing
         public DomainEvent getLastTransactionEvent() { return lastTransactionEvent; }
         public DomainEvent getLastPaymentEvent() { return lastPaymentEvent; }
-        public boolean isUnknownEventHandled() { return unknownEventHandled; }
     }
 
     @Test
     void unifiedConsumerShouldRouteEventsCorrectly() {
-        TestUnifiedEventConsumer consumer = new TestUnifiedEventConsumer();
+        TestEventHandlers handlers = new TestEventHandlers();
+        DomainEventHandlerRegistry registry =
+                new DomainEventHandlerRegistry(List.of(handlers), new SimpleMeterRegistry(), "test-service");
 
         // Test transaction event routing
         TransactionPayload transactionPayload = TransactionPayload.forCreated(1L, 1L, 1L, 2, 
                 new java.math.BigDecimal("5.50"), "CASH");
         DomainEvent transactionEvent = DomainEvent.transactionCreated(1L, transactionPayload);
         
-        // Simulate the event handling that would happen in Kafka listener
+        // Simulate the dispatch that would happen in a service's Kafka listener
         // We can't easily test the @KafkaListener without full integration test
-        consumer.handleTransactionCreated(transactionEvent);
-        assertEquals(transactionEvent, consumer.getLastTransactionEvent());
+        registry.dispatch(transactionEvent);
+        assertEquals(transactionEvent, handlers.getLastTransactionEvent());
 
         // Test payment event routing
         DomainEvent paymentEvent = DomainEvent.builder()
@@ -121,11 +131,11 @@ class UnifiedKafkaConfigTest {
                 .source("payment-service")
                 .correlationId("test-corr")
                 .timestamp(System.currentTimeMillis())
-                .payload("{}")
+                .payload(DomainEvent.toPayload(Map.of()))
                 .build();
         
-        consumer.handlePaymentCompleted(paymentEvent);
-        assertEquals(paymentEvent, consumer.getLastPaymentEvent());
+        registry.dispatch(paymentEvent);
+        assertEquals(paymentEvent, handlers.getLastPaymentEvent());
 
         // Test unknown event
         DomainEvent unknownEvent = DomainEvent.builder()
@@ -136,32 +146,177 @@ class UnifiedKafkaConfigTest {
                 .source("test-service")
                 .correlationId("test-corr")
                 .timestamp(System.currentTimeMillis())
-                .payload("{}")
+                .payload(DomainEvent.toPayload(Map.of()))
                 .build();
         
-        consumer.handleUnknownEvent(unknownEvent);
-        assertTrue(consumer.isUnknownEventHandled());
+        assertFalse(registry.handles(unknownEvent));
+        assertNull(registry.dispatch(unknownEvent));
     }
 
     @Test
     void shouldGenerateCorrectPartitionKeys() {
-        // Test events with correlation ID should use correlation ID as partition key
-        DomainEvent eventWithCorrelation = DomainEvent.builder()
+        UnifiedEventPublisher publisher =
+                new UnifiedEventPublisher(null, new SimpleMeterRegistry(), "transaction-service", 3);
+
+        DomainEvent withAggregate = DomainEvent.builder()
                 .eventId("test-id")
                 .eventType("TRANSACTION_CREATED")
+                .aggregateId("42")
                 .correlationId("corr-123")
                 .build();
-
-        // Test events without correlation ID should use event type as partition key
-        DomainEvent eventWithoutCorrelation = DomainEvent.builder()
+        DomainEvent withCorrelation = DomainEvent.builder()
+                .eventId("test-id")
+                .eventType("TRANSACTION_CREATED")
+                .correlationId("corr-123")
+                .build();
+        DomainEvent withTypeOnly = DomainEvent.builder()
                 .eventId("test-id")
                 .eventType("PAYMENT_COMPLETED")
-                .correlationId(null)
                 .build();
 
-        // These tests would be in the UnifiedEventPublisher if the generatePartitionKey method was public
-        // For now, we just verify the events have the right structure
-        assertNotNull(eventWithCorrelation.getCorrelationId());
-        assertNull(eventWithoutCorrelation.getCorrelationId());
+        // Aggregate ID first, so every event of one transaction lands on one partition
+        assertEquals("42", publisher.generatePartitionKey(withAggregate));
+        assertEquals("corr-123", publisher.generatePartitionKey(withCorrelation));
+        assertEquals("PAYMENT_COMPLETED", publisher.generatePartitionKey(withTypeOnly));
+    }
+
+    @Test
+    void shouldShareListenerConcurrencyOutOverInstances() {
+        assertEquals(3, new UnifiedTopicConfig(3, 1).listenerConcurrency());
+        assertEquals(6, new UnifiedTopicConfig(6, 1).listenerConcurrency());
+        assertEquals(3, new UnifiedTopicConfig(6, 2).listenerConcurrency());
+        assertEquals(2, new UnifiedTopicConfig(3, 2).listenerConcurrency());
+        assertEquals(1, new UnifiedTopicConfig(1, 4).listenerConcurrency());
+        assertEquals(6, new UnifiedTopicConfig(6, 1).unifiedDomainEventsTopic().numPartitions());
+        assertThrows(IllegalArgumentException.class, () -> new UnifiedTopicConfig(0, 1));
+    }
+
+    @Test
+    void shouldRoutePurchaseFlowEventsToTheCriticalTier() {
+        DomainEventTopicRouter router = DomainEventTopicRouter.of(DomainEventTopicRouter.DEFAULT_CRITICAL_TYPES);
+
+        for (String type : new String[] {"TRANSACTION", "TRANSACTION_PROCESSING", "PAYMENT_COMPLETED", "DISPENSING_FAILED", null}) {
+            assertEquals(UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC, router.topicFor(type), String.valueOf(type));
+        }
+        for (String type : new String[] {"TRANSACTION_CREATED", "TRANSACTION_COMPLETED", "INVENTORY_STOCK_UPDATED"}) {
+            assertEquals(UnifiedTopicConfig.UNIFIED_BULK_EVENTS_TOPIC, router.topicFor(type), type);
+        }
+        assertEquals(UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC,
+                DomainEventTopicRouter.SINGLE_TOPIC.topicFor("INVENTORY_STOCK_UPDATED"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldPublishEachEventToItsTierTopic() {
+        KafkaTemplate<String, DomainEvent> template = mock(KafkaTemplate.class);
+        when(template.send(any(ProducerRecord.class))).thenReturn(new CompletableFuture<>());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PayloadUpcasters upcasters = new PayloadUpcasters(
+                List.of(PayloadUpcaster.of("PAYMENT_*", "1.0", "2.0", payload -> payload)), meterRegistry, "payment-service");
+        UnifiedEventPublisher publisher = new UnifiedEventPublisher(template, meterRegistry,
+                DomainEventTopicRouter.of(" PAYMENT_* , DISPENSING_SUCCESS"), upcasters, "payment-service", 3);
+
+        List<DomainEvent> events = List.of(
+                DomainEvent.builder().eventId("e-1").eventType("PAYMENT_COMPLETED").aggregateId("1").build(),
+                DomainEvent.builder().eventId("e-2").eventType("DISPENSING_SUCCESS").aggregateId("1").build(),
+                DomainEvent.builder().eventId("e-3").eventType("DISPENSING_FAILED").aggregateId("1").build());
+        publisher.publishAll(events);
+
+        ArgumentCaptor<ProducerRecord<String, DomainEvent>> records = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(template, times(3)).send(records.capture());
+        assertEquals(List.of(UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC, UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC,
+                        UnifiedTopicConfig.UNIFIED_BULK_EVENTS_TOPIC),
+                records.getAllValues().stream().map(ProducerRecord::topic).toList());
+        // Each event carries the current payload schema version of its type
+        assertEquals(List.of("2.0", "1.0", "1.0"),
+                records.getAllValues().stream().map(record -> record.value().getVersion()).toList());
+        // The caller's events are not stamped
+        assertEquals(DomainEvent.INITIAL_VERSION, events.get(0).getVersion());
+        assertEquals("e-1", records.getAllValues().get(0).value().getEventId());
+    }
+
+    @Test
+    void shouldSizeTheBulkTierOnItsOwnSettings() {
+        UnifiedTopicConfig config = new UnifiedTopicConfig(6, 2, 4, 3_600_000L, 0);
+        assertEquals(3, config.listenerConcurrency());
+        assertEquals(2, config.bulkListenerConcurrency());
+        assertEquals(1, new UnifiedTopicConfig(6, 1, 4, 3_600_000L, 1).bulkListenerConcurrency());
+        assertEquals(4, config.unifiedBulkEventsTopic().numPartitions());
+        assertEquals("3600000", config.unifiedBulkEventsTopic().configs().get("retention.ms"));
+        assertThrows(IllegalArgumentException.class, () -> new UnifiedTopicConfig(6, 1, 0, 3_600_000L, 0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldReportPartitionSkew() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        KafkaTemplate<String, DomainEvent> template = mock(KafkaTemplate.class);
+        UnifiedEventPublisher publisher =
+                new UnifiedEventPublisher(template, meterRegistry, "transaction-service", 3);
+        DomainEvent event = DomainEvent.builder().eventId("e-1").eventType("TRANSACTION_CREATED").aggregateId("1").build();
+
+        // Four records on partition 0, one each on 1 and 2
+        for (int partition : new int[] {0, 0, 0, 0, 1, 2}) {
+            when(template.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(
+                    new SendResult<>(null, new RecordMetadata(
+                            new TopicPartition(UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC, partition), 0, 0, 0, 0, 0))));
+            publisher.publishEvent(event);
+        }
+
+        assertEquals(2.0, meterRegistry.get("vending_machine.kafka.partition.skew").gauge().value());
+        assertEquals(4.0, meterRegistry.get("vending_machine.kafka.partition.records").tag("partition", "0")
+                .counter().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldPipelineAllEventsAndCombineTheirAcknowledgements() throws Exception {
+        KafkaTemplate<String, DomainEvent> template = mock(KafkaTemplate.class);
+        UnifiedEventPublisher publisher =
+                new UnifiedEventPublisher(template, new SimpleMeterRegistry(), "inventory-service", 3);
+        List<CompletableFuture<SendResult<String, DomainEvent>>> sends = List.of(
+                new CompletableFuture<>(), new CompletableFuture<>());
+        when(template.send(any(ProducerRecord.class))).thenReturn(sends.get(0), sends.get(1));
+        List<DomainEvent> events = List.of(
+                DomainEvent.builder().eventId("e-1").eventType("INVENTORY_DECREASE").aggregateId("7").build(),
+                DomainEvent.builder().eventId("e-2").eventType("INVENTORY_LOW_STOCK").aggregateId("7").build());
+
+        CompletableFuture<List<SendResult<String, DomainEvent>>> combined = publisher.publishAll(events);
+
+        // Both records are with the producer before either is acknowledged
+        ArgumentCaptor<ProducerRecord<String, DomainEvent>> records = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(template, times(2)).send(records.capture());
+        assertEquals(List.of("e-1", "e-2"), records.getAllValues().stream().map(r -> r.value().getEventId()).toList());
+        assertFalse(combined.isDone());
+
+        sends.get(1).complete(result(1));
+        assertFalse(combined.isDone());
+        sends.get(0).complete(result(0));
+        assertEquals(List.of(0, 1), combined.get(1, TimeUnit.SECONDS).stream()
+                .map(r -> r.getRecordMetadata().partition()).toList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldFailCombinedFutureWhenOneSendFails() {
+        KafkaTemplate<String, DomainEvent> template = mock(KafkaTemplate.class);
+        UnifiedEventPublisher publisher =
+                new UnifiedEventPublisher(template, new SimpleMeterRegistry(), "dispensing-service", 3);
+        when(template.send(any(ProducerRecord.class))).thenReturn(
+                CompletableFuture.completedFuture(result(0)),
+                CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")));
+        DomainEvent event = DomainEvent.builder().eventId("e-1").eventType("DISPENSING_SUCCESS").aggregateId("1").build();
+
+        CompletableFuture<List<SendResult<String, DomainEvent>>> combined = publisher.publishAll(List.of(event, event));
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> combined.get(1, TimeUnit.SECONDS));
+        assertEquals("broker unavailable", failure.getCause().getMessage());
+        // A transaction needs a transactional producer factory
+        assertTrue(publisher.publishAll(List.of(event), true).isCompletedExceptionally());
+    }
+
+    private static SendResult<String, DomainEvent> result(int partition) {
+        return new SendResult<>(null, new RecordMetadata(
+                new TopicPartition(UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC, partition), 0, 0, 0, 0, 0));
     }
-}
\ No newline at end of file
+}
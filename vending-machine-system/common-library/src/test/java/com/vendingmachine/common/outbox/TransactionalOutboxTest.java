@@ -0,0 +1,188 @@
+package com.vendingmachine.common.outbox;
+
+import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.kafka.UnifiedEventPublisher;
+import com.vendingmachine.common.kafka.UnifiedTopicConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the exactly-once outbox and its transactional relay
+ */
+class TransactionalOutboxTest {
+
+    private static final String TOPIC = UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MockProducer<String, DomainEvent> producer =
+            new MockProducer<>(true, new StringSerializer(), (topic, event) -> new byte[0]);
+    private final UnifiedEventPublisher publisher = mock(UnifiedEventPublisher.class);
+    private final InMemoryStore store = new InMemoryStore();
+    private TransactionalOutbox outbox;
+
+    @AfterEach
+    void tearDown() {
+        if (outbox != null) {
+            outbox.close();
+        }
+    }
+
+    private TransactionalOutbox outbox(boolean enabled, OffsetAndMetadata committedPosition) {
+        when(publisher.generatePartitionKey(any())).thenCallRealMethod();
+        when(publisher.topicFor(any())).thenReturn(TOPIC);
+        when(publisher.withPayloadVersion(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        outbox = new TransactionalOutbox(publisher,
+                new StaticListableBeanFactory(Map.of("outboxStore", store)).getBeanProvider(OutboxStore.class),
+                () -> producer, () -> committedPosition, new NoOpTransactionManager(), meterRegistry,
+                "transaction-service", enabled, 500, 10);
+        return outbox;
+    }
+
+    @Test
+    void testEventsAreRelayedInOneTransactionWithTheRelayPosition() throws Exception {
+        TransactionalOutbox outbox = outbox(true, null);
+        outbox.publish(event("txn-1", "41"));
+        outbox.publish(event("txn-2", "42"));
+
+        verify(publisher, never()).publishEvent(any());
+        assertEquals(2, store.rows.size());
+
+        outbox.start();
+        awaitEmpty();
+
+        assertTrue(producer.transactionCommitted());
+        List<ProducerRecord<String, DomainEvent>> sent = producer.history();
+        assertEquals(2, sent.size());
+        assertEquals(TOPIC, sent.get(0).topic());
+        assertEquals("41", sent.get(0).key());
+        assertEquals("txn-1", sent.get(0).value().getEventId());
+        assertEquals("TRANSACTION_PROCESSING", new String(
+                sent.get(0).headers().lastHeader(UnifiedTopicConfig.EVENT_TYPE_HEADER).value(), StandardCharsets.UTF_8));
+
+        Map<TopicPartition, OffsetAndMetadata> position = producer.consumerGroupOffsetsHistory().get(0)
+                .get("transaction-service" + TransactionalOutbox.RELAY_SUFFIX);
+        OffsetAndMetadata committed = position.get(new TopicPartition("transaction-service-outbox-position", 0));
+        assertEquals(2, committed.offset());
+        assertEquals("1-2", committed.metadata());
+        assertEquals(2.0, meterRegistry.get("vending_machine.outbox.relayed").counter().count());
+    }
+
+    @Test
+    void testRowsOfTheLastCommittedPageAreNotSentAgain() throws Exception {
+        // Crash after the Kafka commit of rows 1-2, before their delete
+        TransactionalOutbox outbox = outbox(true, new OffsetAndMetadata(2, "1-2"));
+        outbox.publish(event("txn-1", "41"));
+        outbox.publish(event("txn-2", "42"));
+        outbox.publish(event("txn-3", "43"));
+
+        outbox.start();
+        awaitEmpty();
+
+        assertEquals(1, producer.history().size());
+        assertEquals("txn-3", producer.history().get(0).value().getEventId());
+    }
+
+    @Test
+    void testDisabledModePublishesDirectly() {
+        TransactionalOutbox outbox = outbox(false, null);
+        DomainEvent event = event("txn-1", "41");
+
+        outbox.publish(event);
+
+        verify(publisher).publishEvent(event);
+        assertTrue(store.rows.isEmpty());
+    }
+
+    @Test
+    void testIdsAreEncodedAsRanges() {
+        List<Long> ids = List.of(10L, 11L, 12L, 14L, 20L, 21L);
+
+        assertEquals("10-12,14,20-21", TransactionalOutbox.encodeIds(ids));
+        assertEquals(ids, TransactionalOutbox.decodeIds("10-12,14,20-21"));
+    }
+
+    private void awaitEmpty() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!store.rows.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(store.rows.isEmpty(), "Outbox was not drained");
+    }
+
+    private static DomainEvent event(String eventId, String aggregateId) {
+        return DomainEvent.builder().eventId(eventId).eventType("TRANSACTION_PROCESSING")
+                .source("transaction-service").aggregateId(aggregateId).build();
+    }
+
+    private static class InMemoryStore implements OutboxStore {
+
+        private final ConcurrentSkipListMap<Long, OutboxRecord> rows = new ConcurrentSkipListMap<>();
+        private final AtomicLong ids = new AtomicLong();
+
+        @Override
+        public void append(String topic, String eventKey, String eventData) {
+            long id = ids.incrementAndGet();
+            rows.put(id, new OutboxRecord(id, topic, eventKey, eventData));
+        }
+
+        @Override
+        public List<OutboxRecord> findPage(int limit) {
+            List<OutboxRecord> all = new ArrayList<>(rows.values());
+            return all.subList(0, Math.min(limit, all.size()));
+        }
+
+        @Override
+        public int delete(Collection<Long> ids) {
+            int deleted = 0;
+            for (Long id : ids) {
+                deleted += rows.remove(id) != null ? 1 : 0;
+            }
+            return deleted;
+        }
+    }
+
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
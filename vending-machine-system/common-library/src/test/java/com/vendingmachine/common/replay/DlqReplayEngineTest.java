@@ -0,0 +1,220 @@
+package com.vendingmachine.common.replay;
+
+import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.kafka.UnifiedTopicConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the DLQ replay engine
+ */
+class DlqReplayEngineTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    @SuppressWarnings("unchecked")
+    private final KafkaOperations<String, byte[]> kafkaOperations = mock(KafkaOperations.class);
+    private final List<ProducerRecord<String, byte[]>> sent = new CopyOnWriteArrayList<>();
+    private final InMemoryStore store = new InMemoryStore();
+    private DlqReplayEngine engine;
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) {
+            engine.shutdown();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private DlqReplayEngine engine(long failingId) {
+        when(kafkaOperations.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            ProducerRecord<String, byte[]> record = invocation.getArgument(0);
+            sent.add(record);
+            return new String(record.value(), StandardCharsets.UTF_8).contains("\"eventId\":\"evt-" + failingId + "\"")
+                    ? CompletableFuture.failedFuture(new IllegalStateException("broker unavailable"))
+                    : CompletableFuture.completedFuture(mock(SendResult.class));
+        });
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of("failedEventStore", store));
+        engine = new DlqReplayEngine(beanFactory.getBeanProvider(FailedEventStore.class), kafkaOperations,
+                new NoOpTransactionManager(), meterRegistry, "dispensing-service", 500, 1_000_000);
+        return engine;
+    }
+
+    @Test
+    void testReplaysAllPagesAndMarksThemInBulk() {
+        store.add(1200);
+        DlqReplayEngine engine = engine(700);
+
+        DlqReplayProgress progress = awaitFinished(engine.start(
+                new DlqReplayFilter(null, null, null, null, null, null), "admin"));
+
+        assertEquals(DlqReplayProgress.Status.COMPLETED, progress.status());
+        assertEquals(1200, progress.scanned());
+        assertEquals(1199, progress.replayed());
+        assertEquals(1, progress.failed());
+        // One bulk update per page, without the failed send
+        assertEquals(List.of(500, 499, 200), store.markedPageSizes);
+        assertFalse(store.marked.contains(700L));
+        assertEquals(1199.0, meterRegistry.get("vending_machine.dlq.replayed").counter().count());
+
+        ProducerRecord<String, byte[]> first = sent.get(0);
+        assertEquals(UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC, first.topic());
+        assertEquals("tx-1", first.key());
+        assertEquals("TRANSACTION_PROCESSING", new String(
+                first.headers().lastHeader(UnifiedTopicConfig.EVENT_TYPE_HEADER).value(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testMaxRecordsStopsTheJob() {
+        store.add(1200);
+        DlqReplayEngine engine = engine(-1);
+
+        DlqReplayProgress progress = awaitFinished(engine.start(
+                new DlqReplayFilter(null, null, null, null, null, 600), "admin"));
+
+        assertEquals(600, progress.replayed());
+        assertEquals(List.of(500, 100), store.markedPageSizes);
+    }
+
+    @Test
+    void testOnlyOneJobRunsAtATime() {
+        store.add(1);
+        store.blockPages = true;
+        DlqReplayEngine engine = engine(-1);
+        DlqReplayProgress running = engine.start(new DlqReplayFilter(null, null, null, null, null, null), "admin");
+
+        assertThrows(IllegalStateException.class,
+                () -> engine.start(new DlqReplayFilter(null, null, null, null, null, null), "admin"));
+
+        engine.cancel(running.jobId());
+        store.blockPages = false;
+        assertEquals(DlqReplayProgress.Status.CANCELLED, awaitFinished(running).status());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSharedStoreFiltersOnTheEventTypeColumn() {
+        FailedEventReplayRepository repository = mock(FailedEventReplayRepository.class);
+        FailedEventRow row = mock(FailedEventRow.class);
+        when(row.getId()).thenReturn(7L);
+        when(row.getOriginalTopic()).thenReturn(UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC);
+        when(row.getEventData()).thenReturn("{}");
+        when(repository.findReplayPage(anyLong(), any(), any(), eq("PAYMENT_FAILED"), any(), any(), any(Pageable.class)))
+                .thenAnswer(invocation -> List.of(row));
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of("repository", repository));
+        FailedEventStore shared = new DlqReplayConfig().failedEventStore(
+                beanFactory.getBeanProvider(FailedEventReplayRepository.class));
+
+        List<FailedEventStore.FailedEventRecord> page = shared.findPage(
+                new DlqReplayFilter(null, "PAYMENT_FAILED", null, null, null, null), 0, 50);
+
+        assertEquals(List.of(new FailedEventStore.FailedEventRecord(7, UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC, "{}")), page);
+        verify(repository).findReplayPage(eq(0L), isNull(), isNull(), eq("PAYMENT_FAILED"), isNull(), isNull(),
+                eq(PageRequest.of(0, 50)));
+        assertNull(new DlqReplayConfig().failedEventStore(new StaticListableBeanFactory()
+                .getBeanProvider(FailedEventReplayRepository.class)));
+    }
+
+    @Test
+    void testEventTypeOfPrefersTheRoutingHeader() {
+        ConsumerRecord<String, Object> withHeader = new ConsumerRecord<>("topic", 0, 0, "key", "{}");
+        withHeader.headers().add(UnifiedTopicConfig.EVENT_TYPE_HEADER, "STOCK_UPDATED".getBytes(StandardCharsets.UTF_8));
+        ConsumerRecord<String, Object> withEvent = new ConsumerRecord<>("topic", 0, 1, "key",
+                DomainEvent.builder().eventType("PAYMENT_COMPLETED").build());
+
+        assertEquals("STOCK_UPDATED", FailedEventStore.eventTypeOf(withHeader));
+        assertEquals("PAYMENT_COMPLETED", FailedEventStore.eventTypeOf(withEvent));
+        assertNull(FailedEventStore.eventTypeOf(new ConsumerRecord<>("topic", 0, 2, "key", "{}")));
+    }
+
+    private DlqReplayProgress awaitFinished(DlqReplayProgress started) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            DlqReplayProgress progress = engine.progress(started.jobId()).orElseThrow();
+            if (progress.status() != DlqReplayProgress.Status.RUNNING) {
+                return progress;
+            }
+            Thread.onSpinWait();
+        }
+        throw new AssertionError("Replay job did not finish");
+    }
+
+    private static class InMemoryStore implements FailedEventStore {
+
+        private final List<FailedEventRecord> rows = new ArrayList<>();
+        private final List<Long> marked = new CopyOnWriteArrayList<>();
+        private final List<Integer> markedPageSizes = new CopyOnWriteArrayList<>();
+        private volatile boolean blockPages;
+
+        void add(int count) {
+            for (long id = 1; id <= count; id++) {
+                rows.add(new FailedEventRecord(id, UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC,
+                        "{\"eventId\":\"evt-" + id + "\",\"eventType\":\"TRANSACTION_PROCESSING\","
+                                + "\"source\":\"transaction-service\",\"aggregateId\":\"tx-" + id + "\"}"));
+            }
+        }
+
+        @Override
+        public List<FailedEventRecord> findPage(DlqReplayFilter filter, long afterId, int limit) {
+            while (blockPages) {
+                Thread.onSpinWait();
+            }
+            return rows.stream().filter(row -> row.id() > afterId && !marked.contains(row.id()))
+                    .limit(limit).toList();
+        }
+
+        @Override
+        public int markReplayed(List<Long> ids, LocalDateTime replayedAt, String replayedBy) {
+            marked.addAll(ids);
+            markedPageSizes.add(ids.size());
+            return ids.size();
+        }
+    }
+
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
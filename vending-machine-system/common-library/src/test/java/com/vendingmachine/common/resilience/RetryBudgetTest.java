@@ -0,0 +1,161 @@
+package com.vendingmachine.common.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.util.backoff.BackOffExecution;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for token-bucket retry budgets
+ */
+class RetryBudgetTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RetryBudgetRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("retry.budget.ratio", "0.1")
+                .withProperty("retry.budget.min-retries-per-second", "0")
+                .withProperty("retry.budget.max-tokens", "5")
+                .withProperty("retry.budget.destinations.payment-service.ratio", "0.5");
+        registry = new RetryBudgetRegistry(meterRegistry, environment);
+    }
+
+    @Test
+    void testBudgetStartsFullAndExhausts() {
+        RetryBudget budget = registry.get("inventory-service");
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(budget.tryAcquireRetry());
+        }
+        assertFalse(budget.tryAcquireRetry());
+        assertEquals(1.0, meterRegistry.get("vending_machine.retry_budget.exhausted")
+                .tag("destination", "inventory-service").counter().count());
+        assertEquals(5.0, meterRegistry.get("vending_machine.retry_budget.retries")
+                .tag("destination", "inventory-service").counter().count());
+    }
+
+    @Test
+    void testRetriesCappedAtRatioOfTraffic() {
+        RetryBudget budget = registry.get("inventory-service");
+        drain(budget);
+
+        // 100 first attempts earn 10 retries at ratio 0.1 (capped at 5 tokens)
+        for (int i = 0; i < 100; i++) {
+            budget.recordRequest();
+        }
+        assertEquals(5.0, budget.availableTokens(), 0.001);
+
+        drain(budget);
+        for (int i = 0; i < 30; i++) {
+            budget.recordRequest();
+        }
+        assertTrue(budget.tryAcquireRetry());
+        assertTrue(budget.tryAcquireRetry());
+        assertTrue(budget.tryAcquireRetry());
+        assertFalse(budget.tryAcquireRetry());
+    }
+
+    @Test
+    void testRetryAttemptsDoNotEarnBudget() {
+        RetryBudget budget = registry.get("inventory-service");
+        drain(budget);
+        for (int i = 0; i < 10; i++) {
+            budget.recordRequest();
+        }
+
+        assertTrue(budget.tryAcquireRetry());
+        budget.recordRequest(); // the retried attempt itself
+
+        assertEquals(0.0, budget.availableTokens(), 0.001);
+    }
+
+    @Test
+    void testPerDestinationOverride() {
+        RetryBudget budget = registry.get("payment-service");
+        drain(budget);
+        budget.recordRequest();
+        budget.recordRequest();
+
+        assertTrue(budget.tryAcquireRetry());
+    }
+
+    @Test
+    void testHasBudgetAndRecordRetry() {
+        RetryBudget budget = registry.get("dispensing-service");
+        drain(budget);
+
+        assertFalse(budget.hasBudget());
+        for (int i = 0; i < 10; i++) {
+            budget.recordRequest();
+        }
+        assertTrue(budget.hasBudget());
+        budget.recordRetry();
+        assertFalse(budget.hasBudget());
+    }
+
+    @Test
+    void testBackOffStopsWhenBudgetExhausted() {
+        drain(registry.get("kafka-test"));
+        BackOffExecution execution = registry.backOff("kafka-test", new FixedBackOff(1000L, 3)).start();
+
+        assertEquals(BackOffExecution.STOP, execution.nextBackOff());
+    }
+
+    @Test
+    void testBackOffDelegatesWhileBudgetAvailable() {
+        BackOffExecution execution = registry.backOff("kafka-test", new FixedBackOff(1000L, 2)).start();
+
+        assertEquals(1000L, execution.nextBackOff());
+        assertEquals(1000L, execution.nextBackOff());
+        assertEquals(BackOffExecution.STOP, execution.nextBackOff());
+        assertEquals(3.0, registry.get("kafka-test").availableTokens(), 0.001);
+    }
+
+    @Test
+    void testConcurrentRetriesNeverOverspend() throws Exception {
+        RetryBudget budget = registry.get("inventory-service");
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger granted = new AtomicInteger();
+
+        for (int i = 0; i < 1000; i++) {
+            executor.submit(() -> {
+                start.await();
+                if (budget.tryAcquireRetry()) {
+                    granted.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(5, granted.get());
+    }
+
+    private static void drain(RetryBudget budget) {
+        int acquired = 0;
+        while (budget.tryAcquireRetry()) {
+            acquired++;
+        }
+        // Settle the retried attempts so they do not linger as pending
+        for (int i = 0; i < acquired; i++) {
+            budget.recordRequest();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.vendingmachine.common.retention;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the rolling purge of event bookkeeping tables
+ */
+class EventTableRetentionJobTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountingTransactionManager transactionManager = new CountingTransactionManager();
+    private final StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+
+    @Test
+    void testDeletesExpiredRowsInChunks() {
+        LocalDateTime now = LocalDateTime.now();
+        FakeTable table = new FakeTable(now.minusDays(10), 25, now.minusDays(1), 5);
+        EventTableRetentionJob job = job(10, 200);
+
+        long deleted = job.purge(table.target(Duration.ofDays(7)), now.minusDays(7));
+
+        assertEquals(25, deleted);
+        assertEquals(5, table.rows.size());
+        // 10 + 10 + 5: the short chunk ends the run, each chunk in its own transaction
+        assertEquals(3, transactionManager.commits);
+        assertEquals(25.0, meterRegistry.get("vending_machine.events.purged").tag("table", "processed_events")
+                .counter().count());
+        assertEquals(5.0, meterRegistry.get("vending_machine.events.table.rows").tag("table", "processed_events")
+                .gauge().value());
+    }
+
+    @Test
+    void testStopsAfterMaxBatches() {
+        LocalDateTime now = LocalDateTime.now();
+        FakeTable table = new FakeTable(now.minusDays(10), 50, now, 0);
+        EventTableRetentionJob job = job(10, 2);
+
+        assertEquals(20, job.purge(table.target(Duration.ofDays(7)), now.minusDays(7)));
+        assertEquals(30, table.rows.size());
+    }
+
+    @Test
+    void testScheduledRunPurgesEveryDeclaredTable() {
+        LocalDateTime now = LocalDateTime.now();
+        FakeTable processed = new FakeTable(now.minusDays(8), 3, now, 2);
+        FakeTable failed = new FakeTable(now.minusDays(8), 4, now, 1);
+        beanFactory.addBean("processedEventsRetention", processed.target(Duration.ofDays(7)));
+        beanFactory.addBean("failedEventsRetention",
+                RetentionTarget.failedEvents(Duration.ofDays(7), failed::deleteBefore, () -> failed.rows.size()));
+
+        job(100, 10).purgeExpiredRows();
+
+        assertEquals(2, processed.rows.size());
+        assertEquals(1, failed.rows.size());
+    }
+
+    @Test
+    void testSharedConfigOnlyDeclaresTheTablesOfTheService() {
+        LocalDateTime now = LocalDateTime.now();
+        FakeTable processed = new FakeTable(now.minusDays(8), 3, now, 2);
+        ProcessedEventRetentionRepository repository = new ProcessedEventRetentionRepository() {
+            @Override
+            public int deleteProcessedBefore(LocalDateTime cutoff, int limit) {
+                return processed.deleteBefore(cutoff, limit);
+            }
+
+            @Override
+            public long count() {
+                return processed.rows.size();
+            }
+        };
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.registerBean(ProcessedEventRetentionRepository.class, () -> repository);
+            context.register(EventRetentionConfig.class);
+            context.refresh();
+
+            List<RetentionTarget> targets = context.getBeanProvider(RetentionTarget.class).orderedStream().toList();
+            assertEquals(List.of("processed_events"), targets.stream().map(RetentionTarget::table).toList());
+            new EventTableRetentionJob(context.getBeanProvider(RetentionTarget.class), transactionManager,
+                    meterRegistry, "transaction-service", 100, 10).purgeExpiredRows();
+        }
+
+        assertEquals(2, processed.rows.size());
+    }
+
+    @Test
+    void testProcessedEventsAreKeptForTheTopicRetention() {
+        RetentionTarget target = RetentionTarget.processedEvents(Duration.ofDays(1), (cutoff, limit) -> 0, () -> 0);
+
+        assertEquals(Duration.ofDays(7), target.retention());
+    }
+
+    private EventTableRetentionJob job(int batchSize, int maxBatches) {
+        return new EventTableRetentionJob(beanFactory.getBeanProvider(RetentionTarget.class), transactionManager,
+                meterRegistry, "inventory-service", batchSize, maxBatches);
+    }
+
+    private static class FakeTable {
+
+        private final List<LocalDateTime> rows = new ArrayList<>();
+
+        FakeTable(LocalDateTime oldAt, int oldRows, LocalDateTime recentAt, int recentRows) {
+            for (int i = 0; i < oldRows; i++) {
+                rows.add(oldAt);
+            }
+            for (int i = 0; i < recentRows; i++) {
+                rows.add(recentAt);
+            }
+        }
+
+        int deleteBefore(LocalDateTime cutoff, int limit) {
+            int deleted = 0;
+            for (int i = rows.size() - 1; i >= 0 && deleted < limit; i--) {
+                if (rows.get(i).isBefore(cutoff)) {
+                    rows.remove(i);
+                    deleted++;
+                }
+            }
+            return deleted;
+        }
+
+        RetentionTarget target(Duration retention) {
+            return RetentionTarget.processedEvents(retention, this::deleteBefore, () -> rows.size());
+        }
+    }
+
+    private static class CountingTransactionManager extends AbstractPlatformTransactionManager {
+
+        private int commits;
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            commits++;
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.vendingmachine.common.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for request deadline propagation helpers
+ */
+class RequestDeadlineUtilTest {
+
+    @AfterEach
+    void tearDown() {
+        RequestDeadlineUtil.clearDeadline();
+    }
+
+    @Test
+    void testNoDeadlineNeverExpires() {
+        assertNull(RequestDeadlineUtil.getDeadline());
+        assertFalse(RequestDeadlineUtil.isExpired());
+        assertEquals(Long.MAX_VALUE, RequestDeadlineUtil.remainingMillis());
+        assertDoesNotThrow(() -> RequestDeadlineUtil.checkDeadline("test"));
+    }
+
+    @Test
+    void testFutureDeadline() {
+        long deadline = System.currentTimeMillis() + 60_000;
+        RequestDeadlineUtil.setDeadline(Long.toString(deadline));
+
+        assertEquals(deadline, RequestDeadlineUtil.getDeadline());
+        assertFalse(RequestDeadlineUtil.isExpired());
+        assertTrue(RequestDeadlineUtil.remainingMillis() > 0);
+        assertDoesNotThrow(() -> RequestDeadlineUtil.checkDeadline("test"));
+    }
+
+    @Test
+    void testPassedDeadlineFailsFast() {
+        RequestDeadlineUtil.setDeadline(System.currentTimeMillis() - 500);
+
+        assertTrue(RequestDeadlineUtil.isExpired());
+        DeadlineExceededException exception = assertThrows(DeadlineExceededException.class,
+                () -> RequestDeadlineUtil.checkDeadline("payment processing"));
+        assertTrue(exception.getExceededByMillis() >= 500);
+        assertTrue(exception.getMessage().contains("payment processing"));
+    }
+
+    @Test
+    void testMalformedHeaderClearsDeadline() {
+        RequestDeadlineUtil.setDeadline(System.currentTimeMillis() - 500);
+        RequestDeadlineUtil.setDeadline("not-a-number");
+
+        assertNull(RequestDeadlineUtil.getDeadline());
+        assertFalse(RequestDeadlineUtil.isExpired());
+    }
+
+    @Test
+    void testParseKafkaHeaderBytes() {
+        byte[] header = "1700000000000".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(1_700_000_000_000L, RequestDeadlineUtil.parseDeadline(header));
+        assertEquals(42L, RequestDeadlineUtil.parseDeadline(42));
+        assertNull(RequestDeadlineUtil.parseDeadline(null));
+        assertNull(RequestDeadlineUtil.parseDeadline(" "));
+    }
+}
@@ -0,0 +1,88 @@
+package com.vendingmachine.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the time-ordered id generator
+ */
+class TimeOrderedIdsTest {
+
+    @Test
+    void testIdsAreVersion7WithTheCurrentTime() {
+        long before = System.currentTimeMillis();
+        UUID id = TimeOrderedIds.next();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        long millis = TimeOrderedIds.timestampMillis(id);
+        assertTrue(millis >= before && millis <= after);
+        assertThrows(IllegalArgumentException.class, () -> TimeOrderedIds.timestampMillis(UUID.randomUUID()));
+    }
+
+    @Test
+    void testIdsOfOneThreadIncreaseAndSortAsStrings() {
+        UUID previous = TimeOrderedIds.next();
+        for (int i = 0; i < 100_000; i++) {
+            UUID next = TimeOrderedIds.next();
+            assertTrue(next.compareTo(previous) > 0);
+            assertTrue(next.toString().compareTo(previous.toString()) > 0);
+            previous = next;
+        }
+    }
+
+    @Test
+    void testFullSequenceAndClockStepBackBorrowTheNextMillisecond() {
+        TimeOrderedIds.Sequence sequence = new TimeOrderedIds.Sequence();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            ids.add(sequence.next(1_000L));
+        }
+        ids.add(sequence.next(999L));
+
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i).compareTo(ids.get(i - 1)) > 0);
+        }
+        assertEquals(1_000L, TimeOrderedIds.timestampMillis(ids.get(0)));
+        assertEquals(1_001L, TimeOrderedIds.timestampMillis(ids.get(ids.size() - 1)));
+    }
+
+    @Test
+    void testIdsAreUniqueAcrossThreads() throws Exception {
+        int threads = 8;
+        int perThread = 50_000;
+        Set<UUID> all = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    Set<UUID> local = new HashSet<>();
+                    for (int i = 0; i < perThread; i++) {
+                        local.add(TimeOrderedIds.next());
+                    }
+                    all.addAll(local);
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(threads * perThread, all.size());
+    }
+}
@@ -8,7 +8,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -23,7 +22,7 @@ public class DispensingController {
     @ExecutionTime(operation = "GET_ALL_DISPENSING_TRANSACTIONS", warningThreshold = 1500)
     public ResponseEntity<List<DispensingOperation>> getAllDispensingTransactions() {
         try {
-            CorrelationIdUtil.setCorrelationId(UUID.randomUUID().toString());
+            CorrelationIdUtil.setCorrelationId(CorrelationIdUtil.generateCorrelationId());
             
             List<DispensingOperation> transactions = dispensingService.getAllDispensingTransactions();
             return ResponseEntity.ok(transactions);
@@ -37,7 +36,7 @@ public class DispensingController {
     @ExecutionTime(operation = "GET_DISPENSING_BY_TRANSACTION", warningThreshold = 1000)
     public ResponseEntity<List<DispensingOperation>> getDispensingTransactionsByTransactionId(@PathVariable Long transactionId) {
         try {
-            CorrelationIdUtil.setCorrelationId(UUID.randomUUID().toString());
+            CorrelationIdUtil.setCorrelationId(CorrelationIdUtil.generateCorrelationId());
             
             List<DispensingOperation> transactions = dispensingService.getDispensingTransactionsByTransactionId(transactionId);
             return ResponseEntity.ok(transactions);
@@ -51,7 +50,7 @@ public class DispensingController {
     @ExecutionTime(operation = "GET_HARDWARE_STATUS", warningThreshold = 800)
     public ResponseEntity<List<HardwareStatus>> getHardwareStatus() {
         try {
-            CorrelationIdUtil.setCorrelationId(UUID.randomUUID().toString());
+            CorrelationIdUtil.setCorrelationId(CorrelationIdUtil.generateCorrelationId());
             
             List<HardwareStatus> statuses = hardwareStatusService.getAllHardwareStatus();
             return ResponseEntity.ok(statuses);
@@ -65,7 +64,7 @@ public class DispensingController {
     @ExecutionTime(operation = "MARK_COMPONENT_OPERATIONAL", warningThreshold = 500, detailed = true)
     public ResponseEntity<Void> markComponentOperational(@PathVariable String componentName) {
         try {
-            CorrelationIdUtil.setCorrelationId(UUID.randomUUID().toString());
+            CorrelationIdUtil.setCorrelationId(CorrelationIdUtil.generateCorrelationId());
             
             hardwareStatusService.markComponentOperational(componentName);
             return ResponseEntity.ok().build();
@@ -79,7 +78,7 @@ public class DispensingController {
     @ExecutionTime(operation = "CHECK_HARDWARE_OPERATIONAL", warningThreshold = 500)
     public ResponseEntity<Boolean> isHardwareOperational() {
         try {
-            CorrelationIdUtil.setCorrelationId(UUID.randomUUID().toString());
+            CorrelationIdUtil.setCorrelationId(CorrelationIdUtil.generateCorrelationId());
             
             boolean operational = hardwareStatusService.isHardwareOperational();
             return ResponseEntity.ok(operational);
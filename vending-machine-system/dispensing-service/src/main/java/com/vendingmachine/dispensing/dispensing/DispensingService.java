@@ -12,6 +12,7 @@ import static com.vendingmachine.dispensing.dispensing.SimulationConfig.Simulati
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
@@ -52,6 +53,7 @@ public class DispensingService {
             throw HardwareException.hardwareNotOperational();
         }
 
+        List<DispensingOperation> dispensings = new ArrayList<>(items.size());
         for (DispensingItem item : items) {
             DispensingOperation dispensing = new DispensingOperation();
             dispensing.setTransactionId(transactionId);
@@ -84,11 +86,12 @@ public class DispensingService {
             }
 
             dispensingRepository.save(dispensing);
-
-            // Publish dispensing event
-            publishDispensingEvent(dispensing);
+            dispensings.add(dispensing);
         }
 
+        // Publish the dispensing events of all items as one batch
+        publishDispensingEvents(dispensings);
+
         log.info("Completed dispensing operations for transaction {}", transactionId);
     }
 
@@ -133,11 +136,12 @@ public class DispensingService {
 
     @Auditable(operation = "PUBLISH_DISPENSING_EVENT", entityType = "DispensingEvent", logParameters = true)
     @ExecutionTime(operation = "PUBLISH_DISPENSING_EVENT", warningThreshold = 1000)
-    private void publishDispensingEvent(DispensingOperation dispensing) {
+    private void publishDispensingEvents(List<DispensingOperation> dispensings) {
         // Use enhanced service with complete payload data for unified topic
-        dispensingKafkaEventService.publishDispensingEventWithCompleteData(dispensing, dispensing.getStatus());
-        log.info("Published dispensing event with complete data: transaction {}, status {}, product {}",
-                dispensing.getTransactionId(), dispensing.getStatus(), dispensing.getProductId());
+        dispensingKafkaEventService.publishDispensingEventsWithCompleteData(dispensings);
+        dispensings.forEach(dispensing -> log.info(
+                "Published dispensing event with complete data: transaction {}, status {}, product {}",
+                dispensing.getTransactionId(), dispensing.getStatus(), dispensing.getProductId()));
     }
 
     @Bulkhead(name = "database-operations", fallbackMethod = "getAllDispensingTransactionsFallback", type = Bulkhead.Type.SEMAPHORE)
@@ -163,6 +167,7 @@ public class DispensingService {
         log.warn("Dispensing service hardware operations at capacity - rejecting transaction {}", transactionId);
 
         // Create failed dispensing operations for all items
+        List<DispensingOperation> failedDispensings = new ArrayList<>(items.size());
         for (DispensingItem item : items) {
             DispensingOperation failedDispensing = new DispensingOperation();
             failedDispensing.setTransactionId(transactionId);
@@ -172,8 +177,9 @@ public class DispensingService {
             failedDispensing.setErrorMessage("Dispensing service at capacity - hardware operations bulkhead full");
 
             dispensingRepository.save(failedDispensing);
-            publishDispensingEvent(failedDispensing);
+            failedDispensings.add(failedDispensing);
         }
+        publishDispensingEvents(failedDispensings);
     }
 
     /**
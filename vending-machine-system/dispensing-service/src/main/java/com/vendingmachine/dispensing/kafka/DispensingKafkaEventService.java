@@ -6,11 +6,16 @@ import com.vendingmachine.common.kafka.UnifiedEventPublisher;
 import com.vendingmachine.common.aop.annotation.Auditable;
 import com.vendingmachine.common.aop.annotation.ExecutionTime;
 import com.vendingmachine.common.util.CorrelationIdUtil;
+import com.vendingmachine.common.util.TimeOrderedIds;
 import com.vendingmachine.dispensing.dispensing.DispensingOperation;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -19,70 +24,63 @@ public class DispensingKafkaEventService {
     private final UnifiedEventPublisher unifiedEventPublisher;
 
     /**
-     * Publishes dispensing events with complete data to unified domain events topic
+     * Publishes the dispensing events of one transaction's items as one pipelined batch, each with
+     * the item's own status
      */
     @Auditable(operation = "PUBLISH_DISPENSING_EVENT", entityType = "DispensingEvent", logParameters = true)
-    @ExecutionTime(operation = "Publish Dispensing Event", warningThreshold = 1000, detailed = true)
-    public void publishDispensingEventWithCompleteData(DispensingOperation dispensing, String eventStatus) {
+    @ExecutionTime(operation = "Publish Dispensing Events", warningThreshold = 1000, detailed = true)
+    public void publishDispensingEventsWithCompleteData(List<DispensingOperation> dispensings) {
         try {
-            log.debug("Creating dispensing event payload for dispensing ID: {}, transaction ID: {}, product ID: {}, status: {}", 
-                     dispensing.getId(), dispensing.getTransactionId(), dispensing.getProductId(), eventStatus);
-            
-            // Create complete payload with dispensing data
-            DispensingPayload payload = DispensingPayload.builder()
-                .dispensingId(dispensing.getId())
-                .transactionId(dispensing.getTransactionId()) // ⚠️ CRITICAL FIX: Add missing transactionId
-                .productId(dispensing.getProductId())
-                .requestedQuantity(dispensing.getQuantity())
-                .dispensedQuantity(eventStatus.equals("SUCCESS") ? dispensing.getQuantity() : 0)
-                .status(eventStatus)
-                .failureReason(eventStatus.equals("FAILED") ? dispensing.getErrorMessage() : null)
-                .timestamp(System.currentTimeMillis())
-                .build();
-
-            log.debug("Created dispensing payload: {}", payload);
-
-            // Create unified domain event
-            DomainEvent domainEvent = DomainEvent.builder()
-                .eventId("disp-" + eventStatus.toLowerCase() + "-" + dispensing.getId() + "-" + System.currentTimeMillis())
-                .eventType("DISPENSING_" + eventStatus)
-                .aggregateId(dispensing.getId().toString())
-                .aggregateType("DISPENSING")
-                .source("dispensing-service")
-                .correlationId(CorrelationIdUtil.getCorrelationId())
-                .timestamp(System.currentTimeMillis())
-                .payload(serializePayload(payload))
-                .version("1.0")
-                .build();
-
-            log.debug("Created domain event: eventId={}, eventType={}, payload length={}", 
-                     domainEvent.getEventId(), domainEvent.getEventType(), domainEvent.getPayload().length());
+            List<DomainEvent> events = new ArrayList<>(dispensings.size());
+            for (DispensingOperation dispensing : dispensings) {
+                events.add(dispensingEvent(dispensing, dispensing.getStatus()));
+            }
 
             // Publish to unified topic only
-            unifiedEventPublisher.publishEvent(domainEvent);
-            
-            log.info("Successfully published dispensing event to unified topic: {} for dispensing {}", 
-                domainEvent.getEventId(), dispensing.getId());
+            unifiedEventPublisher.publishAll(events);
+
+            log.info("Successfully published {} dispensing events to unified topic", events.size());
 
         } catch (Exception e) {
-            log.error("Error creating unified dispensing event for dispensing {}: {}", 
-                dispensing.getId(), e.getMessage(), e);
-            throw new RuntimeException("Failed to publish unified dispensing event", e);
+            log.error("Error creating unified dispensing events for {} dispensing operations: {}",
+                dispensings.size(), e.getMessage(), e);
+            throw new RuntimeException("Failed to publish unified dispensing events", e);
         }
     }
 
-    /**
-     * Serialize payload to JSON
-     */
-    private String serializePayload(Object payload) {
-        try {
-            String jsonPayload = new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(payload);
-            log.debug("Serialized payload to JSON: {}", jsonPayload);
-            return jsonPayload;
-        } catch (Exception e) {
-            log.error("Failed to serialize payload: {}", payload, e);
-            log.error("Serialization error details: {}", e.getMessage());
-            return "{}";
-        }
+    private DomainEvent dispensingEvent(DispensingOperation dispensing, String eventStatus) {
+        log.debug("Creating dispensing event payload for dispensing ID: {}, transaction ID: {}, product ID: {}, status: {}", 
+                 dispensing.getId(), dispensing.getTransactionId(), dispensing.getProductId(), eventStatus);
+        
+        // Create complete payload with dispensing data
+        DispensingPayload payload = DispensingPayload.builder()
+            .dispensingId(dispensing.getId())
+            .transactionId(dispensing.getTransactionId()) // ⚠️ CRITICAL FIX: Add missing transactionId
+            .productId(dispensing.getProductId())
+            .requestedQuantity(dispensing.getQuantity())
+            .dispensedQuantity(eventStatus.equals("SUCCESS") ? dispensing.getQuantity() : 0)
+            .status(eventStatus)
+            .failureReason(eventStatus.equals("FAILED") ? dispensing.getErrorMessage() : null)
+            .timestamp(System.currentTimeMillis())
+            .build();
+
+        log.debug("Created dispensing payload: {}", payload);
+
+        // Create unified domain event
+        DomainEvent domainEvent = DomainEvent.builder()
+            .eventId(TimeOrderedIds.nextString())
+            .eventType("DISPENSING_" + eventStatus)
+            .aggregateId(Objects.toString(dispensing.getTransactionId(), null))
+            .aggregateType("DISPENSING")
+            .source("dispensing-service")
+            .correlationId(CorrelationIdUtil.getCorrelationId())
+            .timestamp(System.currentTimeMillis())
+            .payload(DomainEvent.toPayload(payload))
+            .build();
+
+        log.debug("Created domain event: eventId={}, eventType={}, payload fields={}", 
+                 domainEvent.getEventId(), domainEvent.getEventType(), domainEvent.getPayload().size());
+
+        return domainEvent;
     }
-}
\ No newline at end of file
+}
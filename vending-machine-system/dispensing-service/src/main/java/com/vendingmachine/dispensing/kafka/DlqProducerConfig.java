@@ -1,14 +1,12 @@
 package com.vendingmachine.dispensing.kafka;
 
+import com.vendingmachine.common.kafka.KafkaProducerSettings;
+import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.producer.KafkaProducer;
-import org.apache.kafka.clients.producer.ProducerConfig;
-import org.apache.kafka.common.serialization.StringSerializer;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -16,21 +14,13 @@ import java.util.Map;
  * between KafkaConfig and KafkaErrorHandler.
  */
 @Configuration
+@RequiredArgsConstructor
 public class DlqProducerConfig {
 
-    @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
-    private String bootstrapServers;
+    private final KafkaProducerSettings producerSettings;
 
     @Bean
     public KafkaProducer<String, Object> dlqKafkaProducer() {
-        Map<String, Object> configProps = new HashMap<>();
-        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
-        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
-        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
-        
-        return new KafkaProducer<>(configProps);
+        return new KafkaProducer<>(producerSettings.producerConfigs(JsonSerializer.class));
     }
 }
\ No newline at end of file
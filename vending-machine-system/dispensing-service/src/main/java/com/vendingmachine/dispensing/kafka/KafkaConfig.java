@@ -6,10 +6,21 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.vendingmachine.common.event.TransactionEvent;
 import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.resilience.RetryBudgetRegistry;
+import com.vendingmachine.common.kafka.ConsumerMetrics;
+import com.vendingmachine.common.kafka.DomainEventFormat;
+import com.vendingmachine.common.kafka.DomainEventDeserializer;
+import com.vendingmachine.common.kafka.DomainEventHeaderFilter;
+import com.vendingmachine.common.kafka.DomainEventRecordFilterStrategy;
+import com.vendingmachine.common.kafka.DomainEventSchemaRegistry;
+import com.vendingmachine.common.kafka.KafkaConsumerSettings;
+import com.vendingmachine.common.kafka.KafkaProducerSettings;
+import com.vendingmachine.common.kafka.ProcessedEventDedupCache;
+import com.vendingmachine.common.kafka.RetryTopicTiers;
+import com.vendingmachine.common.kafka.UnifiedTopicConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
-import org.apache.kafka.clients.producer.ProducerConfig;
-import org.apache.kafka.common.serialization.StringDeserializer;
-import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -20,31 +31,40 @@ import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.CompositeBatchInterceptor;
+import org.springframework.kafka.listener.CompositeRecordInterceptor;
 import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
-import org.springframework.kafka.support.serializer.JsonSerializer;
 import org.springframework.util.backoff.FixedBackOff;
 
-import java.util.HashMap;
 import java.util.Map;
 
 @Configuration
 @EnableKafka
+@RequiredArgsConstructor
 public class KafkaConfig {
 
-    @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
-    private String bootstrapServers;
+    private final KafkaProducerSettings producerSettings;
+    private final KafkaConsumerSettings consumerSettings;
+
+    @Value("${kafka.domain-events.format:json}")
+    private String domainEventFormat;
+
+    @Value("${kafka.domain-events.schema-registry-path:}")
+    private String schemaRegistryPath;
+
+    @Value("${kafka.domain-events.filter.event-types:}")
+    private String filterEventTypes;
+
+    @Value("${kafka.domain-events.filter.sources:}")
+    private String filterSources;
 
     @Value("${spring.kafka.consumer.group-id:dispensing-service-group}")
     private String groupId;
 
     @Bean
     public ConsumerFactory<String, TransactionEvent> transactionEventConsumerFactory() {
-        Map<String, Object> props = new HashMap<>();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        Map<String, Object> props = consumerSettings.consumerConfigs(groupId, JsonDeserializer.class);
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
         props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, TransactionEvent.class.getName());
 
@@ -52,16 +72,20 @@ public class KafkaConfig {
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, TransactionEvent> transactionEventKafkaListenerContainerFactory(KafkaErrorHandler kafkaErrorHandler) {
+    public ConcurrentKafkaListenerContainerFactory<String, TransactionEvent> transactionEventKafkaListenerContainerFactory(KafkaErrorHandler kafkaErrorHandler,
+            RetryBudgetRegistry retryBudgetRegistry) {
         ConcurrentKafkaListenerContainerFactory<String, TransactionEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(transactionEventConsumerFactory());
+        factory.getContainerProperties().setConsumerRebalanceListener(consumerSettings.rebalanceListener());
         
-        // Configure error handler with DLQ support
+        // Configure error handler with DLQ support:
+        // 3 retries with 1 second delay, limited by the consumer's retry budget
         DefaultErrorHandler errorHandler = new DefaultErrorHandler(
                 kafkaErrorHandler,
-                new FixedBackOff(1000L, 3) // 3 retries with 1 second delay
+                retryBudgetRegistry.backOff("dispensing-service-kafka", new FixedBackOff(1000L, 3))
         );
         factory.setCommonErrorHandler(errorHandler);
+        factory.setRecordInterceptor(retryBudgetRegistry.recordInterceptor("dispensing-service-kafka"));
         
         return factory;
     }
@@ -69,13 +93,9 @@ public class KafkaConfig {
     // Unified Event Configuration for Phase 2 Kafka Optimization
     @Bean
     public ProducerFactory<String, DomainEvent> domainEventProducerFactory() {
-        Map<String, Object> configProps = new HashMap<>();
-        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
-        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
-        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        Map<String, Object> configProps =
+                producerSettings.producerConfigs(DomainEventFormat.from(domainEventFormat).getSerializerClass());
+        configProps.put(DomainEventSchemaRegistry.PATH_CONFIG, schemaRegistryPath);
         return new DefaultKafkaProducerFactory<>(configProps);
     }
 
@@ -87,34 +107,61 @@ public class KafkaConfig {
     // Unified Event Consumer Configuration
     @Bean
     public ConsumerFactory<String, DomainEvent> unifiedEventConsumerFactory() {
-        Map<String, Object> configProps = new HashMap<>();
-        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        configProps.put(ConsumerConfig.GROUP_ID_CONFIG, "dispensing-service-unified-group");
-        configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        Map<String, Object> configProps =
+                consumerSettings.consumerConfigs("dispensing-service-unified-group", DomainEventDeserializer.class);
+        configProps.put(DomainEventSchemaRegistry.PATH_CONFIG, schemaRegistryPath);
+        configProps.putAll(unifiedEventHeaderFilter().toConfigs());
         configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        // Skip records of aborted transactions, such as an outbox relay page that did not commit
+        configProps.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
         configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
-        configProps.put(JsonDeserializer.TRUSTED_PACKAGES, "com.vendingmachine.common.event");
-        configProps.put(JsonDeserializer.VALUE_DEFAULT_TYPE, DomainEvent.class);
         return new DefaultKafkaConsumerFactory<>(configProps);
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, DomainEvent> unifiedEventKafkaListenerContainerFactory(KafkaErrorHandler kafkaErrorHandler) {
+    public ConcurrentKafkaListenerContainerFactory<String, DomainEvent> unifiedEventKafkaListenerContainerFactory(KafkaErrorHandler kafkaErrorHandler,
+            RetryBudgetRegistry retryBudgetRegistry,
+            MeterRegistry meterRegistry,
+            ProcessedEventDedupCache dedupCache,
+            UnifiedTopicConfig unifiedTopicConfig,
+            RetryTopicTiers retryTopicTiers,
+            ConsumerMetrics consumerMetrics) {
         ConcurrentKafkaListenerContainerFactory<String, DomainEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(unifiedEventConsumerFactory());
+
+        // Re-seed the processed-event dedup cache with rows committed before this assignment
+        factory.getContainerProperties().setConsumerRebalanceListener(
+                consumerSettings.rebalanceListener(dedupCache.rebalanceListener()));
+
+        // Drop events this service does not handle from their headers, before the payload is parsed
+        factory.setRecordFilterStrategy(new DomainEventRecordFilterStrategy(unifiedEventHeaderFilter(), meterRegistry, "dispensing-service"));
+        factory.setAckDiscarded(true);
         factory.getContainerProperties().setAckMode(org.springframework.kafka.listener.ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+
+        // One consumer thread per unified topic partition of this instance's share
+        factory.setConcurrency(unifiedTopicConfig.listenerConcurrency());
         
-        // Configure error handler with DLQ support for unified events
-        DefaultErrorHandler errorHandler = new DefaultErrorHandler(
-                kafkaErrorHandler,
-                new FixedBackOff(1000L, 3) // 3 retries with 1 second delay
-        );
-        factory.setCommonErrorHandler(errorHandler);
+        // Failed records move on to the retry tier topics, then the unified DLQ, without blocking the partition
+        factory.setCommonErrorHandler(retryTopicTiers.errorHandler(kafkaErrorHandler, "dispensing-service-kafka"));
+        factory.setRecordInterceptor(new CompositeRecordInterceptor<>(
+                retryBudgetRegistry.recordInterceptor("dispensing-service-kafka"), consumerMetrics.recordInterceptor()));
+        factory.setBatchInterceptor(new CompositeBatchInterceptor<>(
+                retryBudgetRegistry.batchInterceptor("dispensing-service-kafka"), consumerMetrics.batchInterceptor()));
         
         return factory;
     }
 
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, DomainEvent> unifiedEventRetryTierContainerFactory(KafkaErrorHandler kafkaErrorHandler,
+            RetryTopicTiers retryTopicTiers) {
+        ConcurrentKafkaListenerContainerFactory<String, DomainEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(unifiedEventConsumerFactory());
+        factory.getContainerProperties().setAckMode(org.springframework.kafka.listener.ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.getContainerProperties().setConsumerRebalanceListener(consumerSettings.rebalanceListener());
+        retryTopicTiers.configureTierContainers(factory, kafkaErrorHandler, "dispensing-service-kafka");
+        return factory;
+    }
+
     @Bean
     public ObjectMapper objectMapper() {
         ObjectMapper objectMapper = new ObjectMapper();
@@ -126,4 +173,8 @@ public class KafkaConfig {
         objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
         return objectMapper;
     }
-}
\ No newline at end of file
+
+    private DomainEventHeaderFilter unifiedEventHeaderFilter() {
+        return DomainEventHeaderFilter.of(filterEventTypes, filterSources);
+    }
+}
@@ -1,9 +1,12 @@
 package com.vendingmachine.dispensing.kafka;
 
+import com.vendingmachine.common.kafka.RetryTopicTiers;
+import com.vendingmachine.common.kafka.UnifiedTopicConfig;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
 
 @Configuration
 public class KafkaTopicConfig {
@@ -56,4 +59,10 @@ public class KafkaTopicConfig {
                 .replicas(1)
                 .build();
     }
-}
\ No newline at end of file
+
+    // Retry tier topics of the consumed topics
+    @Bean
+    public KafkaAdmin.NewTopics retryTierTopics(RetryTopicTiers retryTopicTiers) {
+        return retryTopicTiers.newTopics(UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC);
+    }
+}
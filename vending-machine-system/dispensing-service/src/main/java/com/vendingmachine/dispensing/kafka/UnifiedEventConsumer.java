@@ -1,17 +1,25 @@
 package com.vendingmachine.dispensing.kafka;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vendingmachine.common.aop.annotation.Auditable;
 import com.vendingmachine.common.aop.annotation.ExecutionTime;
 import com.vendingmachine.common.event.DomainEvent;
 import com.vendingmachine.common.event.TransactionEvent;
+import com.vendingmachine.common.kafka.DomainEventBatchProcessor;
+import com.vendingmachine.common.kafka.DomainEventHandler;
+import com.vendingmachine.common.kafka.DomainEventHandlerRegistry;
+import com.vendingmachine.common.kafka.KeyOrderedRecordProcessor;
+import com.vendingmachine.common.kafka.ProcessedEventDedupCache;
+import com.vendingmachine.common.monitoring.DeadlineMetrics;
 import com.vendingmachine.common.util.CorrelationIdUtil;
+import com.vendingmachine.common.util.RequestDeadlineUtil;
 import com.vendingmachine.dispensing.dispensing.DispensingItem;
 import com.vendingmachine.dispensing.dispensing.DispensingService;
 import com.vendingmachine.dispensing.util.ProcessedEventRepository;
 import com.vendingmachine.dispensing.util.ProcessedEvent;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
@@ -19,14 +27,17 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -37,17 +48,31 @@ public class UnifiedEventConsumer {
     private final DispensingService dispensingService;
     private final ProcessedEventRepository processedEventRepository;
     private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper;
+    private final DeadlineMetrics deadlineMetrics;
+    private final DomainEventBatchProcessor batchProcessor;
+    private final KeyOrderedRecordProcessor keyedProcessor;
+    private final ProcessedEventDedupCache dedupCache;
+    private final DomainEventHandlerRegistry handlerRegistry;
 
     @Value("${services.transaction.url:http://localhost:8083}")
     private String transactionServiceUrl;
 
-    @KafkaListener(topics = "vending-machine-domain-events", groupId = "dispensing-service-unified-group", containerFactory = "unifiedEventKafkaListenerContainerFactory")
+    @PostConstruct
+    public void seedDedupCache() {
+        dedupCache.setSeedSource(processedEventRepository::findByProcessedAtAfter);
+    }
+
+    @KafkaListener(topics = "vending-machine-domain-events", groupId = "dispensing-service-unified-group", containerFactory = "unifiedEventKafkaListenerContainerFactory",
+            autoStartup = "#{!${kafka.domain-events.batch.enabled:false} and !${kafka.domain-events.ordered-parallel.enabled:false}}")
+    @KafkaListener(topics = "#{@retryTopicTiers.topics('vending-machine-domain-events')}", groupId = "dispensing-service-unified-retry-group",
+            containerFactory = "unifiedEventRetryTierContainerFactory",
+            autoStartup = "#{!${kafka.domain-events.batch.enabled:false} and !${kafka.domain-events.ordered-parallel.enabled:false}}")
     @Transactional
     @Auditable(operation = "CONSUME_UNIFIED_EVENT", entityType = "DomainEvent", logParameters = true)
     @ExecutionTime(operation = "CONSUME_UNIFIED_EVENT", warningThreshold = 2500)
     public void consumeUnifiedEvent(@Payload DomainEvent event,
-            @Header(value = "X-Correlation-ID", required = false) String correlationId) {
+            @Header(value = "X-Correlation-ID", required = false) String correlationId,
+            @Header(value = RequestDeadlineUtil.DEADLINE_HEADER, required = false) byte[] deadline) {
         try {
             if (correlationId != null) {
                 CorrelationIdUtil.setCorrelationId(correlationId);
@@ -56,46 +81,20 @@ public class UnifiedEventConsumer {
             log.info("Received unified event: {} from source: {} with type: {}",
                     event.getEventId(), event.getSource(), event.getEventType());
 
+            // Count work done for callers that have already given up
+            deadlineMetrics.recordIfExpired(RequestDeadlineUtil.parseDeadline(deadline),
+                    DeadlineMetrics.STAGE_KAFKA, "dispensing-service");
+
             // Check for duplicate events
-            if (processedEventRepository.existsByEventIdAndEventType(event.getEventId(), event.getEventType())) {
+            if (dedupCache.isProcessed(event.getEventId(), event.getEventType(), event.getTimestamp(),
+                    () -> processedEventRepository.existsByEventIdAndEventType(event.getEventId(), event.getEventType()))) {
                 log.debug("Event already processed: {}", event.getEventId());
                 return;
             }
 
             try {
-                log.debug("\n\nProcessing unified event: {}\n\n", event);
-
-                // Only process TRANSACTION events from transaction service
-                if ("TRANSACTION_PROCESSING".equals(event.getEventType())
-                        && "transaction-service".equals(event.getSource())) {
-                    TransactionEvent transactionEvent = objectMapper.readValue((String) event.getPayload(),
-                            TransactionEvent.class);
-
-                    if ("PROCESSING".equals(transactionEvent.getStatus())) {
-                        // Transaction is ready for dispensing - get transaction items
-                        List<DispensingItem> items = getTransactionItems(transactionEvent.getTransactionId());
-                        if (!items.isEmpty()) {
-                            dispensingService.dispenseProductsForTransaction(transactionEvent.getTransactionId(),
-                                    items);
-                            log.info("Dispensing initiated for transaction {}", transactionEvent.getTransactionId());
-                        } else {
-                            log.warn("No items found for transaction {}", transactionEvent.getTransactionId());
-                        }
-                    } else {
-                        log.debug("Ignoring transaction event with status: {}", transactionEvent.getStatus());
-                    }
-                } else {
-                    log.debug("Ignoring event type: {} from source: {}", event.getEventType(), event.getSource());
-                }
-
-                // Mark event as processed
-                ProcessedEvent processedEvent = ProcessedEvent.builder()
-                        .eventId(event.getEventId())
-                        .eventType(event.getEventType())
-                        .source(event.getSource())
-                        .build();
-                processedEventRepository.save(processedEvent);
-
+                processedEventRepository.save(applyEvent(event));
+                dedupCache.markProcessed(event.getEventId(), event.getEventType());
             } catch (Exception e) {
                 log.error("Failed to process unified event: {}", event.getEventId(), e);
                 throw new RuntimeException("Failed to process unified event", e);
@@ -105,6 +104,113 @@ public class UnifiedEventConsumer {
         }
     }
 
+    /**
+     * Batch listener mode: one IN query for duplicates, one transaction and one JDBC batch of
+     * ProcessedEvent rows per poll. Replaces the record listener when kafka.domain-events.batch.enabled is set.
+     */
+    @KafkaListener(topics = "vending-machine-domain-events", groupId = "dispensing-service-unified-group",
+            containerFactory = "unifiedEventKafkaListenerContainerFactory", batch = "true",
+            autoStartup = "#{${kafka.domain-events.batch.enabled:false} and !${kafka.domain-events.ordered-parallel.enabled:false}}",
+            properties = "max.poll.records=${kafka.domain-events.batch.max-poll-records:100}")
+    @KafkaListener(topics = "#{@retryTopicTiers.topics('vending-machine-domain-events')}", groupId = "dispensing-service-unified-retry-group",
+            containerFactory = "unifiedEventRetryTierContainerFactory", batch = "true",
+            autoStartup = "#{${kafka.domain-events.batch.enabled:false} and !${kafka.domain-events.ordered-parallel.enabled:false}}",
+            properties = "max.poll.records=${kafka.domain-events.batch.max-poll-records:100}")
+    @ExecutionTime(operation = "CONSUME_UNIFIED_EVENT_BATCH", warningThreshold = 5000)
+    public void consumeUnifiedEventBatch(List<ConsumerRecord<String, DomainEvent>> records, Acknowledgment ack) {
+        log.info("Received batch of {} unified events", records.size());
+        batchProcessor.process(records, batchHandler());
+        ack.acknowledge();
+    }
+
+    /**
+     * Key-ordered listener mode: each poll is processed by key on a worker pool, each record in its
+     * own transaction. Replaces the other listeners when kafka.domain-events.ordered-parallel.enabled is set,
+     * independently of batch mode.
+     */
+    @KafkaListener(topics = "vending-machine-domain-events", groupId = "dispensing-service-unified-group",
+            containerFactory = "unifiedEventKafkaListenerContainerFactory", batch = "true",
+            autoStartup = "${kafka.domain-events.ordered-parallel.enabled:false}",
+            properties = "max.poll.records=${kafka.domain-events.batch.max-poll-records:100}")
+    @KafkaListener(topics = "#{@retryTopicTiers.topics('vending-machine-domain-events')}", groupId = "dispensing-service-unified-retry-group",
+            containerFactory = "unifiedEventRetryTierContainerFactory", batch = "true",
+            autoStartup = "${kafka.domain-events.ordered-parallel.enabled:false}",
+            properties = "max.poll.records=${kafka.domain-events.batch.max-poll-records:100}")
+    @ExecutionTime(operation = "CONSUME_UNIFIED_EVENT_KEY_ORDERED", warningThreshold = 5000)
+    public void consumeUnifiedEventKeyOrdered(List<ConsumerRecord<String, DomainEvent>> records, Acknowledgment ack) {
+        log.info("Received {} unified events for key-ordered processing", records.size());
+        // Each record may wait on a transaction-service call: run transactions side by side, in order per key
+        keyedProcessor.process(records, batchHandler());
+        ack.acknowledge();
+    }
+
+    private DomainEventBatchProcessor.Handler<ProcessedEvent> batchHandler() {
+        return new DomainEventBatchProcessor.Handler<>() {
+            @Override
+            public Set<String> findProcessed(Collection<String> eventIds) {
+                return processedEventRepository.findProcessedEventIds(eventIds);
+            }
+
+            @Override
+            public String processedEventType(DomainEvent event) {
+                return event.getEventType();
+            }
+
+            @Override
+            public ProcessedEvent handle(ConsumerRecord<String, DomainEvent> record) {
+                deadlineMetrics.recordIfExpired(RequestDeadlineUtil.parseDeadline(
+                        DomainEventBatchProcessor.headerValue(record, RequestDeadlineUtil.DEADLINE_HEADER)),
+                        DeadlineMetrics.STAGE_KAFKA, "dispensing-service");
+                return applyEvent(record.value());
+            }
+
+            @Override
+            public void saveProcessed(List<ProcessedEvent> rows) {
+                processedEventRepository.insertAll(rows);
+            }
+        };
+    }
+
+    /**
+     * Apply one unified event and build its ProcessedEvent row, without saving it
+     */
+    private ProcessedEvent applyEvent(DomainEvent event) {
+        log.debug("\n\nProcessing unified event: {}\n\n", event);
+
+        if (handlerRegistry.handles(event)) {
+            handlerRegistry.dispatch(event);
+        } else {
+            log.debug("Ignoring event type: {} from source: {}", event.getEventType(), event.getSource());
+        }
+
+        // Mark event as processed
+        return ProcessedEvent.builder()
+                .eventId(event.getEventId())
+                .eventType(event.getEventType())
+                .source(event.getSource())
+                .build();
+    }
+
+    /**
+     * Dispense the items of a transaction that transaction service has moved to PROCESSING
+     */
+    @DomainEventHandler(type = "TRANSACTION_PROCESSING", source = "transaction-service", payload = TransactionEvent.class)
+    public void handleTransactionProcessing(DomainEvent event, TransactionEvent transactionEvent) {
+        if ("PROCESSING".equals(transactionEvent.getStatus())) {
+            // Transaction is ready for dispensing - get transaction items
+            List<DispensingItem> items = getTransactionItems(transactionEvent.getTransactionId());
+            if (!items.isEmpty()) {
+                dispensingService.dispenseProductsForTransaction(transactionEvent.getTransactionId(),
+                        items);
+                log.info("Dispensing initiated for transaction {}", transactionEvent.getTransactionId());
+            } else {
+                log.warn("No items found for transaction {}", transactionEvent.getTransactionId());
+            }
+        } else {
+            log.debug("Ignoring transaction event with status: {}", transactionEvent.getStatus());
+        }
+    }
+
     @ExecutionTime(operation = "GET_TRANSACTION_ITEMS", warningThreshold = 800)
     private List<DispensingItem> getTransactionItems(Long transactionId) {
         try {
@@ -10,7 +10,8 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "processed_events",
-       uniqueConstraints = @UniqueConstraint(columnNames = {"eventId", "eventType"}))
+       uniqueConstraints = @UniqueConstraint(name = "uk_processed_events_event", columnNames = {"event_id", "event_type"}),
+       indexes = @Index(name = "idx_processed_events_processed_at", columnList = "processed_at"))
 @Data
 @Builder
 @NoArgsConstructor
@@ -1,14 +1,43 @@
 package com.vendingmachine.dispensing.util;
 
+import com.vendingmachine.common.kafka.ProcessedEventKey;
+import com.vendingmachine.common.retention.ProcessedEventRetentionRepository;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
-public interface ProcessedEventRepository extends JpaRepository<ProcessedEvent, Long> {
+public interface ProcessedEventRepository extends JpaRepository<ProcessedEvent, Long>, ProcessedEventBatchRepository,
+        ProcessedEventRetentionRepository {
 
     Optional<ProcessedEvent> findByEventIdAndEventType(String eventId, String eventType);
 
     boolean existsByEventIdAndEventType(String eventId, String eventType);
-}
\ No newline at end of file
+
+    /**
+     * Event ids among the given ones that were already processed, in one query
+     */
+    @Query("select p.eventId from ProcessedEvent p where p.eventId in :eventIds")
+    Set<String> findProcessedEventIds(@Param("eventIds") Collection<String> eventIds);
+
+    /**
+     * Keys processed since the given time, to seed the dedup cache
+     */
+    List<ProcessedEventKey> findByProcessedAtAfter(LocalDateTime since);
+
+    /**
+     * Delete one chunk of rows processed before the cutoff, for the retention job
+     */
+    @Modifying
+    @Query(value = "DELETE FROM processed_events WHERE processed_at < :cutoff LIMIT :limit", nativeQuery = true)
+    @Override
+    int deleteProcessedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
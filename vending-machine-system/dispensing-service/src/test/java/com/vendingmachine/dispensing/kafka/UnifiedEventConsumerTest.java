@@ -0,0 +1,101 @@
+package com.vendingmachine.dispensing.kafka;
+
+import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.kafka.DomainEventBatchProcessor;
+import com.vendingmachine.common.kafka.DomainEventHandlerRegistry;
+import com.vendingmachine.common.kafka.KeyOrderedRecordProcessor;
+import com.vendingmachine.common.kafka.ProcessedEventDedupCache;
+import com.vendingmachine.common.monitoring.DeadlineMetrics;
+import com.vendingmachine.dispensing.dispensing.DispensingService;
+import com.vendingmachine.dispensing.util.ProcessedEventRepository;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanExpressionContext;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.expression.StandardBeanExpressionResolver;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.web.client.RestTemplate;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Test class for the listener modes of the dispensing unified event consumer
+ */
+class UnifiedEventConsumerTest {
+
+    private final DomainEventBatchProcessor batchProcessor = mock(DomainEventBatchProcessor.class);
+    private final KeyOrderedRecordProcessor keyedProcessor = mock(KeyOrderedRecordProcessor.class);
+    private final UnifiedEventConsumer consumer = new UnifiedEventConsumer(mock(DispensingService.class),
+            mock(ProcessedEventRepository.class), mock(RestTemplate.class), mock(DeadlineMetrics.class),
+            batchProcessor, keyedProcessor, mock(ProcessedEventDedupCache.class), mock(DomainEventHandlerRegistry.class));
+
+    @Test
+    void testOneListenerModeStartsForEachSetting() {
+        assertEquals(Set.of("consumeUnifiedEvent"), startedListeners(false, false));
+        assertEquals(Set.of("consumeUnifiedEventBatch"), startedListeners(true, false));
+        // Key-ordered mode does not depend on batch mode, which is off in config-server
+        assertEquals(Set.of("consumeUnifiedEventKeyOrdered"), startedListeners(false, true));
+        assertEquals(Set.of("consumeUnifiedEventKeyOrdered"), startedListeners(true, true));
+    }
+
+    @Test
+    void testKeyOrderedListenerProcessesByKey() {
+        List<ConsumerRecord<String, DomainEvent>> records = List.of(
+                new ConsumerRecord<>("vending-machine-domain-events", 0, 0, "41", DomainEvent.builder().eventId("evt-1").build()));
+        Acknowledgment ack = mock(Acknowledgment.class);
+
+        consumer.consumeUnifiedEventKeyOrdered(records, ack);
+
+        verify(keyedProcessor).process(eq(records), any());
+        verify(batchProcessor, never()).process(any(), any());
+        verify(ack).acknowledge();
+    }
+
+    /**
+     * Names of the listener methods whose every listener starts with the settings, resolved the way
+     * the listener annotation processor resolves autoStartup
+     */
+    private static Set<String> startedListeners(boolean batch, boolean orderedParallel) {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("config", Map.of(
+                "kafka.domain-events.batch.enabled", batch,
+                "kafka.domain-events.ordered-parallel.enabled", orderedParallel)));
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.addEmbeddedValueResolver(environment::resolvePlaceholders);
+        StandardBeanExpressionResolver resolver = new StandardBeanExpressionResolver();
+        BeanExpressionContext context = new BeanExpressionContext(beanFactory, null);
+
+        Set<String> started = new TreeSet<>();
+        for (Method method : UnifiedEventConsumer.class.getDeclaredMethods()) {
+            KafkaListener[] listeners = method.getAnnotationsByType(KafkaListener.class);
+            if (listeners.length == 0) {
+                continue;
+            }
+            List<Boolean> startups = Arrays.stream(listeners)
+                    .map(listener -> Boolean.valueOf(String.valueOf(
+                            resolver.evaluate(beanFactory.resolveEmbeddedValue(listener.autoStartup()), context))))
+                    .distinct()
+                    .toList();
+            assertEquals(1, startups.size(), method.getName() + " starts only some of its listeners");
+            if (startups.get(0)) {
+                started.add(method.getName());
+            }
+        }
+        return started;
+    }
+}
@@ -4,6 +4,7 @@ import com.vendingmachine.common.aop.annotation.Auditable;
 import com.vendingmachine.common.aop.annotation.ExecutionTime;
 import com.vendingmachine.inventory.kafka.KafkaProducerService;
 import com.vendingmachine.inventory.kafka.InventoryKafkaEventService;
+import com.vendingmachine.inventory.kafka.InventorySnapshotPublisher;
 import com.vendingmachine.inventory.product.Product;
 import com.vendingmachine.inventory.product.ProductRepository;
 import com.vendingmachine.inventory.product.ProductUtils;
@@ -38,6 +39,9 @@ public class InventoryService {
     @Autowired
     private InventoryKafkaEventService inventoryKafkaEventService;
 
+    @Autowired
+    private InventorySnapshotPublisher inventorySnapshotPublisher;
+
     public List<Product> getAllProducts() {
         logger.debug("Retrieving all products");
         List<Product> products = productRepository.findAll();
@@ -90,18 +94,12 @@ public class InventoryService {
                     newProduct.getId(), stock.getQuantity(), stock.getMinThreshold());
         }
 
-        // Publish stock update event for initial stock with complete payload
-        inventoryKafkaEventService.publishStockUpdateEventWithCompleteData(stock, "INITIAL_STOCK");
+        // Publish stock update event, and low stock alert if applicable, as one batch
+        String alertType = lowStockAlertType(stock);
+        inventoryKafkaEventService.publishStockUpdateWithAlert(stock, "INITIAL_STOCK", alertType);
         logger.info("Published initial stock update event with complete data for product: {}", newProduct.getId());
-
-        // Publish low stock alert if applicable
-        if (stock.getQuantity() < stock.getMinThreshold() && stock.getQuantity() > 0) {
-            inventoryKafkaEventService.publishLowStockAlertWithCompleteData(stock, "LOW_STOCK");
-            logger.info("Published low stock alert event with complete data for new product: {}", newProduct.getId());
-        } else if (stock.getQuantity() <= 0) {
-            inventoryKafkaEventService.publishLowStockAlertWithCompleteData(stock, "OUT_OF_STOCK");
-            logger.warn("Published out of stock alert event with complete data for new product: {}",
-                    newProduct.getId());
+        if (alertType != null) {
+            logger.warn("Published {} alert event with complete data for product: {}", alertType, newProduct.getId());
         }
 
         return newProduct;
@@ -151,17 +149,12 @@ public class InventoryService {
             changeType = "NO_CHANGE";
         }
 
-        // Publish stock update event with complete payload
-        inventoryKafkaEventService.publishStockUpdateEventWithCompleteData(updatedStock, changeType);
+        // Publish stock update event, and low stock alert if applicable, as one batch
+        String alertType = lowStockAlertType(updatedStock);
+        inventoryKafkaEventService.publishStockUpdateWithAlert(updatedStock, changeType, alertType);
         logger.info("Published stock update event with complete data for product: {}", productId);
-
-        // Publish low stock alert if applicable
-        if (updatedStock.getQuantity() < updatedStock.getMinThreshold() && updatedStock.getQuantity() > 0) {
-            inventoryKafkaEventService.publishLowStockAlertWithCompleteData(updatedStock, "LOW_STOCK");
-            logger.info("Published low stock alert event with complete data for product: {}", productId);
-        } else if (updatedStock.getQuantity() <= 0) {
-            inventoryKafkaEventService.publishLowStockAlertWithCompleteData(updatedStock, "OUT_OF_STOCK");
-            logger.warn("Published out of stock alert event with complete data for product: {}", productId);
+        if (alertType != null) {
+            logger.warn("Published {} alert event with complete data for product: {}", alertType, productId);
         }
 
         return updatedProduct;
@@ -196,17 +189,12 @@ public class InventoryService {
             changeType = "NO_CHANGE";
         }
 
-        // Publish stock update event with complete payload
-        inventoryKafkaEventService.publishStockUpdateEventWithCompleteData(updatedStock, changeType);
+        // Publish stock update event, and low stock alert if applicable, as one batch
+        String alertType = lowStockAlertType(updatedStock);
+        inventoryKafkaEventService.publishStockUpdateWithAlert(updatedStock, changeType, alertType);
         logger.info("Published stock update event with complete data for product: {}", productId);
-
-        // Publish low stock alert if applicable
-        if (updatedStock.getQuantity() < updatedStock.getMinThreshold() && updatedStock.getQuantity() > 0) {
-            inventoryKafkaEventService.publishLowStockAlertWithCompleteData(updatedStock, "LOW_STOCK");
-            logger.info("Published low stock alert event with complete data for product: {}", productId);
-        } else if (updatedStock.getQuantity() <= 0) {
-            inventoryKafkaEventService.publishLowStockAlertWithCompleteData(updatedStock, "OUT_OF_STOCK");
-            logger.warn("Published out of stock alert event with complete data for product: {}", productId);
+        if (alertType != null) {
+            logger.warn("Published {} alert event with complete data for product: {}", alertType, productId);
         }
 
         return updatedStock;
@@ -237,22 +225,30 @@ public class InventoryService {
             changeType = "NO_CHANGE";
         }
 
-        // Publish stock update event with complete payload
-        inventoryKafkaEventService.publishStockUpdateEventWithCompleteData(updatedStock, changeType);
+        // Publish stock update event, and low stock alert if applicable, as one batch
+        String alertType = lowStockAlertType(updatedStock);
+        inventoryKafkaEventService.publishStockUpdateWithAlert(updatedStock, changeType, alertType);
         logger.info("Published stock update event with complete data for product: {}", productId);
-
-        // Publish low stock alert if applicable
-        if (updatedStock.getQuantity() < updatedStock.getMinThreshold() && updatedStock.getQuantity() > 0) {
-            inventoryKafkaEventService.publishLowStockAlertWithCompleteData(updatedStock, "LOW_STOCK");
-            logger.info("Published low stock alert event with complete data for product: {}", productId);
-        } else if (updatedStock.getQuantity() <= 0) {
-            inventoryKafkaEventService.publishLowStockAlertWithCompleteData(updatedStock, "OUT_OF_STOCK");
-            logger.warn("Published out of stock alert event with complete data for product: {}", productId);
+        if (alertType != null) {
+            logger.warn("Published {} alert event with complete data for product: {}", alertType, productId);
         }
 
         return updatedStock;
     }
 
+    /**
+     * Alert published with a stock change: OUT_OF_STOCK when empty, LOW_STOCK below the threshold, else none
+     */
+    private String lowStockAlertType(Stock stock) {
+        if (stock.getQuantity() <= 0) {
+            return "OUT_OF_STOCK";
+        }
+        if (stock.getQuantity() < stock.getMinThreshold()) {
+            return "LOW_STOCK";
+        }
+        return null;
+    }
+
     @ExecutionTime(operation = "checkInventoryAvailability", warningThreshold = 500)
     public boolean checkInventoryAvailability(List<Map<String, Object>> items) {
         logger.debug("Checking inventory availability for {} items", items.size());
@@ -324,6 +320,7 @@ public class InventoryService {
         }
 
         productRepository.deleteById(productId);
+        inventorySnapshotPublisher.publishDeleted(productId);
         logger.info("Product deleted successfully with ID: {}", productId);
     }
 
@@ -18,6 +18,9 @@ public class InitialStateSyncService {
     @Autowired
     private InventoryService inventoryService;
 
+    @Autowired
+    private InventorySnapshotPublisher inventorySnapshotPublisher;
+
     @PostConstruct
     public void performInitialSync() {
         logger.info("Performing initial state synchronization...");
@@ -38,6 +41,9 @@ public class InitialStateSyncService {
                 }
             }
 
+            // Bring the compacted snapshot topic in line with the database
+            inventorySnapshotPublisher.publishAll(products);
+
             logger.info("Initial state synchronization completed successfully");
 
         } catch (Exception e) {
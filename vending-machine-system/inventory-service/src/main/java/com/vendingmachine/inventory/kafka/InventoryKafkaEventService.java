@@ -6,17 +6,22 @@ import com.vendingmachine.common.kafka.UnifiedEventPublisher;
 import com.vendingmachine.common.aop.annotation.Auditable;
 import com.vendingmachine.common.aop.annotation.ExecutionTime;
 import com.vendingmachine.common.util.CorrelationIdUtil;
+import com.vendingmachine.common.util.TimeOrderedIds;
 import com.vendingmachine.inventory.stock.Stock;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class InventoryKafkaEventService {
 
     private final UnifiedEventPublisher unifiedEventPublisher;
+    private final InventorySnapshotPublisher inventorySnapshotPublisher;
 
     /**
      * Publishes stock update events with complete data to unified domain events topic
@@ -25,31 +30,11 @@ public class InventoryKafkaEventService {
     @ExecutionTime(operation = "Publish Stock Update Event", warningThreshold = 1000, detailed = true)
     public void publishStockUpdateEventWithCompleteData(Stock stock, String eventType) {
         try {
-            // Create complete payload with stock data
-            InventoryPayload payload = InventoryPayload.builder()
-                .productId(stock.getProduct().getId())
-                .productName(stock.getProduct().getName())
-                .currentStock(stock.getQuantity())
-                .alertThreshold(stock.getMinThreshold())
-                .changeType(eventType)
-                .timestamp(System.currentTimeMillis())
-                .build();
-
-            // Create unified domain event
-            DomainEvent domainEvent = DomainEvent.builder()
-                .eventId("inv-" + eventType.toLowerCase() + "-" + stock.getProduct().getId() + "-" + System.currentTimeMillis())
-                .eventType("INVENTORY_" + eventType)
-                .aggregateId(stock.getProduct().getId().toString())
-                .aggregateType("PRODUCT")
-                .source("inventory-service")
-                .correlationId(CorrelationIdUtil.getCorrelationId())
-                .timestamp(System.currentTimeMillis())
-                .payload(serializePayload(payload))
-                .version("1.0")
-                .build();
+            DomainEvent domainEvent = stockUpdateEvent(stock, eventType);
 
             // Publish to unified topic only
             unifiedEventPublisher.publishEvent(domainEvent);
+            inventorySnapshotPublisher.publish(stock);
             
             log.info("Successfully published inventory event to unified topic: {} for product {}", 
                 domainEvent.getEventId(), stock.getProduct().getId());
@@ -62,58 +47,79 @@ public class InventoryKafkaEventService {
     }
 
     /**
-     * Publishes low stock alert with complete data to unified domain events topic
+     * Publishes a stock update event and, when alertType is set, a low stock alert for the same
+     * change as one pipelined batch
      */
-    @Auditable(operation = "PUBLISH_LOW_STOCK_ALERT", entityType = "LowStockAlert", logParameters = true)
-    @ExecutionTime(operation = "Publish Low Stock Alert", warningThreshold = 1000, detailed = true)
-    public void publishLowStockAlertWithCompleteData(Stock stock, String alertType) {
+    @Auditable(operation = "PUBLISH_STOCK_UPDATE_EVENT", entityType = "StockUpdateEvent", logParameters = true)
+    @ExecutionTime(operation = "Publish Stock Update Events", warningThreshold = 1000, detailed = true)
+    public void publishStockUpdateWithAlert(Stock stock, String eventType, String alertType) {
         try {
-            // Create complete payload with stock data
-            InventoryPayload payload = InventoryPayload.builder()
-                .productId(stock.getProduct().getId())
-                .productName(stock.getProduct().getName())
-                .currentStock(stock.getQuantity())
-                .alertThreshold(stock.getMinThreshold())
-                .changeType("LOW_STOCK_ALERT")
-                .reason("Stock level below threshold: " + alertType)
-                .timestamp(System.currentTimeMillis())
-                .build();
-
-            // Create unified domain event
-            DomainEvent domainEvent = DomainEvent.builder()
-                .eventId("low-stock-" + alertType.toLowerCase() + "-" + stock.getProduct().getId() + "-" + System.currentTimeMillis())
-                .eventType("INVENTORY_LOW_STOCK")
-                .aggregateId(stock.getProduct().getId().toString())
-                .aggregateType("PRODUCT")
-                .source("inventory-service")
-                .correlationId(CorrelationIdUtil.getCorrelationId())
-                .timestamp(System.currentTimeMillis())
-                .payload(serializePayload(payload))
-                .version("1.0")
-                .build();
+            List<DomainEvent> events = new ArrayList<>(2);
+            events.add(stockUpdateEvent(stock, eventType));
+            if (alertType != null) {
+                events.add(lowStockAlertEvent(stock, alertType));
+            }
 
             // Publish to unified topic only
-            unifiedEventPublisher.publishEvent(domainEvent);
-            
-            log.info("Successfully published low stock alert to unified topic: {} for product {}", 
-                domainEvent.getEventId(), stock.getProduct().getId());
+            unifiedEventPublisher.publishAll(events);
+            inventorySnapshotPublisher.publish(stock);
+
+            log.info("Successfully published {} inventory events to unified topic for product {}",
+                events.size(), stock.getProduct().getId());
 
         } catch (Exception e) {
-            log.error("Error creating unified low stock alert for product {}: {}", 
+            log.error("Error creating unified inventory events for product {}: {}",
                 stock.getProduct().getId(), e.getMessage(), e);
-            throw new RuntimeException("Failed to publish unified low stock alert", e);
+            throw new RuntimeException("Failed to publish unified inventory events", e);
         }
     }
 
-    /**
-     * Serialize payload to JSON
-     */
-    private String serializePayload(Object payload) {
-        try {
-            return new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(payload);
-        } catch (Exception e) {
-            log.error("Failed to serialize payload", e);
-            return "{}";
-        }
+    private DomainEvent stockUpdateEvent(Stock stock, String eventType) {
+        // Create complete payload with stock data
+        InventoryPayload payload = InventoryPayload.builder()
+            .productId(stock.getProduct().getId())
+            .productName(stock.getProduct().getName())
+            .currentStock(stock.getQuantity())
+            .alertThreshold(stock.getMinThreshold())
+            .changeType(eventType)
+            .timestamp(System.currentTimeMillis())
+            .build();
+
+        // Create unified domain event
+        return DomainEvent.builder()
+            .eventId(TimeOrderedIds.nextString())
+            .eventType("INVENTORY_" + eventType)
+            .aggregateId(stock.getProduct().getId().toString())
+            .aggregateType("PRODUCT")
+            .source("inventory-service")
+            .correlationId(CorrelationIdUtil.getCorrelationId())
+            .timestamp(System.currentTimeMillis())
+            .payload(DomainEvent.toPayload(payload))
+            .build();
+    }
+
+    private DomainEvent lowStockAlertEvent(Stock stock, String alertType) {
+        // Create complete payload with stock data
+        InventoryPayload payload = InventoryPayload.builder()
+            .productId(stock.getProduct().getId())
+            .productName(stock.getProduct().getName())
+            .currentStock(stock.getQuantity())
+            .alertThreshold(stock.getMinThreshold())
+            .changeType("LOW_STOCK_ALERT")
+            .reason("Stock level below threshold: " + alertType)
+            .timestamp(System.currentTimeMillis())
+            .build();
+
+        // Create unified domain event
+        return DomainEvent.builder()
+            .eventId(TimeOrderedIds.nextString())
+            .eventType("INVENTORY_LOW_STOCK")
+            .aggregateId(stock.getProduct().getId().toString())
+            .aggregateType("PRODUCT")
+            .source("inventory-service")
+            .correlationId(CorrelationIdUtil.getCorrelationId())
+            .timestamp(System.currentTimeMillis())
+            .payload(DomainEvent.toPayload(payload))
+            .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,61 @@
+package com.vendingmachine.inventory.kafka;
+
+import com.vendingmachine.common.catalog.InventoryCatalog;
+import com.vendingmachine.common.catalog.ProductSnapshot;
+import com.vendingmachine.inventory.product.Product;
+import com.vendingmachine.inventory.stock.Stock;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Keeps the compacted inventory-snapshot topic in step with the database: the latest
+ * price, quantity and threshold of every product, keyed by productId, and a tombstone for
+ * deleted products. Other services build their {@link InventoryCatalog} from it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventorySnapshotPublisher {
+
+    private final KafkaTemplate<String, ProductSnapshot> snapshotKafkaTemplate;
+
+    public void publish(Stock stock) {
+        Product product = stock.getProduct();
+        ProductSnapshot snapshot = new ProductSnapshot(product.getId(), product.getName(), product.getPrice(),
+                stock.getQuantity(), stock.getMinThreshold(), Instant.now());
+        send(product.getId(), snapshot);
+    }
+
+    /**
+     * Republish every product, repairing snapshots lost while Kafka was unreachable
+     */
+    public void publishAll(List<Product> products) {
+        int published = 0;
+        for (Product product : products) {
+            if (product.getStock() != null) {
+                publish(product.getStock());
+                published++;
+            }
+        }
+        snapshotKafkaTemplate.flush();
+        log.info("Published snapshots of {} products to {}", published, InventoryCatalog.SNAPSHOT_TOPIC);
+    }
+
+    public void publishDeleted(Long productId) {
+        send(productId, null);
+    }
+
+    private void send(Long productId, ProductSnapshot snapshot) {
+        snapshotKafkaTemplate.send(InventoryCatalog.SNAPSHOT_TOPIC, String.valueOf(productId), snapshot)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.error("Failed to publish inventory snapshot of product {}: {}", productId, ex.getMessage());
+                    }
+                });
+    }
+}
@@ -1,9 +1,19 @@
 package com.vendingmachine.inventory.kafka;
 
 import com.vendingmachine.common.event.DispensingEvent;
+import com.vendingmachine.common.resilience.RetryBudgetRegistry;
+import com.vendingmachine.common.kafka.ConsumerMetrics;
+import com.vendingmachine.common.kafka.DomainEventDeserializer;
+import com.vendingmachine.common.kafka.DomainEventHeaderFilter;
+import com.vendingmachine.common.kafka.DomainEventRecordFilterStrategy;
+import com.vendingmachine.common.kafka.DomainEventSchemaRegistry;
+import com.vendingmachine.common.kafka.KafkaConsumerSettings;
+import com.vendingmachine.common.kafka.ProcessedEventDedupCache;
+import com.vendingmachine.common.kafka.RetryTopicTiers;
+import com.vendingmachine.common.kafka.UnifiedTopicConfig;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
-import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -11,12 +21,11 @@ import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
-import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.CompositeBatchInterceptor;
+import org.springframework.kafka.listener.CompositeRecordInterceptor;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
-import org.springframework.util.backoff.FixedBackOff;
 
-import java.util.HashMap;
 import java.util.Map;
 
 @Configuration
@@ -24,18 +33,23 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class KafkaConsumerConfig {
 
-    @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
-    private String bootstrapServers;
+    @Value("${kafka.domain-events.schema-registry-path:}")
+    private String schemaRegistryPath;
 
+    @Value("${kafka.domain-events.filter.event-types:}")
+    private String filterEventTypes;
+
+    @Value("${kafka.domain-events.filter.sources:}")
+    private String filterSources;
+
+    private final KafkaConsumerSettings consumerSettings;
     private final KafkaErrorHandler kafkaErrorHandler;
+    private final RetryBudgetRegistry retryBudgetRegistry;
+    private final RetryTopicTiers retryTopicTiers;
 
     @Bean
     public ConsumerFactory<String, DispensingEvent> dispensingEventConsumerFactory() {
-        Map<String, Object> props = new HashMap<>();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, "inventory-group");
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        Map<String, Object> props = consumerSettings.consumerConfigs("inventory-group", ErrorHandlingDeserializer.class);
         props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
         props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, DispensingEvent.class.getName());
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "com.vendingmachine.common.event");
@@ -47,52 +61,89 @@ public class KafkaConsumerConfig {
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, DispensingEvent> kafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, DispensingEvent> kafkaListenerContainerFactory(ProcessedEventDedupCache dedupCache) {
         ConcurrentKafkaListenerContainerFactory<String, DispensingEvent> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(dispensingEventConsumerFactory());
+
+        // Re-seed the processed-event dedup cache with rows committed before this assignment
+        factory.getContainerProperties().setConsumerRebalanceListener(
+                consumerSettings.rebalanceListener(dedupCache.rebalanceListener()));
         
-        // Configure error handler with DLQ support
-        DefaultErrorHandler errorHandler = new DefaultErrorHandler(
-                kafkaErrorHandler,
-                new FixedBackOff(1000L, 3) // 3 retries with 1 second delay
-        );
-        factory.setCommonErrorHandler(errorHandler);
+        // Failed records move on to the retry tier topics, then the DLQ, without blocking the partition
+        factory.setCommonErrorHandler(retryTopicTiers.errorHandler(kafkaErrorHandler, "inventory-service-kafka"));
+        factory.setRecordInterceptor(retryBudgetRegistry.recordInterceptor("inventory-service-kafka"));
         
         return factory;
     }
 
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, DispensingEvent> dispensingEventRetryTierContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, DispensingEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(dispensingEventConsumerFactory());
+        factory.getContainerProperties().setConsumerRebalanceListener(consumerSettings.rebalanceListener());
+        retryTopicTiers.configureTierContainers(factory, kafkaErrorHandler, "inventory-service-kafka");
+        return factory;
+    }
+
     // Unified Event Consumer Configuration for Phase 2 Kafka Optimization
     @Bean
     public ConsumerFactory<String, com.vendingmachine.common.event.DomainEvent> unifiedEventConsumerFactory() {
-        Map<String, Object> props = new HashMap<>();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, "inventory-service-unified-group");
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
-        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
-        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, com.vendingmachine.common.event.DomainEvent.class.getName());
-        props.put(JsonDeserializer.TRUSTED_PACKAGES, "com.vendingmachine.common.event");
-        props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
+        Map<String, Object> props =
+                consumerSettings.consumerConfigs("inventory-service-unified-group", ErrorHandlingDeserializer.class);
+        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, DomainEventDeserializer.class);
+        props.put(DomainEventSchemaRegistry.PATH_CONFIG, schemaRegistryPath);
+        props.putAll(unifiedEventHeaderFilter().toConfigs());
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        // Skip records of aborted transactions, such as an outbox relay page that did not commit
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
 
         return new DefaultKafkaConsumerFactory<>(props);
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, com.vendingmachine.common.event.DomainEvent> unifiedEventKafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, com.vendingmachine.common.event.DomainEvent> unifiedEventKafkaListenerContainerFactory(MeterRegistry meterRegistry,
+            ProcessedEventDedupCache dedupCache,
+            UnifiedTopicConfig unifiedTopicConfig,
+            ConsumerMetrics consumerMetrics) {
         ConcurrentKafkaListenerContainerFactory<String, com.vendingmachine.common.event.DomainEvent> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(unifiedEventConsumerFactory());
+
+        // Re-seed the processed-event dedup cache with rows committed before this assignment
+        factory.getContainerProperties().setConsumerRebalanceListener(
+                consumerSettings.rebalanceListener(dedupCache.rebalanceListener()));
+
+        // Drop events this service does not handle from their headers, before the payload is parsed
+        factory.setRecordFilterStrategy(new DomainEventRecordFilterStrategy(unifiedEventHeaderFilter(), meterRegistry, "inventory-service"));
+        factory.setAckDiscarded(true);
+
+        // One consumer thread per unified topic partition of this instance's share
+        factory.setConcurrency(unifiedTopicConfig.listenerConcurrency());
         
-        // Configure error handler with DLQ support
-        DefaultErrorHandler errorHandler = new DefaultErrorHandler(
-                kafkaErrorHandler,
-                new FixedBackOff(1000L, 3) // 3 retries with 1 second delay
-        );
-        factory.setCommonErrorHandler(errorHandler);
+        // Failed records move on to the retry tier topics, then the DLQ, without blocking the partition
+        factory.setCommonErrorHandler(retryTopicTiers.errorHandler(kafkaErrorHandler, "inventory-service-kafka"));
+        factory.setRecordInterceptor(new CompositeRecordInterceptor<>(
+                retryBudgetRegistry.recordInterceptor("inventory-service-kafka"), consumerMetrics.recordInterceptor()));
+        factory.setBatchInterceptor(new CompositeBatchInterceptor<>(
+                retryBudgetRegistry.batchInterceptor("inventory-service-kafka"), consumerMetrics.batchInterceptor()));
         
         return factory;
     }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, com.vendingmachine.common.event.DomainEvent> unifiedEventRetryTierContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, com.vendingmachine.common.event.DomainEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(unifiedEventConsumerFactory());
+        factory.getContainerProperties().setConsumerRebalanceListener(consumerSettings.rebalanceListener());
+        retryTopicTiers.configureTierContainers(factory, kafkaErrorHandler, "inventory-service-kafka");
+        return factory;
+    }
+
+    private DomainEventHeaderFilter unifiedEventHeaderFilter() {
+        return DomainEventHeaderFilter.of(filterEventTypes, filterSources);
+    }
 }
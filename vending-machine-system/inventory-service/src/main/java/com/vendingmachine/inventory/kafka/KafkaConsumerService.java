@@ -1,6 +1,7 @@
 package com.vendingmachine.inventory.kafka;
 
 import com.vendingmachine.common.event.DispensingEvent;
+import com.vendingmachine.common.kafka.ProcessedEventDedupCache;
 import com.vendingmachine.inventory.InventoryService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,13 +20,18 @@ public class KafkaConsumerService {
 
     private final InventoryService inventoryService;
     private final ProcessedEventRepository processedEventRepository;
+    private final ProcessedEventDedupCache dedupCache;
 
-    public KafkaConsumerService(InventoryService inventoryService, ProcessedEventRepository processedEventRepository) {
+    public KafkaConsumerService(InventoryService inventoryService, ProcessedEventRepository processedEventRepository,
+                                ProcessedEventDedupCache dedupCache) {
         this.inventoryService = inventoryService;
         this.processedEventRepository = processedEventRepository;
+        this.dedupCache = dedupCache;
     }
 
     @KafkaListener(topics = "dispensing-events", groupId = "inventory-group")
+    @KafkaListener(topics = "#{@retryTopicTiers.topics('dispensing-events')}", groupId = "inventory-retry-group",
+                   containerFactory = "dispensingEventRetryTierContainerFactory")
     @Transactional
     public void consumeDispensingEvent(
             @Payload DispensingEvent event,
@@ -37,7 +43,8 @@ public class KafkaConsumerService {
                    event.getEventId(), event.getProductId(), event.getQuantity(), topic, partition, offset);
 
         // Check for duplicate event processing
-        if (processedEventRepository.existsByEventIdAndEventType(event.getEventId(), "DISPENSING_EVENT")) {
+        if (dedupCache.isProcessed(event.getEventId(), "DISPENSING_EVENT", event.getTimestamp(),
+                () -> processedEventRepository.existsByEventIdAndEventType(event.getEventId(), "DISPENSING_EVENT"))) {
             logger.warn("Duplicate dispensing event detected and skipped: eventId={}", event.getEventId());
             return;
         }
@@ -57,6 +64,7 @@ public class KafkaConsumerService {
                     .build();
 
             processedEventRepository.save(processedEvent);
+            dedupCache.markProcessed(event.getEventId(), "DISPENSING_EVENT");
 
             logger.info("Successfully processed dispensing event: eventId={}, productId={}",
                        event.getEventId(), event.getProductId());
@@ -1,6 +1,8 @@
 package com.vendingmachine.inventory.kafka;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vendingmachine.common.event.EventJson;
+import com.vendingmachine.common.replay.FailedEventStore;
+import com.vendingmachine.common.util.TimeOrderedIds;
 import com.vendingmachine.inventory.entity.FailedEvent;
 import com.vendingmachine.inventory.repository.FailedEventRepository;
 import lombok.RequiredArgsConstructor;
@@ -12,7 +14,6 @@ import org.springframework.kafka.listener.ConsumerRecordRecoverer;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
-import java.util.UUID;
 
 @Slf4j
 @Component
@@ -21,11 +22,10 @@ public class KafkaErrorHandler implements ConsumerRecordRecoverer {
 
     private final FailedEventRepository failedEventRepository;
     private final KafkaProducer<String, Object> kafkaProducer;
-    private final ObjectMapper objectMapper;
 
     @Override
     public void accept(ConsumerRecord<?, ?> record, Exception exception) {
-        String eventId = UUID.randomUUID().toString();
+        String eventId = TimeOrderedIds.nextString();
         String originalTopic = record.topic();
         String dlqTopic = originalTopic + "-dlq";
 
@@ -51,9 +51,10 @@ public class KafkaErrorHandler implements ConsumerRecordRecoverer {
             FailedEvent failedEvent = FailedEvent.builder()
                     .eventId(eventId)
                     .originalTopic(record.topic())
+                    .eventType(FailedEventStore.eventTypeOf(record))
                     .partition(record.partition())
                     .offset(record.offset())
-                    .eventData(objectMapper.writeValueAsString(record.value()))
+                    .eventData(EventJson.mapper().writeValueAsString(record.value()))
                     .errorMessage(exception.getMessage())
                     .errorType(exception.getClass().getSimpleName())
                     .retryCount(0)
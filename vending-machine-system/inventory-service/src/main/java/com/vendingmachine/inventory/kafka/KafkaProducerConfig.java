@@ -1,10 +1,14 @@
 package com.vendingmachine.inventory.kafka;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vendingmachine.common.catalog.ProductSnapshot;
+import com.vendingmachine.common.catalog.ProductSnapshotSerializer;
 import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.kafka.DomainEventFormat;
+import com.vendingmachine.common.kafka.DomainEventSchemaRegistry;
+import com.vendingmachine.common.kafka.KafkaProducerSettings;
+import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.producer.KafkaProducer;
-import org.apache.kafka.clients.producer.ProducerConfig;
-import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -13,25 +17,23 @@ import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 
-import java.util.HashMap;
 import java.util.Map;
 
 @Configuration
+@RequiredArgsConstructor
 public class KafkaProducerConfig {
 
-    @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
-    private String bootstrapServers;
+    private final KafkaProducerSettings producerSettings;
+
+    @Value("${kafka.domain-events.format:json}")
+    private String domainEventFormat;
+
+    @Value("${kafka.domain-events.schema-registry-path:}")
+    private String schemaRegistryPath;
 
     @Bean
     public KafkaProducer<String, Object> kafkaProducer() {
-        Map<String, Object> props = new HashMap<>();
-        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        props.put(ProducerConfig.RETRIES_CONFIG, 3);
-        props.put(ProducerConfig.ACKS_CONFIG, "all");
-        
-        return new KafkaProducer<>(props);
+        return new KafkaProducer<>(producerSettings.producerConfigs(JsonSerializer.class));
     }
 
     @Bean
@@ -42,13 +44,7 @@ public class KafkaProducerConfig {
     // Legacy KafkaTemplate for backward compatibility
     @Bean
     public ProducerFactory<String, Object> producerFactory() {
-        Map<String, Object> configProps = new HashMap<>();
-        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
-        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
-        return new DefaultKafkaProducerFactory<>(configProps);
+        return new DefaultKafkaProducerFactory<>(producerSettings.producerConfigs(JsonSerializer.class));
     }
 
     @Bean
@@ -59,13 +55,9 @@ public class KafkaProducerConfig {
     // Unified Event Configuration for Phase 2 Kafka Optimization
     @Bean
     public ProducerFactory<String, DomainEvent> domainEventProducerFactory() {
-        Map<String, Object> configProps = new HashMap<>();
-        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
-        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
-        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        Map<String, Object> configProps =
+                producerSettings.producerConfigs(DomainEventFormat.from(domainEventFormat).getSerializerClass());
+        configProps.put(DomainEventSchemaRegistry.PATH_CONFIG, schemaRegistryPath);
         return new DefaultKafkaProducerFactory<>(configProps);
     }
 
@@ -73,4 +65,15 @@ public class KafkaProducerConfig {
     public KafkaTemplate<String, DomainEvent> kafkaTemplate() {
         return new KafkaTemplate<>(domainEventProducerFactory());
     }
+
+    // Compacted inventory-snapshot topic read by InventoryCatalog
+    @Bean
+    public ProducerFactory<String, ProductSnapshot> snapshotProducerFactory() {
+        return new DefaultKafkaProducerFactory<>(producerSettings.producerConfigs(ProductSnapshotSerializer.class));
+    }
+
+    @Bean
+    public KafkaTemplate<String, ProductSnapshot> snapshotKafkaTemplate() {
+        return new KafkaTemplate<>(snapshotProducerFactory());
+    }
 }
\ No newline at end of file
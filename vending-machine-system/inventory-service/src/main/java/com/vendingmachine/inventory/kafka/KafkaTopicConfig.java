@@ -1,9 +1,13 @@
 package com.vendingmachine.inventory.kafka;
 
+import com.vendingmachine.common.catalog.InventoryCatalog;
+import com.vendingmachine.common.kafka.RetryTopicTiers;
+import com.vendingmachine.common.kafka.UnifiedTopicConfig;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
 
 @Configuration
 public class KafkaTopicConfig {
@@ -24,6 +28,16 @@ public class KafkaTopicConfig {
                 .build();
     }
 
+    // Latest state per product; compaction keeps one record per productId
+    @Bean
+    public NewTopic inventorySnapshotTopic() {
+        return TopicBuilder.name(InventoryCatalog.SNAPSHOT_TOPIC)
+                .partitions(3)
+                .replicas(1)
+                .compact()
+                .build();
+    }
+
     // Dead Letter Queue Topics
     @Bean
     public NewTopic inventoryEventsDlqTopic() {
@@ -56,4 +70,10 @@ public class KafkaTopicConfig {
                 .replicas(1)
                 .build();
     }
+
+    // Retry tier topics of the consumed topics
+    @Bean
+    public KafkaAdmin.NewTopics retryTierTopics(RetryTopicTiers retryTopicTiers) {
+        return retryTopicTiers.newTopics("dispensing-events", UnifiedTopicConfig.UNIFIED_DOMAIN_EVENTS_TOPIC);
+    }
 }
@@ -10,7 +10,8 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "processed_events",
-       uniqueConstraints = @UniqueConstraint(columnNames = {"eventId", "eventType"}))
+       uniqueConstraints = @UniqueConstraint(name = "uk_processed_events_event", columnNames = {"event_id", "event_type"}),
+       indexes = @Index(name = "idx_processed_events_processed_at", columnList = "processed_at"))
 @Data
 @Builder
 @NoArgsConstructor
@@ -21,7 +22,7 @@ public class ProcessedEvent {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String eventId;
 
     @Column(nullable = false)
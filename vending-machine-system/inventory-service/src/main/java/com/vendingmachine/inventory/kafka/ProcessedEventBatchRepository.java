@@ -0,0 +1,14 @@
+package com.vendingmachine.inventory.kafka;
+
+import java.util.List;
+
+/**
+ * Bulk writes for {@link ProcessedEvent}, used by the batch listener
+ */
+public interface ProcessedEventBatchRepository {
+
+    /**
+     * Insert all rows in one JDBC batch, joining the current transaction
+     */
+    void insertAll(List<ProcessedEvent> events);
+}
@@ -0,0 +1,33 @@
+package com.vendingmachine.inventory.kafka;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Plain JDBC batch insert: the IDENTITY id generation on {@link ProcessedEvent} stops Hibernate
+ * from batching inserts, so one listener batch would otherwise cost one round trip per row.
+ */
+@RequiredArgsConstructor
+public class ProcessedEventBatchRepositoryImpl implements ProcessedEventBatchRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO processed_events (event_id, event_type, processed_at, topic, `partition`, event_offset) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(List<ProcessedEvent> events) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(),
+                (ps, event) -> {
+                    ps.setString(1, event.getEventId());
+                    ps.setString(2, event.getEventType());
+                    ps.setTimestamp(3, Timestamp.valueOf(event.getProcessedAt()));
+                    ps.setString(4, event.getTopic());
+                    ps.setInt(5, event.getPartition());
+                    ps.setLong(6, event.getOffset());
+                });
+    }
+}
@@ -1,14 +1,21 @@
 package com.vendingmachine.inventory.kafka;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vendingmachine.common.event.DomainEvent;
 import com.vendingmachine.common.event.payload.DispensingPayload;
+import com.vendingmachine.common.kafka.DomainEventBatchProcessor;
+import com.vendingmachine.common.kafka.DomainEventHandler;
+import com.vendingmachine.common.kafka.DomainEventHandlerRegistry;
+import com.vendingmachine.common.kafka.ProcessedEventDedupCache;
 import com.vendingmachine.common.aop.annotation.Auditable;
 import com.vendingmachine.common.aop.annotation.ExecutionTime;
+import com.vendingmachine.common.monitoring.DeadlineMetrics;
 import com.vendingmachine.common.util.CorrelationIdUtil;
+import com.vendingmachine.common.util.RequestDeadlineUtil;
 import com.vendingmachine.inventory.InventoryService;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
@@ -17,6 +24,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -25,16 +35,30 @@ public class UnifiedEventConsumer {
 
     private final InventoryService inventoryService;
     private final ProcessedEventRepository processedEventRepository;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DeadlineMetrics deadlineMetrics;
+    private final DomainEventBatchProcessor batchProcessor;
+    private final ProcessedEventDedupCache dedupCache;
+    private final DomainEventHandlerRegistry handlerRegistry;
+
+    @PostConstruct
+    public void seedDedupCache() {
+        dedupCache.setSeedSource(processedEventRepository::findByProcessedAtAfter);
+    }
 
     @KafkaListener(topics = "vending-machine-domain-events", groupId = "inventory-service-unified-group",
-                   containerFactory = "unifiedEventKafkaListenerContainerFactory")
+                   containerFactory = "unifiedEventKafkaListenerContainerFactory",
+                   autoStartup = "#{!${kafka.domain-events.batch.enabled:false}}")
+    @KafkaListener(topics = "#{@retryTopicTiers.topics('vending-machine-domain-events')}",
+                   groupId = "inventory-service-unified-retry-group",
+                   containerFactory = "unifiedEventRetryTierContainerFactory",
+                   autoStartup = "#{!${kafka.domain-events.batch.enabled:false}}")
     @Transactional
     @Auditable(operation = "CONSUME_UNIFIED_EVENT", entityType = "DomainEvent", logParameters = true)
     @ExecutionTime(operation = "Process Unified Event", warningThreshold = 2000, detailed = true)
     public void consumeUnifiedEvent(@Payload DomainEvent event,
                                    @Header(value = KafkaHeaders.RECEIVED_KEY, required = false) String key,
                                    @Header(value = "X-Correlation-ID", required = false) String correlationId,
+                                   @Header(value = RequestDeadlineUtil.DEADLINE_HEADER, required = false) byte[] deadline,
                                    @Header(value = KafkaHeaders.RECEIVED_TOPIC, required = false) String topic,
                                    @Header(value = KafkaHeaders.RECEIVED_PARTITION, required = false) Integer partition,
                                    @Header(value = KafkaHeaders.OFFSET, required = false) Long offset) {
@@ -47,6 +71,10 @@ public class UnifiedEventConsumer {
             log.info("Received unified event: {} from {} with type {}", 
                     event.getEventId(), event.getSource(), event.getEventType());
 
+            // Count work done for callers that have already given up
+            deadlineMetrics.recordIfExpired(RequestDeadlineUtil.parseDeadline(deadline),
+                    DeadlineMetrics.STAGE_KAFKA, "inventory-service");
+
             // Route event based on type and source
             routeEvent(event, topic, partition, offset);
             
@@ -59,28 +87,68 @@ public class UnifiedEventConsumer {
     }
 
     /**
-     * Smart routing based on event type and source
+     * Batch listener mode: one IN query for duplicates, one transaction and one JDBC batch of
+     * ProcessedEvent rows per poll. Replaces the record listener when kafka.domain-events.batch.enabled is set.
      */
-    private void routeEvent(DomainEvent event, String topic, Integer partition, Long offset) {
-        String eventType = event.getEventType();
-        String source = event.getSource();
-        
-        try {
-            switch (eventType) {
-                // Dispensing Events - only process successful dispensing to reduce stock
-                case "DISPENSING_SUCCESS":
-                case "DISPENSING_COMPLETED":
-                    if ("dispensing-service".equals(source)) {
-                        handleDispensingEvent(event, topic, partition, offset);
-                    }
-                    break;
-                    
-                default:
-                    log.debug("Ignoring event type: {} from source: {} (not relevant for inventory service)", eventType, source);
+    @KafkaListener(topics = "vending-machine-domain-events", groupId = "inventory-service-unified-group",
+                   containerFactory = "unifiedEventKafkaListenerContainerFactory", batch = "true",
+                   autoStartup = "${kafka.domain-events.batch.enabled:false}",
+                   properties = "max.poll.records=${kafka.domain-events.batch.max-poll-records:100}")
+    @KafkaListener(topics = "#{@retryTopicTiers.topics('vending-machine-domain-events')}",
+                   groupId = "inventory-service-unified-retry-group",
+                   containerFactory = "unifiedEventRetryTierContainerFactory", batch = "true",
+                   autoStartup = "${kafka.domain-events.batch.enabled:false}",
+                   properties = "max.poll.records=${kafka.domain-events.batch.max-poll-records:100}")
+    @ExecutionTime(operation = "Process Unified Event Batch", warningThreshold = 5000)
+    public void consumeUnifiedEventBatch(List<ConsumerRecord<String, DomainEvent>> records) {
+        log.info("Received batch of {} unified events", records.size());
+        batchProcessor.process(records, new DomainEventBatchProcessor.Handler<ProcessedEvent>() {
+            @Override
+            public Set<String> findProcessed(Collection<String> eventIds) {
+                return processedEventRepository.findProcessedEventIds(eventIds);
             }
-        } catch (Exception e) {
-            log.error("Failed to route event {} of type {}", event.getEventId(), eventType, e);
-            throw e;
+
+            @Override
+            public String processedEventType(DomainEvent event) {
+                return "UNIFIED_DISPENSING_EVENT";
+            }
+
+            @Override
+            public ProcessedEvent handle(ConsumerRecord<String, DomainEvent> record) {
+                return handleBatchRecord(record);
+            }
+
+            @Override
+            public void saveProcessed(List<ProcessedEvent> rows) {
+                processedEventRepository.insertAll(rows);
+            }
+        });
+    }
+
+    private ProcessedEvent handleBatchRecord(ConsumerRecord<String, DomainEvent> record) {
+        DomainEvent event = record.value();
+        deadlineMetrics.recordIfExpired(RequestDeadlineUtil.parseDeadline(
+                DomainEventBatchProcessor.headerValue(record, RequestDeadlineUtil.DEADLINE_HEADER)),
+                DeadlineMetrics.STAGE_KAFKA, "inventory-service");
+
+        if (handlerRegistry.handles(event)) {
+            handlerRegistry.dispatch(event);
+            return processedEvent(event, record.topic(), record.partition(), record.offset());
+        }
+        log.debug("Ignoring event type: {} from source: {} (not relevant for inventory service)",
+                event.getEventType(), event.getSource());
+        return null;
+    }
+
+    /**
+     * Route the event to its handler, if this service has one for its type and source
+     */
+    private void routeEvent(DomainEvent event, String topic, Integer partition, Long offset) {
+        if (handlerRegistry.handles(event)) {
+            handleDispensingEvent(event, topic, partition, offset);
+        } else {
+            log.debug("Ignoring event type: {} from source: {} (not relevant for inventory service)",
+                    event.getEventType(), event.getSource());
         }
     }
 
@@ -88,18 +156,31 @@ public class UnifiedEventConsumer {
      * Handle dispensing events to update inventory stock
      */
     private void handleDispensingEvent(DomainEvent event, String kafkaTopic, Integer kafkaPartition, Long kafkaOffset) {
+        // Check for duplicate event processing using domain event ID
+        if (dedupCache.isProcessed(event.getEventId(), "UNIFIED_DISPENSING_EVENT", event.getTimestamp(),
+                () -> processedEventRepository.existsByEventIdAndEventType(event.getEventId(), "UNIFIED_DISPENSING_EVENT"))) {
+            log.warn("Unified dispensing event {} already processed, skipping", event.getEventId());
+            return;
+        }
+
+        handlerRegistry.dispatch(event);
+
+        // Mark event as processed with complete Kafka metadata
+        processedEventRepository.save(processedEvent(event, kafkaTopic, kafkaPartition, kafkaOffset));
+        dedupCache.markProcessed(event.getEventId(), "UNIFIED_DISPENSING_EVENT");
+        log.info("Successfully processed unified dispensing event: {}", event.getEventId());
+    }
+
+    /**
+     * Apply a dispensing event to stock: only successful dispensing reduces it
+     */
+    @DomainEventHandler(type = {"DISPENSING_SUCCESS", "DISPENSING_COMPLETED"}, source = "dispensing-service",
+                        payload = DispensingPayload.class)
+    public void applyDispensingEvent(DomainEvent event, DispensingPayload payload) {
         try {
-            DispensingPayload payload = parsePayload(event.getPayload(), DispensingPayload.class);
-            
             log.info("Processing unified dispensing event: {} for product {} quantity {}",
                     event.getEventId(), payload.getProductId(), payload.getDispensedQuantity());
 
-            // Check for duplicate event processing using domain event ID
-            if (processedEventRepository.existsByEventIdAndEventType(event.getEventId(), "UNIFIED_DISPENSING_EVENT")) {
-                log.warn("Unified dispensing event {} already processed, skipping", event.getEventId());
-                return;
-            }
-
             // Only reduce stock if dispensing was successful and items were actually dispensed
             if (("SUCCESS".equals(payload.getStatus()) || "COMPLETED".equals(payload.getStatus())) && payload.getDispensedQuantity() > 0) {
                 // Update stock - reduce quantity
@@ -111,20 +192,6 @@ public class UnifiedEventConsumer {
                 log.warn("Dispensing event indicates failure or zero dispensed quantity, not updating stock: {} - status: {}, dispensed: {}",
                          event.getEventId(), payload.getStatus(), payload.getDispensedQuantity());
             }
-
-            // Mark event as processed with complete Kafka metadata
-            ProcessedEvent processedEvent = ProcessedEvent.builder()
-                    .eventId(event.getEventId())
-                    .eventType("UNIFIED_DISPENSING_EVENT")
-                    .processedAt(LocalDateTime.now())
-                    .topic(kafkaTopic != null ? kafkaTopic : "vending-machine-domain-events")
-                    .partition(kafkaPartition != null ? kafkaPartition : 0)
-                    .offset(kafkaOffset != null ? kafkaOffset : 0L)
-                    .build();
-            processedEventRepository.save(processedEvent);
-
-            log.info("Successfully processed unified dispensing event: {}", event.getEventId());
-
         } catch (Exception e) {
             log.error("Failed to process unified dispensing event: {}", event.getEventId(), e);
             throw new RuntimeException("Failed to process unified dispensing event", e);
@@ -132,14 +199,16 @@ public class UnifiedEventConsumer {
     }
 
     /**
-     * Parse JSON payload to specific payload class
+     * ProcessedEvent row of a handled dispensing event, with its Kafka metadata
      */
-    private <T> T parsePayload(String payloadJson, Class<T> payloadClass) {
-        try {
-            return objectMapper.readValue(payloadJson, payloadClass);
-        } catch (Exception e) {
-            log.error("Failed to parse payload for class {}: {}", payloadClass.getSimpleName(), payloadJson, e);
-            throw new RuntimeException("Failed to parse event payload", e);
-        }
+    private ProcessedEvent processedEvent(DomainEvent event, String kafkaTopic, Integer kafkaPartition, Long kafkaOffset) {
+        return ProcessedEvent.builder()
+                .eventId(event.getEventId())
+                .eventType("UNIFIED_DISPENSING_EVENT")
+                .processedAt(LocalDateTime.now())
+                .topic(kafkaTopic != null ? kafkaTopic : "vending-machine-domain-events")
+                .partition(kafkaPartition != null ? kafkaPartition : 0)
+                .offset(kafkaOffset != null ? kafkaOffset : 0L)
+                .build();
     }
 }
\ No newline at end of file
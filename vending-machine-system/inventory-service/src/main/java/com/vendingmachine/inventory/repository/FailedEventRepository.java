@@ -1,7 +1,11 @@
 package com.vendingmachine.inventory.repository;
 
+import com.vendingmachine.common.replay.FailedEventReplayRepository;
+import com.vendingmachine.common.retention.FailedEventRetentionRepository;
 import com.vendingmachine.inventory.entity.FailedEvent;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -11,7 +15,8 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface FailedEventRepository extends JpaRepository<FailedEvent, Long> {
+public interface FailedEventRepository extends JpaRepository<FailedEvent, Long>, FailedEventRetentionRepository,
+        FailedEventReplayRepository {
 
     Optional<FailedEvent> findByEventId(String eventId);
 
@@ -34,4 +39,39 @@ public interface FailedEventRepository extends JpaRepository<FailedEvent, Long>
     List<String> findDistinctErrorTypesSince(@Param("since") LocalDateTime since);
 
     boolean existsByEventId(String eventId);
-}
\ No newline at end of file
+
+    /**
+     * Delete one chunk of rows that failed before the cutoff, for the retention job
+     */
+    @Modifying
+    @Query(value = "DELETE FROM failed_events WHERE failed_at < :cutoff LIMIT :limit", nativeQuery = true)
+    @Override
+    int deleteFailedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    /**
+     * One keyset page of FAILED rows for the DLQ replay engine, by id
+     */
+    @Query("SELECT f FROM FailedEvent f WHERE f.status = 'FAILED' AND f.id > :afterId"
+            + " AND (:topic IS NULL OR f.originalTopic = :topic)"
+            + " AND (:errorType IS NULL OR f.errorType = :errorType)"
+            + " AND (:eventType IS NULL OR f.eventType = :eventType)"
+            + " AND (:from IS NULL OR f.failedAt >= :from)"
+            + " AND (:to IS NULL OR f.failedAt < :to)"
+            + " ORDER BY f.id")
+    @Override
+    List<FailedEvent> findReplayPage(@Param("afterId") long afterId, @Param("topic") String topic,
+                                     @Param("errorType") String errorType, @Param("eventType") String eventType,
+                                     @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                     Pageable pageable);
+
+    /**
+     * Mark a page of replayed rows in one statement
+     */
+    @Modifying
+    @Query("UPDATE FailedEvent f SET f.status = 'REPLAYED', f.retryCount = f.retryCount + 1,"
+            + " f.lastRetryAt = :replayedAt, f.resolvedAt = :replayedAt, f.resolvedBy = :replayedBy"
+            + " WHERE f.id IN :ids")
+    @Override
+    int markReplayed(@Param("ids") List<Long> ids, @Param("replayedAt") LocalDateTime replayedAt,
+                     @Param("replayedBy") String replayedBy);
+}
@@ -1,8 +1,16 @@
 package com.vendingmachine.notification.kafka;
 
 import com.vendingmachine.common.event.*;
+import com.vendingmachine.common.kafka.ConsumerMetrics;
+import com.vendingmachine.common.kafka.DomainEventDeserializer;
+import com.vendingmachine.common.kafka.DomainEventHeaderFilter;
+import com.vendingmachine.common.kafka.DomainEventRecordFilterStrategy;
+import com.vendingmachine.common.kafka.DomainEventSchemaRegistry;
+import com.vendingmachine.common.kafka.KafkaConsumerSettings;
+import com.vendingmachine.common.kafka.UnifiedTopicConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
-import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,15 +20,23 @@ import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 
-import java.util.HashMap;
 import java.util.Map;
 
 @Configuration
 @EnableKafka
+@RequiredArgsConstructor
 public class KafkaConfig {
 
-    @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
-    private String bootstrapServers;
+    private final KafkaConsumerSettings consumerSettings;
+
+    @Value("${kafka.domain-events.schema-registry-path:}")
+    private String schemaRegistryPath;
+
+    @Value("${kafka.domain-events.filter.event-types:}")
+    private String filterEventTypes;
+
+    @Value("${kafka.domain-events.filter.sources:}")
+    private String filterSources;
 
     @Value("${spring.kafka.consumer.group-id:notification-service-group}")
     private String groupId;
@@ -31,23 +47,35 @@ public class KafkaConfig {
     
     @Bean
     public ConsumerFactory<String, DomainEvent> domainEventConsumerFactory() {
-        Map<String, Object> props = new HashMap<>();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, "notification-service-unified-group");
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
-        props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
-        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, DomainEvent.class.getName());
+        Map<String, Object> props =
+                consumerSettings.consumerConfigs("notification-service-unified-group", DomainEventDeserializer.class);
+        props.put(DomainEventSchemaRegistry.PATH_CONFIG, schemaRegistryPath);
+        props.putAll(unifiedEventHeaderFilter().toConfigs());
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        // Skip records of aborted transactions, such as an outbox relay page that did not commit
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
 
         return new DefaultKafkaConsumerFactory<>(props);
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, DomainEvent> domainEventKafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, DomainEvent> domainEventKafkaListenerContainerFactory(MeterRegistry meterRegistry,
+            UnifiedTopicConfig unifiedTopicConfig,
+            ConsumerMetrics consumerMetrics) {
         ConcurrentKafkaListenerContainerFactory<String, DomainEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(domainEventConsumerFactory());
-        factory.setConcurrency(3); // Match topic partitions
+        factory.getContainerProperties().setConsumerRebalanceListener(consumerSettings.rebalanceListener());
+
+        // Drop events this service does not handle from their headers, before the payload is parsed
+        factory.setRecordFilterStrategy(new DomainEventRecordFilterStrategy(unifiedEventHeaderFilter(), meterRegistry, "notification-service"));
+        factory.setAckDiscarded(true);
+
+        // One consumer thread per unified topic partition of this instance's share
+        factory.setConcurrency(unifiedTopicConfig.listenerConcurrency());
+
+        // Processing time and in-flight records of the listeners
+        factory.setRecordInterceptor(consumerMetrics.recordInterceptor());
+        factory.setBatchInterceptor(consumerMetrics.batchInterceptor());
         return factory;
     }
 
@@ -57,11 +85,7 @@ public class KafkaConfig {
 
     @Bean
     public ConsumerFactory<String, LowStockAlertEvent> lowStockAlertConsumerFactory() {
-        Map<String, Object> props = new HashMap<>();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        Map<String, Object> props = consumerSettings.consumerConfigs(groupId, JsonDeserializer.class);
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
         props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, LowStockAlertEvent.class.getName());
 
@@ -72,16 +96,13 @@ public class KafkaConfig {
     public ConcurrentKafkaListenerContainerFactory<String, LowStockAlertEvent> lowStockAlertKafkaListenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<String, LowStockAlertEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(lowStockAlertConsumerFactory());
+        factory.getContainerProperties().setConsumerRebalanceListener(consumerSettings.rebalanceListener());
         return factory;
     }
 
     @Bean
     public ConsumerFactory<String, TransactionEvent> transactionEventConsumerFactory() {
-        Map<String, Object> props = new HashMap<>();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        Map<String, Object> props = consumerSettings.consumerConfigs(groupId, JsonDeserializer.class);
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
         props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, TransactionEvent.class.getName());
 
@@ -92,16 +113,13 @@ public class KafkaConfig {
     public ConcurrentKafkaListenerContainerFactory<String, TransactionEvent> transactionEventKafkaListenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<String, TransactionEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(transactionEventConsumerFactory());
+        factory.getContainerProperties().setConsumerRebalanceListener(consumerSettings.rebalanceListener());
         return factory;
     }
 
     @Bean
     public ConsumerFactory<String, PaymentEvent> paymentEventConsumerFactory() {
-        Map<String, Object> props = new HashMap<>();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        Map<String, Object> props = consumerSettings.consumerConfigs(groupId, JsonDeserializer.class);
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
         props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, PaymentEvent.class.getName());
 
@@ -112,16 +130,13 @@ public class KafkaConfig {
     public ConcurrentKafkaListenerContainerFactory<String, PaymentEvent> paymentEventKafkaListenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<String, PaymentEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(paymentEventConsumerFactory());
+        factory.getContainerProperties().setConsumerRebalanceListener(consumerSettings.rebalanceListener());
         return factory;
     }
 
     @Bean
     public ConsumerFactory<String, DispensingEvent> dispensingEventConsumerFactory() {
-        Map<String, Object> props = new HashMap<>();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        Map<String, Object> props = consumerSettings.consumerConfigs(groupId, JsonDeserializer.class);
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
         props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, DispensingEvent.class.getName());
 
@@ -132,6 +147,11 @@ public class KafkaConfig {
     public ConcurrentKafkaListenerContainerFactory<String, DispensingEvent> dispensingEventKafkaListenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<String, DispensingEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(dispensingEventConsumerFactory());
+        factory.getContainerProperties().setConsumerRebalanceListener(consumerSettings.rebalanceListener());
         return factory;
     }
-}
\ No newline at end of file
+
+    private DomainEventHeaderFilter unifiedEventHeaderFilter() {
+        return DomainEventHeaderFilter.of(filterEventTypes, filterSources);
+    }
+}
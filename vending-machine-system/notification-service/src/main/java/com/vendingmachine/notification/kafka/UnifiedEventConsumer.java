@@ -1,36 +1,51 @@
 package com.vendingmachine.notification.kafka;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vendingmachine.common.event.DomainEvent;
 import com.vendingmachine.common.event.payload.*;
+import com.vendingmachine.common.kafka.DomainEventBatchProcessor;
+import com.vendingmachine.common.kafka.DomainEventHandler;
+import com.vendingmachine.common.kafka.DomainEventHandlerRegistry;
 import com.vendingmachine.common.aop.annotation.Auditable;
 import com.vendingmachine.common.aop.annotation.ExecutionTime;
+import com.vendingmachine.common.monitoring.DeadlineMetrics;
 import com.vendingmachine.common.util.CorrelationIdUtil;
+import com.vendingmachine.common.util.RequestDeadlineUtil;
 import com.vendingmachine.notification.notification.NotificationService;
 import com.vendingmachine.notification.notification.NotificationType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class UnifiedEventConsumer {
 
     private final NotificationService notificationService;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DeadlineMetrics deadlineMetrics;
+    private final DomainEventBatchProcessor batchProcessor;
+    private final DomainEventHandlerRegistry handlerRegistry;
 
     @KafkaListener(topics = "vending-machine-domain-events", groupId = "notification-service-unified-group",
-                   containerFactory = "domainEventKafkaListenerContainerFactory")
+                   containerFactory = "domainEventKafkaListenerContainerFactory",
+                   autoStartup = "#{!${kafka.domain-events.batch.enabled:false}}")
+    @KafkaListener(topics = "vending-machine-domain-events-bulk", groupId = "notification-service-bulk-group",
+                   containerFactory = "domainEventKafkaListenerContainerFactory",
+                   concurrency = "#{@unifiedTopicConfig.bulkListenerConcurrency()}",
+                   autoStartup = "#{!${kafka.domain-events.batch.enabled:false}}")
     @Transactional
     @Auditable(operation = "CONSUME_UNIFIED_EVENT", entityType = "DomainEvent", logParameters = true)
     @ExecutionTime(operation = "CONSUME_UNIFIED_EVENT", warningThreshold = 2000)
     public void consumeUnifiedEvent(@Payload DomainEvent event,
-                                   @Header(value = "X-Correlation-ID", required = false) String correlationId) {
+                                   @Header(value = "X-Correlation-ID", required = false) String correlationId,
+                                   @Header(value = RequestDeadlineUtil.DEADLINE_HEADER, required = false) byte[] deadline) {
         try {
             if (correlationId != null) {
                 CorrelationIdUtil.setCorrelationId(correlationId);
@@ -41,6 +56,10 @@ public class UnifiedEventConsumer {
             log.info("Received unified event: {} from {} with type {}", 
                     event.getEventId(), event.getSource(), event.getEventType());
 
+            // Count work done for callers that have already given up
+            deadlineMetrics.recordIfExpired(RequestDeadlineUtil.parseDeadline(deadline),
+                    DeadlineMetrics.STAGE_KAFKA, "notification-service");
+
             // Route event based on type and source
             routeEvent(event);
             
@@ -53,60 +72,51 @@ public class UnifiedEventConsumer {
     }
 
     /**
-     * Smart routing based on event type and source
+     * Batch listener mode: notifications of one poll are written in one transaction.
+     * Replaces the record listener when kafka.domain-events.batch.enabled is set.
+     * Notifications cover both priority tiers: the critical topic in the unified group, and the
+     * bulk topic in a group of its own with the bulk tier's concurrency, so inventory traffic
+     * never holds up purchase notifications.
+     */
+    @KafkaListener(topics = "vending-machine-domain-events", groupId = "notification-service-unified-group",
+                   containerFactory = "domainEventKafkaListenerContainerFactory", batch = "true",
+                   autoStartup = "${kafka.domain-events.batch.enabled:false}",
+                   properties = "max.poll.records=${kafka.domain-events.batch.max-poll-records:100}")
+    @KafkaListener(topics = "vending-machine-domain-events-bulk", groupId = "notification-service-bulk-group",
+                   containerFactory = "domainEventKafkaListenerContainerFactory", batch = "true",
+                   concurrency = "#{@unifiedTopicConfig.bulkListenerConcurrency()}",
+                   autoStartup = "${kafka.domain-events.batch.enabled:false}",
+                   properties = "max.poll.records=${kafka.domain-events.batch.max-poll-records:100}")
+    @ExecutionTime(operation = "CONSUME_UNIFIED_EVENT_BATCH", warningThreshold = 5000)
+    public void consumeUnifiedEventBatch(List<ConsumerRecord<String, DomainEvent>> records) {
+        log.info("Received batch of {} unified events", records.size());
+        batchProcessor.process(records, record -> {
+            deadlineMetrics.recordIfExpired(RequestDeadlineUtil.parseDeadline(
+                    DomainEventBatchProcessor.headerValue(record, RequestDeadlineUtil.DEADLINE_HEADER)),
+                    DeadlineMetrics.STAGE_KAFKA, "notification-service");
+            routeEvent(record.value());
+            return null;
+        });
+    }
+
+    /**
+     * Route the event to its handler, if this service has one for its type
      */
     private void routeEvent(DomainEvent event) {
-        String eventType = event.getEventType();
-        String source = event.getSource();
-        
-        try {
-            switch (eventType) {
-                // Transaction Events
-                case "TRANSACTION_CREATED":
-                case "TRANSACTION_PROCESSING":
-                case "TRANSACTION_COMPLETED":
-                case "TRANSACTION_FAILED":
-                    handleTransactionEvent(event);
-                    break;
-                    
-                // Payment Events
-                case "PAYMENT_PROCESSING":
-                case "PAYMENT_COMPLETED":
-                case "PAYMENT_FAILED":
-                    handlePaymentEvent(event);
-                    break;
-                    
-                // Dispensing Events
-                case "DISPENSING_STARTED":
-                case "DISPENSING_COMPLETED":
-                case "DISPENSING_FAILED":
-                case "DISPENSING_PARTIAL":
-                    handleDispensingEvent(event);
-                    break;
-                    
-                // Inventory Events
-                case "INVENTORY_STOCK_UPDATED":
-                case "INVENTORY_LOW_STOCK_ALERT":
-                case "INVENTORY_OUT_OF_STOCK_ALERT":
-                    handleInventoryEvent(event);
-                    break;
-                    
-                default:
-                    log.warn("Unknown event type received: {} from source: {}", eventType, source);
-            }
-        } catch (Exception e) {
-            log.error("Failed to route event {} of type {}", event.getEventId(), eventType, e);
-            throw e;
+        if (handlerRegistry.handles(event)) {
+            handlerRegistry.dispatch(event);
+        } else {
+            log.warn("Unknown event type received: {} from source: {}", event.getEventType(), event.getSource());
         }
     }
 
     /**
      * Handle transaction events with enhanced payload
      */
-    private void handleTransactionEvent(DomainEvent event) {
+    @DomainEventHandler(type = {"TRANSACTION_CREATED", "TRANSACTION_PROCESSING", "TRANSACTION_COMPLETED", "TRANSACTION_FAILED"},
+                        payload = TransactionPayload.class)
+    public void handleTransactionEvent(DomainEvent event, TransactionPayload payload) {
         try {
-            TransactionPayload payload = parsePayload(event.getPayload(), TransactionPayload.class);
-            
             NotificationType type;
             String message;
             String severity;
@@ -149,10 +159,10 @@ public class UnifiedEventConsumer {
     /**
      * Handle payment events with enhanced payload
      */
-    private void handlePaymentEvent(DomainEvent event) {
+    @DomainEventHandler(type = {"PAYMENT_PROCESSING", "PAYMENT_COMPLETED", "PAYMENT_FAILED"},
+                        payload = PaymentPayload.class)
+    public void handlePaymentEvent(DomainEvent event, PaymentPayload payload) {
         try {
-            PaymentPayload payload = parsePayload(event.getPayload(), PaymentPayload.class);
-            
             NotificationType type;
             String message;
             String severity;
@@ -194,10 +204,10 @@ public class UnifiedEventConsumer {
     /**
      * Handle dispensing events with enhanced payload
      */
-    private void handleDispensingEvent(DomainEvent event) {
+    @DomainEventHandler(type = {"DISPENSING_STARTED", "DISPENSING_COMPLETED", "DISPENSING_FAILED", "DISPENSING_PARTIAL"},
+                        payload = DispensingPayload.class)
+    public void handleDispensingEvent(DomainEvent event, DispensingPayload payload) {
         try {
-            DispensingPayload payload = parsePayload(event.getPayload(), DispensingPayload.class);
-            
             NotificationType type;
             String message;
             String severity;
@@ -247,10 +257,10 @@ public class UnifiedEventConsumer {
     /**
      * Handle inventory events with enhanced payload
      */
-    private void handleInventoryEvent(DomainEvent event) {
+    @DomainEventHandler(type = {"INVENTORY_STOCK_UPDATED", "INVENTORY_LOW_STOCK_ALERT", "INVENTORY_OUT_OF_STOCK_ALERT"},
+                        payload = InventoryPayload.class)
+    public void handleInventoryEvent(DomainEvent event, InventoryPayload payload) {
         try {
-            InventoryPayload payload = parsePayload(event.getPayload(), InventoryPayload.class);
-            
             // Only handle low stock and out of stock alerts
             if ("INVENTORY_LOW_STOCK_ALERT".equals(event.getEventType()) || 
                 "INVENTORY_OUT_OF_STOCK_ALERT".equals(event.getEventType())) {
@@ -278,16 +288,4 @@ public class UnifiedEventConsumer {
             throw e;
         }
     }
-
-    /**
-     * Parse JSON payload to specific payload class
-     */
-    private <T> T parsePayload(String payloadJson, Class<T> payloadClass) {
-        try {
-            return objectMapper.readValue(payloadJson, payloadClass);
-        } catch (Exception e) {
-            log.error("Failed to parse payload for class {}: {}", payloadClass.getSimpleName(), payloadJson, e);
-            throw new RuntimeException("Failed to parse event payload", e);
-        }
-    }
 }
\ No newline at end of file
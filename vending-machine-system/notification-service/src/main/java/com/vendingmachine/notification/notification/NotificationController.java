@@ -9,7 +9,6 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -23,7 +22,7 @@ public class NotificationController {
     @ExecutionTime(operation = "GET_ALL_NOTIFICATIONS", warningThreshold = 1500)
     public ResponseEntity<List<Notification>> getAllNotifications() {
         try {
-            CorrelationIdUtil.setCorrelationId(UUID.randomUUID().toString());
+            CorrelationIdUtil.setCorrelationId(CorrelationIdUtil.generateCorrelationId());
             
             List<Notification> notifications = notificationService.getAllNotifications();
             return ResponseEntity.ok(notifications);
@@ -37,7 +36,7 @@ public class NotificationController {
     @ExecutionTime(operation = "GET_UNREAD_NOTIFICATIONS", warningThreshold = 1000)
     public ResponseEntity<List<Notification>> getUnreadNotifications() {
         try {
-            CorrelationIdUtil.setCorrelationId(UUID.randomUUID().toString());
+            CorrelationIdUtil.setCorrelationId(CorrelationIdUtil.generateCorrelationId());
             
             List<Notification> notifications = notificationService.getUnreadNotifications();
             return ResponseEntity.ok(notifications);
@@ -51,7 +50,7 @@ public class NotificationController {
     @ExecutionTime(operation = "GET_NOTIFICATIONS_BY_STATUS", warningThreshold = 1000)
     public ResponseEntity<List<Notification>> getNotificationsByStatus(@PathVariable String status) {
         try {
-            CorrelationIdUtil.setCorrelationId(UUID.randomUUID().toString());
+            CorrelationIdUtil.setCorrelationId(CorrelationIdUtil.generateCorrelationId());
             
             List<Notification> notifications = notificationService.getNotificationsByStatus(status);
             return ResponseEntity.ok(notifications);
@@ -65,7 +64,7 @@ public class NotificationController {
     @ExecutionTime(operation = "GET_NOTIFICATIONS_BY_TYPE", warningThreshold = 1000)
     public ResponseEntity<List<Notification>> getNotificationsByType(@PathVariable NotificationType type) {
         try {
-            CorrelationIdUtil.setCorrelationId(UUID.randomUUID().toString());
+            CorrelationIdUtil.setCorrelationId(CorrelationIdUtil.generateCorrelationId());
             
             List<Notification> notifications = notificationService.getNotificationsByType(type);
             return ResponseEntity.ok(notifications);
@@ -79,7 +78,7 @@ public class NotificationController {
     @ExecutionTime(operation = "GET_RECENT_NOTIFICATIONS", warningThreshold = 1000)
     public ResponseEntity<List<Notification>> getRecentNotifications(@PathVariable int hours) {
         try {
-            CorrelationIdUtil.setCorrelationId(UUID.randomUUID().toString());
+            CorrelationIdUtil.setCorrelationId(CorrelationIdUtil.generateCorrelationId());
             
             List<Notification> notifications = notificationService.getRecentNotifications(hours);
             return ResponseEntity.ok(notifications);
@@ -93,7 +92,7 @@ public class NotificationController {
     @ExecutionTime(operation = "GET_NOTIFICATION_BY_ID", warningThreshold = 500)
     public ResponseEntity<Notification> getNotificationById(@PathVariable Long id) {
         try {
-            CorrelationIdUtil.setCorrelationId(UUID.randomUUID().toString());
+            CorrelationIdUtil.setCorrelationId(CorrelationIdUtil.generateCorrelationId());
             
             Notification notification = notificationService.getNotificationById(id);
             return ResponseEntity.ok(notification);
@@ -107,7 +106,7 @@ public class NotificationController {
     @ExecutionTime(operation = "MARK_NOTIFICATION_AS_READ", warningThreshold = 500, detailed = true)
     public ResponseEntity<Void> markAsRead(@PathVariable Long id) {
         try {
-            CorrelationIdUtil.setCorrelationId(UUID.randomUUID().toString());
+            CorrelationIdUtil.setCorrelationId(CorrelationIdUtil.generateCorrelationId());
             
             notificationService.markAsRead(id);
             return ResponseEntity.ok().build();
@@ -121,7 +120,7 @@ public class NotificationController {
     @ExecutionTime(operation = "ARCHIVE_NOTIFICATION", warningThreshold = 500, detailed = true)
     public ResponseEntity<Void> archiveNotification(@PathVariable Long id) {
         try {
-            CorrelationIdUtil.setCorrelationId(UUID.randomUUID().toString());
+            CorrelationIdUtil.setCorrelationId(CorrelationIdUtil.generateCorrelationId());
             
             notificationService.archiveNotification(id);
             return ResponseEntity.ok().build();
@@ -135,7 +134,7 @@ public class NotificationController {
     @ExecutionTime(operation = "GET_NOTIFICATION_STATS", warningThreshold = 800)
     public ResponseEntity<Map<String, Object>> getNotificationStats() {
         try {
-            CorrelationIdUtil.setCorrelationId(UUID.randomUUID().toString());
+            CorrelationIdUtil.setCorrelationId(CorrelationIdUtil.generateCorrelationId());
             
             long unreadCount = notificationService.getUnreadCount();
             long totalCount = notificationService.getAllNotifications().size();
@@ -1,5 +1,6 @@
 package com.vendingmachine.payment.entity;
 
+import com.vendingmachine.common.replay.FailedEventRow;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -9,12 +10,16 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "failed_events")
+@Table(name = "failed_events",
+       indexes = {
+               @Index(name = "idx_failed_events_failed_at", columnList = "failed_at"),
+               @Index(name = "idx_failed_events_event_type", columnList = "event_type")
+       })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class FailedEvent {
+public class FailedEvent implements FailedEventRow {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -26,6 +31,9 @@ public class FailedEvent {
     @Column(name = "original_topic", nullable = false)
     private String originalTopic;
 
+    @Column(name = "event_type")
+    private String eventType;
+
     @Column(name = "partition_number")
     private Integer partition;
 
@@ -6,12 +6,20 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.vendingmachine.common.event.PaymentEvent;
 import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.kafka.ConsumerMetrics;
+import com.vendingmachine.common.kafka.DomainEventFormat;
+import com.vendingmachine.common.kafka.DomainEventDeserializer;
+import com.vendingmachine.common.kafka.DomainEventHeaderFilter;
+import com.vendingmachine.common.kafka.DomainEventRecordFilterStrategy;
+import com.vendingmachine.common.kafka.DomainEventSchemaRegistry;
+import com.vendingmachine.common.kafka.KafkaConsumerSettings;
+import com.vendingmachine.common.kafka.KafkaProducerSettings;
+import com.vendingmachine.common.kafka.ProcessedEventDedupCache;
+import com.vendingmachine.common.kafka.UnifiedTopicConfig;
 import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.KafkaProducer;
-import org.apache.kafka.clients.producer.ProducerConfig;
-import org.apache.kafka.common.serialization.StringDeserializer;
-import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -21,26 +29,32 @@ import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 
-import java.util.HashMap;
 import java.util.Map;
 
 @Configuration
 @RequiredArgsConstructor
 public class KafkaConfig {
 
-    @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
-    private String bootstrapServers;
+    private final KafkaProducerSettings producerSettings;
+    private final KafkaConsumerSettings consumerSettings;
+
+    @Value("${kafka.domain-events.format:json}")
+    private String domainEventFormat;
+
+    @Value("${kafka.domain-events.schema-registry-path:}")
+    private String schemaRegistryPath;
+
+    @Value("${kafka.domain-events.filter.event-types:}")
+    private String filterEventTypes;
+
+    @Value("${kafka.domain-events.filter.sources:}")
+    private String filterSources;
 
     @Bean
     public ProducerFactory<String, PaymentEvent> paymentEventProducerFactory() {
-        Map<String, Object> configProps = new HashMap<>();
-        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        return new DefaultKafkaProducerFactory<>(configProps);
+        return new DefaultKafkaProducerFactory<>(producerSettings.producerConfigs(JsonSerializer.class));
     }
 
     @Bean
@@ -51,13 +65,9 @@ public class KafkaConfig {
     // Unified Event Configuration for Phase 2 Kafka Optimization
     @Bean
     public ProducerFactory<String, DomainEvent> domainEventProducerFactory() {
-        Map<String, Object> configProps = new HashMap<>();
-        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
-        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
-        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        Map<String, Object> configProps =
+                producerSettings.producerConfigs(DomainEventFormat.from(domainEventFormat).getSerializerClass());
+        configProps.put(DomainEventSchemaRegistry.PATH_CONFIG, schemaRegistryPath);
         return new DefaultKafkaProducerFactory<>(configProps);
     }
 
@@ -68,14 +78,7 @@ public class KafkaConfig {
 
     @Bean
     public KafkaProducer<String, Object> kafkaProducer() {
-        Map<String, Object> props = new HashMap<>();
-        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        props.put(ProducerConfig.RETRIES_CONFIG, 3);
-        props.put(ProducerConfig.ACKS_CONFIG, "all");
-        
-        return new KafkaProducer<>(props);
+        return new KafkaProducer<>(producerSettings.producerConfigs(JsonSerializer.class));
     }
 
     @Bean
@@ -93,23 +96,44 @@ public class KafkaConfig {
     // Unified Event Consumer Configuration
     @Bean
     public ConsumerFactory<String, DomainEvent> unifiedEventConsumerFactory() {
-        Map<String, Object> configProps = new HashMap<>();
-        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        configProps.put(ConsumerConfig.GROUP_ID_CONFIG, "payment-service-unified-group");
-        configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        Map<String, Object> configProps =
+                consumerSettings.consumerConfigs("payment-service-unified-group", DomainEventDeserializer.class);
+        configProps.put(DomainEventSchemaRegistry.PATH_CONFIG, schemaRegistryPath);
+        configProps.putAll(unifiedEventHeaderFilter().toConfigs());
         configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        // Skip records of aborted transactions, such as an outbox relay page that did not commit
+        configProps.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
         configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
-        configProps.put(JsonDeserializer.TRUSTED_PACKAGES, "com.vendingmachine.common.event");
-        configProps.put(JsonDeserializer.VALUE_DEFAULT_TYPE, DomainEvent.class);
         return new DefaultKafkaConsumerFactory<>(configProps);
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, DomainEvent> unifiedEventKafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, DomainEvent> unifiedEventKafkaListenerContainerFactory(MeterRegistry meterRegistry,
+            ProcessedEventDedupCache dedupCache,
+            UnifiedTopicConfig unifiedTopicConfig,
+            ConsumerMetrics consumerMetrics) {
         ConcurrentKafkaListenerContainerFactory<String, DomainEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(unifiedEventConsumerFactory());
+
+        // Re-seed the processed-event dedup cache with rows committed before this assignment
+        factory.getContainerProperties().setConsumerRebalanceListener(
+                consumerSettings.rebalanceListener(dedupCache.rebalanceListener()));
+
+        // Drop events this service does not handle from their headers, before the payload is parsed
+        factory.setRecordFilterStrategy(new DomainEventRecordFilterStrategy(unifiedEventHeaderFilter(), meterRegistry, "payment-service"));
+        factory.setAckDiscarded(true);
         factory.getContainerProperties().setAckMode(org.springframework.kafka.listener.ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+
+        // One consumer thread per unified topic partition of this instance's share
+        factory.setConcurrency(unifiedTopicConfig.listenerConcurrency());
+
+        // Processing time and in-flight records of the listeners
+        factory.setRecordInterceptor(consumerMetrics.recordInterceptor());
+        factory.setBatchInterceptor(consumerMetrics.batchInterceptor());
         return factory;
     }
-}
\ No newline at end of file
+
+    private DomainEventHeaderFilter unifiedEventHeaderFilter() {
+        return DomainEventHeaderFilter.of(filterEventTypes, filterSources);
+    }
+}
@@ -6,12 +6,14 @@ import com.vendingmachine.common.kafka.UnifiedEventPublisher;
 import com.vendingmachine.common.aop.annotation.Auditable;
 import com.vendingmachine.common.aop.annotation.ExecutionTime;
 import com.vendingmachine.common.util.CorrelationIdUtil;
+import com.vendingmachine.common.util.TimeOrderedIds;
 import com.vendingmachine.payment.payment.PaymentTransaction;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
@@ -41,15 +43,14 @@ public class PaymentKafkaEventService {
 
             // Create unified domain event
             DomainEvent domainEvent = DomainEvent.builder()
-                .eventId("pay-" + eventStatus.toLowerCase() + "-" + payment.getId() + "-" + System.currentTimeMillis())
+                .eventId(TimeOrderedIds.nextString())
                 .eventType("PAYMENT_" + eventStatus)
-                .aggregateId(payment.getId().toString())
+                .aggregateId(Objects.toString(payment.getTransactionId(), null))
                 .aggregateType("PAYMENT")
                 .source("payment-service")
                 .correlationId(CorrelationIdUtil.getCorrelationId())
                 .timestamp(System.currentTimeMillis())
-                .payload(serializePayload(payload))
-                .version("1.0")
+                .payload(DomainEvent.toPayload(payload))
                 .build();
 
             // Publish to unified topic only
@@ -64,16 +65,4 @@ public class PaymentKafkaEventService {
             throw new RuntimeException("Failed to publish unified payment event", e);
         }
     }
-
-    /**
-     * Serialize payload to JSON
-     */
-    private String serializePayload(Object payload) {
-        try {
-            return new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(payload);
-        } catch (Exception e) {
-            log.error("Failed to serialize payload", e);
-            return "{}";
-        }
-    }
-}
\ No newline at end of file
+}
@@ -1,9 +1,9 @@
 package com.vendingmachine.payment.kafka;
 
 import com.vendingmachine.common.event.TransactionEvent;
+import com.vendingmachine.common.kafka.KafkaConsumerSettings;
+import com.vendingmachine.common.resilience.RetryBudgetRegistry;
 import lombok.RequiredArgsConstructor;
-import org.apache.kafka.clients.consumer.ConsumerConfig;
-import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -15,7 +15,6 @@ import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.util.backoff.FixedBackOff;
 
-import java.util.HashMap;
 import java.util.Map;
 
 @Configuration
@@ -23,21 +22,16 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class TransactionEventKafkaConfig {
 
-    @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
-    private String bootstrapServers;
-
     @Value("${spring.kafka.consumer.group-id:payment-service-group}")
     private String groupId;
 
+    private final KafkaConsumerSettings consumerSettings;
     private final KafkaErrorHandler kafkaErrorHandler;
+    private final RetryBudgetRegistry retryBudgetRegistry;
 
     @Bean
     public ConsumerFactory<String, TransactionEvent> transactionEventConsumerFactory() {
-        Map<String, Object> props = new HashMap<>();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        Map<String, Object> props = consumerSettings.consumerConfigs(groupId, JsonDeserializer.class);
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
         props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, TransactionEvent.class.getName());
 
@@ -48,13 +42,16 @@ public class TransactionEventKafkaConfig {
     public ConcurrentKafkaListenerContainerFactory<String, TransactionEvent> transactionEventKafkaListenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<String, TransactionEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(transactionEventConsumerFactory());
+        factory.getContainerProperties().setConsumerRebalanceListener(consumerSettings.rebalanceListener());
         
-        // Configure error handler with DLQ support
+        // Configure error handler with DLQ support:
+        // 3 retries with 1 second delay, limited by the consumer's retry budget
         DefaultErrorHandler errorHandler = new DefaultErrorHandler(
                 kafkaErrorHandler,
-                new FixedBackOff(1000L, 3) // 3 retries with 1 second delay
+                retryBudgetRegistry.backOff("payment-service-kafka", new FixedBackOff(1000L, 3))
         );
         factory.setCommonErrorHandler(errorHandler);
+        factory.setRecordInterceptor(retryBudgetRegistry.recordInterceptor("payment-service-kafka"));
         
         return factory;
     }
@@ -1,22 +1,34 @@
 package com.vendingmachine.payment.kafka;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vendingmachine.common.aop.annotation.Auditable;
 import com.vendingmachine.common.aop.annotation.ExecutionTime;
 import com.vendingmachine.common.event.DomainEvent;
 import com.vendingmachine.common.event.TransactionEvent;
+import com.vendingmachine.common.kafka.DomainEventBatchProcessor;
+import com.vendingmachine.common.kafka.DomainEventHandler;
+import com.vendingmachine.common.kafka.DomainEventHandlerRegistry;
+import com.vendingmachine.common.kafka.ProcessedEventDedupCache;
+import com.vendingmachine.common.monitoring.DeadlineMetrics;
 import com.vendingmachine.common.util.CorrelationIdUtil;
+import com.vendingmachine.common.util.RequestDeadlineUtil;
 import com.vendingmachine.payment.payment.PaymentService;
 import com.vendingmachine.payment.util.ProcessedEventRepository;
 import com.vendingmachine.payment.util.ProcessedEvent;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -24,15 +36,25 @@ public class UnifiedEventConsumer {
 
     private final PaymentService paymentService;
     private final ProcessedEventRepository processedEventRepository;
-    private final ObjectMapper objectMapper;
+    private final DeadlineMetrics deadlineMetrics;
+    private final DomainEventBatchProcessor batchProcessor;
+    private final ProcessedEventDedupCache dedupCache;
+    private final DomainEventHandlerRegistry handlerRegistry;
+
+    @PostConstruct
+    public void seedDedupCache() {
+        dedupCache.setSeedSource(processedEventRepository::findByProcessedAtAfter);
+    }
 
     @KafkaListener(topics = "vending-machine-domain-events", groupId = "payment-service-unified-group",
-                   containerFactory = "unifiedEventKafkaListenerContainerFactory")
+                   containerFactory = "unifiedEventKafkaListenerContainerFactory",
+                   autoStartup = "#{!${kafka.domain-events.batch.enabled:false}}")
     @Transactional
     @Auditable(operation = "CONSUME_UNIFIED_EVENT", entityType = "DomainEvent", logParameters = true)
     @ExecutionTime(operation = "CONSUME_UNIFIED_EVENT", warningThreshold = 2000)
     public void consumeUnifiedEvent(@Payload DomainEvent event,
-                                   @Header(value = "X-Correlation-ID", required = false) String correlationId) {
+                                   @Header(value = "X-Correlation-ID", required = false) String correlationId,
+                                   @Header(value = RequestDeadlineUtil.DEADLINE_HEADER, required = false) byte[] deadline) {
         try {
             if (correlationId != null) {
                 CorrelationIdUtil.setCorrelationId(correlationId);
@@ -41,36 +63,20 @@ public class UnifiedEventConsumer {
             log.info("Received unified event: {} from source: {} with type: {}",
                     event.getEventId(), event.getSource(), event.getEventType());
 
+            // Count work done for callers that have already given up
+            deadlineMetrics.recordIfExpired(RequestDeadlineUtil.parseDeadline(deadline),
+                    DeadlineMetrics.STAGE_KAFKA, "payment-service");
+
             // Check for duplicate events
-            if (processedEventRepository.existsByEventIdAndEventType(event.getEventId(), event.getEventType())) {
+            if (dedupCache.isProcessed(event.getEventId(), event.getEventType(), event.getTimestamp(),
+                    () -> processedEventRepository.existsByEventIdAndEventType(event.getEventId(), event.getEventType()))) {
                 log.debug("Event already processed: {}", event.getEventId());
                 return;
             }
 
             try {
-                // Only process TRANSACTION events from transaction service
-                if ("TRANSACTION".equals(event.getEventType()) && "transaction-service".equals(event.getSource())) {
-                    TransactionEvent transactionEvent = objectMapper.convertValue(event.getPayload(), TransactionEvent.class);
-                    
-                    if ("STARTED".equals(transactionEvent.getStatus())) {
-                        log.info("Processing payment for transaction: {}", transactionEvent.getTransactionId());
-                        paymentService.processPaymentForTransaction(transactionEvent);
-                        log.info("Payment processing initiated for transaction {}", transactionEvent.getTransactionId());
-                    } else {
-                        log.debug("Ignoring transaction event with status: {}", transactionEvent.getStatus());
-                    }
-                } else {
-                    log.debug("Ignoring event type: {} from source: {}", event.getEventType(), event.getSource());
-                }
-
-                // Mark event as processed
-                ProcessedEvent processedEvent = ProcessedEvent.builder()
-                    .eventId(event.getEventId())
-                    .eventType(event.getEventType())
-                    .source(event.getSource())
-                    .build();
-                processedEventRepository.save(processedEvent);
-                
+                processedEventRepository.save(applyEvent(event));
+                dedupCache.markProcessed(event.getEventId(), event.getEventType());
             } catch (Exception e) {
                 log.error("Failed to process unified event: {}", event.getEventId(), e);
                 throw new RuntimeException("Failed to process unified event", e);
@@ -79,4 +85,73 @@ public class UnifiedEventConsumer {
             CorrelationIdUtil.clearCorrelationId();
         }
     }
+    /**
+     * Batch listener mode: one IN query for duplicates, one transaction and one JDBC batch of
+     * ProcessedEvent rows per poll. Replaces the record listener when kafka.domain-events.batch.enabled is set.
+     */
+    @KafkaListener(topics = "vending-machine-domain-events", groupId = "payment-service-unified-group",
+                   containerFactory = "unifiedEventKafkaListenerContainerFactory", batch = "true",
+                   autoStartup = "${kafka.domain-events.batch.enabled:false}",
+                   properties = "max.poll.records=${kafka.domain-events.batch.max-poll-records:100}")
+    @ExecutionTime(operation = "CONSUME_UNIFIED_EVENT_BATCH", warningThreshold = 5000)
+    public void consumeUnifiedEventBatch(List<ConsumerRecord<String, DomainEvent>> records, Acknowledgment ack) {
+        log.info("Received batch of {} unified events", records.size());
+        batchProcessor.process(records, new DomainEventBatchProcessor.Handler<ProcessedEvent>() {
+            @Override
+            public Set<String> findProcessed(Collection<String> eventIds) {
+                return processedEventRepository.findProcessedEventIds(eventIds);
+            }
+
+            @Override
+            public String processedEventType(DomainEvent event) {
+                return event.getEventType();
+            }
+
+            @Override
+            public ProcessedEvent handle(ConsumerRecord<String, DomainEvent> record) {
+                deadlineMetrics.recordIfExpired(RequestDeadlineUtil.parseDeadline(
+                        DomainEventBatchProcessor.headerValue(record, RequestDeadlineUtil.DEADLINE_HEADER)),
+                        DeadlineMetrics.STAGE_KAFKA, "payment-service");
+                return applyEvent(record.value());
+            }
+
+            @Override
+            public void saveProcessed(List<ProcessedEvent> rows) {
+                processedEventRepository.insertAll(rows);
+            }
+        });
+        ack.acknowledge();
+    }
+
+    /**
+     * Apply one unified event and build its ProcessedEvent row, without saving it
+     */
+    private ProcessedEvent applyEvent(DomainEvent event) {
+        if (handlerRegistry.handles(event)) {
+            handlerRegistry.dispatch(event);
+        } else {
+            log.debug("Ignoring event type: {} from source: {}", event.getEventType(), event.getSource());
+        }
+
+        // Mark event as processed
+        return ProcessedEvent.builder()
+            .eventId(event.getEventId())
+            .eventType(event.getEventType())
+            .source(event.getSource())
+            .build();
+    }
+
+    /**
+     * Start the payment of a transaction from transaction service
+     */
+    @DomainEventHandler(type = "TRANSACTION", source = "transaction-service", payload = TransactionEvent.class)
+    public void handleTransactionEvent(DomainEvent event, TransactionEvent transactionEvent) {
+        if ("STARTED".equals(transactionEvent.getStatus())) {
+            log.info("Processing payment for transaction: {}", transactionEvent.getTransactionId());
+            paymentService.processPaymentForTransaction(transactionEvent);
+            log.info("Payment processing initiated for transaction {}", transactionEvent.getTransactionId());
+        } else {
+            log.debug("Ignoring transaction event with status: {}", transactionEvent.getStatus());
+        }
+    }
 }
\ No newline at end of file
@@ -12,7 +12,6 @@ import org.springframework.web.bind.annotation.*;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 
@@ -29,7 +28,7 @@ public class PaymentController {
     @ExecutionTime(operation = "PROCESS_PAYMENT", warningThreshold = 1000, detailed = true)
     public ResponseEntity<PaymentResponse> processPayment(@Valid @RequestBody PaymentRequest request) {
         try {
-            CorrelationIdUtil.setCorrelationId(UUID.randomUUID().toString());
+            CorrelationIdUtil.setCorrelationId(CorrelationIdUtil.generateCorrelationId());
             
             // Create TransactionEvent with the provided transaction ID
             TransactionEvent event = new TransactionEvent();
@@ -51,7 +50,7 @@ public class PaymentController {
     @ExecutionTime(operation = "GET_ALL_PAYMENT_TRANSACTIONS", warningThreshold = 1500)
     public ResponseEntity<List<PaymentResponse>> getAllTransactions() {
         try {
-            CorrelationIdUtil.setCorrelationId(UUID.randomUUID().toString());
+            CorrelationIdUtil.setCorrelationId(CorrelationIdUtil.generateCorrelationId());
             
             List<PaymentTransaction> transactions = paymentService.getAllTransactions();
             List<PaymentResponse> responses = transactions.stream()
@@ -68,7 +67,7 @@ public class PaymentController {
     @ExecutionTime(operation = "PROCESS_REFUND", warningThreshold = 800, detailed = true)
     public ResponseEntity<Map<String, Object>> processRefund(@RequestBody Map<String, Object> refundRequest) {
         try {
-            CorrelationIdUtil.setCorrelationId(UUID.randomUUID().toString());
+            CorrelationIdUtil.setCorrelationId(CorrelationIdUtil.generateCorrelationId());
             
             // Simulate refund processing
             boolean success = random.nextDouble() < 0.95; // 95% success rate
@@ -84,7 +83,7 @@ public class PaymentController {
     @ExecutionTime(operation = "CHECK_PAYMENT_STATUS", warningThreshold = 500)
     public ResponseEntity<Map<String, Object>> checkPaymentStatus(@PathVariable String transactionId) {
         try {
-            CorrelationIdUtil.setCorrelationId(UUID.randomUUID().toString());
+            CorrelationIdUtil.setCorrelationId(CorrelationIdUtil.generateCorrelationId());
             
             Map<String, Object> status = paymentService.getPaymentStatusForTransaction(transactionId);
             return ResponseEntity.ok(status);
@@ -0,0 +1,33 @@
+-- Adds the named unique key uk_processed_events_event (event_id, event_type) to existing
+-- processed_events tables. Run once, with the services stopped, before deploying the version
+-- that declares the key: ddl-auto=update cannot add it while duplicate rows exist and only
+-- logs the failure. Fresh databases get the key from ddl-auto and do not need this script.
+-- Duplicates keep their first (lowest id) row.
+
+-- Dispensing Service Database
+USE vending_dispensing;
+DELETE duplicate FROM processed_events duplicate
+    JOIN processed_events kept
+      ON kept.event_id = duplicate.event_id AND kept.event_type = duplicate.event_type AND kept.id < duplicate.id;
+ALTER TABLE processed_events ADD CONSTRAINT uk_processed_events_event UNIQUE (event_id, event_type);
+
+-- Inventory Service Database
+USE vending_inventory;
+DELETE duplicate FROM processed_events duplicate
+    JOIN processed_events kept
+      ON kept.event_id = duplicate.event_id AND kept.event_type = duplicate.event_type AND kept.id < duplicate.id;
+ALTER TABLE processed_events ADD CONSTRAINT uk_processed_events_event UNIQUE (event_id, event_type);
+
+-- Payment Service Database
+USE vending_payment;
+DELETE duplicate FROM processed_events duplicate
+    JOIN processed_events kept
+      ON kept.event_id = duplicate.event_id AND kept.event_type = duplicate.event_type AND kept.id < duplicate.id;
+ALTER TABLE processed_events ADD CONSTRAINT uk_processed_events_event UNIQUE (event_id, event_type);
+
+-- Transaction Service Database
+USE vending_transaction;
+DELETE duplicate FROM processed_events duplicate
+    JOIN processed_events kept
+      ON kept.event_id = duplicate.event_id AND kept.event_type = duplicate.event_type AND kept.id < duplicate.id;
+ALTER TABLE processed_events ADD CONSTRAINT uk_processed_events_event UNIQUE (event_id, event_type);
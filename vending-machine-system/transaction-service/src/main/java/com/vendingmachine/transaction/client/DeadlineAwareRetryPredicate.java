@@ -0,0 +1,25 @@
+package com.vendingmachine.transaction.client;
+
+import com.vendingmachine.common.util.RequestDeadlineUtil;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.ConnectException;
+import java.util.function.Predicate;
+
+/**
+ * Resilience4j retry predicate for the inventory, payment and dispensing clients.
+ * Retries the same transient I/O failures as before, but only while the caller's
+ * request deadline has not passed. Retries run on the calling thread, so the
+ * deadline set by the controller is still in the MDC here.
+ * <p>
+ * Installed on the retry instances by {@code RetryBudgetConfig}, which also applies the retry budget.
+ */
+public class DeadlineAwareRetryPredicate implements Predicate<Throwable> {
+
+    @Override
+    public boolean test(Throwable throwable) {
+        boolean transientFailure = throwable instanceof ResourceAccessException
+                || throwable instanceof ConnectException;
+        return transientFailure && !RequestDeadlineUtil.isExpired();
+    }
+}
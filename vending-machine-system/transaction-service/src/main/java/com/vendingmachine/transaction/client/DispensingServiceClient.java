@@ -1,5 +1,7 @@
 package com.vendingmachine.transaction.client;
 
+import com.vendingmachine.common.resilience.RetryBudgetRegistry;
+import com.vendingmachine.transaction.config.RetryBudgetConfig;
 import io.github.resilience4j.bulkhead.annotation.Bulkhead;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
@@ -27,6 +29,7 @@ import java.util.Map;
 public class DispensingServiceClient {
 
     private final RestTemplate restTemplate;
+    private final RetryBudgetRegistry retryBudgetRegistry;
 
     @Value("${services.dispensing.url:http://localhost:8084}")
     private String dispensingServiceUrl;
@@ -44,6 +47,7 @@ public class DispensingServiceClient {
     @CircuitBreaker(name = "dispensing-service", fallbackMethod = "dispenseItemsFallback")
     @Retry(name = "dispensing-service")
     public Map<String, Object> dispenseItems(String transactionId, List<Map<String, Object>> items) {
+        retryBudgetRegistry.get(RetryBudgetConfig.DISPENSING_SERVICE).recordRequest();
         log.debug("Initiating dispensing for transaction {} - {} items", transactionId, items.size());
         
         String url = dispensingServiceUrl + "/api/dispensing/dispense";
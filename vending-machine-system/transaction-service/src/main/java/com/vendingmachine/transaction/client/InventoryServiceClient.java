@@ -1,5 +1,10 @@
 package com.vendingmachine.transaction.client;
 
+import com.vendingmachine.common.monitoring.DeadlineMetrics;
+import com.vendingmachine.common.util.DeadlineExceededException;
+import com.vendingmachine.common.util.RequestDeadlineUtil;
+import com.vendingmachine.common.resilience.RetryBudgetRegistry;
+import com.vendingmachine.transaction.config.RetryBudgetConfig;
 import io.github.resilience4j.bulkhead.annotation.Bulkhead;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
@@ -28,6 +33,8 @@ import java.util.Map;
 public class InventoryServiceClient {
 
     private final RestTemplate restTemplate;
+    private final RetryBudgetRegistry retryBudgetRegistry;
+    private final DeadlineMetrics deadlineMetrics;
 
     @Value("${services.inventory.url:http://localhost:8081}")
     private String inventoryServiceUrl;
@@ -44,6 +51,8 @@ public class InventoryServiceClient {
     @CircuitBreaker(name = "inventory-service", fallbackMethod = "checkAvailabilityFallback")
     @Retry(name = "inventory-service")
     public Map<Long, Map<String, Object>> checkAvailability(List<Map<String, Object>> items) {
+        failIfDeadlinePassed("inventory availability check");
+        retryBudgetRegistry.get(RetryBudgetConfig.INVENTORY_SERVICE).recordRequest();
         log.debug("Checking inventory availability for {} items", items.size());
         
         String url = inventoryServiceUrl + "/api/inventory/check-multiple";
@@ -76,6 +85,10 @@ public class InventoryServiceClient {
             List<Map<String, Object>> items, 
             Exception ex) {
         
+        if (ex instanceof DeadlineExceededException deadlineExceeded) {
+            throw deadlineExceeded;
+        }
+
         if (ex.getClass().getName().contains("BulkheadFullException")) {
             log.error("Bulkhead full for inventory service");
             log.warn("Too many concurrent inventory requests - rate limiting active");
@@ -110,6 +123,7 @@ public class InventoryServiceClient {
     @CircuitBreaker(name = "inventory-service", fallbackMethod = "updateStockFallback")
     @Retry(name = "inventory-service")
     public void updateStock(Long productId, Integer quantity) {
+        retryBudgetRegistry.get(RetryBudgetConfig.INVENTORY_SERVICE).recordRequest();
         log.debug("Updating stock for product {} - deducting {} units", productId, quantity);
         
         String url = inventoryServiceUrl + "/api/inventory/products/" + productId + "/stock/deduct";
@@ -144,6 +158,8 @@ public class InventoryServiceClient {
     @CircuitBreaker(name = "inventory-service", fallbackMethod = "getProductPriceFallback")
     @Retry(name = "inventory-service")
     public java.math.BigDecimal getProductPrice(Long productId) {
+        failIfDeadlinePassed("product price lookup");
+        retryBudgetRegistry.get(RetryBudgetConfig.INVENTORY_SERVICE).recordRequest();
         log.debug("Getting price for product {}", productId);
         
         String url = inventoryServiceUrl + "/api/inventory/products/" + productId;
@@ -173,8 +189,22 @@ public class InventoryServiceClient {
      */
     @SuppressWarnings("unused")
     private java.math.BigDecimal getProductPriceFallback(Long productId, Exception ex) {
+        if (ex instanceof DeadlineExceededException deadlineExceeded) {
+            throw deadlineExceeded;
+        }
         log.error("Failed to get price for product {}. Error: {}. Returning 0.0", 
                   productId, ex.getMessage());
         return java.math.BigDecimal.ZERO;
     }
+
+    /**
+     * Fails fast when the caller's request deadline has already passed.
+     * The exception is ignored by retry and circuit breaker and rethrown by the fallbacks.
+     */
+    private void failIfDeadlinePassed(String operation) {
+        if (RequestDeadlineUtil.isExpired()) {
+            deadlineMetrics.recordSkipped("inventory-service");
+            RequestDeadlineUtil.checkDeadline(operation);
+        }
+    }
 }
@@ -2,6 +2,11 @@ package com.vendingmachine.transaction.client;
 
 import com.vendingmachine.transaction.transaction.dto.PaymentInfo;
 import com.vendingmachine.transaction.transaction.dto.PaymentMethod;
+import com.vendingmachine.common.monitoring.DeadlineMetrics;
+import com.vendingmachine.common.util.DeadlineExceededException;
+import com.vendingmachine.common.util.RequestDeadlineUtil;
+import com.vendingmachine.common.resilience.RetryBudgetRegistry;
+import com.vendingmachine.transaction.config.RetryBudgetConfig;
 import io.github.resilience4j.bulkhead.annotation.Bulkhead;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
@@ -29,6 +34,8 @@ import java.util.Map;
 public class PaymentServiceClient {
 
     private final RestTemplate restTemplate;
+    private final RetryBudgetRegistry retryBudgetRegistry;
+    private final DeadlineMetrics deadlineMetrics;
 
     @Value("${services.payment.url:http://localhost:8082}")
     private String paymentServiceUrl;
@@ -47,6 +54,8 @@ public class PaymentServiceClient {
     @CircuitBreaker(name = "payment-service", fallbackMethod = "processPaymentFallback")
     @Retry(name = "payment-service")
     public Map<String, Object> processPayment(String transactionId, PaymentInfo paymentInfo, BigDecimal amount) {
+        failIfDeadlinePassed("payment processing");
+        retryBudgetRegistry.get(RetryBudgetConfig.PAYMENT_SERVICE).recordRequest();
         log.debug("Processing payment for transaction {} - Amount: {}", transactionId, amount);
         
         String url = paymentServiceUrl + "/api/payment/process";
@@ -99,6 +108,10 @@ public class PaymentServiceClient {
             BigDecimal amount, 
             Exception ex) {
         
+        if (ex instanceof DeadlineExceededException deadlineExceeded) {
+            throw deadlineExceeded;
+        }
+
         if (ex.getClass().getName().contains("BulkheadFullException")) {
             log.error("Bulkhead full for payment service. Transaction: {}", transactionId);
             log.warn("Too many concurrent payment requests - rate limiting active");
@@ -133,6 +146,7 @@ public class PaymentServiceClient {
     @CircuitBreaker(name = "payment-service", fallbackMethod = "getPaymentStatusFallback")
     @Retry(name = "payment-service")
     public Map<String, Object> getPaymentStatus(String transactionId) {
+        retryBudgetRegistry.get(RetryBudgetConfig.PAYMENT_SERVICE).recordRequest();
         log.debug("Checking payment status for transaction {}", transactionId);
         
         String url = paymentServiceUrl + "/api/payment/status/" + transactionId;
@@ -178,6 +192,7 @@ public class PaymentServiceClient {
     @CircuitBreaker(name = "payment-service", fallbackMethod = "refundPaymentFallback")
     @Retry(name = "payment-service")
     public Map<String, Object> refundPayment(String transactionId, BigDecimal amount) {
+        retryBudgetRegistry.get(RetryBudgetConfig.PAYMENT_SERVICE).recordRequest();
         log.debug("Processing refund for transaction {} - Amount: {}", transactionId, amount);
         
         String url = paymentServiceUrl + "/api/payment/refund";
@@ -234,4 +249,15 @@ public class PaymentServiceClient {
             "fallback", true
         );
     }
+
+    /**
+     * Fails fast when the caller's request deadline has already passed.
+     * The exception is ignored by retry and circuit breaker and rethrown by the fallbacks.
+     */
+    private void failIfDeadlinePassed(String operation) {
+        if (RequestDeadlineUtil.isExpired()) {
+            deadlineMetrics.recordSkipped("payment-service");
+            RequestDeadlineUtil.checkDeadline(operation);
+        }
+    }
 }
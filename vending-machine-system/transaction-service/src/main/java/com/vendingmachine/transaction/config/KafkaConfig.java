@@ -3,10 +3,19 @@ package com.vendingmachine.transaction.config;
 import com.vendingmachine.common.event.DispensingEvent;
 import com.vendingmachine.common.event.PaymentEvent;
 import com.vendingmachine.common.event.DomainEvent;
+import com.vendingmachine.common.kafka.ConsumerMetrics;
+import com.vendingmachine.common.kafka.DomainEventFormat;
+import com.vendingmachine.common.kafka.DomainEventDeserializer;
+import com.vendingmachine.common.kafka.DomainEventHeaderFilter;
+import com.vendingmachine.common.kafka.DomainEventRecordFilterStrategy;
+import com.vendingmachine.common.kafka.DomainEventSchemaRegistry;
+import com.vendingmachine.common.kafka.KafkaConsumerSettings;
+import com.vendingmachine.common.kafka.KafkaProducerSettings;
+import com.vendingmachine.common.kafka.ProcessedEventDedupCache;
+import com.vendingmachine.common.kafka.UnifiedTopicConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
-import org.apache.kafka.clients.producer.ProducerConfig;
-import org.apache.kafka.common.serialization.StringDeserializer;
-import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -18,28 +27,35 @@ import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
-import org.springframework.kafka.support.serializer.JsonSerializer;
 
-import java.util.HashMap;
 import java.util.Map;
 
 @Configuration
 @EnableKafka
+@RequiredArgsConstructor
 public class KafkaConfig {
 
-    @Value("${spring.kafka.bootstrap-servers}")
-    private String bootstrapServers;
+    private final KafkaProducerSettings producerSettings;
+    private final KafkaConsumerSettings consumerSettings;
+
+    @Value("${kafka.domain-events.format:json}")
+    private String domainEventFormat;
+
+    @Value("${kafka.domain-events.schema-registry-path:}")
+    private String schemaRegistryPath;
+
+    @Value("${kafka.domain-events.filter.event-types:}")
+    private String filterEventTypes;
+
+    @Value("${kafka.domain-events.filter.sources:}")
+    private String filterSources;
 
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
     @Bean
     public ConsumerFactory<String, PaymentEvent> paymentEventConsumerFactory() {
-        Map<String, Object> props = new HashMap<>();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        Map<String, Object> props = consumerSettings.consumerConfigs(groupId, JsonDeserializer.class);
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
         props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, PaymentEvent.class.getName());
 
@@ -48,11 +64,7 @@ public class KafkaConfig {
 
     @Bean
     public ConsumerFactory<String, DispensingEvent> dispensingEventConsumerFactory() {
-        Map<String, Object> props = new HashMap<>();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        Map<String, Object> props = consumerSettings.consumerConfigs(groupId, JsonDeserializer.class);
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
         props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, DispensingEvent.class.getName());
 
@@ -63,6 +75,7 @@ public class KafkaConfig {
     public ConcurrentKafkaListenerContainerFactory<String, PaymentEvent> paymentEventKafkaListenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<String, PaymentEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(paymentEventConsumerFactory());
+        factory.getContainerProperties().setConsumerRebalanceListener(consumerSettings.rebalanceListener());
         return factory;
     }
 
@@ -70,6 +83,7 @@ public class KafkaConfig {
     public ConcurrentKafkaListenerContainerFactory<String, DispensingEvent> dispensingEventKafkaListenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<String, DispensingEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(dispensingEventConsumerFactory());
+        factory.getContainerProperties().setConsumerRebalanceListener(consumerSettings.rebalanceListener());
         return factory;
     }
 
@@ -79,23 +93,39 @@ public class KafkaConfig {
     
     @Bean
     public ConsumerFactory<String, DomainEvent> domainEventConsumerFactory() {
-        Map<String, Object> props = new HashMap<>();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, "transaction-service-unified-group");
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
-        props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
-        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, DomainEvent.class.getName());
+        Map<String, Object> props =
+                consumerSettings.consumerConfigs("transaction-service-unified-group", DomainEventDeserializer.class);
+        props.put(DomainEventSchemaRegistry.PATH_CONFIG, schemaRegistryPath);
+        props.putAll(unifiedEventHeaderFilter().toConfigs());
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        // Skip records of aborted transactions, such as an outbox relay page that did not commit
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
 
         return new DefaultKafkaConsumerFactory<>(props);
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, DomainEvent> domainEventKafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, DomainEvent> domainEventKafkaListenerContainerFactory(MeterRegistry meterRegistry,
+            ProcessedEventDedupCache dedupCache,
+            UnifiedTopicConfig unifiedTopicConfig,
+            ConsumerMetrics consumerMetrics) {
         ConcurrentKafkaListenerContainerFactory<String, DomainEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(domainEventConsumerFactory());
-        factory.setConcurrency(3); // Match topic partitions
+
+        // Re-seed the processed-event dedup cache with rows committed before this assignment
+        factory.getContainerProperties().setConsumerRebalanceListener(
+                consumerSettings.rebalanceListener(dedupCache.rebalanceListener()));
+
+        // Drop events this service does not handle from their headers, before the payload is parsed
+        factory.setRecordFilterStrategy(new DomainEventRecordFilterStrategy(unifiedEventHeaderFilter(), meterRegistry, "transaction-service"));
+        factory.setAckDiscarded(true);
+
+        // One consumer thread per unified topic partition of this instance's share
+        factory.setConcurrency(unifiedTopicConfig.listenerConcurrency());
+
+        // Processing time and in-flight records of the listeners
+        factory.setRecordInterceptor(consumerMetrics.recordInterceptor());
+        factory.setBatchInterceptor(consumerMetrics.batchInterceptor());
         return factory;
     }
 
@@ -104,13 +134,9 @@ public class KafkaConfig {
     // ============================================
     @Bean
     public ProducerFactory<String, DomainEvent> domainEventProducerFactory() {
-        Map<String, Object> configProps = new HashMap<>();
-        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
-        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
-        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        Map<String, Object> configProps =
+                producerSettings.producerConfigs(DomainEventFormat.from(domainEventFormat).getSerializerClass());
+        configProps.put(DomainEventSchemaRegistry.PATH_CONFIG, schemaRegistryPath);
         return new DefaultKafkaProducerFactory<>(configProps);
     }
 
@@ -118,4 +144,8 @@ public class KafkaConfig {
     public KafkaTemplate<String, DomainEvent> kafkaTemplate() {
         return new KafkaTemplate<>(domainEventProducerFactory());
     }
-}
\ No newline at end of file
+
+    private DomainEventHeaderFilter unifiedEventHeaderFilter() {
+        return DomainEventHeaderFilter.of(filterEventTypes, filterSources);
+    }
+}
@@ -0,0 +1,40 @@
+package com.vendingmachine.transaction.config;
+
+import com.vendingmachine.common.outbox.OutboxStore;
+import com.vendingmachine.common.outbox.TransactionalOutbox;
+import com.vendingmachine.transaction.transaction.OutboxEvent;
+import com.vendingmachine.transaction.transaction.OutboxEventRepository;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+
+/**
+ * event_outbox as seen by the common TransactionalOutbox, used in exactly-once mode
+ */
+@Configuration
+public class OutboxConfig {
+
+    @Bean
+    public OutboxStore outboxStore(OutboxEventRepository outboxEventRepository) {
+        return OutboxStore.of(
+                (topic, eventKey, eventData) -> outboxEventRepository.save(OutboxEvent.builder()
+                        .topic(topic)
+                        .eventKey(eventKey)
+                        .eventData(eventData)
+                        .createdAt(LocalDateTime.now())
+                        .build()),
+                limit -> outboxEventRepository.findAllByOrderByIdAsc(PageRequest.of(0, limit)).stream()
+                        .map(event -> new OutboxStore.OutboxRecord(event.getId(), event.getTopic(),
+                                event.getEventKey(), event.getEventData()))
+                        .toList(),
+                outboxEventRepository::deleteByIds);
+    }
+
+    @Bean
+    public NewTopic outboxPositionTopic(TransactionalOutbox transactionalOutbox) {
+        return transactionalOutbox.positionTopic();
+    }
+}
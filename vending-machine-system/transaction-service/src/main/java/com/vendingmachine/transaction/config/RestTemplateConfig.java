@@ -1,9 +1,12 @@
 package com.vendingmachine.transaction.config;
 
+import com.vendingmachine.common.monitoring.DeadlineMetrics;
+import com.vendingmachine.common.util.RequestDeadlineUtil;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.ArrayList;
@@ -11,7 +14,8 @@ import java.util.List;
 
 /**
  * Configuration for RestTemplate used in inter-service communication.
- * Automatically adds internal service headers to all outgoing requests.
+ * Automatically adds internal service headers to all outgoing requests
+ * and forwards the caller's request deadline.
  */
 @Configuration
 public class RestTemplateConfig {
@@ -20,7 +24,7 @@ public class RestTemplateConfig {
     private String REQUEST_SOURCE_INTERNAL;
 
     @Bean
-    public RestTemplate restTemplate() {
+    public RestTemplate restTemplate(DeadlineMetrics deadlineMetrics) {
         RestTemplate restTemplate = new RestTemplate();
         
         // Add interceptor to include internal service header
@@ -29,6 +33,17 @@ public class RestTemplateConfig {
             request.getHeaders().add("X-Request-Source", REQUEST_SOURCE_INTERNAL);
             return execution.execute(request, body);
         });
+
+        // Forward the request deadline and count calls that finished after it passed
+        interceptors.add((request, body, execution) -> {
+            Long deadline = RequestDeadlineUtil.getDeadline();
+            if (deadline != null) {
+                request.getHeaders().set(RequestDeadlineUtil.DEADLINE_HEADER, Long.toString(deadline));
+            }
+            ClientHttpResponse response = execution.execute(request, body);
+            deadlineMetrics.recordIfExpired(deadline, DeadlineMetrics.STAGE_HTTP, request.getURI().getHost());
+            return response;
+        });
         
         restTemplate.setInterceptors(interceptors);
         return restTemplate;
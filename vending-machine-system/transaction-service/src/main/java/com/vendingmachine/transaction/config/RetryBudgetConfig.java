@@ -0,0 +1,93 @@
+package com.vendingmachine.transaction.config;
+
+import com.vendingmachine.common.resilience.RetryBudget;
+import com.vendingmachine.common.resilience.RetryBudgetRegistry;
+import com.vendingmachine.transaction.client.DeadlineAwareRetryPredicate;
+import io.github.resilience4j.common.retry.configuration.RetryConfigCustomizer;
+import io.github.resilience4j.core.registry.EntryAddedEvent;
+import io.github.resilience4j.core.registry.EntryRemovedEvent;
+import io.github.resilience4j.core.registry.EntryReplacedEvent;
+import io.github.resilience4j.core.registry.RegistryEventConsumer;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Applies per-destination retry budgets to the Resilience4j retries of the service clients.
+ * A failed call is retried only if it is a transient failure, the request deadline has not
+ * passed and the destination's budget has a token left. The token is spent when the retry
+ * actually happens, so the final failed attempt does not consume budget.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class RetryBudgetConfig {
+
+    public static final String INVENTORY_SERVICE = "inventory-service";
+    public static final String PAYMENT_SERVICE = "payment-service";
+    public static final String DISPENSING_SERVICE = "dispensing-service";
+
+    private static final Set<String> BUDGETED_RETRIES = Set.of(INVENTORY_SERVICE, PAYMENT_SERVICE, DISPENSING_SERVICE);
+
+    private final RetryBudgetRegistry retryBudgetRegistry;
+
+    @Bean
+    public RetryConfigCustomizer inventoryServiceRetryCustomizer() {
+        return budgetedRetry(INVENTORY_SERVICE);
+    }
+
+    @Bean
+    public RetryConfigCustomizer paymentServiceRetryCustomizer() {
+        return budgetedRetry(PAYMENT_SERVICE);
+    }
+
+    @Bean
+    public RetryConfigCustomizer dispensingServiceRetryCustomizer() {
+        return budgetedRetry(DISPENSING_SERVICE);
+    }
+
+    /**
+     * Spends a budget token whenever one of the budgeted retries actually retries
+     */
+    @Bean
+    public RegistryEventConsumer<Retry> retryBudgetEventConsumer() {
+        return new RegistryEventConsumer<>() {
+            @Override
+            public void onEntryAddedEvent(EntryAddedEvent<Retry> entryAddedEvent) {
+                attachBudget(entryAddedEvent.getAddedEntry());
+            }
+
+            @Override
+            public void onEntryRemovedEvent(EntryRemovedEvent<Retry> entryRemoveEvent) {
+                // Nothing to release
+            }
+
+            @Override
+            public void onEntryReplacedEvent(EntryReplacedEvent<Retry> entryReplacedEvent) {
+                attachBudget(entryReplacedEvent.getNewEntry());
+            }
+        };
+    }
+
+    private void attachBudget(Retry retry) {
+        if (BUDGETED_RETRIES.contains(retry.getName())) {
+            RetryBudget budget = retryBudgetRegistry.get(retry.getName());
+            retry.getEventPublisher().onRetry(event -> budget.recordRetry());
+        }
+    }
+
+    private RetryConfigCustomizer budgetedRetry(String destination) {
+        DeadlineAwareRetryPredicate deadlineAware = new DeadlineAwareRetryPredicate();
+        Predicate<Throwable> retryable = throwable ->
+                deadlineAware.test(throwable) && retryBudgetRegistry.get(destination).hasBudget();
+        return RetryConfigCustomizer.of(destination, builder -> {
+            // The customizer hands over a raw builder
+            RetryConfig.Builder<?> typed = builder;
+            typed.retryOnException(retryable);
+        });
+    }
+}
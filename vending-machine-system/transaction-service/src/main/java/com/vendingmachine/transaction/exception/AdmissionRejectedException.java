@@ -0,0 +1,25 @@
+package com.vendingmachine.transaction.exception;
+
+/**
+ * Thrown when purchase admission control sheds a request under load.
+ * Clients should retry after {@link #getRetryAfterSeconds()}.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final String reason;
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(String reason, long retryAfterSeconds) {
+        super("Purchase service is busy (" + reason + "), please retry in " + retryAfterSeconds + "s");
+        this.reason = reason;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
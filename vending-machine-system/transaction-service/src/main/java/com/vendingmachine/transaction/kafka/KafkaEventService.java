@@ -2,10 +2,11 @@ package com.vendingmachine.transaction.kafka;
 
 import com.vendingmachine.common.event.DomainEvent;
 import com.vendingmachine.common.event.payload.TransactionPayload;
-import com.vendingmachine.common.kafka.UnifiedEventPublisher;
 import com.vendingmachine.common.aop.annotation.Auditable;
 import com.vendingmachine.common.aop.annotation.ExecutionTime;
+import com.vendingmachine.common.outbox.TransactionalOutbox;
 import com.vendingmachine.common.util.CorrelationIdUtil;
+import com.vendingmachine.common.util.TimeOrderedIds;
 import com.vendingmachine.transaction.transaction.Transaction;
 import com.vendingmachine.transaction.transaction.TransactionItem;
 import lombok.RequiredArgsConstructor;
@@ -17,10 +18,11 @@ import org.springframework.stereotype.Service;
 @Slf4j
 public class KafkaEventService {
 
-    private final UnifiedEventPublisher unifiedEventPublisher;
+    private final TransactionalOutbox transactionalOutbox;
 
     /**
-     * Publishes transaction events with complete data to unified domain events topic
+     * Publishes transaction events with complete data to unified domain events topic. In
+     * exactly-once mode the event is written to the outbox and commits with the caller's transaction.
      * @param transaction The complete transaction entity
      * @param eventType The type of transaction event (CREATED, PROCESSING, COMPLETED, FAILED)
      */
@@ -42,19 +44,18 @@ public class KafkaEventService {
 
             // Create unified domain event
             DomainEvent domainEvent = DomainEvent.builder()
-                .eventId("txn-" + eventType.toLowerCase() + "-" + transaction.getId() + "-" + System.currentTimeMillis())
+                .eventId(TimeOrderedIds.nextString())
                 .eventType("TRANSACTION_" + eventType)
                 .aggregateId(transaction.getId().toString())
                 .aggregateType("TRANSACTION")
                 .source("transaction-service")
                 .correlationId(CorrelationIdUtil.getCorrelationId())
                 .timestamp(System.currentTimeMillis())
-                .payload(serializePayload(payload))
-                .version("1.0")
+                .payload(DomainEvent.toPayload(payload))
                 .build();
 
-            // Publish to unified topic only
-            unifiedEventPublisher.publishEvent(domainEvent);
+            // Publish to unified topic only, through the outbox when exactly-once mode is on
+            transactionalOutbox.publish(domainEvent);
             
             log.info("Successfully published transaction event to unified topic: {} for transaction {}", 
                 domainEvent.getEventId(), transaction.getId());
@@ -65,16 +66,4 @@ public class KafkaEventService {
             throw new RuntimeException("Failed to publish unified transaction event", e);
         }
     }
-
-    /**
-     * Serialize payload to JSON
-     */
-    private String serializePayload(Object payload) {
-        try {
-            return new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(payload);
-        } catch (Exception e) {
-            log.error("Failed to serialize payload", e);
-            return "{}";
-        }
-    }
-}
\ No newline at end of file
+}
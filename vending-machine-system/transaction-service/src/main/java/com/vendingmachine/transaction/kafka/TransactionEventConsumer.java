@@ -8,6 +8,7 @@ import com.vendingmachine.common.util.CorrelationIdUtil;
 import com.vendingmachine.transaction.transaction.ProcessedEvent;
 import com.vendingmachine.transaction.transaction.ProcessedEventRepository;
 import com.vendingmachine.transaction.transaction.Transaction;
+import com.vendingmachine.transaction.transaction.TransactionDTOCache;
 import com.vendingmachine.transaction.transaction.TransactionRepository;
 import com.vendingmachine.transaction.transaction.TransactionStatus;
 import lombok.RequiredArgsConstructor;
@@ -28,6 +29,7 @@ public class TransactionEventConsumer {
     private final TransactionRepository transactionRepository;
     private final ProcessedEventRepository processedEventRepository;
     private final KafkaEventService kafkaEventService;
+    private final TransactionDTOCache transactionDTOCache;
 
     // DISABLED FOR UNIFIED CONSUMER VALIDATION
     // @KafkaListener(topics = "payment-events", groupId = "transaction-service-group",
@@ -69,6 +71,7 @@ public class TransactionEventConsumer {
                     
                     // Save transaction first
                     transaction = transactionRepository.save(transaction);
+                    transactionDTOCache.invalidate(transaction.getId());
                     
                     // Publish PROCESSING event to trigger dispensing with complete data
                     kafkaEventService.publishTransactionEventWithCompleteData(transaction, "PROCESSING");
@@ -79,6 +82,7 @@ public class TransactionEventConsumer {
                     transaction.setStatus(TransactionStatus.CANCELLED);
                     log.info("Payment failed for transaction {}, cancelling transaction", transaction.getId());
                     transactionRepository.save(transaction);
+                    transactionDTOCache.invalidate(transaction.getId());
                 }
 
                 // Mark event as processed
@@ -145,6 +149,7 @@ public class TransactionEventConsumer {
                 if ("FAILED".equals(event.getStatus())) {
                     transaction.setStatus(TransactionStatus.FAILED);
                     transaction = transactionRepository.save(transaction);
+                    transactionDTOCache.invalidate(transaction.getId());
                     log.error("Dispensing failed for transaction {}, marking as FAILED", event.getTransactionId());
 
                     // Publish transaction failed event with complete data
@@ -156,6 +161,7 @@ public class TransactionEventConsumer {
                     if (allItemsDispensed) {
                         transaction.setStatus(TransactionStatus.COMPLETED);
                         transaction = transactionRepository.save(transaction);
+                        transactionDTOCache.invalidate(transaction.getId());
                         log.info("All items dispensed successfully for transaction {}, marking as COMPLETED", event.getTransactionId());
 
                         // Publish transaction completed event with complete data
@@ -1,19 +1,27 @@
 package com.vendingmachine.transaction.kafka;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vendingmachine.common.event.DomainEvent;
 import com.vendingmachine.common.event.payload.PaymentPayload;
 import com.vendingmachine.common.event.payload.DispensingPayload;
+import com.vendingmachine.common.kafka.DomainEventBatchProcessor;
+import com.vendingmachine.common.kafka.DomainEventHandler;
+import com.vendingmachine.common.kafka.DomainEventHandlerRegistry;
+import com.vendingmachine.common.kafka.ProcessedEventDedupCache;
 import com.vendingmachine.common.aop.annotation.Auditable;
 import com.vendingmachine.common.aop.annotation.ExecutionTime;
+import com.vendingmachine.common.monitoring.DeadlineMetrics;
 import com.vendingmachine.common.util.CorrelationIdUtil;
+import com.vendingmachine.common.util.RequestDeadlineUtil;
 import com.vendingmachine.transaction.transaction.ProcessedEvent;
 import com.vendingmachine.transaction.transaction.ProcessedEventRepository;
 import com.vendingmachine.transaction.transaction.Transaction;
+import com.vendingmachine.transaction.transaction.TransactionDTOCache;
 import com.vendingmachine.transaction.transaction.TransactionRepository;
 import com.vendingmachine.transaction.transaction.TransactionStatus;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
@@ -22,26 +30,52 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class UnifiedTransactionEventConsumer {
 
+    /**
+     * Processed-event type each handled event type is recorded under
+     */
+    private static final Map<String, String> PROCESSED_EVENT_TYPES = Map.of(
+            "PAYMENT_COMPLETED", "UNIFIED_PAYMENT_EVENT",
+            "PAYMENT_FAILED", "UNIFIED_PAYMENT_EVENT",
+            "DISPENSING_SUCCESS", "UNIFIED_DISPENSING_EVENT",
+            "DISPENSING_COMPLETED", "UNIFIED_DISPENSING_EVENT",
+            "DISPENSING_FAILED", "UNIFIED_DISPENSING_EVENT",
+            "DISPENSING_PARTIAL", "UNIFIED_DISPENSING_EVENT");
+
     private final TransactionRepository transactionRepository;
     private final ProcessedEventRepository processedEventRepository;
     private final KafkaEventService kafkaEventService;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TransactionDTOCache transactionDTOCache;
+    private final DeadlineMetrics deadlineMetrics;
+    private final DomainEventBatchProcessor batchProcessor;
+    private final ProcessedEventDedupCache dedupCache;
+    private final DomainEventHandlerRegistry handlerRegistry;
+
+    @PostConstruct
+    public void seedDedupCache() {
+        dedupCache.setSeedSource(processedEventRepository::findByProcessedAtAfter);
+    }
 
     @KafkaListener(topics = "vending-machine-domain-events", groupId = "transaction-service-unified-group",
-                   containerFactory = "domainEventKafkaListenerContainerFactory")
+                   containerFactory = "domainEventKafkaListenerContainerFactory",
+                   autoStartup = "#{!${kafka.domain-events.batch.enabled:false}}")
     @Transactional
     @Auditable(operation = "CONSUME_UNIFIED_EVENT", entityType = "DomainEvent", logParameters = true)
     @ExecutionTime(operation = "Process Unified Event", warningThreshold = 2000, detailed = true)
     public void consumeUnifiedEvent(@Payload DomainEvent event,
                                    @Header(value = KafkaHeaders.RECEIVED_KEY, required = false) String key,
-                                   @Header(value = "X-Correlation-ID", required = false) String correlationId) {
+                                   @Header(value = "X-Correlation-ID", required = false) String correlationId,
+                                   @Header(value = RequestDeadlineUtil.DEADLINE_HEADER, required = false) byte[] deadline) {
         
         // Set correlation ID from Kafka header or domain event
         String finalCorrelationId = correlationId != null ? correlationId : event.getCorrelationId();
@@ -51,6 +85,10 @@ public class UnifiedTransactionEventConsumer {
             log.info("Received unified event: {} from {} with type {}", 
                     event.getEventId(), event.getSource(), event.getEventType());
 
+            // Count work done for callers that have already given up
+            deadlineMetrics.recordIfExpired(RequestDeadlineUtil.parseDeadline(deadline),
+                    DeadlineMetrics.STAGE_KAFKA, "transaction-service");
+
             // Route event based on type and source
             routeEvent(event);
             
@@ -63,56 +101,106 @@ public class UnifiedTransactionEventConsumer {
     }
 
     /**
-     * Smart routing based on event type and source
+     * Batch listener mode: one IN query for duplicates, one transaction and one JDBC batch of
+     * ProcessedEvent rows per poll. Replaces the record listener when kafka.domain-events.batch.enabled is set.
      */
-    private void routeEvent(DomainEvent event) {
-        String eventType = event.getEventType();
-        String source = event.getSource();
-        
-        try {
-            switch (eventType) {
-                // Payment Events
-                case "PAYMENT_COMPLETED":
-                case "PAYMENT_FAILED":
-                    handlePaymentEvent(event);
-                    break;
-                    
-                // Dispensing Events
-                case "DISPENSING_SUCCESS":
-                case "DISPENSING_COMPLETED":
-                case "DISPENSING_FAILED":
-                case "DISPENSING_PARTIAL":
-                    handleDispensingEvent(event);
-                    break;
-                    
-                default:
-                    log.debug("Ignoring event type: {} from source: {} (not relevant for transaction service)", eventType, source);
+    @KafkaListener(topics = "vending-machine-domain-events", groupId = "transaction-service-unified-group",
+                   containerFactory = "domainEventKafkaListenerContainerFactory", batch = "true",
+                   autoStartup = "${kafka.domain-events.batch.enabled:false}",
+                   properties = "max.poll.records=${kafka.domain-events.batch.max-poll-records:100}")
+    @ExecutionTime(operation = "Process Unified Event Batch", warningThreshold = 5000)
+    public void consumeUnifiedEventBatch(List<ConsumerRecord<String, DomainEvent>> records) {
+        log.info("Received batch of {} unified events", records.size());
+        batchProcessor.process(records, new DomainEventBatchProcessor.Handler<ProcessedEvent>() {
+            @Override
+            public Set<String> findProcessed(Collection<String> eventIds) {
+                return processedEventRepository.findProcessedEventIds(eventIds);
             }
-        } catch (Exception e) {
-            log.error("Failed to route event {} of type {}", event.getEventId(), eventType, e);
-            throw e;
+
+            @Override
+            public String processedEventType(DomainEvent event) {
+                return UnifiedTransactionEventConsumer.processedEventType(event);
+            }
+
+            @Override
+            public ProcessedEvent handle(ConsumerRecord<String, DomainEvent> record) {
+                deadlineMetrics.recordIfExpired(RequestDeadlineUtil.parseDeadline(
+                        DomainEventBatchProcessor.headerValue(record, RequestDeadlineUtil.DEADLINE_HEADER)),
+                        DeadlineMetrics.STAGE_KAFKA, "transaction-service");
+                return applyEvent(record.value());
+            }
+
+            @Override
+            public void saveProcessed(List<ProcessedEvent> rows) {
+                processedEventRepository.insertAll(rows);
+            }
+        });
+    }
+
+    /**
+     * Processed-event type an event is recorded under, or null for events this consumer ignores
+     */
+    private static String processedEventType(DomainEvent event) {
+        return PROCESSED_EVENT_TYPES.get(event.getEventType());
+    }
+
+    /**
+     * Apply an event from the batch listener, returning its ProcessedEvent row or null
+     */
+    private ProcessedEvent applyEvent(DomainEvent event) {
+        if (!handlerRegistry.handles(event)) {
+            log.debug("Ignoring event type: {} from source: {} (not relevant for transaction service)",
+                    event.getEventType(), event.getSource());
+            return null;
         }
+        return (ProcessedEvent) handlerRegistry.dispatch(event);
     }
 
     /**
-     * Handle payment events with enhanced payload from unified topic
+     * Route the event to its handler, skipping events already processed
      */
-    private void handlePaymentEvent(DomainEvent event) {
-        try {
-            PaymentPayload payload = parsePayload(event.getPayload(), PaymentPayload.class);
-            
-            log.info("Processing unified payment event: {} for transaction {}", event.getEventId(), payload.getTransactionId());
+    private void routeEvent(DomainEvent event) {
+        String processedEventType = processedEventType(event);
+        if (processedEventType == null || !handlerRegistry.handles(event)) {
+            log.debug("Ignoring event type: {} from source: {} (not relevant for transaction service)",
+                    event.getEventType(), event.getSource());
+            return;
+        }
+
+        // Check for duplicate event processing using domain event ID
+        if (dedupCache.isProcessed(event.getEventId(), processedEventType, event.getTimestamp(),
+                () -> processedEventRepository.existsByEventIdAndEventType(event.getEventId(), processedEventType))) {
+            log.warn("Unified event {} of type {} already processed, skipping", event.getEventId(), processedEventType);
+            return;
+        }
 
-            // Check for duplicate event processing using domain event ID
-            if (processedEventRepository.existsByEventIdAndEventType(event.getEventId(), "UNIFIED_PAYMENT_EVENT")) {
-                log.warn("Unified payment event {} already processed, skipping", event.getEventId());
-                return;
+        ProcessedEvent processedEvent = (ProcessedEvent) handlerRegistry.dispatch(event);
+        if (processedEvent != null) {
+            // Mark event as processed
+            processedEventRepository.save(processedEvent);
+            dedupCache.markProcessed(event.getEventId(), processedEventType);
+            log.info("Successfully processed unified event: {} of type {}", event.getEventId(), processedEventType);
+        }
+    }
+
+    /**
+     * Apply a payment event and build its ProcessedEvent row without saving it, or null when the
+     * transaction is unknown
+     */
+    @DomainEventHandler(type = {"PAYMENT_COMPLETED", "PAYMENT_FAILED"}, payload = PaymentPayload.class)
+    public ProcessedEvent applyPaymentEvent(DomainEvent event, PaymentPayload payload) {
+        try {
+            if (payload == null) {
+                log.error("Payload is null for payment event {}", event.getEventId());
+                throw new IllegalArgumentException("Payload cannot be null");
             }
 
+            log.info("Processing unified payment event: {} for transaction {}", event.getEventId(), payload.getTransactionId());
+
             Optional<Transaction> transactionOpt = transactionRepository.findById(payload.getTransactionId());
             if (transactionOpt.isEmpty()) {
                 log.warn("Transaction {} not found for payment event {}", payload.getTransactionId(), event.getEventId());
-                return;
+                return null;
             }
 
             Transaction transaction = transactionOpt.get();
@@ -122,6 +210,7 @@ public class UnifiedTransactionEventConsumer {
                 if (transaction.getStatus() == TransactionStatus.PENDING) {
                     transaction.setStatus(TransactionStatus.PROCESSING);
                     transactionRepository.save(transaction);
+                    transactionDTOCache.invalidate(transaction.getId());
                     
                     // Publish PROCESSING event to trigger dispensing
                     kafkaEventService.publishTransactionEventWithCompleteData(transaction, "PROCESSING");
@@ -130,21 +219,18 @@ public class UnifiedTransactionEventConsumer {
             } else if ("PAYMENT_FAILED".equals(event.getEventType())) {
                 transaction.setStatus(TransactionStatus.FAILED);
                 transactionRepository.save(transaction);
+                transactionDTOCache.invalidate(transaction.getId());
                 
                 kafkaEventService.publishTransactionEventWithCompleteData(transaction, "FAILED");
                 log.warn("Transaction {} marked as FAILED due to payment failure", transaction.getId());
             }
 
-            // Mark event as processed
-            ProcessedEvent processedEvent = ProcessedEvent.builder()
+            return ProcessedEvent.builder()
                     .eventId(event.getEventId())
                     .eventType("UNIFIED_PAYMENT_EVENT")
                     .transactionId(payload.getTransactionId())
                     .processedAt(LocalDateTime.now())
                     .build();
-            processedEventRepository.save(processedEvent);
-
-            log.info("Successfully processed unified payment event: {}", event.getEventId());
 
         } catch (Exception e) {
             log.error("Failed to process unified payment event: {}", event.getEventId(), e);
@@ -153,14 +239,20 @@ public class UnifiedTransactionEventConsumer {
     }
 
     /**
-     * Handle dispensing events with enhanced payload from unified topic
+     * Apply a dispensing event and build its ProcessedEvent row without saving it, or null when the
+     * transaction is unknown or not in PROCESSING state
      */
-    private void handleDispensingEvent(DomainEvent event) {
+    @DomainEventHandler(type = {"DISPENSING_SUCCESS", "DISPENSING_COMPLETED", "DISPENSING_FAILED", "DISPENSING_PARTIAL"},
+                        payload = DispensingPayload.class)
+    public ProcessedEvent applyDispensingEvent(DomainEvent event, DispensingPayload payload) {
         try {
             log.info("Starting to process dispensing event: {}", event.getEventId());
             log.debug("Raw event payload: {}", event.getPayload());
-            
-            DispensingPayload payload = parsePayload(event.getPayload(), DispensingPayload.class);
+
+            if (payload == null) {
+                log.error("Payload is null for dispensing event {}", event.getEventId());
+                throw new IllegalArgumentException("Payload cannot be null");
+            }
             
             log.info("Processing unified dispensing event: {} for transaction {} product {} status {}",
                     event.getEventId(), payload.getTransactionId(), payload.getProductId(), payload.getStatus());
@@ -174,17 +266,11 @@ public class UnifiedTransactionEventConsumer {
             log.debug("Payload details: transactionId={}, productId={}, dispensedQuantity={}, status={}", 
                      payload.getTransactionId(), payload.getProductId(), payload.getDispensedQuantity(), payload.getStatus());
 
-            // Check for duplicate event processing using domain event ID
-            if (processedEventRepository.existsByEventIdAndEventType(event.getEventId(), "UNIFIED_DISPENSING_EVENT")) {
-                log.warn("Unified dispensing event {} already processed, skipping", event.getEventId());
-                return;
-            }
-
             log.debug("Looking for transaction with ID: {}", payload.getTransactionId());
             Optional<Transaction> transactionOpt = transactionRepository.findById(payload.getTransactionId());
             if (transactionOpt.isEmpty()) {
                 log.warn("Transaction {} not found for dispensing event {}", payload.getTransactionId(), event.getEventId());
-                return;
+                return null;
             }
 
             Transaction transaction = transactionOpt.get();
@@ -195,7 +281,7 @@ public class UnifiedTransactionEventConsumer {
             if (transaction.getStatus() != TransactionStatus.PROCESSING) {
                 log.warn("Transaction {} is not in PROCESSING state (current: {}), skipping dispensing event", 
                          transaction.getId(), transaction.getStatus());
-                return;
+                return null;
             }
 
             log.info("Transaction {} is in PROCESSING state, proceeding with dispensing event handling", transaction.getId());
@@ -205,6 +291,7 @@ public class UnifiedTransactionEventConsumer {
                 log.warn("Processing DISPENSING_FAILED event for transaction {}", transaction.getId());
                 transaction.setStatus(TransactionStatus.FAILED);
                 transaction = transactionRepository.save(transaction);
+                transactionDTOCache.invalidate(transaction.getId());
                 log.info("Transaction {} status updated to FAILED", transaction.getId());
                 
                 kafkaEventService.publishTransactionEventWithCompleteData(transaction, "FAILED");
@@ -221,6 +308,7 @@ public class UnifiedTransactionEventConsumer {
                     log.info("All items dispensed for transaction {}, updating status to COMPLETED", transaction.getId());
                     transaction.setStatus(TransactionStatus.COMPLETED);
                     transaction = transactionRepository.save(transaction);
+                    transactionDTOCache.invalidate(transaction.getId());
                     log.info("Transaction {} successfully saved with COMPLETED status", transaction.getId());
                     
                     kafkaEventService.publishTransactionEventWithCompleteData(transaction, "COMPLETED");
@@ -237,17 +325,12 @@ public class UnifiedTransactionEventConsumer {
             }
 
             log.debug("Creating ProcessedEvent record for event: {}", event.getEventId());
-            // Mark event as processed
-            ProcessedEvent processedEvent = ProcessedEvent.builder()
+            return ProcessedEvent.builder()
                     .eventId(event.getEventId())
                     .eventType("UNIFIED_DISPENSING_EVENT")
                     .transactionId(payload.getTransactionId())
                     .processedAt(LocalDateTime.now())
                     .build();
-            processedEventRepository.save(processedEvent);
-            log.debug("ProcessedEvent saved successfully for event: {}", event.getEventId());
-
-            log.info("Successfully processed unified dispensing event: {}", event.getEventId());
 
         } catch (Exception e) {
             log.error("Failed to process unified dispensing event: {} - Error details: {}", event.getEventId(), e.getMessage(), e);
@@ -267,27 +350,4 @@ public class UnifiedTransactionEventConsumer {
         // Real implementation would track individual items
         return true;
     }
-
-    /**
-     * Parse JSON payload to specific payload class
-     */
-    private <T> T parsePayload(String payloadJson, Class<T> payloadClass) {
-        try {
-            log.debug("Attempting to parse payload for class {}: {}", payloadClass.getSimpleName(), payloadJson);
-            
-            if (payloadJson == null || payloadJson.trim().isEmpty()) {
-                log.error("Payload JSON is null or empty for class {}", payloadClass.getSimpleName());
-                throw new IllegalArgumentException("Payload JSON cannot be null or empty");
-            }
-            
-            T result = objectMapper.readValue(payloadJson, payloadClass);
-            log.debug("Successfully parsed payload for class {}: {}", payloadClass.getSimpleName(), result);
-            
-            return result;
-        } catch (Exception e) {
-            log.error("Failed to parse payload for class {}: {}", payloadClass.getSimpleName(), payloadJson, e);
-            log.error("Parse error details: {}", e.getMessage());
-            throw new RuntimeException("Failed to parse event payload", e);
-        }
-    }
 }
\ No newline at end of file
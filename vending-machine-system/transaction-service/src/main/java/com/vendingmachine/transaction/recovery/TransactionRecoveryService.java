@@ -1,6 +1,7 @@
 package com.vendingmachine.transaction.recovery;
 
 import com.vendingmachine.transaction.transaction.Transaction;
+import com.vendingmachine.transaction.transaction.TransactionDTOCache;
 import com.vendingmachine.transaction.transaction.TransactionRepository;
 import com.vendingmachine.transaction.transaction.TransactionStatus;
 import com.vendingmachine.transaction.client.PaymentServiceClient;
@@ -21,6 +22,7 @@ public class TransactionRecoveryService {
 
     private final TransactionRepository transactionRepository;
     private final PaymentServiceClient paymentClient;
+    private final TransactionDTOCache transactionDTOCache;
 
     /**
      * Scheduled job to check for transactions that may have payment records
@@ -69,6 +71,7 @@ public class TransactionRecoveryService {
                 // Update transaction to processing status since payment succeeded
                 transaction.setStatus(TransactionStatus.PROCESSING);
                 transactionRepository.save(transaction);
+                transactionDTOCache.invalidate(transaction.getId());
                 
                 log.info("Successfully recovered transaction {} - moved to PROCESSING", transaction.getId());
                 
@@ -149,6 +152,7 @@ public class TransactionRecoveryService {
                     log.info("Successfully initiated refund for failed transaction {}", transaction.getId());
                     transaction.setStatus(TransactionStatus.CANCELLED);
                     transactionRepository.save(transaction);
+                    transactionDTOCache.invalidate(transaction.getId());
                 }
             }
         } catch (Exception e) {
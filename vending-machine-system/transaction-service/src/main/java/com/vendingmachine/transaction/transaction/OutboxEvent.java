@@ -0,0 +1,38 @@
+package com.vendingmachine.transaction.transaction;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A transaction event waiting to be relayed to Kafka, written in the same database transaction
+ * as the state change it announces
+ */
+@Entity
+@Table(name = "event_outbox")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String topic;
+
+    @Column(name = "event_key")
+    private String eventKey;
+
+    @Column(name = "event_data", nullable = false, columnDefinition = "TEXT")
+    private String eventData;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,27 @@
+package com.vendingmachine.transaction.transaction;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Oldest rows still waiting to be relayed
+     */
+    List<OutboxEvent> findAllByOrderByIdAsc(Pageable pageable);
+
+    /**
+     * Delete relayed rows in one statement
+     */
+    @Modifying
+    @Query("delete from OutboxEvent o where o.id in :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+}
@@ -9,7 +9,9 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "processed_events")
+@Table(name = "processed_events",
+       uniqueConstraints = @UniqueConstraint(name = "uk_processed_events_event", columnNames = {"event_id", "event_type"}),
+       indexes = @Index(name = "idx_processed_events_processed_at", columnList = "processed_at"))
 @Data
 @Builder
 @NoArgsConstructor
@@ -20,7 +22,7 @@ public class ProcessedEvent {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name = "event_id", nullable = false, unique = true)
+    @Column(name = "event_id", nullable = false)
     private String eventId;
 
     @Column(name = "event_type", nullable = false)
@@ -0,0 +1,285 @@
+package com.vendingmachine.transaction.transaction;
+
+import com.vendingmachine.common.util.RequestDeadlineUtil;
+import com.vendingmachine.transaction.exception.AdmissionRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control in front of {@link TransactionService#purchase}.
+ * <p>
+ * At most {@code max-concurrent} purchases run at once; further requests wait in a bounded
+ * FIFO queue and are admitted in arrival order. Queue delay is managed CoDel-style: when
+ * every request leaving the queue during one {@code interval-ms} waited longer than
+ * {@code target-delay-ms}, the queue is considered standing and new arrivals are rejected
+ * immediately until a request again gets through under target. Rejections surface as
+ * {@link AdmissionRejectedException}, mapped to 503 with {@code Retry-After}.
+ * <p>
+ * Configuration (config-server, per instance):
+ * <pre>
+ * transaction.admission.enabled=true
+ * transaction.admission.max-concurrent=20
+ * transaction.admission.queue-capacity=50
+ * transaction.admission.target-delay-ms=50
+ * transaction.admission.interval-ms=500
+ * transaction.admission.max-wait-ms=1000
+ * transaction.admission.retry-after-seconds=1
+ * </pre>
+ */
+@Component
+@Slf4j
+public class PurchaseAdmissionController {
+
+    public static final String REASON_QUEUE_FULL = "queue_full";
+    public static final String REASON_OVER_TARGET = "over_target";
+    public static final String REASON_TIMEOUT = "timeout";
+
+    private final boolean enabled;
+    private final int maxConcurrent;
+    private final int queueCapacity;
+    private final long targetDelayNanos;
+    private final long intervalNanos;
+    private final long maxWaitMillis;
+    private final long retryAfterSeconds;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<Waiter> queue = new ArrayDeque<>();
+    private int inFlight;
+
+    /**
+     * CoDel state: when the queue delay first went above target (plus one interval),
+     * or 0 while it is below target
+     */
+    private long firstAboveTargetNanos;
+    private boolean dropping;
+
+    private final Timer queueDelayTimer;
+    private final Counter admittedCounter;
+    private final MeterRegistry meterRegistry;
+
+    public PurchaseAdmissionController(MeterRegistry meterRegistry,
+                                       @Value("${transaction.admission.enabled:true}") boolean enabled,
+                                       @Value("${transaction.admission.max-concurrent:20}") int maxConcurrent,
+                                       @Value("${transaction.admission.queue-capacity:50}") int queueCapacity,
+                                       @Value("${transaction.admission.target-delay-ms:50}") long targetDelayMillis,
+                                       @Value("${transaction.admission.interval-ms:500}") long intervalMillis,
+                                       @Value("${transaction.admission.max-wait-ms:1000}") long maxWaitMillis,
+                                       @Value("${transaction.admission.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxConcurrent = maxConcurrent;
+        this.queueCapacity = queueCapacity;
+        this.targetDelayNanos = TimeUnit.MILLISECONDS.toNanos(targetDelayMillis);
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.maxWaitMillis = maxWaitMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        this.queueDelayTimer = Timer.builder("vending_machine.admission.queue_delay")
+                .description("Time purchase requests spent waiting for admission")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+
+        this.admittedCounter = Counter.builder("vending_machine.admission.admitted")
+                .description("Number of purchase requests admitted")
+                .register(meterRegistry);
+
+        Gauge.builder("vending_machine.admission.queue_size", this, PurchaseAdmissionController::queueSize)
+                .description("Purchase requests currently waiting for admission")
+                .register(meterRegistry);
+
+        Gauge.builder("vending_machine.admission.in_flight", this, PurchaseAdmissionController::inFlight)
+                .description("Purchase requests currently being processed")
+                .register(meterRegistry);
+
+        log.info("Purchase admission control {}: maxConcurrent={}, queueCapacity={}, targetDelay={}ms, interval={}ms",
+                enabled ? "enabled" : "disabled", maxConcurrent, queueCapacity, targetDelayMillis, intervalMillis);
+    }
+
+    /**
+     * Wait for a purchase slot. The returned permit must be closed when the purchase completes.
+     *
+     * @throws AdmissionRejectedException if the queue is full, standing over target, or the wait timed out
+     */
+    public Permit acquire() {
+        if (!enabled) {
+            return new Permit(false);
+        }
+
+        Waiter waiter;
+        lock.lock();
+        try {
+            if (inFlight < maxConcurrent && queue.isEmpty()) {
+                inFlight++;
+                // Nothing queued: any standing queue has drained
+                dropping = false;
+                firstAboveTargetNanos = 0;
+                admit(0);
+                return new Permit(true);
+            }
+            if (queue.size() >= queueCapacity) {
+                throw reject(REASON_QUEUE_FULL);
+            }
+            if (dropping) {
+                throw reject(REASON_OVER_TARGET);
+            }
+            waiter = new Waiter(lock.newCondition());
+            queue.addLast(waiter);
+        } finally {
+            lock.unlock();
+        }
+
+        return await(waiter);
+    }
+
+    private Permit await(Waiter waiter) {
+        long waitMillis = Math.min(maxWaitMillis, RequestDeadlineUtil.remainingMillis());
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(waitMillis, 0));
+
+        lock.lock();
+        try {
+            while (!waiter.granted && remainingNanos > 0) {
+                remainingNanos = waiter.condition.awaitNanos(remainingNanos);
+            }
+            if (waiter.granted) {
+                return new Permit(true);
+            }
+            queue.remove(waiter);
+            updateQueueDelay(System.nanoTime() - waiter.enqueuedNanos);
+            throw reject(REASON_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (waiter.granted) {
+                // Hand the slot on rather than leak it
+                releaseSlot();
+            } else {
+                queue.remove(waiter);
+            }
+            throw reject(REASON_TIMEOUT);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void releaseSlot() {
+        lock.lock();
+        try {
+            inFlight--;
+            Waiter next = queue.pollFirst();
+            if (next != null) {
+                long sojourn = System.nanoTime() - next.enqueuedNanos;
+                updateQueueDelay(sojourn);
+                inFlight++;
+                next.granted = true;
+                admit(sojourn);
+                next.condition.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * CoDel control law, simplified for request admission: enter the dropping state once the
+     * queue delay has stayed above target for a full interval, leave it as soon as a request
+     * waits less than target.
+     */
+    private void updateQueueDelay(long sojournNanos) {
+        long now = System.nanoTime();
+        if (sojournNanos < targetDelayNanos) {
+            firstAboveTargetNanos = 0;
+            if (dropping) {
+                log.info("Purchase queue delay back under target, admitting new requests");
+            }
+            dropping = false;
+        } else if (firstAboveTargetNanos == 0) {
+            firstAboveTargetNanos = now + intervalNanos;
+        } else if (!dropping && now - firstAboveTargetNanos >= 0) {
+            dropping = true;
+            log.warn("Purchase queue delay above {}ms for {}ms, rejecting new requests",
+                    TimeUnit.NANOSECONDS.toMillis(targetDelayNanos), TimeUnit.NANOSECONDS.toMillis(intervalNanos));
+        }
+    }
+
+    private void admit(long sojournNanos) {
+        queueDelayTimer.record(sojournNanos, TimeUnit.NANOSECONDS);
+        admittedCounter.increment();
+    }
+
+    private AdmissionRejectedException reject(String reason) {
+        Counter.builder("vending_machine.admission.rejected")
+                .description("Number of purchase requests rejected by admission control")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        log.warn("Purchase request rejected by admission control: {}", reason);
+        return new AdmissionRejectedException(reason, retryAfterSeconds);
+    }
+
+    public int queueSize() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isDropping() {
+        lock.lock();
+        try {
+            return dropping;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Waiter {
+        private final Condition condition;
+        private final long enqueuedNanos = System.nanoTime();
+        private boolean granted;
+
+        private Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+
+    /**
+     * A purchase slot. Closing it admits the next queued request.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final AtomicBoolean held;
+
+        private Permit(boolean held) {
+            this.held = new AtomicBoolean(held);
+        }
+
+        @Override
+        public void close() {
+            if (held.compareAndSet(true, false)) {
+                releaseSlot();
+            }
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.vendingmachine.transaction.transaction.dto.TransactionSummaryDTO;
 import com.vendingmachine.common.aop.annotation.Auditable;
 import com.vendingmachine.common.aop.annotation.ExecutionTime;
 import com.vendingmachine.common.util.CorrelationIdUtil;
+import com.vendingmachine.common.util.RequestDeadlineUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -21,27 +22,35 @@ import java.util.List;
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final PurchaseAdmissionController admissionController;
 
     @PostMapping("/purchase")
     @Auditable(operation = "PURCHASE_TRANSACTION", entityType = "Transaction", logParameters = true, logResult = true)
     @ExecutionTime(operation = "Purchase Request", warningThreshold = 3000, detailed = true)
     public ResponseEntity<TransactionDTO> purchase(
             @Valid @RequestBody PurchaseRequestDTO request,
-            @RequestHeader(value = "X-Correlation-ID", required = false) String correlationId) {
+            @RequestHeader(value = "X-Correlation-ID", required = false) String correlationId,
+            @RequestHeader(value = RequestDeadlineUtil.DEADLINE_HEADER, required = false) String deadline) {
         
-        // Set correlation ID for request tracing
+        // Set correlation ID for request tracing and the gateway deadline for fail-fast clients
         CorrelationIdUtil.setCorrelationId(correlationId);
+        RequestDeadlineUtil.setDeadline(deadline);
         
         try {
-            log.info("Processing purchase request with {} items", request.getItems().size());
-            TransactionDTO transaction = transactionService.purchase(request);
-            return ResponseEntity.ok(transaction);
-        } catch (Exception e) {
-            log.error("Error processing purchase request", e);
-            throw e;
+            // Outside the error log below: the admission controller counts and warns about shed requests
+            PurchaseAdmissionController.Permit permit = admissionController.acquire();
+            try (permit) {
+                log.info("Processing purchase request with {} items", request.getItems().size());
+                TransactionDTO transaction = transactionService.purchase(request);
+                return ResponseEntity.ok(transaction);
+            } catch (Exception e) {
+                log.error("Error processing purchase request", e);
+                throw e;
+            }
         }
         finally {
             CorrelationIdUtil.clearCorrelationId();
+            RequestDeadlineUtil.clearDeadline();
         }
     }
     
@@ -0,0 +1,204 @@
+package com.vendingmachine.transaction.transaction;
+
+import com.vendingmachine.transaction.transaction.dto.TransactionDTO;
+import com.vendingmachine.transaction.transaction.dto.TransactionItemDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded read-through cache of {@link TransactionDTO} keyed by transaction id.
+ * <p>
+ * Kiosks poll a transaction until it leaves PROCESSING, so most reads hit the same
+ * handful of rows. Entries are evicted in LRU order once {@code transaction.cache.max-size}
+ * is reached and expire after {@code transaction.cache.ttl-seconds}. Every status
+ * transition must call {@link #invalidate(Long)}; inside a database transaction the
+ * entry is evicted once the transaction completes, so a poller reading before the
+ * commit cannot re-populate it with the pre-commit state. Callers get their own copy
+ * of the cached DTO and may modify it.
+ */
+@Component
+@Slf4j
+public class TransactionDTOCache {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Map<Long, CachedEntry> entries;
+
+    /**
+     * Token of the latest load in flight per transaction id. Invalidating an id drops its
+     * token, so a load that was reading from the database at the time does not store its
+     * result, which may be stale; loads of other ids are unaffected.
+     */
+    private final Map<Long, Long> pendingLoads = new HashMap<>();
+    private long nextLoadToken;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public TransactionDTOCache(MeterRegistry meterRegistry,
+                               @Value("${transaction.cache.max-size:10000}") int maxSize,
+                               @Value("${transaction.cache.ttl-seconds:30}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedEntry> eldest) {
+                if (size() > TransactionDTOCache.this.maxSize) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        this.hitCounter = Counter.builder("vending_machine.transaction.cache.hits")
+                .description("Number of transaction lookups served from cache")
+                .register(meterRegistry);
+
+        this.missCounter = Counter.builder("vending_machine.transaction.cache.misses")
+                .description("Number of transaction lookups that went to the database")
+                .register(meterRegistry);
+
+        FunctionCounter.builder("vending_machine.transaction.cache.evictions", evictionCount, AtomicLong::get)
+                .description("Number of transaction cache entries evicted by size bound")
+                .register(meterRegistry);
+
+        Gauge.builder("vending_machine.transaction.cache.size", this, TransactionDTOCache::size)
+                .description("Current number of cached transactions")
+                .register(meterRegistry);
+
+        Gauge.builder("vending_machine.transaction.cache.hit_ratio", this, TransactionDTOCache::hitRatio)
+                .description("Ratio of transaction lookups served from cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached DTO for the given id, loading it with {@code loader} on a miss.
+     */
+    public TransactionDTO get(Long transactionId, Function<Long, TransactionDTO> loader) {
+        long now = System.currentTimeMillis();
+        CachedEntry cached;
+        synchronized (entries) {
+            cached = entries.get(transactionId);
+            if (cached != null && cached.expiresAt <= now) {
+                entries.remove(transactionId);
+                cached = null;
+            }
+        }
+
+        if (cached != null) {
+            hitCounter.increment();
+            return copy(cached.value);
+        }
+
+        missCounter.increment();
+        Long token;
+        synchronized (entries) {
+            token = ++nextLoadToken;
+            pendingLoads.put(transactionId, token);
+        }
+        TransactionDTO loaded;
+        try {
+            loaded = loader.apply(transactionId);
+        } catch (RuntimeException e) {
+            synchronized (entries) {
+                pendingLoads.remove(transactionId, token);
+            }
+            throw e;
+        }
+
+        synchronized (entries) {
+            if (pendingLoads.remove(transactionId, token) && loaded != null) {
+                entries.put(transactionId, new CachedEntry(copy(loaded), now + ttlMillis));
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Evicts the cached DTO for a transaction whose status has changed: once the current
+     * database transaction completes, or right away outside of one. Until the commit the
+     * cached DTO is still the committed state, so evicting earlier gains nothing.
+     */
+    public void invalidate(Long transactionId) {
+        if (transactionId == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(transactionId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                evict(transactionId);
+            }
+        });
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            pendingLoads.clear();
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public double hitRatio() {
+        double hits = hitCounter.count();
+        double total = hits + missCounter.count();
+        return total == 0 ? 0.0 : hits / total;
+    }
+
+    private void evict(Long transactionId) {
+        synchronized (entries) {
+            pendingLoads.remove(transactionId);
+            entries.remove(transactionId);
+        }
+        log.debug("Evicted transaction {} from cache", transactionId);
+    }
+
+    private static TransactionDTO copy(TransactionDTO dto) {
+        return TransactionDTO.builder()
+                .id(dto.getId())
+                .items(dto.getItems() == null ? null : dto.getItems().stream()
+                        .map(item -> TransactionItemDTO.builder()
+                                .id(item.getId())
+                                .productId(item.getProductId())
+                                .quantity(item.getQuantity())
+                                .price(item.getPrice())
+                                .build())
+                        .collect(Collectors.toList()))
+                .totalAmount(dto.getTotalAmount())
+                .paymentMethod(dto.getPaymentMethod())
+                .paidAmount(dto.getPaidAmount())
+                .changeAmount(dto.getChangeAmount())
+                .status(dto.getStatus())
+                .createdAt(dto.getCreatedAt())
+                .updatedAt(dto.getUpdatedAt())
+                .build();
+    }
+
+    private record CachedEntry(TransactionDTO value, long expiresAt) {
+    }
+}
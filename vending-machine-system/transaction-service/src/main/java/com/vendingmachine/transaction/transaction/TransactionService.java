@@ -12,7 +12,10 @@ import com.vendingmachine.transaction.kafka.KafkaEventService;
 import com.vendingmachine.transaction.exception.InsufficientStockException;
 import com.vendingmachine.transaction.exception.PaymentFailedException;
 import com.vendingmachine.common.aop.annotation.Auditable;
+import com.vendingmachine.common.catalog.InventoryCatalog;
+import com.vendingmachine.common.catalog.ProductSnapshot;
 import com.vendingmachine.common.aop.annotation.ExecutionTime;
+import com.vendingmachine.common.util.DeadlineExceededException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -32,12 +35,14 @@ public class TransactionService {
 
     private final TransactionRepository transactionRepository;
     private final KafkaEventService kafkaEventService;
+    private final TransactionDTOCache transactionDTOCache;
     
     // Circuit Breaker enabled clients
     private final InventoryServiceClient inventoryClient;
     private final PaymentServiceClient paymentClient;
+    private final InventoryCatalog inventoryCatalog;
 
-    @Transactional
+    @Transactional(noRollbackFor = PaymentFailedException.class)
     @Auditable(operation = "Purchase Transaction", entityType = "Transaction", logParameters = true, logResult = true)
     @ExecutionTime(operation = "purchase", warningThreshold = 2000, detailed = true)
     public TransactionDTO purchase(PurchaseRequestDTO request) {
@@ -77,8 +82,9 @@ public class TransactionService {
                 // Payment failed but transaction should be saved for refund/audit purposes
                 savedTransaction.setStatus(TransactionStatus.FAILED);
                 savedTransaction = transactionRepository.save(savedTransaction);
+                transactionDTOCache.invalidate(savedTransaction.getId());
                 
-                // Publish FAILED event with complete data
+                // Publish FAILED event with complete data; it commits with the FAILED row
                 kafkaEventService.publishTransactionEventWithCompleteData(savedTransaction, "FAILED");
                 
                 log.warn("Payment failed for transaction {}, saved as FAILED for audit", savedTransaction.getId());
@@ -87,10 +93,17 @@ public class TransactionService {
         } catch (PaymentFailedException e) {
             // Re-throw payment exceptions
             throw e;
+        } catch (DeadlineExceededException e) {
+            // Caller gave up before payment was attempted
+            savedTransaction.setStatus(TransactionStatus.FAILED);
+            transactionRepository.save(savedTransaction);
+            transactionDTOCache.invalidate(savedTransaction.getId());
+            throw e;
         } catch (Exception e) {
             // Handle unexpected errors (like Jackson serialization errors)
             savedTransaction.setStatus(TransactionStatus.FAILED);
             transactionRepository.save(savedTransaction);
+            transactionDTOCache.invalidate(savedTransaction.getId());
             
             log.error("Unexpected error during payment processing for transaction {}: {}", 
                      savedTransaction.getId(), e.getMessage(), e);
@@ -106,6 +119,7 @@ public class TransactionService {
             } else {
                 savedTransaction.setStatus(TransactionStatus.FAILED);
                 transactionRepository.save(savedTransaction);
+                transactionDTOCache.invalidate(savedTransaction.getId());
                 throw new PaymentFailedException("Insufficient cash amount provided - Required: " + totalAmount);
             }
         } else {
@@ -128,6 +142,7 @@ public class TransactionService {
         savedTransaction.setItems(items);
         savedTransaction.setStatus(TransactionStatus.PROCESSING); // Move to processing after payment
         Transaction finalTransaction = transactionRepository.save(savedTransaction);
+        transactionDTOCache.invalidate(finalTransaction.getId());
 
         // Publish transaction PROCESSING event to trigger dispensing
         // Using enhanced method with complete transaction data for unified topic
@@ -182,6 +197,8 @@ public class TransactionService {
 
             log.info("All {} items are available", items.size());
             return true;
+        } catch (DeadlineExceededException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Failed to check inventory availability", e);
             return false;
@@ -199,13 +216,22 @@ public class TransactionService {
     }
 
     /**
-     * Get product price using circuit breaker enabled client
+     * Get product price from the local inventory catalog, or the circuit breaker enabled client
+     * while the catalog is not loaded or does not know the product
      */
     @SuppressWarnings("null")
     private BigDecimal getProductPrice(Long productId) {
+        if (inventoryCatalog.isReady()) {
+            Optional<Double> price = inventoryCatalog.find(productId).map(ProductSnapshot::price);
+            if (price.isPresent()) {
+                return BigDecimal.valueOf(price.get());
+            }
+        }
         try {
             // Use circuit breaker enabled inventory client
             return inventoryClient.getProductPrice(productId);
+        } catch (DeadlineExceededException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Failed to get product price for {}", productId, e);
             return BigDecimal.ZERO;
@@ -248,6 +274,8 @@ public class TransactionService {
             log.info("Payment processing result: {} (status: {})", isSuccess, status);
             return isSuccess;
             
+        } catch (DeadlineExceededException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Failed to process payment", e);
             return false;
@@ -287,6 +315,7 @@ public class TransactionService {
             }
 
             transactionRepository.save(transaction);
+            transactionDTOCache.invalidate(transactionId);
 
             // Publish compensation event with complete transaction data
             kafkaEventService.publishTransactionEventWithCompleteData(transaction, "COMPENSATED");
@@ -296,6 +325,7 @@ public class TransactionService {
             // Mark as failed but don't throw - compensation should be idempotent
             transaction.setStatus(TransactionStatus.FAILED);
             transactionRepository.save(transaction);
+            transactionDTOCache.invalidate(transactionId);
         }
     }
 
@@ -351,10 +381,14 @@ public class TransactionService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Read-through lookup used by kiosk polling; see {@link TransactionDTOCache}.
+     */
+    @Transactional(readOnly = true)
     public TransactionDTO getTransactionById(Long id) {
-        return transactionRepository.findById(id)
+        return transactionDTOCache.get(id, transactionId -> transactionRepository.findById(transactionId)
                 .map(this::mapToDTO)
-                .orElseThrow(() -> new RuntimeException("Transaction not found: " + id));
+                .orElseThrow(() -> new RuntimeException("Transaction not found: " + transactionId)));
     }
 
     @ExecutionTime(operation = "getTransactionSummary", warningThreshold = 1000)
@@ -16,6 +16,7 @@ public class TransactionTimeoutService {
 
     private final TransactionRepository transactionRepository;
     private final TransactionService transactionService;
+    private final TransactionDTOCache transactionDTOCache;
 
     @Scheduled(fixedRate = 60000) // Check every minute
     @Transactional
@@ -43,6 +44,7 @@ public class TransactionTimeoutService {
                 // Mark as failed if compensation fails
                 transaction.setStatus(TransactionStatus.FAILED);
                 transactionRepository.save(transaction);
+                transactionDTOCache.invalidate(transaction.getId());
             }
         }
 
@@ -0,0 +1,79 @@
+package com.vendingmachine.transaction.client;
+
+import com.vendingmachine.common.monitoring.DeadlineMetrics;
+import com.vendingmachine.common.resilience.RetryBudgetRegistry;
+import com.vendingmachine.common.util.DeadlineExceededException;
+import com.vendingmachine.common.util.RequestDeadlineUtil;
+import com.vendingmachine.transaction.transaction.dto.PaymentInfo;
+import com.vendingmachine.transaction.transaction.dto.PaymentMethod;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Test class for request deadline handling in the service clients
+ */
+class ClientDeadlineTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+    private final RetryBudgetRegistry retryBudgetRegistry = mock(RetryBudgetRegistry.class);
+    private final DeadlineMetrics deadlineMetrics = new DeadlineMetrics(meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        RequestDeadlineUtil.clearDeadline();
+    }
+
+    @Test
+    void testPassedDeadlineFailsFastWithoutCallingPayment() {
+        PaymentServiceClient client = new PaymentServiceClient(restTemplate, retryBudgetRegistry, deadlineMetrics);
+        RequestDeadlineUtil.setDeadline(System.currentTimeMillis() - 1_000);
+
+        assertThrows(DeadlineExceededException.class, () -> client.processPayment("7",
+                PaymentInfo.builder().paymentMethod(PaymentMethod.CASH).paidAmount(BigDecimal.TEN).build(), BigDecimal.ONE));
+
+        verifyNoInteractions(restTemplate, retryBudgetRegistry);
+        assertEquals(1, meterRegistry.get("vending_machine.deadline.skipped")
+                .tag("destination", "payment-service").counter().count());
+    }
+
+    @Test
+    void testPassedDeadlineFailsFastWithoutCallingInventory() {
+        InventoryServiceClient client = new InventoryServiceClient(restTemplate, retryBudgetRegistry, deadlineMetrics);
+        RequestDeadlineUtil.setDeadline(System.currentTimeMillis() - 1_000);
+
+        assertThrows(DeadlineExceededException.class,
+                () -> client.checkAvailability(List.of(Map.of("productId", 1L, "quantity", 1))));
+
+        verifyNoInteractions(restTemplate, retryBudgetRegistry);
+        assertEquals(1, meterRegistry.get("vending_machine.deadline.skipped")
+                .tag("destination", "inventory-service").counter().count());
+    }
+
+    @Test
+    void testFallbacksRethrowDeadlineExceeded() {
+        PaymentServiceClient payment = new PaymentServiceClient(restTemplate, retryBudgetRegistry, deadlineMetrics);
+        InventoryServiceClient inventory = new InventoryServiceClient(restTemplate, retryBudgetRegistry, deadlineMetrics);
+        DeadlineExceededException exceeded = new DeadlineExceededException("payment processing", 5);
+
+        assertSame(exceeded, assertThrows(DeadlineExceededException.class, () -> ReflectionTestUtils.invokeMethod(
+                payment, "processPaymentFallback", "7", new PaymentInfo(), BigDecimal.ONE, exceeded)));
+        assertSame(exceeded, assertThrows(DeadlineExceededException.class, () -> ReflectionTestUtils.invokeMethod(
+                inventory, "checkAvailabilityFallback", List.of(), exceeded)));
+        // Other failures still degrade to the fail-safe answer
+        Map<String, Object> fallback = ReflectionTestUtils.invokeMethod(payment, "processPaymentFallback", "7",
+                new PaymentInfo(), BigDecimal.ONE, new IllegalStateException("connection refused"));
+        assertEquals(Boolean.TRUE, fallback.get("fallback"));
+    }
+}
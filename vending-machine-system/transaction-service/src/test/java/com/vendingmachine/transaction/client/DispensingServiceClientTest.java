@@ -1,9 +1,11 @@
 package com.vendingmachine.transaction.client;
 
+import com.vendingmachine.common.resilience.RetryBudgetRegistry;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -49,6 +51,10 @@ class DispensingServiceClientTest {
     @MockBean
     private RestTemplate restTemplate;
 
+    @SuppressWarnings("removal")
+    @MockBean(answer = Answers.RETURNS_DEEP_STUBS)
+    private RetryBudgetRegistry retryBudgetRegistry;
+
     @Autowired
     private CircuitBreakerRegistry circuitBreakerRegistry;
 
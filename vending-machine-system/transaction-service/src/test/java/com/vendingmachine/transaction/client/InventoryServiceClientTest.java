@@ -1,9 +1,12 @@
 package com.vendingmachine.transaction.client;
 
+import com.vendingmachine.common.resilience.RetryBudgetRegistry;
+import com.vendingmachine.common.monitoring.DeadlineMetrics;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -50,6 +53,14 @@ class InventoryServiceClientTest {
     @MockBean
     private RestTemplate restTemplate;
 
+    @SuppressWarnings("removal")
+    @MockBean
+    private DeadlineMetrics deadlineMetrics;
+
+    @SuppressWarnings("removal")
+    @MockBean(answer = Answers.RETURNS_DEEP_STUBS)
+    private RetryBudgetRegistry retryBudgetRegistry;
+
     @Autowired
     private CircuitBreakerRegistry circuitBreakerRegistry;
 
@@ -0,0 +1,176 @@
+package com.vendingmachine.transaction.transaction;
+
+import com.vendingmachine.transaction.exception.AdmissionRejectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for purchase admission control
+ */
+class PurchaseAdmissionControllerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private PurchaseAdmissionController controller(int maxConcurrent, int queueCapacity,
+                                                   long targetDelayMs, long intervalMs, long maxWaitMs) {
+        return new PurchaseAdmissionController(meterRegistry, true, maxConcurrent, queueCapacity,
+                targetDelayMs, intervalMs, maxWaitMs, 2);
+    }
+
+    @Test
+    void testAdmitsUpToMaxConcurrentWithoutQueueing() {
+        PurchaseAdmissionController admission = controller(2, 5, 50, 500, 1000);
+
+        PurchaseAdmissionController.Permit first = admission.acquire();
+        PurchaseAdmissionController.Permit second = admission.acquire();
+
+        assertEquals(2, admission.inFlight());
+        first.close();
+        first.close(); // closing twice must not release two slots
+        assertEquals(1, admission.inFlight());
+        second.close();
+        assertEquals(0, admission.inFlight());
+        assertEquals(2.0, meterRegistry.get("vending_machine.admission.admitted").counter().count());
+    }
+
+    @Test
+    void testRejectsImmediatelyWhenQueueFull() {
+        PurchaseAdmissionController admission = controller(1, 0, 50, 500, 1000);
+        PurchaseAdmissionController.Permit held = admission.acquire();
+
+        AdmissionRejectedException ex = assertThrows(AdmissionRejectedException.class, admission::acquire);
+
+        assertEquals(PurchaseAdmissionController.REASON_QUEUE_FULL, ex.getReason());
+        assertEquals(2, ex.getRetryAfterSeconds());
+        assertEquals(1.0, meterRegistry.get("vending_machine.admission.rejected")
+                .tag("reason", PurchaseAdmissionController.REASON_QUEUE_FULL).counter().count());
+        held.close();
+    }
+
+    @Test
+    void testQueuedRequestAdmittedInOrderWhenSlotFrees() throws Exception {
+        PurchaseAdmissionController admission = controller(1, 5, 50, 500, 5000);
+        PurchaseAdmissionController.Permit held = admission.acquire();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Integer> order = new ArrayList<>();
+
+        try {
+            CountDownLatch firstQueued = new CountDownLatch(1);
+            Future<?> first = executor.submit(() -> {
+                firstQueued.countDown();
+                try (PurchaseAdmissionController.Permit permit = admission.acquire()) {
+                    synchronized (order) {
+                        order.add(1);
+                    }
+                }
+            });
+            firstQueued.await();
+            waitForQueueSize(admission, 1);
+            Future<?> second = executor.submit(() -> {
+                try (PurchaseAdmissionController.Permit permit = admission.acquire()) {
+                    synchronized (order) {
+                        order.add(2);
+                    }
+                }
+            });
+            waitForQueueSize(admission, 2);
+
+            held.close();
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(List.of(1, 2), order);
+        assertEquals(0, admission.inFlight());
+    }
+
+    @Test
+    void testQueuedRequestTimesOut() {
+        PurchaseAdmissionController admission = controller(1, 5, 50, 500, 50);
+        PurchaseAdmissionController.Permit held = admission.acquire();
+
+        AdmissionRejectedException ex = assertThrows(AdmissionRejectedException.class, admission::acquire);
+
+        assertEquals(PurchaseAdmissionController.REASON_TIMEOUT, ex.getReason());
+        assertEquals(0, admission.queueSize());
+        held.close();
+        assertEquals(0, admission.inFlight());
+    }
+
+    @Test
+    void testStandingQueueOverTargetRejectsNewArrivals() throws Exception {
+        // Target 1ms over a 20ms interval: requests that wait ~40ms each keep the queue standing
+        PurchaseAdmissionController admission = controller(1, 10, 1, 20, 5000);
+        PurchaseAdmissionController.Permit held = admission.acquire();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        try {
+            // Waiters may enqueue in any order, so take permits as they are granted
+            BlockingQueue<PurchaseAdmissionController.Permit> granted = new LinkedBlockingQueue<>();
+            for (int i = 0; i < 3; i++) {
+                executor.submit(() -> granted.add(admission.acquire()));
+            }
+            waitForQueueSize(admission, 3);
+
+            Thread.sleep(40);
+            held.close();
+            PurchaseAdmissionController.Permit next = granted.poll(5, TimeUnit.SECONDS);
+            Thread.sleep(40);
+            next.close();
+            next = granted.poll(5, TimeUnit.SECONDS);
+
+            assertTrue(admission.isDropping());
+            AdmissionRejectedException ex = assertThrows(AdmissionRejectedException.class, admission::acquire);
+            assertEquals(PurchaseAdmissionController.REASON_OVER_TARGET, ex.getReason());
+
+            next.close();
+            granted.poll(5, TimeUnit.SECONDS).close();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Queue drained: the next arrival is admitted directly and clears the dropping state
+        admission.acquire().close();
+        assertFalse(admission.isDropping());
+        assertTrue(meterRegistry.get("vending_machine.admission.queue_delay").timer().count() > 0);
+    }
+
+    @Test
+    void testDisabledAdmitsEverything() {
+        PurchaseAdmissionController admission = new PurchaseAdmissionController(meterRegistry, false, 1, 0,
+                50, 500, 1000, 1);
+
+        admission.acquire();
+        admission.acquire().close();
+
+        assertEquals(0, admission.inFlight());
+    }
+
+    private static void waitForQueueSize(PurchaseAdmissionController admission, int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (admission.queueSize() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(size, admission.queueSize());
+    }
+}
@@ -0,0 +1,236 @@
+package com.vendingmachine.transaction.transaction;
+
+import com.vendingmachine.transaction.transaction.dto.TransactionDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for TransactionDTOCache bounding, invalidation and behaviour under
+ * concurrent kiosk polling.
+ */
+class TransactionDTOCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private Map<Long, TransactionStatus> database;
+    private AtomicInteger databaseReads;
+    private Function<Long, TransactionDTO> loader;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        database = new ConcurrentHashMap<>();
+        databaseReads = new AtomicInteger();
+        loader = id -> {
+            databaseReads.incrementAndGet();
+            return dto(id, database.get(id));
+        };
+    }
+
+    @Test
+    void shouldServeRepeatedReadsFromCache() {
+        TransactionDTOCache cache = new TransactionDTOCache(meterRegistry, 100, 60);
+        database.put(1L, TransactionStatus.PROCESSING);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(cache.get(1L, loader).getStatus()).isEqualTo(TransactionStatus.PROCESSING);
+        }
+
+        assertThat(databaseReads.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("vending_machine.transaction.cache.hits").counter().count()).isEqualTo(9.0);
+        assertThat(meterRegistry.get("vending_machine.transaction.cache.misses").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("vending_machine.transaction.cache.hit_ratio").gauge().value()).isEqualTo(0.9);
+    }
+
+    @Test
+    void shouldReloadAfterInvalidation() {
+        TransactionDTOCache cache = new TransactionDTOCache(meterRegistry, 100, 60);
+        database.put(1L, TransactionStatus.PROCESSING);
+        cache.get(1L, loader);
+
+        database.put(1L, TransactionStatus.COMPLETED);
+        cache.invalidate(1L);
+
+        assertThat(cache.get(1L, loader).getStatus()).isEqualTo(TransactionStatus.COMPLETED);
+        assertThat(databaseReads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotStoreValueLoadedConcurrentlyWithInvalidation() {
+        TransactionDTOCache cache = new TransactionDTOCache(meterRegistry, 100, 60);
+        database.put(1L, TransactionStatus.PROCESSING);
+
+        // Status changes while the stale row is being read
+        cache.get(1L, id -> {
+            TransactionDTO stale = loader.apply(id);
+            database.put(1L, TransactionStatus.COMPLETED);
+            cache.invalidate(1L);
+            return stale;
+        });
+
+        assertThat(cache.get(1L, loader).getStatus()).isEqualTo(TransactionStatus.COMPLETED);
+    }
+
+    @Test
+    void shouldKeepCachingOtherTransactionsDuringAnInvalidation() {
+        TransactionDTOCache cache = new TransactionDTOCache(meterRegistry, 100, 60);
+        database.put(1L, TransactionStatus.PROCESSING);
+        database.put(2L, TransactionStatus.PROCESSING);
+
+        cache.get(1L, id -> {
+            cache.invalidate(2L);
+            return loader.apply(id);
+        });
+        cache.get(1L, loader);
+
+        assertThat(databaseReads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldHandOutCopiesOfTheCachedValue() {
+        TransactionDTOCache cache = new TransactionDTOCache(meterRegistry, 100, 60);
+        database.put(1L, TransactionStatus.PROCESSING);
+
+        cache.get(1L, loader).setStatus(TransactionStatus.FAILED);
+        TransactionDTO first = cache.get(1L, loader);
+        first.setStatus(TransactionStatus.FAILED);
+
+        assertThat(cache.get(1L, loader).getStatus()).isEqualTo(TransactionStatus.PROCESSING);
+        assertThat(cache.get(1L, loader)).isNotSameAs(cache.get(1L, loader));
+    }
+
+    @Test
+    void shouldEvictOnlyOnceTheDatabaseTransactionCompletes() {
+        TransactionDTOCache cache = new TransactionDTOCache(meterRegistry, 100, 60);
+        database.put(1L, TransactionStatus.PROCESSING);
+        cache.get(1L, loader);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            database.put(1L, TransactionStatus.COMPLETED);
+            cache.invalidate(1L);
+            // Not committed yet: pollers keep seeing the committed state
+            assertThat(cache.get(1L, loader).getStatus()).isEqualTo(TransactionStatus.PROCESSING);
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(cache.get(1L, loader).getStatus()).isEqualTo(TransactionStatus.COMPLETED);
+        assertThat(databaseReads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntriesBeyondMaxSize() {
+        TransactionDTOCache cache = new TransactionDTOCache(meterRegistry, 2, 60);
+        for (long id = 1; id <= 3; id++) {
+            database.put(id, TransactionStatus.PROCESSING);
+        }
+
+        cache.get(1L, loader);
+        cache.get(2L, loader);
+        cache.get(1L, loader);
+        cache.get(3L, loader);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(meterRegistry.get("vending_machine.transaction.cache.evictions").functionCounter().count())
+                .isEqualTo(1.0);
+
+        databaseReads.set(0);
+        cache.get(1L, loader);
+        assertThat(databaseReads.get()).isZero();
+        cache.get(2L, loader);
+        assertThat(databaseReads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldExpireEntriesAfterTtl() {
+        TransactionDTOCache cache = new TransactionDTOCache(meterRegistry, 100, 0);
+        database.put(1L, TransactionStatus.PROCESSING);
+
+        cache.get(1L, loader);
+        cache.get(1L, loader);
+
+        assertThat(databaseReads.get()).isEqualTo(2);
+    }
+
+    /**
+     * Soak test: 1,000 kiosks poll 50 transactions until each leaves PROCESSING,
+     * while a writer completes the transactions one by one. Every poller must observe
+     * the terminal status and the database must only see a small fraction of the polls.
+     */
+    @Test
+    void shouldServeThousandConcurrentPollersWithoutStaleReads() throws Exception {
+        int pollers = 1000;
+        int transactions = 50;
+        TransactionDTOCache cache = new TransactionDTOCache(meterRegistry, 10_000, 60);
+        for (long id = 1; id <= transactions; id++) {
+            database.put(id, TransactionStatus.PROCESSING);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(pollers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger totalPolls = new AtomicInteger();
+        try {
+            List<Future<TransactionStatus>> results = new ArrayList<>();
+            for (int i = 0; i < pollers; i++) {
+                long transactionId = (i % transactions) + 1;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    TransactionStatus status;
+                    do {
+                        totalPolls.incrementAndGet();
+                        status = cache.get(transactionId, loader).getStatus();
+                        Thread.sleep(1);
+                    } while (status == TransactionStatus.PROCESSING);
+                    return status;
+                }));
+            }
+
+            start.countDown();
+            for (long id = 1; id <= transactions; id++) {
+                Thread.sleep(5);
+                database.put(id, TransactionStatus.COMPLETED);
+                cache.invalidate(id);
+                assertThat(cache.get(id, loader).getStatus()).isEqualTo(TransactionStatus.COMPLETED);
+            }
+
+            for (Future<TransactionStatus> result : results) {
+                assertThat(result.get(30, TimeUnit.SECONDS)).isEqualTo(TransactionStatus.COMPLETED);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(databaseReads.get()).isLessThan(totalPolls.get() / 10);
+        assertThat(cache.hitRatio()).isGreaterThan(0.9);
+    }
+
+    private static TransactionDTO dto(Long id, TransactionStatus status) {
+        return TransactionDTO.builder()
+                .id(id)
+                .items(List.of())
+                .totalAmount(BigDecimal.TEN)
+                .status(status)
+                .build();
+    }
+}
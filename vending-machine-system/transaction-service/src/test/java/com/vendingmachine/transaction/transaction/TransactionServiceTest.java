@@ -0,0 +1,65 @@
+package com.vendingmachine.transaction.transaction;
+
+import com.vendingmachine.common.catalog.InventoryCatalog;
+import com.vendingmachine.transaction.client.InventoryServiceClient;
+import com.vendingmachine.transaction.client.PaymentServiceClient;
+import com.vendingmachine.transaction.exception.PaymentFailedException;
+import com.vendingmachine.transaction.kafka.KafkaEventService;
+import com.vendingmachine.transaction.transaction.dto.PaymentInfo;
+import com.vendingmachine.transaction.transaction.dto.PaymentMethod;
+import com.vendingmachine.transaction.transaction.dto.PurchaseItemDTO;
+import com.vendingmachine.transaction.transaction.dto.PurchaseRequestDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the purchase flow of the transaction service
+ */
+class TransactionServiceTest {
+
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final KafkaEventService kafkaEventService = mock(KafkaEventService.class);
+    private final InventoryServiceClient inventoryClient = mock(InventoryServiceClient.class);
+    private final PaymentServiceClient paymentClient = mock(PaymentServiceClient.class);
+    private final TransactionService transactionService = new TransactionService(transactionRepository,
+            kafkaEventService, mock(TransactionDTOCache.class), inventoryClient, paymentClient,
+            mock(InventoryCatalog.class));
+
+    @Test
+    void testFailedPaymentIsCommittedWithItsEvent() throws Exception {
+        when(inventoryClient.checkAvailability(any())).thenReturn(Map.of(1L, Map.of("available", true)));
+        when(inventoryClient.getProductPrice(1L)).thenReturn(new BigDecimal("1.50"));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            transaction.setId(7L);
+            return transaction;
+        });
+        when(paymentClient.processPayment(eq("7"), any(), any())).thenReturn(Map.of("success", false, "status", "FAILED"));
+        PurchaseRequestDTO request = PurchaseRequestDTO.builder()
+                .items(List.of(PurchaseItemDTO.builder().productId(1L).quantity(2).build()))
+                .paymentInfo(PaymentInfo.builder().paymentMethod(PaymentMethod.CREDIT_CARD).build())
+                .build();
+
+        assertThrows(PaymentFailedException.class, () -> transactionService.purchase(request));
+
+        verify(kafkaEventService).publishTransactionEventWithCompleteData(
+                argThat(transaction -> transaction.getStatus() == TransactionStatus.FAILED), eq("FAILED"));
+        // The FAILED row and its outbox event must not be rolled back by the rethrown exception
+        Transactional transactional = TransactionService.class
+                .getMethod("purchase", PurchaseRequestDTO.class).getAnnotation(Transactional.class);
+        assertTrue(Arrays.asList(transactional.noRollbackFor()).contains(PaymentFailedException.class));
+    }
+}